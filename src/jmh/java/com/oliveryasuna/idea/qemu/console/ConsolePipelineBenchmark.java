@@ -0,0 +1,92 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.console;
+
+import com.intellij.execution.process.ProcessOutputTypes;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Forwarding guest output to the console: many small chunks, as a serial console delivers them, through the coalescing pipeline and the
+// output trigger matcher.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ConsolePipelineBenchmark {
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final List<String> PATTERNS = List.of("Kernel panic", "login:", "BUG:", "Oops", "---[ end trace");
+
+  private static final int CHUNKS_PER_INVOCATION = 1000;
+
+  // Fields
+  //--------------------------------------------------
+
+  @Param({"16", "256", "4096"})
+  public int chunkSize;
+
+  private String chunk;
+
+  private ConsolePipeline pipeline;
+
+  private StreamingPatternMatcher.Scanner scanner;
+
+  // Methods
+  //--------------------------------------------------
+
+  @Setup(Level.Trial)
+  public void createPipeline(final Blackhole blackhole) {
+    final StringBuilder text = new StringBuilder(chunkSize);
+
+    while(text.length() < chunkSize) {
+      text.append("[    0.123456] virtio_blk virtio1: [vda] 2097152 512-byte logical blocks\n");
+    }
+
+    chunk = text.substring(0, chunkSize);
+    pipeline = new ConsolePipeline((forwarded, outputType) -> blackhole.consume(forwarded));
+    scanner = StreamingPatternMatcher.compile(PATTERNS).newScanner();
+  }
+
+  @TearDown(Level.Trial)
+  public void closePipeline() {
+    pipeline.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CHUNKS_PER_INVOCATION)
+  public void forward() {
+    for(int i = 0; i < CHUNKS_PER_INVOCATION; i++) {
+      pipeline.offer(chunk, ProcessOutputTypes.STDOUT);
+    }
+
+    pipeline.flush();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CHUNKS_PER_INVOCATION)
+  public void match(final Blackhole blackhole) {
+    for(int i = 0; i < CHUNKS_PER_INVOCATION; i++) {
+      scanner.feed(chunk, blackhole::consume);
+    }
+  }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.qemu;
+
+import com.oliveryasuna.idea.qemu.args.QemuArguments;
+import com.oliveryasuna.idea.qemu.run.config.BenchmarkRunConfigs;
+import com.oliveryasuna.idea.qemu.run.config.QemuRunConfig;
+import com.oliveryasuna.idea.qemu.run.config.QemuRunConfigOptions;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// Building the QEMU command line for a launch, through the same QemuLaunchPlan and QemuArguments.merge every run goes through. Capabilities
+// are not probed, as there is no QEMU to probe.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CommandLineBenchmark {
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final String EXECUTABLE = "qemu-system-x86_64";
+
+  private static final String TYPICAL_ARGUMENTS = "-m 512M -machine q35 -serial stdio -display none -device virtio-rng-pci "
+      + "-netdev user,id=net0,hostfwd=tcp::2222-:22 -device virtio-net-pci,netdev=net0 -no-reboot";
+
+  private static final int QMP_PORT = 4444;
+
+  // Fields
+  //--------------------------------------------------
+
+  @Param({"CDROM", "VIRTIO_BLK", "VIRTIO_SCSI"})
+  public QemuRunConfigOptions.DiskIoProfile diskIoProfile;
+
+  @Param({"1", "20"})
+  public int argumentRepetitions;
+
+  private String userArguments;
+
+  private QemuRunConfig runConfig;
+
+  private final File bootImage = new File("/tmp/qemu-integration-jmh/kernel.iso");
+
+  // Methods
+  //--------------------------------------------------
+
+  @Setup(Level.Trial)
+  public void createRunConfig() {
+    userArguments = String.join(" ", Collections.nCopies(argumentRepetitions, TYPICAL_ARGUMENTS));
+
+    runConfig = BenchmarkRunConfigs.create();
+
+    runConfig.setQemuExecutable(EXECUTABLE);
+    runConfig.setQemuArguments(userArguments);
+    runConfig.setDiskImageSource(QemuRunConfigOptions.DiskImageSource.CDROM_FILE);
+    runConfig.setCdromFile(bootImage.getAbsolutePath());
+    runConfig.setDiskIoProfile(diskIoProfile);
+    runConfig.setAccelerationMode(QemuRunConfigOptions.AccelerationMode.AUTO);
+    runConfig.setVcpuCount(4);
+    runConfig.setEnableGdb(true);
+    runConfig.setGdbTcpPort(QemuRunConfigOptions.DEFAULT_GDB_TCP_PORT);
+  }
+
+  @Benchmark
+  public QemuArguments parseUserArguments() {
+    return QemuArguments.parse(userArguments);
+  }
+
+  @Benchmark
+  public List<String> createCommandLine() {
+    return QemuLaunchPlan.create(runConfig, bootImage, Optional.empty())
+        .createCommandLine(EXECUTABLE, QMP_PORT)
+        .getCommandLineList(null);
+  }
+
+}
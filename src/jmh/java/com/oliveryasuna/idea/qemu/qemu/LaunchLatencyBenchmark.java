@@ -0,0 +1,127 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.qemu;
+
+import com.intellij.execution.ExecutionException;
+import com.intellij.execution.configurations.GeneralCommandLine;
+import com.intellij.execution.process.OSProcessHandler;
+import com.intellij.execution.process.ProcessAdapter;
+import com.intellij.execution.process.ProcessEvent;
+import com.intellij.execution.process.ProcessOutputTypes;
+import com.intellij.openapi.util.Key;
+import com.oliveryasuna.idea.qemu.BenchmarkFiles;
+import com.oliveryasuna.idea.qemu.args.QemuArguments;
+import com.oliveryasuna.idea.qemu.console.ConsolePipeline;
+import com.oliveryasuna.idea.qemu.console.StreamingPatternMatcher;
+import com.oliveryasuna.idea.qemu.run.config.QemuRunConfigOptions;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// End-to-end launch latency with a stub qemu-system-x86_64 that prints a short boot log and idles: command line, process spawn, output
+// reading, the output matcher and the console pipeline, up to the marker reaching the console. Measures the plugin's overhead, not QEMU's.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LaunchLatencyBenchmark {
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final String MARKER = "stub login:";
+
+  private static final String STUB_SCRIPT = "#!/bin/sh\n"
+      + "echo 'SeaBIOS (version stub)'\n"
+      + "echo 'Booting from DVD/CD...'\n"
+      + "echo '" + MARKER + "'\n"
+      + "exec sleep 60\n";
+
+  private static final long TIMEOUT_SECONDS = 10;
+
+  // Fields
+  //--------------------------------------------------
+
+  private Path directory;
+
+  private Path stubExecutable;
+
+  private StreamingPatternMatcher markerMatcher;
+
+  // Methods
+  //--------------------------------------------------
+
+  @Setup(Level.Trial)
+  public void createStub() throws IOException {
+    directory = BenchmarkFiles.createTempDirectory("launch");
+    stubExecutable = BenchmarkFiles.createExecutable(directory.resolve("qemu-system-x86_64"), STUB_SCRIPT);
+    markerMatcher = StreamingPatternMatcher.compile(List.of(MARKER));
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteStub() throws IOException {
+    BenchmarkFiles.delete(directory);
+  }
+
+  @Benchmark
+  public long launchToMarker() throws Exception {
+    final QemuDiskAttachment diskAttachment = QemuDiskAttachment.create(directory.resolve("boot.iso").toFile(),
+        QemuRunConfigOptions.DiskIoProfile.CDROM, QemuRunConfigOptions.DiskCacheMode.WRITEBACK, Optional.empty());
+    final QemuArguments arguments = QemuArguments.merge(QemuArguments.parse(diskAttachment.getArguments()),
+        QemuArguments.parse("-m 512M -serial stdio -display none"));
+    final GeneralCommandLine commandLine = new GeneralCommandLine(stubExecutable.toString());
+
+    commandLine.addParameters(arguments.toArgumentList());
+
+    final long startNanos = System.nanoTime();
+    final CompletableFuture<Long> markerOnConsole = new CompletableFuture<>();
+    final StreamingPatternMatcher.Scanner consoleScanner = markerMatcher.newScanner();
+    final ConsolePipeline pipeline = new ConsolePipeline((text, outputType) -> consoleScanner.feed(text,
+        ignored -> markerOnConsole.complete(System.nanoTime() - startNanos)));
+    final OSProcessHandler processHandler = startProcess(commandLine, pipeline);
+
+    try {
+      return markerOnConsole.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    } finally {
+      processHandler.destroyProcess();
+      processHandler.waitFor(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+      pipeline.close();
+    }
+  }
+
+  private OSProcessHandler startProcess(final GeneralCommandLine commandLine, final ConsolePipeline pipeline) throws ExecutionException {
+    final OSProcessHandler processHandler = new OSProcessHandler(commandLine);
+
+    processHandler.addProcessListener(new ProcessAdapter() {
+      @Override
+      public void onTextAvailable(final ProcessEvent event, final Key outputType) {
+        if(outputType != ProcessOutputTypes.SYSTEM) {
+          pipeline.offer(event.getText(), outputType);
+        }
+      }
+    });
+    processHandler.startNotify();
+
+    return processHandler;
+  }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.run.config;
+
+import com.intellij.execution.configurations.ConfigurationTypeBase;
+import com.intellij.openapi.project.Project;
+import com.oliveryasuna.commons.language.exception.UnsupportedInstantiationException;
+import com.oliveryasuna.commons.language.marker.Utility;
+
+import java.lang.reflect.Proxy;
+
+// Run configurations for benchmark fixtures. Outside the IDE there is no project or registered configuration type, so both are stand-ins
+// that the run configuration only holds on to.
+@Utility
+public final class BenchmarkRunConfigs {
+
+  // Static utility methods
+  //--------------------------------------------------
+
+  public static QemuRunConfig create() {
+    final ConfigurationTypeBase type = new ConfigurationTypeBase("qemu", "QEMU", "Run with QEMU", null) {};
+    final Project project = (Project)Proxy.newProxyInstance(Project.class.getClassLoader(), new Class<?>[] {Project.class},
+        (proxy, method, args) -> defaultValue(method.getReturnType()));
+
+    return new QemuRunConfig(project, new QemuConfigFactory(type), "QEMU");
+  }
+
+  private static Object defaultValue(final Class<?> type) {
+    if(type == boolean.class) {
+      return false;
+    } else if(type == int.class) {
+      return 0;
+    } else if(type == long.class) {
+      return 0L;
+    }
+
+    return null;
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  private BenchmarkRunConfigs() {
+    super();
+
+    throw new UnsupportedInstantiationException();
+  }
+
+}
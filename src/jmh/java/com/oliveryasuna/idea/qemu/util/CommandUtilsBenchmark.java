@@ -0,0 +1,92 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.util;
+
+import com.oliveryasuna.idea.qemu.BenchmarkFiles;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+// Executable search over a synthetic PATH with thousands of directories, a few of which hold QEMU binaries.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CommandUtilsBenchmark {
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final Pattern QEMU_PATTERN = Pattern.compile("qemu-system-.*");
+
+  private static final Duration DIRECTORY_TIMEOUT = Duration.ofSeconds(30);
+
+  // Fields
+  //--------------------------------------------------
+
+  @Param({"1000", "5000"})
+  public int directoryCount;
+
+  @Param({"10"})
+  public int filesPerDirectory;
+
+  private Path root;
+
+  private List<File> directories;
+
+  // Methods
+  //--------------------------------------------------
+
+  @Setup(Level.Trial)
+  public void createPath() throws IOException {
+    root = BenchmarkFiles.createTempDirectory("path");
+    directories = new ArrayList<>(directoryCount);
+
+    for(int i = 0; i < directoryCount; i++) {
+      final Path directory = Files.createDirectory(root.resolve("bin" + i));
+
+      for(int j = 0; j < filesPerDirectory; j++) {
+        BenchmarkFiles.createExecutable(directory.resolve("tool" + j), "");
+      }
+
+      if(i % 500 == 0) {
+        BenchmarkFiles.createExecutable(directory.resolve("qemu-system-x86_64"), "");
+      }
+
+      directories.add(directory.toFile());
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void deletePath() throws IOException {
+    BenchmarkFiles.delete(root);
+  }
+
+  @Benchmark
+  public List<File> findExecutables() {
+    return CommandUtils.findExecutables(directories, QEMU_PATTERN, DIRECTORY_TIMEOUT);
+  }
+
+}
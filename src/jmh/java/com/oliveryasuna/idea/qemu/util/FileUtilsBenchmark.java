@@ -0,0 +1,83 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.util;
+
+import com.oliveryasuna.idea.qemu.BenchmarkFiles;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Recursive search through a synthetic tree, e.g. a QEMU install or build directory.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FileUtilsBenchmark {
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final Pattern QEMU_PATTERN = Pattern.compile("qemu-system-.*");
+
+  private static final int FILES_PER_DIRECTORY = 20;
+
+  // Fields
+  //--------------------------------------------------
+
+  @Param({"1000", "10000"})
+  public int fileCount;
+
+  private Path root;
+
+  // Methods
+  //--------------------------------------------------
+
+  @Setup(Level.Trial)
+  public void createTree() throws IOException {
+    root = BenchmarkFiles.createTempDirectory("files");
+
+    for(int i = 0; i < fileCount; i++) {
+      final Path directory = root.resolve("d" + (i / FILES_PER_DIRECTORY / 10)).resolve("d" + (i / FILES_PER_DIRECTORY));
+
+      Files.createDirectories(directory);
+      Files.createFile(directory.resolve(i % 100 == 0 ? "qemu-system-x86_64-" + i : "file-" + i));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteTree() throws IOException {
+    BenchmarkFiles.delete(root);
+  }
+
+  @Benchmark
+  public long findFiles() throws IOException {
+    try(final Stream<?> files = FileUtils.findFiles(root.toFile(), Integer.MAX_VALUE, QEMU_PATTERN)) {
+      return files.count();
+    }
+  }
+
+  @Benchmark
+  public int listFiles() throws IOException {
+    return FileUtils.listFiles(root.resolve("d0").resolve("d0"), QEMU_PATTERN).size();
+  }
+
+}
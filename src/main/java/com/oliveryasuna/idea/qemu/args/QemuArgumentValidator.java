@@ -0,0 +1,96 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.oliveryasuna.idea.qemu.args;
+
+import com.oliveryasuna.commons.language.condition.Arguments;
+import com.oliveryasuna.commons.language.exception.UnsupportedInstantiationException;
+import com.oliveryasuna.commons.language.marker.Utility;
+import com.oliveryasuna.idea.qemu.executable.QemuCapabilities;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+@Utility
+public final class QemuArgumentValidator {
+
+  // Static fields
+  //--------------------------------------------------
+
+  // Accepted by every binary but not listed by "-cpu help" on all targets.
+  private static final Set<String> GENERIC_CPUS = Set.of("host", "max");
+
+  // Static utility methods
+  //--------------------------------------------------
+
+  public static List<String> validate(final QemuArguments arguments, final QemuCapabilities capabilities) {
+    Arguments.requireNotNull(arguments, "arguments == null");
+    Arguments.requireNotNull(capabilities, "capabilities == null");
+
+    final List<String> problems = new ArrayList<>();
+
+    if(!capabilities.wasProbed()) {
+      return problems;
+    }
+
+    for(final QemuOption option : arguments.findAll("-machine", "-M")) {
+      option.getPrimaryValue("type")
+          .filter(machine -> !isHelp(machine) && !capabilities.supportsMachine(machine))
+          .ifPresent(machine -> problems.add("Unknown machine \"" + machine + "\"."));
+    }
+
+    for(final QemuOption option : arguments.findAll("-cpu")) {
+      option.getPrimaryValue("model")
+          .filter(cpu -> !isHelp(cpu) && !GENERIC_CPUS.contains(cpu) && !capabilities.supportsCpu(cpu))
+          .ifPresent(cpu -> problems.add("Unknown CPU model \"" + cpu + "\"."));
+    }
+
+    for(final QemuOption option : arguments.findAll("-accel")) {
+      option.getPrimaryValue("accel")
+          .filter(accelerator -> !isHelp(accelerator) && !capabilities.supportsAccelerator(accelerator))
+          .ifPresent(accelerator -> problems.add("Accelerator \"" + accelerator + "\" is not available in this QEMU."));
+    }
+
+    if(arguments.has("-enable-kvm") && !capabilities.supportsAccelerator("kvm")) {
+      problems.add("Accelerator \"kvm\" is not available in this QEMU.");
+    }
+
+    for(final QemuOption option : arguments.findAll("-device")) {
+      option.getPrimaryValue("driver")
+          .filter(device -> !isHelp(device) && !capabilities.supportsDevice(device))
+          .ifPresent(device -> problems.add("Unknown device \"" + device + "\"."));
+    }
+
+    return problems;
+  }
+
+  private static boolean isHelp(final String value) {
+    return (value.equals("help") || value.equals("?"));
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  private QemuArgumentValidator() {
+    super();
+
+    throw new UnsupportedInstantiationException();
+  }
+
+}
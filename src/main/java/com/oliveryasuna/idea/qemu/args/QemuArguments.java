@@ -0,0 +1,299 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.oliveryasuna.idea.qemu.args;
+
+import com.oliveryasuna.commons.language.condition.Arguments;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+public final class QemuArguments {
+
+  // Static fields
+  //--------------------------------------------------
+
+  public static final QemuArguments EMPTY = new QemuArguments(List.of());
+
+  // Options that never take a value.
+  private static final Set<String> FLAGS = Set.of(
+      "-s", "-S", "-snapshot", "-nographic", "-enable-kvm", "-no-reboot", "-no-shutdown", "-nodefaults", "-no-user-config", "-daemonize",
+      "-no-acpi", "-no-hpet", "-full-screen", "-usb", "-no-fd-bootchk", "-only-migratable", "-preconfig", "-no-quit", "-alt-grab",
+      "-ctrl-grab", "-enable-fips", "-semihosting", "-version", "-help", "-h", "-win2k-hack", "-portrait", "-no-frame", "-curses",
+      "-mem-prealloc", "-singlestep", "-one-insn-per-tb", "-sdl", "-enable-sync-profile", "-no-kvm", "-old-param", "-xen-attach",
+      "-xen-domid-restrict", "-audio-help", "-nodefconfig");
+
+  // Options that always take the next token as their value, even one that starts with "-", as in -append "-v" or -name -foo.
+  private static final Set<String> VALUE_OPTIONS = Set.of(
+      "-machine", "-M", "-cpu", "-accel", "-smp", "-m", "-name", "-uuid", "-kernel", "-initrd", "-append", "-dtb", "-bios", "-L", "-boot",
+      "-drive", "-blockdev", "-cdrom", "-hda", "-hdb", "-hdc", "-hdd", "-fda", "-fdb", "-mtdblock", "-sd", "-pflash", "-device", "-object",
+      "-global", "-netdev", "-net", "-nic", "-chardev", "-serial", "-parallel", "-monitor", "-qmp", "-qmp-pretty", "-mon", "-debugcon",
+      "-gdb", "-d", "-D", "-trace", "-plugin", "-display", "-vga", "-vnc", "-spice", "-k", "-audiodev", "-rtc", "-icount", "-numa",
+      "-mem-path", "-smbios", "-fw_cfg", "-fsdev", "-virtfs", "-incoming", "-loadvm", "-option-rom", "-pidfile", "-sandbox", "-msg",
+      "-runas", "-chroot", "-add-fd", "-action", "-overcommit", "-watchdog-action", "-tpmdev", "-iscsi", "-usbdevice", "-echr",
+      "-semihosting-config", "-compat", "-readconfig", "-writeconfig", "-set", "-run-with", "-seed", "-tb-size", "-g", "-prom-env");
+
+  // Options of which QEMU honours only one, or that claim the same drive slot; a user-supplied option replaces the generated options of its
+  // group. IDE drives given with -drive join the slot groups in groupsOf.
+  private static final Map<String, String> EXCLUSIVE_GROUPS = Map.ofEntries(
+      Map.entry("-accel", "accel"),
+      Map.entry("-enable-kvm", "accel"),
+      Map.entry("-smp", "smp"),
+      Map.entry("-m", "memory"),
+      Map.entry("-machine", "machine"),
+      Map.entry("-M", "machine"),
+      Map.entry("-cpu", "cpu"),
+      Map.entry("-s", "gdb"),
+      Map.entry("-gdb", "gdb"),
+      Map.entry("-kernel", "kernel"),
+      Map.entry("-initrd", "initrd"),
+      Map.entry("-append", "append"),
+      Map.entry("-cdrom", "cdrom"),
+      Map.entry("-hda", "hda"));
+
+  // Static methods
+  //--------------------------------------------------
+
+  public static QemuArguments of(final List<QemuOption> options) {
+    Arguments.requireNotNull(options, "options == null");
+
+    return new QemuArguments(options);
+  }
+
+  public static QemuArguments parse(final String arguments) {
+    if(arguments == null || arguments.isBlank()) {
+      return EMPTY;
+    }
+
+    return parse(tokenize(arguments));
+  }
+
+  public static QemuArguments parse(final List<String> tokens) {
+    Arguments.requireNotNull(tokens, "tokens == null");
+
+    final List<QemuOption> options = new ArrayList<>();
+
+    for(int i = 0; i < tokens.size(); i++) {
+      final String token = tokens.get(i);
+
+      if(!token.startsWith("-")) {
+        // A bare image path, as in "qemu-system-x86_64 disk.img".
+        options.add(QemuOption.of("", token));
+      } else if(FLAGS.contains(normalizeName(token)) || i + 1 >= tokens.size()) {
+        options.add(QemuOption.flag(normalizeName(token)));
+      } else if(VALUE_OPTIONS.contains(normalizeName(token)) || !tokens.get(i + 1).startsWith("-")) {
+        options.add(QemuOption.of(normalizeName(token), tokens.get(++i)));
+      } else {
+        // Options in neither table, such as those of newer QEMU versions, are flags when another option follows.
+        options.add(QemuOption.flag(normalizeName(token)));
+      }
+    }
+
+    return new QemuArguments(options);
+  }
+
+  // Generated options come first, except where the user supplied an option of the same exclusive group or the exact same option.
+  public static QemuArguments merge(final QemuArguments generated, final QemuArguments user) {
+    Arguments.requireNotNull(generated, "generated == null");
+    Arguments.requireNotNull(user, "user == null");
+
+    final Set<String> userGroups = user.options.stream()
+        .flatMap(option -> groupsOf(option).stream())
+        .collect(Collectors.toSet());
+    final Set<QemuOption> userOptions = new HashSet<>(user.options);
+    final List<QemuOption> merged = new ArrayList<>();
+
+    for(final QemuOption option : generated.options) {
+      if(!userOptions.contains(option) && Collections.disjoint(groupsOf(option), userGroups)) {
+        merged.add(option);
+      }
+    }
+
+    merged.addAll(user.options);
+
+    return new QemuArguments(merged);
+  }
+
+  // "-machine accel=kvm" chooses the accelerator as well as the machine.
+  private static Set<String> groupsOf(final QemuOption option) {
+    if(option.getName().equals("-drive")) {
+      return driveGroupsOf(option);
+    }
+
+    final String group = EXCLUSIVE_GROUPS.get(option.getName());
+
+    if(group == null) {
+      return Set.of();
+    }
+
+    return (group.equals("machine") && option.getSubOption("accel").isPresent() ? Set.of(group, "accel") : Set.of(group));
+  }
+
+  // An IDE CD-ROM drive competes with -cdrom, and an IDE drive at index 0 with -hda. Other drives, such as those with if=none behind a
+  // -device, are independent.
+  private static Set<String> driveGroupsOf(final QemuOption drive) {
+    if(!drive.getSubOption("if").map("ide"::equals).orElse(true)) {
+      return Set.of();
+    }
+
+    if(drive.getSubOption("media").map("cdrom"::equals).orElse(false)) {
+      return Set.of("cdrom");
+    }
+
+    return (drive.getSubOption("index").map("0"::equals).orElse(false) ? Set.of("hda") : Set.of());
+  }
+
+  // QEMU accepts both "-opt" and "--opt".
+  private static String normalizeName(final String token) {
+    return (token.startsWith("--") ? token.substring(1) : token);
+  }
+
+  // Splits on whitespace outside of quotes. Double quotes allow backslash escapes; single quotes are literal.
+  static List<String> tokenize(final String arguments) {
+    final List<String> tokens = new ArrayList<>();
+    final StringBuilder token = new StringBuilder();
+    boolean inToken = false;
+    char quote = 0;
+
+    for(int i = 0; i < arguments.length(); i++) {
+      final char c = arguments.charAt(i);
+
+      if(quote == 0 && Character.isWhitespace(c)) {
+        if(inToken) {
+          tokens.add(token.toString());
+
+          token.setLength(0);
+
+          inToken = false;
+        }
+      } else if(quote == 0 && (c == '"' || c == '\'')) {
+        quote = c;
+        inToken = true;
+      } else if(c == quote) {
+        quote = 0;
+      } else if(c == '\\' && quote != '\'' && i + 1 < arguments.length()) {
+        token.append(arguments.charAt(++i));
+
+        inToken = true;
+      } else {
+        token.append(c);
+
+        inToken = true;
+      }
+    }
+
+    if(inToken) {
+      tokens.add(token.toString());
+    }
+
+    return tokens;
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  private QemuArguments(final List<QemuOption> options) {
+    super();
+
+    this.options = List.copyOf(options);
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final List<QemuOption> options;
+
+  // Methods
+  //--------------------------------------------------
+
+  public final boolean has(final String... names) {
+    return find(names).isPresent();
+  }
+
+  public final Optional<QemuOption> find(final String... names) {
+    return options.stream()
+        .filter(option -> Arrays.asList(names).contains(option.getName()))
+        .findFirst();
+  }
+
+  public final List<QemuOption> findAll(final String... names) {
+    return options.stream()
+        .filter(option -> Arrays.asList(names).contains(option.getName()))
+        .collect(Collectors.toUnmodifiableList());
+  }
+
+  // The accelerator the arguments choose through -accel, -enable-kvm or an accel sub-option of -machine. Of a fallback list such as
+  // "accel=kvm:tcg", the first.
+  public final Optional<String> findAccelerator() {
+    if(has("-enable-kvm")) {
+      return Optional.of("kvm");
+    }
+
+    final Optional<String> accelerator = find("-accel").flatMap(option -> option.getPrimaryValue("accel"));
+
+    if(accelerator.isPresent()) {
+      return accelerator;
+    }
+
+    return findAll("-machine", "-M").stream()
+        .flatMap(option -> option.getSubOption("accel").stream())
+        .map(accel -> accel.split(":", 2)[0])
+        .findFirst();
+  }
+
+  public final List<String> toArgumentList() {
+    return options.stream()
+        .flatMap(option -> option.toArguments().stream())
+        .collect(Collectors.toUnmodifiableList());
+  }
+
+  public final boolean isEmpty() {
+    return options.isEmpty();
+  }
+
+  // Getters/setters
+  //--------------------------------------------------
+
+  public final List<QemuOption> getOptions() {
+    return options;
+  }
+
+  // Object methods
+  //--------------------------------------------------
+
+  @Override
+  public final boolean equals(final Object other) {
+    if(this == other) return true;
+    if(!(other instanceof QemuArguments)) return false;
+
+    return options.equals(((QemuArguments)other).options);
+  }
+
+  @Override
+  public final int hashCode() {
+    return options.hashCode();
+  }
+
+  @Override
+  public final String toString() {
+    return options.stream()
+        .map(QemuOption::toString)
+        .collect(Collectors.joining(" "));
+  }
+
+}
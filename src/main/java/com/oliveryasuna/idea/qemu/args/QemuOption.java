@@ -0,0 +1,179 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.oliveryasuna.idea.qemu.args;
+
+import com.oliveryasuna.commons.language.condition.Arguments;
+
+import java.util.*;
+
+// A single QEMU option such as "-drive file=a.img,if=none". The value is split into sub-options; a leading element without "=" (as in
+// "tcg,thread=multi") is stored under the empty key.
+public final class QemuOption {
+
+  // Static fields
+  //--------------------------------------------------
+
+  public static final String IMPLIED_KEY = "";
+
+  // Static methods
+  //--------------------------------------------------
+
+  public static QemuOption flag(final String name) {
+    return new QemuOption(name, null);
+  }
+
+  public static QemuOption of(final String name, final String value) {
+    Arguments.requireNotNull(value, "value == null");
+
+    return new QemuOption(name, value);
+  }
+
+  static Map<String, String> parseSubOptions(final String value) {
+    final Map<String, String> subOptions = new LinkedHashMap<>();
+
+    if(value == null) {
+      return subOptions;
+    }
+
+    final StringBuilder element = new StringBuilder();
+
+    for(int i = 0; i <= value.length(); i++) {
+      final char c = (i < value.length() ? value.charAt(i) : ',');
+
+      if(c == ',' && i + 1 < value.length() && value.charAt(i + 1) == ',') {
+        element.append(',');
+
+        i++;
+      } else if(c == ',') {
+        addSubOption(subOptions, element.toString());
+
+        element.setLength(0);
+      } else {
+        element.append(c);
+      }
+    }
+
+    return subOptions;
+  }
+
+  private static void addSubOption(final Map<String, String> subOptions, final String element) {
+    if(element.isEmpty()) {
+      return;
+    }
+
+    final int equals = element.indexOf('=');
+
+    if(equals < 0) {
+      if(subOptions.isEmpty()) {
+        subOptions.put(IMPLIED_KEY, element);
+      } else {
+        subOptions.put(element, "on");
+      }
+    } else {
+      subOptions.put(element.substring(0, equals), element.substring(equals + 1));
+    }
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  private QemuOption(final String name, final String value) {
+    super();
+
+    Arguments.requireNotNull(name, "name == null");
+
+    this.name = name;
+    this.value = value;
+    this.subOptions = Collections.unmodifiableMap(parseSubOptions(value));
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final String name;
+
+  private final String value;
+
+  private final Map<String, String> subOptions;
+
+  // Methods
+  //--------------------------------------------------
+
+  public final boolean isFlag() {
+    return (value == null);
+  }
+
+  public final Optional<String> getSubOption(final String key) {
+    return Optional.ofNullable(subOptions.get(key));
+  }
+
+  // The implied value, or the given explicit key (e.g. "type" for -machine, "driver" for -device) when the value is written out in full.
+  public final Optional<String> getPrimaryValue(final String explicitKey) {
+    final String implied = subOptions.get(IMPLIED_KEY);
+
+    return (implied != null ? Optional.of(implied) : getSubOption(explicitKey));
+  }
+
+  public final List<String> toArguments() {
+    if(name.isEmpty()) {
+      return List.of(value);
+    }
+
+    return (isFlag() ? List.of(name) : List.of(name, value));
+  }
+
+  // Getters/setters
+  //--------------------------------------------------
+
+  public final String getName() {
+    return name;
+  }
+
+  public final String getValue() {
+    return value;
+  }
+
+  public final Map<String, String> getSubOptions() {
+    return subOptions;
+  }
+
+  // Object methods
+  //--------------------------------------------------
+
+  @Override
+  public final boolean equals(final Object other) {
+    if(this == other) return true;
+    if(!(other instanceof QemuOption)) return false;
+
+    final QemuOption option = (QemuOption)other;
+
+    return (name.equals(option.name) && Objects.equals(value, option.value));
+  }
+
+  @Override
+  public final int hashCode() {
+    return Objects.hash(name, value);
+  }
+
+  @Override
+  public final String toString() {
+    return String.join(" ", toArguments());
+  }
+
+}
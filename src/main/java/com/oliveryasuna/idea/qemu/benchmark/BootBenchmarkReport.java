@@ -0,0 +1,248 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.benchmark;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import com.oliveryasuna.commons.language.condition.Arguments;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+// Results of one benchmark. Written as JSON and CSV, plus a row in a per-configuration history CSV, so runs from different commits can be
+// compared.
+final class BootBenchmarkReport {
+
+  // Logging
+  //--------------------------------------------------
+
+  private static final Logger LOGGER = Logger.getInstance(BootBenchmarkReport.class);
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final DateTimeFormatter FILE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneId.systemDefault());
+
+  private static final String HISTORY_HEADER = "started,revision,boots,failures,min_ms,median_ms,p95_ms,p99_ms,mean_ms,variance_ms2";
+
+  // Static methods
+  //--------------------------------------------------
+
+  // The commit checked out in the directory, read straight from .git. Empty if there is none.
+  static String readGitRevision(final Path directory) {
+    final Path gitDirectory = directory.resolve(".git");
+
+    try {
+      final String head = Files.readString(gitDirectory.resolve("HEAD"), StandardCharsets.UTF_8).trim();
+
+      if(!head.startsWith("ref: ")) {
+        return head;
+      }
+
+      final String ref = head.substring("ref: ".length());
+      final Path refFile = gitDirectory.resolve(ref);
+
+      if(Files.isRegularFile(refFile)) {
+        return Files.readString(refFile, StandardCharsets.UTF_8).trim();
+      }
+
+      final Path packedRefs = gitDirectory.resolve("packed-refs");
+
+      if(Files.isRegularFile(packedRefs)) {
+        for(final String line : Files.readAllLines(packedRefs, StandardCharsets.UTF_8)) {
+          if(line.endsWith(" " + ref)) {
+            return line.substring(0, line.indexOf(' '));
+          }
+        }
+      }
+    } catch(final IOException e) {
+      // Not a git checkout, or a worktree we do not understand.
+    }
+
+    return "";
+  }
+
+  private static String format(final double value) {
+    return (Double.isNaN(value) ? "" : String.format(Locale.ROOT, "%.3f", value));
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  BootBenchmarkReport(final String configurationName, final Instant startTime, final String revision, final String marker,
+      final String commandLine, final int warmupIterations, final int concurrency, final List<Double> samples) {
+    super();
+
+    Arguments.requireNotNull(startTime, "startTime == null");
+    Arguments.requireNotNull(samples, "samples == null");
+
+    this.configurationName = configurationName;
+    this.startTime = startTime;
+    this.revision = revision;
+    this.marker = marker;
+    this.commandLine = commandLine;
+    this.warmupIterations = warmupIterations;
+    this.concurrency = concurrency;
+    this.samples = new ArrayList<>(samples);
+    this.statistics = BootTimeStatistics.of(getMeasuredSamples());
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final String configurationName;
+
+  private final Instant startTime;
+
+  private final String revision;
+
+  private final String marker;
+
+  private final String commandLine;
+
+  private final int warmupIterations;
+
+  private final int concurrency;
+
+  // Boot time of every iteration in milliseconds, warm-up included. Null where the marker never appeared.
+  private final List<Double> samples;
+
+  private final BootTimeStatistics statistics;
+
+  // Methods
+  //--------------------------------------------------
+
+  final List<Double> getMeasuredSamples() {
+    return samples.subList(Math.min(warmupIterations, samples.size()), samples.size()).stream()
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList());
+  }
+
+  final int getFailureCount() {
+    return (int)samples.subList(Math.min(warmupIterations, samples.size()), samples.size()).stream()
+        .filter(Objects::isNull)
+        .count();
+  }
+
+  final String formatSummary() {
+    return String.format(Locale.ROOT, "Boots: %d measured, %d failed%n", statistics.getCount(), getFailureCount())
+        + String.format(Locale.ROOT, "  min %s ms, median %s ms, p95 %s ms, p99 %s ms%n", format(statistics.getMin()), format(statistics.getMedian()),
+        format(statistics.getPercentile(95)), format(statistics.getPercentile(99)))
+        + String.format(Locale.ROOT, "  mean %s ms, variance %s ms^2, std dev %s ms%n", format(statistics.getMean()), format(statistics.getVariance()),
+        format(statistics.getStandardDeviation()));
+  }
+
+  // Returns the files written.
+  final List<Path> write(final Path directory) throws IOException {
+    Arguments.requireNotNull(directory, "directory == null");
+
+    Files.createDirectories(directory);
+
+    final String baseName = FileUtil.sanitizeFileName(configurationName);
+    final Path jsonFile = directory.resolve(baseName + "-" + FILE_TIME_FORMATTER.format(startTime) + ".json");
+    final Path csvFile = directory.resolve(baseName + "-" + FILE_TIME_FORMATTER.format(startTime) + ".csv");
+    final Path historyFile = directory.resolve(baseName + "-history.csv");
+
+    Files.writeString(jsonFile, new GsonBuilder().setPrettyPrinting().create().toJson(toJson()), StandardCharsets.UTF_8);
+
+    try(final Writer writer = Files.newBufferedWriter(csvFile, StandardCharsets.UTF_8)) {
+      writer.write("iteration,warmup,boot_ms\n");
+
+      for(int i = 0; i < samples.size(); i++) {
+        writer.write((i + 1) + "," + (i < warmupIterations) + "," + (samples.get(i) == null ? "" : format(samples.get(i))) + "\n");
+      }
+    }
+
+    final boolean newHistory = !Files.exists(historyFile);
+
+    try(final Writer writer = Files.newBufferedWriter(historyFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+      if(newHistory) {
+        writer.write(HISTORY_HEADER + "\n");
+      }
+
+      writer.write(String.join(",", startTime.toString(), revision, Integer.toString(statistics.getCount()), Integer.toString(getFailureCount()),
+          format(statistics.getMin()), format(statistics.getMedian()), format(statistics.getPercentile(95)), format(statistics.getPercentile(99)),
+          format(statistics.getMean()), format(statistics.getVariance())) + "\n");
+    }
+
+    LOGGER.info("Wrote boot benchmark report " + jsonFile + ".");
+
+    return List.of(jsonFile, csvFile, historyFile);
+  }
+
+  private JsonObject toJson() {
+    final JsonObject json = new JsonObject();
+
+    json.addProperty("configuration", configurationName);
+    json.addProperty("started", startTime.toString());
+    json.addProperty("revision", revision);
+    json.addProperty("marker", marker);
+    json.addProperty("commandLine", commandLine);
+    json.addProperty("warmupIterations", warmupIterations);
+    json.addProperty("concurrency", concurrency);
+
+    final JsonArray samplesJson = new JsonArray();
+
+    samples.forEach(samplesJson::add);
+
+    json.add("samplesMs", samplesJson);
+
+    final JsonObject statisticsJson = new JsonObject();
+
+    statisticsJson.addProperty("count", statistics.getCount());
+    statisticsJson.addProperty("failures", getFailureCount());
+
+    if(statistics.getCount() > 0) {
+      statisticsJson.addProperty("minMs", statistics.getMin());
+      statisticsJson.addProperty("maxMs", statistics.getMax());
+      statisticsJson.addProperty("medianMs", statistics.getMedian());
+      statisticsJson.addProperty("p95Ms", statistics.getPercentile(95));
+      statisticsJson.addProperty("p99Ms", statistics.getPercentile(99));
+      statisticsJson.addProperty("meanMs", statistics.getMean());
+      statisticsJson.addProperty("varianceMs2", statistics.getVariance());
+      statisticsJson.addProperty("standardDeviationMs", statistics.getStandardDeviation());
+    }
+
+    json.add("statistics", statisticsJson);
+
+    return json;
+  }
+
+  // Getters/setters
+  //--------------------------------------------------
+
+  final BootTimeStatistics getStatistics() {
+    return statistics;
+  }
+
+}
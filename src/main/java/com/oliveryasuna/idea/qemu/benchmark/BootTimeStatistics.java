@@ -0,0 +1,111 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.benchmark;
+
+import com.oliveryasuna.commons.language.condition.Arguments;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+// Summary of boot time samples, in milliseconds. Percentiles interpolate linearly between the closest ranks.
+public final class BootTimeStatistics {
+
+  // Static methods
+  //--------------------------------------------------
+
+  public static BootTimeStatistics of(final Collection<Double> samples) {
+    Arguments.requireNotNull(samples, "samples == null");
+
+    return new BootTimeStatistics(samples.stream().mapToDouble(Double::doubleValue).sorted().toArray());
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  private BootTimeStatistics(final double[] sorted) {
+    super();
+
+    this.sorted = sorted;
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final double[] sorted;
+
+  // Methods
+  //--------------------------------------------------
+
+  public final int getCount() {
+    return sorted.length;
+  }
+
+  public final double getMin() {
+    return (sorted.length == 0 ? Double.NaN : sorted[0]);
+  }
+
+  public final double getMax() {
+    return (sorted.length == 0 ? Double.NaN : sorted[sorted.length - 1]);
+  }
+
+  public final double getMean() {
+    return (sorted.length == 0 ? Double.NaN : Arrays.stream(sorted).sum() / sorted.length);
+  }
+
+  public final double getMedian() {
+    return getPercentile(50);
+  }
+
+  public final double getPercentile(final double percentile) {
+    if(percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("percentile must be in [0, 100].");
+    }
+
+    if(sorted.length == 0) {
+      return Double.NaN;
+    }
+
+    final double rank = percentile / 100 * (sorted.length - 1);
+    final int lower = (int)Math.floor(rank);
+    final int upper = (int)Math.ceil(rank);
+
+    return sorted[lower] + (sorted[upper] - sorted[lower]) * (rank - lower);
+  }
+
+  // Sample variance (n - 1).
+  public final double getVariance() {
+    if(sorted.length < 2) {
+      return (sorted.length == 0 ? Double.NaN : 0);
+    }
+
+    final double mean = getMean();
+
+    double sum = 0;
+
+    for(final double sample : sorted) {
+      sum += (sample - mean) * (sample - mean);
+    }
+
+    return sum / (sorted.length - 1);
+  }
+
+  public final double getStandardDeviation() {
+    return Math.sqrt(getVariance());
+  }
+
+}
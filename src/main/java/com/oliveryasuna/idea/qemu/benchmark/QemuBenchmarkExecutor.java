@@ -0,0 +1,103 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.benchmark;
+
+import com.intellij.execution.Executor;
+import com.intellij.execution.ExecutorRegistry;
+import com.intellij.icons.AllIcons;
+import com.intellij.openapi.util.IconLoader;
+import com.intellij.openapi.wm.ToolWindowId;
+
+import javax.swing.*;
+
+// Boots a QEMU run configuration repeatedly and reports boot time statistics instead of running it once.
+public final class QemuBenchmarkExecutor extends Executor {
+
+  // Static fields
+  //--------------------------------------------------
+
+  public static final String EXECUTOR_ID = "QemuBootBenchmark";
+
+  // Static methods
+  //--------------------------------------------------
+
+  public static QemuBenchmarkExecutor getInstance() {
+    return (QemuBenchmarkExecutor)ExecutorRegistry.getInstance().getExecutorById(EXECUTOR_ID);
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  public QemuBenchmarkExecutor() {
+    super();
+  }
+
+  // Executor methods
+  //--------------------------------------------------
+
+  @Override
+  public final String getToolWindowId() {
+    return ToolWindowId.RUN;
+  }
+
+  @Override
+  public final Icon getToolWindowIcon() {
+    return AllIcons.Actions.ProfileCPU;
+  }
+
+  @Override
+  public final Icon getIcon() {
+    return AllIcons.Actions.ProfileCPU;
+  }
+
+  @Override
+  public final Icon getDisabledIcon() {
+    return IconLoader.getDisabledIcon(getIcon());
+  }
+
+  @Override
+  public final String getDescription() {
+    return "Benchmark the boot time of the selected configuration";
+  }
+
+  @Override
+  public final String getActionName() {
+    return "Benchmark Boot";
+  }
+
+  @Override
+  public final String getId() {
+    return EXECUTOR_ID;
+  }
+
+  @Override
+  public final String getStartActionText() {
+    return "Benchmark Boot";
+  }
+
+  @Override
+  public final String getContextActionId() {
+    return "QemuBootBenchmarkContext";
+  }
+
+  @Override
+  public final String getHelpId() {
+    return null;
+  }
+
+}
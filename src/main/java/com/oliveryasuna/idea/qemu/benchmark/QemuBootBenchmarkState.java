@@ -0,0 +1,418 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.benchmark;
+
+import com.intellij.execution.ExecutionException;
+import com.intellij.execution.configurations.CommandLineState;
+import com.intellij.execution.configurations.GeneralCommandLine;
+import com.intellij.execution.process.*;
+import com.intellij.execution.runners.ExecutionEnvironment;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.net.NetUtils;
+import com.jetbrains.cidr.cpp.cmake.model.CMakeConfiguration;
+import com.jetbrains.cidr.cpp.cmake.model.CMakeTarget;
+import com.jetbrains.cidr.cpp.execution.CMakeBuildConfigurationHelper;
+import com.oliveryasuna.commons.language.condition.Arguments;
+import com.oliveryasuna.idea.qemu.cmake.CMakeBuildProcessHandler;
+import com.oliveryasuna.idea.qemu.console.StreamingPatternMatcher;
+import com.oliveryasuna.idea.qemu.instance.QemuInstanceRegistry;
+import com.oliveryasuna.idea.qemu.qemu.QemuLaunchPlan;
+import com.oliveryasuna.idea.qemu.run.config.QemuRunConfig;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Boots the configured image again and again, timing each boot from spawning QEMU to the boot complete marker. Iterations run with up to
+// the configured concurrency; the first warm-up iterations (by start order) are reported but left out of the statistics.
+public final class QemuBootBenchmarkState extends CommandLineState {
+
+  // Logging
+  //--------------------------------------------------
+
+  private static final Logger LOGGER = Logger.getInstance(QemuBootBenchmarkState.class);
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final String REPORT_DIRECTORY = ".qemu-benchmarks";
+
+  // Constructors
+  //--------------------------------------------------
+
+  public QemuBootBenchmarkState(final ExecutionEnvironment environment, final QemuRunConfig runConfig) {
+    super(environment);
+
+    Arguments.requireNotNull(runConfig, "runConfig == null");
+
+    this.runConfig = runConfig;
+    this.warmupIterations = runConfig.getBenchmarkWarmupIterations();
+    this.totalIterations = warmupIterations + runConfig.getBenchmarkIterations();
+    this.samples = new ArrayList<>(Collections.nCopies(totalIterations, null));
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final QemuRunConfig runConfig;
+
+  private final int warmupIterations;
+
+  private final int totalIterations;
+
+  private final Instant startTime = Instant.now();
+
+  private final List<Double> samples;
+
+  private final Map<Integer, IterationListener> runningIterations = new HashMap<>();
+
+  private BenchmarkProcessHandler mainProcess;
+
+  private ProcessHandler cmakeProcess;
+
+  private StreamingPatternMatcher markerMatcher;
+
+  private QemuLaunchPlan launchPlan;
+
+  private int startedIterations;
+
+  private int finishedIterations;
+
+  private boolean finished;
+
+  // CommandLineState methods
+  //--------------------------------------------------
+
+  @Override
+  protected final ProcessHandler startProcess() throws ExecutionException {
+    if(StringUtils.isEmpty(runConfig.getBootCompleteMarker())) {
+      throw new ExecutionException("Set a boot complete marker to benchmark boot time.");
+    }
+
+    markerMatcher = StreamingPatternMatcher.compile(List.of(runConfig.getBootCompleteMarker()));
+    mainProcess = new BenchmarkProcessHandler();
+
+    mainProcess.notifyTextAvailable("Benchmarking " + runConfig.getBenchmarkIterations() + " boots after " + warmupIterations
+        + " warm-up boots, " + runConfig.getBenchmarkConcurrency() + " at a time, until \"" + runConfig.getBootCompleteMarker() + "\".\n",
+        ProcessOutputTypes.SYSTEM);
+
+    switch(runConfig.getDiskImageSource()) {
+      case CMAKE_TARGET:
+        cmakeProcess = runCMakeBuild();
+        break;
+      case CDROM_FILE:
+        startIterations(new File(runConfig.getCdromFile()));
+        break;
+      case KERNEL_FILE:
+        startIterations(new File(runConfig.getKernelFile()));
+        break;
+    }
+
+    return mainProcess;
+  }
+
+  // Methods
+  //--------------------------------------------------
+
+  private ProcessHandler runCMakeBuild() throws ExecutionException {
+    final CMakeTarget target = runConfig.getCmakeTarget();
+
+    if(target == null) {
+      throw new ExecutionException("No selected CMake target.");
+    }
+
+    final CMakeConfiguration config = new CMakeBuildConfigurationHelper(getEnvironment().getProject()).getDefaultConfiguration(target);
+
+    if(config == null) {
+      throw new ExecutionException("No CMake configuration for selected target.");
+    }
+
+    final CMakeBuildProcessHandler processHandler = new CMakeBuildProcessHandler(getEnvironment().getProject(), config);
+
+    processHandler.addProcessListener(new ProcessAdapter() {
+      @Override
+      public void processTerminated(final ProcessEvent event) {
+        if(event.getExitCode() != 0) {
+          mainProcess.notifyTextAvailable("CMake build failed.\n", ProcessOutputTypes.SYSTEM);
+
+          finish();
+
+          return;
+        }
+
+        startIterations(config.getProductFile());
+      }
+    });
+
+    return processHandler;
+  }
+
+  private void startIterations(final File bootImage) {
+    launchPlan = QemuLaunchPlan.createBenchmark(runConfig, bootImage, getVcpuCountPerBoot());
+
+    for(int i = 0; i < Math.max(1, runConfig.getBenchmarkConcurrency()); i++) {
+      startNextIteration();
+    }
+  }
+
+  // Concurrent boots share the host's cores, so a configured vCPU count is capped at each boot's share; oversubscribed hosts skew the
+  // timings. Unset, it stays at the machine's default.
+  private int getVcpuCountPerBoot() {
+    final int configured = runConfig.getVcpuCount();
+
+    if(configured <= 0) {
+      return 0;
+    }
+
+    return Math.min(configured, Math.max(1, Runtime.getRuntime().availableProcessors() / Math.max(1, runConfig.getBenchmarkConcurrency())));
+  }
+
+  private synchronized void startNextIteration() {
+    if(finished || startedIterations >= totalIterations) {
+      return;
+    }
+
+    final int iteration = startedIterations++;
+
+    try {
+      final int qmpPort = NetUtils.findAvailableSocketPort();
+      final GeneralCommandLine commandLine = launchPlan.createCommandLine(runConfig.getQemuExecutable(), qmpPort);
+      final long spawnNanos = System.nanoTime();
+      final ProcessHandler processHandler = ProcessHandlerFactory.getInstance().createProcessHandler(commandLine);
+      final IterationListener listener = new IterationListener(iteration, spawnNanos, processHandler);
+
+      QemuInstanceRegistry.getInstance().register(getEnvironment().getProject(), runConfig.getName(), processHandler, qmpPort, 0);
+
+      runningIterations.put(iteration, listener);
+
+      processHandler.addProcessListener(listener);
+      processHandler.startNotify();
+
+      AppExecutorUtil.getAppScheduledExecutorService().schedule(() -> listener.complete(null, "timed out"), runConfig.getBenchmarkTimeout(),
+          TimeUnit.SECONDS);
+    } catch(final IOException | ExecutionException e) {
+      LOGGER.warn(e); // TODO: Error reporting.
+
+      mainProcess.notifyTextAvailable("Failed to start QEMU: " + e.getMessage() + "\n", ProcessOutputTypes.SYSTEM);
+
+      finish();
+    }
+  }
+
+  private void iterationFinished(final int iteration, final Double bootMillis, final String failure) {
+    final boolean last;
+
+    synchronized(this) {
+      // Iterations that complete while the benchmark is finishing are not reported.
+      if(finished) {
+        return;
+      }
+
+      runningIterations.remove(iteration);
+      samples.set(iteration, bootMillis);
+      last = (++finishedIterations >= totalIterations);
+
+      // Under the lock, so it cannot come after the summary.
+      mainProcess.notifyTextAvailable("Boot " + (iteration + 1) + "/" + totalIterations + ": "
+          + (bootMillis != null ? String.format(Locale.ROOT, "%.1f ms", bootMillis) : failure)
+          + (iteration < warmupIterations ? " (warm-up)" : "") + "\n", ProcessOutputTypes.SYSTEM);
+    }
+
+    if(last) {
+      finish();
+    } else {
+      startNextIteration();
+    }
+  }
+
+  private void finish() {
+    final List<IterationListener> running;
+    final boolean anyFinished;
+
+    synchronized(this) {
+      if(finished) {
+        return;
+      }
+
+      finished = true;
+      running = new ArrayList<>(runningIterations.values());
+      anyFinished = (finishedIterations > 0);
+    }
+
+    // Detached first, so the abandoned boots do not report after the summary.
+    running.forEach(IterationListener::abandon);
+
+    if(anyFinished) {
+      writeReport();
+    }
+
+    mainProcess.benchmarkFinished();
+  }
+
+  private void writeReport() {
+    final Path projectDirectory = Paths.get(Objects.requireNonNullElse(getEnvironment().getProject().getBasePath(), "."));
+    final BootBenchmarkReport report;
+
+    synchronized(this) {
+      report = new BootBenchmarkReport(runConfig.getName(), startTime, BootBenchmarkReport.readGitRevision(projectDirectory),
+          runConfig.getBootCompleteMarker(), (launchPlan != null ? launchPlan.getArguments().toString() : ""), warmupIterations,
+          runConfig.getBenchmarkConcurrency(), samples.subList(0, Math.min(startedIterations, samples.size())));
+    }
+
+    mainProcess.notifyTextAvailable(report.formatSummary(), ProcessOutputTypes.SYSTEM);
+
+    try {
+      final List<Path> files = report.write(projectDirectory.resolve(REPORT_DIRECTORY));
+
+      mainProcess.notifyTextAvailable("Report: " + files.get(0) + "\n", ProcessOutputTypes.SYSTEM);
+
+      VfsUtil.markDirtyAndRefresh(true, false, false, files.stream().map(Path::toFile).toArray(File[]::new));
+    } catch(final IOException e) {
+      LOGGER.warn(e); // TODO: Error reporting.
+
+      mainProcess.notifyTextAvailable("Failed to write report: " + e.getMessage() + "\n", ProcessOutputTypes.SYSTEM);
+    }
+  }
+
+  // BenchmarkProcessHandler class
+  //--------------------------------------------------
+
+  private final class BenchmarkProcessHandler extends NopProcessHandler {
+
+    // Constructors
+    //--------------------------------------------------
+
+    private BenchmarkProcessHandler() {
+      super();
+    }
+
+    // Methods
+    //--------------------------------------------------
+
+    private void benchmarkFinished() {
+      final boolean measured = QemuBootBenchmarkState.this.samples.subList(Math.min(warmupIterations, totalIterations), totalIterations).stream()
+          .anyMatch(Objects::nonNull);
+
+      notifyProcessTerminated(measured ? 0 : 1);
+    }
+
+    // NopProcessHandler methods
+    //--------------------------------------------------
+
+    // Stopping the run abandons the benchmark; whatever finished so far is still reported.
+    @Override
+    protected final void destroyProcessImpl() {
+      if(QemuBootBenchmarkState.this.cmakeProcess != null && !QemuBootBenchmarkState.this.cmakeProcess.isProcessTerminated()) {
+        QemuBootBenchmarkState.this.cmakeProcess.destroyProcess();
+      }
+
+      QemuBootBenchmarkState.this.finish();
+    }
+
+  }
+
+  // IterationListener class
+  //--------------------------------------------------
+
+  private final class IterationListener extends ProcessAdapter {
+
+    // Constructors
+    //--------------------------------------------------
+
+    private IterationListener(final int iteration, final long spawnNanos, final ProcessHandler processHandler) {
+      super();
+
+      this.iteration = iteration;
+      this.spawnNanos = spawnNanos;
+      this.processHandler = processHandler;
+    }
+
+    // Fields
+    //--------------------------------------------------
+
+    private final int iteration;
+
+    private final long spawnNanos;
+
+    private final ProcessHandler processHandler;
+
+    // One per output type. stdout and stderr are read on separate threads, and a match must not continue across them.
+    private final Map<Key, StreamingPatternMatcher.Scanner> markerScanners = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean completed = new AtomicBoolean();
+
+    // Methods
+    //--------------------------------------------------
+
+    private void complete(final Double bootMillis, final String failure) {
+      if(!completed.compareAndSet(false, true)) {
+        return;
+      }
+
+      // -snapshot discards guest writes, so there is nothing to shut down cleanly.
+      processHandler.destroyProcess();
+
+      QemuBootBenchmarkState.this.iterationFinished(iteration, bootMillis, failure);
+    }
+
+    private void abandon() {
+      if(!completed.compareAndSet(false, true)) {
+        return;
+      }
+
+      processHandler.removeProcessListener(this);
+      processHandler.destroyProcess();
+    }
+
+    // ProcessAdaptor methods
+    //--------------------------------------------------
+
+    @Override
+    public final void onTextAvailable(final ProcessEvent event, final Key outputType) {
+      if(outputType == ProcessOutputTypes.SYSTEM || completed.get()) {
+        return;
+      }
+
+      final long nowNanos = System.nanoTime();
+
+      final StreamingPatternMatcher.Scanner markerScanner = markerScanners.computeIfAbsent(outputType,
+          ignored -> QemuBootBenchmarkState.this.markerMatcher.newScanner());
+
+      synchronized(markerScanner) {
+        markerScanner.feed(event.getText(), ignored -> complete((nowNanos - spawnNanos) / 1e6, null));
+      }
+    }
+
+    @Override
+    public final void processTerminated(final ProcessEvent event) {
+      complete(null, "QEMU exited with code " + event.getExitCode() + " before the marker");
+    }
+
+  }
+
+}
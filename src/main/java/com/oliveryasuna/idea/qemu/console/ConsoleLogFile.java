@@ -0,0 +1,409 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.console;
+
+import com.oliveryasuna.commons.language.condition.Arguments;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Read-only view of a log written by ConsoleLogWriter, as it was when opened. The log is memory-mapped in windows and never copied onto the
+// heap as a whole; the sparse index turns line numbers and times into offsets. Regex search runs directly on the mapped bytes, read as
+// ISO-8859-1, so patterns should stick to ASCII.
+public final class ConsoleLogFile implements Closeable {
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final long WINDOW_SIZE = 64L << 20;
+
+  // Each window maps this much of the next one too, so lines crossing a window boundary can still be matched in one piece.
+  private static final long WINDOW_OVERLAP = 1L << 20;
+
+  private static final int CACHED_WINDOWS = 8;
+
+  private static final int INDEX_ENTRY_LONGS = 3;
+
+  // Static methods
+  //--------------------------------------------------
+
+  public static ConsoleLogFile open(final Path logFile) throws IOException {
+    Arguments.requireNotNull(logFile, "logFile == null");
+
+    final FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ);
+
+    try {
+      return new ConsoleLogFile(logFile, channel, readIndex(ConsoleLogWriter.getIndexFile(logFile)));
+    } catch(final IOException | RuntimeException e) {
+      channel.close();
+
+      throw e;
+    }
+  }
+
+  private static LongBuffer readIndex(final Path indexFile) throws IOException {
+    if(!Files.isRegularFile(indexFile)) {
+      return LongBuffer.wrap(new long[] {0, 0, 0});
+    }
+
+    try(final FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+      final long size = channel.size() - (channel.size() % (Long.BYTES * INDEX_ENTRY_LONGS));
+
+      if(size == 0) {
+        return LongBuffer.wrap(new long[] {0, 0, 0});
+      }
+
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, size).asLongBuffer();
+    }
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  private ConsoleLogFile(final Path logFile, final FileChannel channel, final LongBuffer index) throws IOException {
+    super();
+
+    this.logFile = logFile;
+    this.channel = channel;
+    this.size = channel.size();
+    this.index = index;
+
+    // The index may already describe text written after the size was taken.
+    int entries = index.limit() / INDEX_ENTRY_LONGS;
+
+    while(entries > 1 && getIndexOffset(entries - 1) > size) {
+      entries--;
+    }
+
+    this.indexEntries = entries;
+    this.lineCount = countLines();
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final Path logFile;
+
+  private final FileChannel channel;
+
+  private final long size;
+
+  private final LongBuffer index;
+
+  private final int indexEntries;
+
+  private final long lineCount;
+
+  private final Map<Long, MappedByteBuffer> windows = new LinkedHashMap<>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<Long, MappedByteBuffer> eldest) {
+      return (size() > CACHED_WINDOWS);
+    }
+  };
+
+  // Speeds up reading consecutive lines, which is what scrolling does.
+  private long lastLine = -1;
+
+  private long lastLineOffset;
+
+  // Methods
+  //--------------------------------------------------
+
+  public final synchronized String getLine(final long line) throws IOException {
+    if(line < 0 || line >= lineCount) {
+      throw new IndexOutOfBoundsException("line " + line + " of " + lineCount);
+    }
+
+    final long start = getLineOffset(line);
+    final long end = findLineEnd(start);
+
+    lastLine = line + 1;
+    lastLineOffset = Math.min(size, end + 1);
+
+    final byte[] bytes = new byte[(int)Math.min(Integer.MAX_VALUE - 8, end - start)];
+
+    for(int i = 0; i < bytes.length; i++) {
+      bytes[i] = byteAt(start + i);
+    }
+
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  // The first line at or after fromLine containing a match, or -1.
+  public final synchronized long findNext(final Pattern pattern, final long fromLine) throws IOException {
+    Arguments.requireNotNull(pattern, "pattern == null");
+
+    if(fromLine >= lineCount) {
+      return -1;
+    }
+
+    long offset = getLineOffset(Math.max(0, fromLine));
+
+    while(offset < size) {
+      final long windowIndex = offset / WINDOW_SIZE;
+      final long windowStart = windowIndex * WINDOW_SIZE;
+      final ByteBuffer window = getWindow(windowIndex);
+      final Matcher matcher = pattern.matcher(new ByteCharSequence(window));
+
+      matcher.region((int)(offset - windowStart), window.limit());
+
+      if(matcher.find() && matcher.start() < WINDOW_SIZE) {
+        return getLineNumber(windowStart + matcher.start());
+      }
+
+      offset = windowStart + WINDOW_SIZE;
+    }
+
+    return -1;
+  }
+
+  // The first indexed line received at or after the time, as epoch milliseconds. Index entries are INDEX_INTERVAL lines apart, so that is
+  // the precision.
+  public final long findLineAt(final long time) {
+    int low = 0;
+    int high = indexEntries - 1;
+
+    while(low < high) {
+      final int middle = (low + high) >>> 1;
+
+      if(getIndexTime(middle) < time) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+
+    return Math.min(getIndexLine(low), Math.max(0, lineCount - 1));
+  }
+
+  // Epoch milliseconds at which the indexed line at or before the line was received.
+  public final long getLineTime(final long line) {
+    return getIndexTime(findIndexEntryForLine(line));
+  }
+
+  private long getLineOffset(final long line) throws IOException {
+    long currentLine;
+    long offset;
+
+    if(lastLine >= 0 && lastLine <= line && line - lastLine < ConsoleLogWriter.INDEX_INTERVAL) {
+      currentLine = lastLine;
+      offset = lastLineOffset;
+    } else {
+      final int entry = findIndexEntryForLine(line);
+
+      currentLine = getIndexLine(entry);
+      offset = getIndexOffset(entry);
+    }
+
+    while(currentLine < line) {
+      offset = findLineEnd(offset) + 1;
+      currentLine++;
+    }
+
+    return offset;
+  }
+
+  private long getLineNumber(final long offset) throws IOException {
+    int low = 0;
+    int high = indexEntries - 1;
+
+    while(low < high) {
+      final int middle = (low + high + 1) >>> 1;
+
+      if(getIndexOffset(middle) <= offset) {
+        low = middle;
+      } else {
+        high = middle - 1;
+      }
+    }
+
+    long line = getIndexLine(low);
+
+    for(long position = getIndexOffset(low); position < offset; position++) {
+      if(byteAt(position) == '\n') {
+        line++;
+      }
+    }
+
+    return line;
+  }
+
+  private int findIndexEntryForLine(final long line) {
+    int low = 0;
+    int high = indexEntries - 1;
+
+    while(low < high) {
+      final int middle = (low + high + 1) >>> 1;
+
+      if(getIndexLine(middle) <= line) {
+        low = middle;
+      } else {
+        high = middle - 1;
+      }
+    }
+
+    return low;
+  }
+
+  private long findLineEnd(final long start) throws IOException {
+    long position = start;
+
+    while(position < size && byteAt(position) != '\n') {
+      position++;
+    }
+
+    return position;
+  }
+
+  private long countLines() throws IOException {
+    final int last = indexEntries - 1;
+
+    long lines = getIndexLine(last);
+    long position = getIndexOffset(last);
+    boolean partialLine = false;
+
+    while(position < size) {
+      final long end = findLineEnd(position);
+
+      if(end < size) {
+        lines++;
+      } else {
+        partialLine = true;
+      }
+
+      position = end + 1;
+    }
+
+    return (partialLine ? lines + 1 : lines);
+  }
+
+  private byte byteAt(final long offset) throws IOException {
+    final long windowIndex = offset / WINDOW_SIZE;
+
+    return getWindow(windowIndex).get((int)(offset - windowIndex * WINDOW_SIZE));
+  }
+
+  private MappedByteBuffer getWindow(final long windowIndex) throws IOException {
+    MappedByteBuffer window = windows.get(windowIndex);
+
+    if(window == null) {
+      final long start = windowIndex * WINDOW_SIZE;
+
+      window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE + WINDOW_OVERLAP, size - start));
+
+      windows.put(windowIndex, window);
+    }
+
+    return window;
+  }
+
+  private long getIndexLine(final int entry) {
+    return index.get(entry * INDEX_ENTRY_LONGS);
+  }
+
+  private long getIndexOffset(final int entry) {
+    return index.get(entry * INDEX_ENTRY_LONGS + 1);
+  }
+
+  private long getIndexTime(final int entry) {
+    return index.get(entry * INDEX_ENTRY_LONGS + 2);
+  }
+
+  // Getters/setters
+  //--------------------------------------------------
+
+  public final Path getLogFile() {
+    return logFile;
+  }
+
+  public final long getLineCount() {
+    return lineCount;
+  }
+
+  // Closeable methods
+  //--------------------------------------------------
+
+  @Override
+  public final synchronized void close() throws IOException {
+    windows.clear();
+
+    channel.close();
+  }
+
+  // ByteCharSequence class
+  //--------------------------------------------------
+
+  // Bytes as ISO-8859-1 characters, without copying.
+  private static final class ByteCharSequence implements CharSequence {
+
+    // Constructors
+    //--------------------------------------------------
+
+    private ByteCharSequence(final ByteBuffer buffer) {
+      super();
+
+      this.buffer = buffer;
+    }
+
+    // Fields
+    //--------------------------------------------------
+
+    private final ByteBuffer buffer;
+
+    // CharSequence methods
+    //--------------------------------------------------
+
+    @Override
+    public final int length() {
+      return buffer.limit();
+    }
+
+    @Override
+    public final char charAt(final int index) {
+      return (char)(buffer.get(index) & 0xFF);
+    }
+
+    @Override
+    public final CharSequence subSequence(final int start, final int end) {
+      return new ByteCharSequence(buffer.duplicate().position(start).limit(end).slice());
+    }
+
+    @Override
+    public final String toString() {
+      final byte[] bytes = new byte[buffer.limit()];
+
+      buffer.duplicate().position(0).get(bytes);
+
+      return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+  }
+
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.console;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.DialogWrapper;
+import com.intellij.ui.SearchTextField;
+import com.intellij.ui.components.JBLabel;
+import com.intellij.ui.components.JBList;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.components.JBTextField;
+import com.intellij.util.ui.JBUI;
+import com.oliveryasuna.commons.language.condition.Arguments;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+// Browses a full console log without loading it: the list asks the log file for lines only as they are scrolled into view.
+public final class ConsoleLogViewer extends DialogWrapper {
+
+  // Logging
+  //--------------------------------------------------
+
+  private static final Logger LOGGER = Logger.getInstance(ConsoleLogViewer.class);
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+  // Constructors
+  //--------------------------------------------------
+
+  public ConsoleLogViewer(final Project project, final ConsoleLogFile logFile) {
+    super(project, false, IdeModalityType.MODELESS);
+
+    Arguments.requireNotNull(logFile, "logFile == null");
+
+    this.logFile = logFile;
+
+    setTitle("QEMU Console Log - " + logFile.getLogFile().getFileName());
+    setModal(false);
+
+    init();
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final ConsoleLogFile logFile;
+
+  private final JBList<String> lineList = new JBList<>();
+
+  private final SearchTextField searchField = new SearchTextField(false);
+
+  private final JBTextField timeField = new JBTextField(8);
+
+  private final JBLabel statusLabel = new JBLabel();
+
+  // Methods
+  //--------------------------------------------------
+
+  private void findNext() {
+    final Pattern pattern;
+
+    try {
+      pattern = Pattern.compile(searchField.getText(), Pattern.MULTILINE);
+    } catch(final PatternSyntaxException e) {
+      statusLabel.setText("Invalid pattern: " + e.getDescription());
+
+      return;
+    }
+
+    final long fromLine = lineList.getSelectedIndex() + 1L;
+
+    statusLabel.setText("Searching...");
+
+    ApplicationManager.getApplication().executeOnPooledThread(() -> {
+      long line;
+
+      try {
+        line = logFile.findNext(pattern, fromLine);
+      } catch(final IOException e) {
+        LOGGER.warn(e); // TODO: Error reporting.
+
+        line = -1;
+      }
+
+      final long foundLine = line;
+
+      ApplicationManager.getApplication().invokeLater(() -> {
+        if(foundLine < 0) {
+          statusLabel.setText("No more matches.");
+        } else {
+          statusLabel.setText("Line " + (foundLine + 1) + ".");
+
+          selectLine(foundLine);
+        }
+      }, ModalityState.any());
+    });
+  }
+
+  private void goToTime() {
+    final LocalTime time;
+
+    try {
+      time = LocalTime.parse(timeField.getText().trim(), TIME_FORMATTER);
+    } catch(final DateTimeParseException e) {
+      statusLabel.setText("Enter a time as HH:mm:ss.");
+
+      return;
+    }
+
+    final LocalDate date = (logFile.getLineCount() == 0
+        ? LocalDate.now()
+        : LocalDate.ofInstant(Instant.ofEpochMilli(logFile.getLineTime(0)), ZoneId.systemDefault()));
+
+    selectLine(logFile.findLineAt(time.atDate(date).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()));
+  }
+
+  private void selectLine(final long line) {
+    if(line < 0 || line >= lineList.getModel().getSize()) {
+      return;
+    }
+
+    lineList.setSelectedIndex((int)line);
+    lineList.ensureIndexIsVisible((int)line);
+  }
+
+  // DialogWrapper methods
+  //--------------------------------------------------
+
+  @Override
+  protected final JComponent createCenterPanel() {
+    lineList.setModel(new LogListModel());
+    lineList.setFixedCellHeight(JBUI.scale(18));
+    lineList.setPrototypeCellValue("W".repeat(120));
+    lineList.setFont(new Font(Font.MONOSPACED, Font.PLAIN, lineList.getFont().getSize()));
+
+    final JButton findNextButton = new JButton("Find Next");
+    final JButton goToTimeButton = new JButton("Go");
+
+    findNextButton.addActionListener(event -> findNext());
+    searchField.addKeyboardListener(new KeyAdapter() {
+      @Override
+      public final void keyPressed(final KeyEvent event) {
+        if(event.getKeyCode() == KeyEvent.VK_ENTER) {
+          findNext();
+        }
+      }
+    });
+    goToTimeButton.addActionListener(event -> goToTime());
+    timeField.addActionListener(event -> goToTime());
+
+    final JPanel toolbar = new JPanel(new FlowLayout(FlowLayout.LEFT));
+
+    toolbar.add(new JBLabel("Regex:"));
+    toolbar.add(searchField);
+    toolbar.add(findNextButton);
+    toolbar.add(new JBLabel("Time:"));
+    toolbar.add(timeField);
+    toolbar.add(goToTimeButton);
+
+    statusLabel.setText(logFile.getLineCount() + " lines.");
+
+    final JPanel panel = new JPanel(new BorderLayout());
+
+    panel.add(toolbar, BorderLayout.NORTH);
+    panel.add(new JBScrollPane(lineList), BorderLayout.CENTER);
+    panel.add(statusLabel, BorderLayout.SOUTH);
+    panel.setPreferredSize(JBUI.size(900, 600));
+
+    return panel;
+  }
+
+  @Override
+  protected final Action[] createActions() {
+    return new Action[] {getOKAction()};
+  }
+
+  @Override
+  protected final void dispose() {
+    try {
+      logFile.close();
+    } catch(final IOException e) {
+      LOGGER.warn(e); // TODO: Error reporting.
+    }
+
+    super.dispose();
+  }
+
+  // LogListModel class
+  //--------------------------------------------------
+
+  private final class LogListModel extends AbstractListModel<String> {
+
+    // Constructors
+    //--------------------------------------------------
+
+    private LogListModel() {
+      super();
+    }
+
+    // ListModel methods
+    //--------------------------------------------------
+
+    @Override
+    public final int getSize() {
+      return (int)Math.min(Integer.MAX_VALUE, logFile.getLineCount());
+    }
+
+    @Override
+    public final String getElementAt(final int index) {
+      try {
+        return logFile.getLine(index);
+      } catch(final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.console;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.oliveryasuna.commons.language.condition.Arguments;
+import com.oliveryasuna.idea.qemu.util.FileUtils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Appends everything QEMU prints during a run to a log file, on its own thread. Every INDEX_INTERVAL lines, the line number, byte offset
+// and arrival time go to a sparse index next to the log, which is what lets ConsoleLogFile seek in huge logs.
+public final class ConsoleLogWriter implements AutoCloseable {
+
+  // Logging
+  //--------------------------------------------------
+
+  private static final Logger LOGGER = Logger.getInstance(ConsoleLogWriter.class);
+
+  // Static fields
+  //--------------------------------------------------
+
+  static final int INDEX_INTERVAL = 256;
+
+  static final String LOG_EXTENSION = ".log";
+
+  static final String INDEX_EXTENSION = ".idx";
+
+  private static final int KEPT_LOGS = 10;
+
+  private static final int QUEUE_CAPACITY = 1024;
+
+  private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+  // How often a producer waiting for queue space checks whether the writer has failed.
+  private static final long OFFER_INTERVAL_MILLIS = 100;
+
+  private static final Chunk END = new Chunk(new byte[0], 0);
+
+  // Static methods
+  //--------------------------------------------------
+
+  // Starts a new log in the directory, keeping only the newest few logs already there.
+  public static ConsoleLogWriter open(final Path directory) throws IOException {
+    Arguments.requireNotNull(directory, "directory == null");
+
+    return new ConsoleLogWriter(FileUtils.newTimestampedFile(directory, LOG_EXTENSION, KEPT_LOGS, INDEX_EXTENSION));
+  }
+
+  static Path getIndexFile(final Path logFile) {
+    return logFile.resolveSibling(logFile.getFileName() + INDEX_EXTENSION);
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  private ConsoleLogWriter(final Path logFile) throws IOException {
+    super();
+
+    this.logFile = logFile;
+    this.log = new BufferedOutputStream(Files.newOutputStream(logFile), 64 * 1024);
+    this.index = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(getIndexFile(logFile))));
+
+    writeIndexEntry(System.currentTimeMillis());
+
+    this.thread = new Thread(this::run, "QEMU console log writer");
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final Path logFile;
+
+  private final OutputStream log;
+
+  private final DataOutputStream index;
+
+  private final Thread thread;
+
+  // Bounded, so a slow disk slows the producer down instead of filling the heap.
+  private final BlockingQueue<Chunk> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+
+  // Also set when the writer fails, so producers stop waiting for it.
+  private volatile boolean closed;
+
+  // Writer thread only.
+  private long lineCount;
+
+  // Writer thread only.
+  private long byteCount;
+
+  // Methods
+  //--------------------------------------------------
+
+  public final void append(final String text) {
+    Arguments.requireNotNull(text, "text == null");
+
+    if(closed) {
+      return;
+    }
+
+    final Chunk chunk = new Chunk(text.getBytes(StandardCharsets.UTF_8), System.currentTimeMillis());
+
+    try {
+      while(!closed) {
+        if(queue.offer(chunk, OFFER_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+          return;
+        }
+      }
+    } catch(final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  public final Path getLogFile() {
+    return logFile;
+  }
+
+  private void run() {
+    try {
+      while(true) {
+        final Chunk chunk = queue.take();
+
+        if(chunk == END) {
+          break;
+        }
+
+        write(chunk);
+
+        // Keep the file current for viewers whenever there is nothing else to do.
+        if(queue.isEmpty()) {
+          log.flush();
+          index.flush();
+        }
+      }
+    } catch(final IOException e) {
+      LOGGER.warn(e); // TODO: Error reporting.
+
+      // A full disk, for example. Stop taking text, and free producers blocked on a full queue.
+      closed = true;
+
+      queue.clear();
+    } catch(final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      try {
+        log.close();
+        index.close();
+      } catch(final IOException e) {
+        LOGGER.warn(e); // TODO: Error reporting.
+      }
+    }
+  }
+
+  private void write(final Chunk chunk) throws IOException {
+    final byte[] bytes = chunk.bytes;
+
+    int start = 0;
+
+    for(int i = 0; i < bytes.length; i++) {
+      if(bytes[i] != '\n') {
+        continue;
+      }
+
+      lineCount++;
+
+      if(lineCount % INDEX_INTERVAL == 0) {
+        log.write(bytes, start, i + 1 - start);
+        byteCount += i + 1 - start;
+        start = i + 1;
+
+        writeIndexEntry(chunk.time);
+      }
+    }
+
+    log.write(bytes, start, bytes.length - start);
+    byteCount += bytes.length - start;
+  }
+
+  private void writeIndexEntry(final long time) throws IOException {
+    index.writeLong(lineCount);
+    index.writeLong(byteCount);
+    index.writeLong(time);
+  }
+
+  // AutoCloseable methods
+  //--------------------------------------------------
+
+  // Waits for queued text to reach the disk.
+  @Override
+  public final void close() {
+    if(closed) {
+      return;
+    }
+
+    closed = true;
+
+    try {
+      if(queue.offer(END, CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+        thread.join(CLOSE_TIMEOUT_MILLIS);
+      }
+    } catch(final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  // Chunk class
+  //--------------------------------------------------
+
+  private static final class Chunk {
+
+    // Constructors
+    //--------------------------------------------------
+
+    private Chunk(final byte[] bytes, final long time) {
+      super();
+
+      this.bytes = bytes;
+      this.time = time;
+    }
+
+    // Fields
+    //--------------------------------------------------
+
+    private final byte[] bytes;
+
+    private final long time;
+
+  }
+
+}
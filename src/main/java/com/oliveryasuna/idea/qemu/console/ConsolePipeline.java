@@ -0,0 +1,272 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.console;
+
+import com.intellij.execution.process.ProcessOutputTypes;
+import com.intellij.openapi.util.Key;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.oliveryasuna.commons.language.condition.Arguments;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+// Sits between QEMU's output and the run console. Chunks are coalesced and forwarded every flush interval, at most FLUSH_SIZE characters at
+// a time, so a chatty guest costs a few console updates per second instead of one per read. The buffer is bounded: once the guest prints
+// faster than the console is fed, a full buffer first holds the producer back for a moment, which slows QEMU down through its output pipe,
+// and only then drops the oldest text and says so. The run's own messages go through the pipeline too, so they stay in order with the
+// guest's output.
+public final class ConsolePipeline implements AutoCloseable {
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final long FLUSH_INTERVAL_MILLIS = 50;
+
+  private static final int FLUSH_SIZE = 64 * 1024;
+
+  private static final int DEFAULT_CAPACITY = 4 * 1024 * 1024;
+
+  private static final long BACKPRESSURE_TIMEOUT_MILLIS = 200;
+
+  // Static methods
+  //--------------------------------------------------
+
+  private static long countLines(final CharSequence text) {
+    long lines = 0;
+
+    for(int i = 0; i < text.length(); i++) {
+      if(text.charAt(i) == '\n') {
+        lines++;
+      }
+    }
+
+    return lines;
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  public ConsolePipeline(final BiConsumer<String, Key> sink) {
+    this(sink, DEFAULT_CAPACITY);
+  }
+
+  public ConsolePipeline(final BiConsumer<String, Key> sink, final int capacity) {
+    super();
+
+    Arguments.requireNotNull(sink, "sink == null");
+
+    if(capacity < FLUSH_SIZE) {
+      throw new IllegalArgumentException("capacity < " + FLUSH_SIZE);
+    }
+
+    this.sink = sink;
+    this.capacity = capacity;
+
+    this.flushTask = AppExecutorUtil.getAppScheduledExecutorService()
+        .scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final BiConsumer<String, Key> sink;
+
+  private final int capacity;
+
+  private final ScheduledFuture<?> flushTask;
+
+  // Guards the buffer. Never held while calling the sink.
+  private final Object lock = new Object();
+
+  // Keeps flushes in order.
+  private final Object flushLock = new Object();
+
+  private final Deque<Chunk> chunks = new ArrayDeque<>();
+
+  private int bufferedChars;
+
+  private long droppedLines;
+
+  private boolean closed;
+
+  // Methods
+  //--------------------------------------------------
+
+  public final void offer(final String text, final Key outputType) {
+    Arguments.requireNotNull(text, "text == null");
+    Arguments.requireNotNull(outputType, "outputType == null");
+
+    synchronized(lock) {
+      if(!closed && buffer(text, outputType)) {
+        return;
+      }
+    }
+
+    synchronized(flushLock) {
+      sink.accept(text, outputType);
+    }
+  }
+
+  // Forwards up to FLUSH_SIZE characters of the buffered text.
+  public final void flush() {
+    flush(FLUSH_SIZE);
+  }
+
+  // Forwards what is left and stops the timer. Later text is forwarded right away.
+  @Override
+  public final void close() {
+    flushTask.cancel(false);
+
+    // Held until the buffer is empty, so text offered meanwhile cannot overtake it.
+    synchronized(flushLock) {
+      synchronized(lock) {
+        closed = true;
+
+        lock.notifyAll();
+      }
+
+      flush(Integer.MAX_VALUE);
+    }
+  }
+
+  // Called with the lock held. Returns false when the pipeline was closed while waiting for space.
+  private boolean buffer(final String text, final Key outputType) {
+    // The run's own messages may come from the EDT, so only QEMU's output is held back.
+    if(bufferedChars + text.length() > capacity && outputType != ProcessOutputTypes.SYSTEM) {
+      waitForSpace(text.length());
+
+      if(closed) {
+        return false;
+      }
+    }
+
+    while(bufferedChars + text.length() > capacity && !chunks.isEmpty()) {
+      final Chunk dropped = chunks.removeFirst();
+
+      bufferedChars -= dropped.text.length();
+      droppedLines += countLines(dropped.text);
+    }
+
+    final Chunk last = chunks.peekLast();
+
+    // Chunks stay small enough that dropping one never throws away much more than needed.
+    if(last != null && last.outputType.equals(outputType) && last.text.length() < FLUSH_SIZE) {
+      last.text.append(text);
+    } else {
+      chunks.addLast(new Chunk(outputType, text));
+    }
+
+    bufferedChars += text.length();
+
+    return true;
+  }
+
+  private void flush(final int maxChars) {
+    synchronized(flushLock) {
+      final Deque<Chunk> pending = new ArrayDeque<>();
+      final long dropped;
+
+      synchronized(lock) {
+        if(chunks.isEmpty() && droppedLines == 0) {
+          return;
+        }
+
+        int remaining = maxChars;
+
+        while(remaining > 0 && !chunks.isEmpty()) {
+          final Chunk chunk = chunks.peekFirst();
+
+          if(chunk.text.length() <= remaining) {
+            pending.addLast(chunks.removeFirst());
+          } else {
+            // Splits the chunk, but not a surrogate pair.
+            final int end = (Character.isHighSurrogate(chunk.text.charAt(remaining - 1)) ? remaining - 1 : remaining);
+
+            if(end == 0) {
+              break;
+            }
+
+            pending.addLast(new Chunk(chunk.outputType, chunk.text.substring(0, end)));
+            chunk.text.delete(0, end);
+          }
+
+          remaining -= pending.peekLast().text.length();
+          bufferedChars -= pending.peekLast().text.length();
+        }
+
+        dropped = droppedLines;
+        droppedLines = 0;
+
+        lock.notifyAll();
+      }
+
+      if(dropped > 0) {
+        sink.accept("\n[" + dropped + " lines dropped, see full log]\n", ProcessOutputTypes.SYSTEM);
+      }
+
+      for(final Chunk chunk : pending) {
+        sink.accept(chunk.text.toString(), chunk.outputType);
+      }
+    }
+  }
+
+  // Called with the lock held.
+  private void waitForSpace(final int length) {
+    final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(BACKPRESSURE_TIMEOUT_MILLIS);
+
+    long remaining;
+
+    while(bufferedChars + length > capacity && !closed && (remaining = deadline - System.nanoTime()) > 0) {
+      try {
+        TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+      } catch(final InterruptedException e) {
+        Thread.currentThread().interrupt();
+
+        return;
+      }
+    }
+  }
+
+  // Chunk class
+  //--------------------------------------------------
+
+  private static final class Chunk {
+
+    // Constructors
+    //--------------------------------------------------
+
+    private Chunk(final Key outputType, final String text) {
+      super();
+
+      this.outputType = outputType;
+      this.text = new StringBuilder(text);
+    }
+
+    // Fields
+    //--------------------------------------------------
+
+    private final Key outputType;
+
+    private final StringBuilder text;
+
+  }
+
+}
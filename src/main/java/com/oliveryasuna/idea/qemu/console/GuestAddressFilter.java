@@ -0,0 +1,218 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.console;
+
+import com.intellij.execution.filters.Filter;
+import com.intellij.execution.filters.HyperlinkInfo;
+import com.intellij.execution.filters.InlayProvider;
+import com.intellij.execution.filters.OpenFileHyperlinkInfo;
+import com.intellij.openapi.editor.DefaultLanguageHighlighterColors;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.EditorCustomElementRenderer;
+import com.intellij.openapi.editor.Inlay;
+import com.intellij.openapi.editor.colors.EditorFontType;
+import com.intellij.openapi.editor.markup.TextAttributes;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.ui.JBColor;
+import com.oliveryasuna.commons.language.condition.Arguments;
+import com.oliveryasuna.idea.qemu.elf.ElfSymbolIndex;
+import com.oliveryasuna.idea.qemu.elf.ElfSymbolIndexCache;
+
+import java.awt.*;
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Symbolizes guest addresses in console output, such as those of panics and backtraces. Addresses are "0x"-prefixed hex numbers, or bare
+// ones of 8 or 16 digits; those inside a function of the run's image get an inlay with the function and offset, and link to the source line
+// when the image has line tables. The image's index comes from ElfSymbolIndexCache, is only looked up for lines with an address and is never
+// waited for, so lines printed while it is still being built stay as they are.
+public final class GuestAddressFilter implements Filter, DumbAware {
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final Pattern ADDRESS = Pattern.compile("(?<![\\w.])(?:0[xX]([0-9a-fA-F]{1,16})|([0-9a-fA-F]{16}|[0-9a-fA-F]{8}))(?![\\w.])");
+
+  // Constructors
+  //--------------------------------------------------
+
+  public GuestAddressFilter(final Project project, final Supplier<File> symbolFile) {
+    super();
+
+    Arguments.requireNotNull(project, "project == null");
+    Arguments.requireNotNull(symbolFile, "symbolFile == null");
+
+    this.project = project;
+    this.symbolFile = symbolFile;
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final Project project;
+
+  private final Supplier<File> symbolFile;
+
+  // Methods
+  //--------------------------------------------------
+
+  private HyperlinkInfo createHyperlink(final ElfSymbolIndex.Location location) {
+    if(location.getFile() == null) {
+      return null;
+    }
+
+    Path path = Paths.get(location.getFile());
+
+    // DWARF 4 and older leave names relative to the compilation directory, which is usually under the project.
+    if(!path.isAbsolute() && project.getBasePath() != null) {
+      path = Paths.get(project.getBasePath()).resolve(path);
+    }
+
+    final VirtualFile file = LocalFileSystem.getInstance().findFileByNioFile(path.normalize());
+
+    return (file != null ? new OpenFileHyperlinkInfo(project, file, location.getLine() - 1) : null);
+  }
+
+  // Filter methods
+  //--------------------------------------------------
+
+  @Override
+  public final Result applyFilter(final String line, final int entireLength) {
+    final Matcher matcher = ADDRESS.matcher(line);
+
+    // Most lines have no address, and those must not cost a look at the image.
+    if(!matcher.find()) {
+      return null;
+    }
+
+    final File symbolFile = this.symbolFile.get();
+
+    if(symbolFile == null) {
+      return null;
+    }
+
+    final ElfSymbolIndex index = ElfSymbolIndexCache.getInstance().getNow(symbolFile.toPath());
+
+    if(index == null) {
+      return null;
+    }
+
+    final int lineStart = entireLength - line.length();
+    final List<ResultItem> items = new ArrayList<>();
+
+    do {
+      final long address = Long.parseUnsignedLong((matcher.group(1) != null ? matcher.group(1) : matcher.group(2)), 16);
+      final ElfSymbolIndex.Location location = index.lookup(address);
+
+      if(location != null) {
+        items.add(new SymbolResultItem(lineStart + matcher.start(), lineStart + matcher.end(), createHyperlink(location), location));
+      }
+    } while(matcher.find());
+
+    return (items.isEmpty() ? null : new Result(items));
+  }
+
+  // SymbolResultItem class
+  //--------------------------------------------------
+
+  private static final class SymbolResultItem extends ResultItem implements InlayProvider {
+
+    // Constructors
+    //--------------------------------------------------
+
+    private SymbolResultItem(final int start, final int end, final HyperlinkInfo hyperlink, final ElfSymbolIndex.Location location) {
+      super(start, end, hyperlink);
+
+      this.location = location;
+    }
+
+    // Fields
+    //--------------------------------------------------
+
+    private final ElfSymbolIndex.Location location;
+
+    // InlayProvider methods
+    //--------------------------------------------------
+
+    @Override
+    public final EditorCustomElementRenderer createInlayRenderer(final Editor editor) {
+      return new SymbolRenderer(location.getFile() != null
+          ? " <" + location.getSymbol() + " at " + new File(location.getFile()).getName() + ":" + location.getLine() + ">"
+          : " <" + location.getSymbol() + ">");
+    }
+
+  }
+
+  // SymbolRenderer class
+  //--------------------------------------------------
+
+  private static final class SymbolRenderer implements EditorCustomElementRenderer {
+
+    // Constructors
+    //--------------------------------------------------
+
+    private SymbolRenderer(final String text) {
+      super();
+
+      this.text = text;
+    }
+
+    // Fields
+    //--------------------------------------------------
+
+    private final String text;
+
+    // Methods
+    //--------------------------------------------------
+
+    private Font getFont(final Editor editor) {
+      return editor.getColorsScheme().getFont(EditorFontType.ITALIC);
+    }
+
+    // EditorCustomElementRenderer methods
+    //--------------------------------------------------
+
+    @Override
+    public final int calcWidthInPixels(final Inlay inlay) {
+      final Editor editor = inlay.getEditor();
+
+      return editor.getContentComponent().getFontMetrics(getFont(editor)).stringWidth(text);
+    }
+
+    @Override
+    public final void paint(final Inlay inlay, final Graphics g, final Rectangle targetRegion, final TextAttributes textAttributes) {
+      final Editor editor = inlay.getEditor();
+      final Color color = editor.getColorsScheme().getAttributes(DefaultLanguageHighlighterColors.LINE_COMMENT).getForegroundColor();
+
+      g.setFont(getFont(editor));
+      g.setColor(color != null ? color : JBColor.GRAY);
+      g.drawString(text, targetRegion.x, targetRegion.y + editor.getAscent());
+    }
+
+  }
+
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.console;
+
+import com.oliveryasuna.commons.language.condition.Arguments;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+
+// Finds any number of literal patterns in a stream of text in one pass. The Aho-Corasick automaton is expanded into a full DFA over the
+// characters the patterns use, so each input character costs one table lookup. Each Scanner keeps its own state, so a match split across
+// chunks is found without joining them.
+public final class StreamingPatternMatcher {
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final int DIRECT_CLASSES = 128;
+
+  private static final int[] NO_MATCHES = new int[0];
+
+  // Static methods
+  //--------------------------------------------------
+
+  // Empty patterns never match. Matches report the pattern's index in the list.
+  public static StreamingPatternMatcher compile(final List<String> patterns) {
+    Arguments.requireNotNull(patterns, "patterns == null");
+
+    return new StreamingPatternMatcher(patterns);
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  private StreamingPatternMatcher(final List<String> patterns) {
+    super();
+
+    // Class 0 stands for every character no pattern contains.
+    final Map<Character, Integer> classes = new HashMap<>();
+
+    for(final String pattern : patterns) {
+      for(int i = 0; i < pattern.length(); i++) {
+        classes.putIfAbsent(pattern.charAt(i), classes.size() + 1);
+      }
+    }
+
+    this.directClasses = new int[DIRECT_CLASSES];
+    this.otherClasses = new HashMap<>();
+
+    classes.forEach((character, characterClass) -> {
+      if(character < DIRECT_CLASSES) {
+        directClasses[character] = characterClass;
+      } else {
+        otherClasses.put(character, characterClass);
+      }
+    });
+
+    final int classCount = classes.size() + 1;
+
+    // Trie.
+    final List<int[]> trie = new ArrayList<>();
+    final List<List<Integer>> ownMatches = new ArrayList<>();
+
+    trie.add(new int[classCount]);
+    ownMatches.add(new ArrayList<>());
+
+    for(int patternIndex = 0; patternIndex < patterns.size(); patternIndex++) {
+      final String pattern = patterns.get(patternIndex);
+
+      if(pattern.isEmpty()) {
+        continue;
+      }
+
+      int state = 0;
+
+      for(int i = 0; i < pattern.length(); i++) {
+        final int characterClass = classes.get(pattern.charAt(i));
+
+        if(trie.get(state)[characterClass] == 0) {
+          trie.get(state)[characterClass] = trie.size();
+          trie.add(new int[classCount]);
+          ownMatches.add(new ArrayList<>());
+        }
+
+        state = trie.get(state)[characterClass];
+      }
+
+      ownMatches.get(state).add(patternIndex);
+    }
+
+    // Breadth-first, so failure states are finished before the states that use them. Missing trie edges become the failure state's edge.
+    final int stateCount = trie.size();
+    final int[] failure = new int[stateCount];
+    final Deque<Integer> queue = new ArrayDeque<>();
+
+    this.transitions = new int[stateCount][];
+    this.matches = new int[stateCount][];
+
+    transitions[0] = trie.get(0);
+    matches[0] = NO_MATCHES;
+
+    for(int characterClass = 0; characterClass < classCount; characterClass++) {
+      if(transitions[0][characterClass] != 0) {
+        queue.add(transitions[0][characterClass]);
+      }
+    }
+
+    while(!queue.isEmpty()) {
+      final int state = queue.remove();
+      final int[] edges = trie.get(state);
+
+      final Set<Integer> stateMatches = new TreeSet<>(ownMatches.get(state));
+
+      for(final int match : matches[failure[state]]) {
+        stateMatches.add(match);
+      }
+
+      matches[state] = stateMatches.stream().mapToInt(Integer::intValue).toArray();
+      transitions[state] = edges;
+
+      for(int characterClass = 0; characterClass < classCount; characterClass++) {
+        final int child = edges[characterClass];
+
+        if(child != 0) {
+          failure[child] = transitions[failure[state]][characterClass];
+          queue.add(child);
+        } else {
+          edges[characterClass] = transitions[failure[state]][characterClass];
+        }
+      }
+    }
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final int[] directClasses;
+
+  private final Map<Character, Integer> otherClasses;
+
+  private final int[][] transitions;
+
+  private final int[][] matches;
+
+  // Methods
+  //--------------------------------------------------
+
+  public final Scanner newScanner() {
+    return new Scanner();
+  }
+
+  private int getCharacterClass(final char character) {
+    if(character < DIRECT_CLASSES) {
+      return directClasses[character];
+    }
+
+    return otherClasses.getOrDefault(character, 0);
+  }
+
+  // Scanner class
+  //--------------------------------------------------
+
+  // Not thread-safe; feed it from one thread at a time.
+  public final class Scanner {
+
+    // Constructors
+    //--------------------------------------------------
+
+    private Scanner() {
+      super();
+    }
+
+    // Fields
+    //--------------------------------------------------
+
+    private int state;
+
+    // Methods
+    //--------------------------------------------------
+
+    // Reports the index of every pattern that ends in this text, in order.
+    public final void feed(final CharSequence text, final IntConsumer matchListener) {
+      Arguments.requireNotNull(text, "text == null");
+      Arguments.requireNotNull(matchListener, "matchListener == null");
+
+      int current = state;
+
+      for(int i = 0; i < text.length(); i++) {
+        current = transitions[current][getCharacterClass(text.charAt(i))];
+
+        for(final int match : matches[current]) {
+          matchListener.accept(match);
+        }
+      }
+
+      state = current;
+    }
+
+    public final void reset() {
+      state = 0;
+    }
+
+  }
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.debuglog;
+
+// The QEMU log lines the debug log index records, named after the -d item that produces them.
+public enum DebugLogEventType {
+
+  // Values
+  //--------------------------------------------------
+
+  BLOCK("Blocks", "in_asm"),
+  EXECUTION("Executions", "exec"),
+  INTERRUPT("Interrupts", "int"),
+  CPU_RESET("CPU resets", "cpu_reset");
+
+  // Constructors
+  //--------------------------------------------------
+
+  DebugLogEventType(final String description, final String logItem) {
+    this.description = description;
+    this.logItem = logItem;
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final String description;
+
+  private final String logItem;
+
+  // Getters/setters
+  //--------------------------------------------------
+
+  public final String getDescription() {
+    return description;
+  }
+
+  public final String getLogItem() {
+    return logItem;
+  }
+
+}
@@ -0,0 +1,726 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.debuglog;
+
+import com.oliveryasuna.commons.language.condition.Arguments;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+// Indexes a QEMU debug log (-d/-D) while QEMU is still writing it. New text is memory-mapped a window at a time and scanned once: every
+// INDEX_INTERVAL-th line offset is kept on the heap, and every recognized event is written as a fixed-size record to a temporary file. A
+// log of many gigabytes so costs a few megabytes of heap. Only complete lines are indexed; a partial last line waits for the next ingest.
+public final class DebugLogIndex implements Closeable {
+
+  // Static fields
+  //--------------------------------------------------
+
+  // Events without an address, e.g. hardware interrupts.
+  public static final long NO_ADDRESS = -1;
+
+  private static final int INDEX_INTERVAL = 256;
+
+  private static final long INGEST_WINDOW_SIZE = 16L << 20;
+
+  private static final long WINDOW_SIZE = 64L << 20;
+
+  private static final int CACHED_WINDOWS = 8;
+
+  // Line, address, and type and number.
+  private static final int EVENT_BYTES = 3 * Long.BYTES;
+
+  private static final long EVENT_WINDOW_SIZE = EVENT_BYTES * (1L << 20);
+
+  private static final DebugLogEventType[] EVENT_TYPES = DebugLogEventType.values();
+
+  private static final byte[] BLOCK_PREFIX = ascii("IN:");
+
+  private static final byte[] EXECUTION_PREFIX = ascii("Trace ");
+
+  private static final byte[] CHAIN_PREFIX = ascii("Chain ");
+
+  private static final byte[] CPU_RESET_PREFIX = ascii("CPU Reset (CPU ");
+
+  private static final byte[] HARDWARE_INTERRUPT_PREFIX = ascii("Servicing hardware INT=0x");
+
+  private static final byte[] ARM_EXCEPTION_PREFIX = ascii("Taking exception ");
+
+  private static final byte[] RISCV_INTERRUPT_PREFIX = ascii("riscv_cpu_do_interrupt:");
+
+  private static final byte[] ADDRESS_PREFIX = ascii("0x");
+
+  private static final byte[] VECTOR_FIELD = ascii(": v=");
+
+  private static final byte[] PC_FIELD = ascii(" pc=");
+
+  private static final byte[] CAUSE_FIELD = ascii("cause:");
+
+  private static final byte[] EPC_FIELD = ascii("epc:");
+
+  // Static methods
+  //--------------------------------------------------
+
+  // Nothing is indexed until the first ingest.
+  public static DebugLogIndex open(final Path logFile) throws IOException {
+    Arguments.requireNotNull(logFile, "logFile == null");
+
+    final FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ);
+
+    try {
+      final Path eventFile = Files.createTempFile("qemu-debug-log-", ".idx");
+
+      return new DebugLogIndex(logFile, channel, FileChannel.open(eventFile, StandardOpenOption.READ, StandardOpenOption.WRITE,
+          StandardOpenOption.DELETE_ON_CLOSE));
+    } catch(final IOException | RuntimeException e) {
+      channel.close();
+
+      throw e;
+    }
+  }
+
+  private static byte[] ascii(final String text) {
+    return text.getBytes(StandardCharsets.US_ASCII);
+  }
+
+  private static boolean startsWith(final ByteBuffer buffer, final int start, final int end, final byte[] prefix) {
+    if(end - start < prefix.length) {
+      return false;
+    }
+
+    for(int i = 0; i < prefix.length; i++) {
+      if(buffer.get(start + i) != prefix[i]) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  // Position just past the first occurrence of the text, or -1.
+  private static int find(final ByteBuffer buffer, final int start, final int end, final byte[] text) {
+    for(int position = start; position <= end - text.length; position++) {
+      if(startsWith(buffer, position, end, text)) {
+        return position + text.length;
+      }
+    }
+
+    return -1;
+  }
+
+  private static int indexOf(final ByteBuffer buffer, final int start, final int end, final byte value) {
+    for(int position = Math.max(0, start); position < end; position++) {
+      if(buffer.get(position) == value) {
+        return position;
+      }
+    }
+
+    return -1;
+  }
+
+  // Hexadecimal digits at the position, after an optional 0x. NO_ADDRESS if there are none.
+  private static long parseHex(final ByteBuffer buffer, final int start, final int end) {
+    int position = (startsWith(buffer, start, end, ADDRESS_PREFIX) ? start + 2 : start);
+    long value = 0;
+    int digits = 0;
+
+    for(; position < end && digits < 16; position++, digits++) {
+      final int digit = Character.digit(buffer.get(position), 16);
+
+      if(digit < 0) {
+        break;
+      }
+
+      value = (value << 4) | digit;
+    }
+
+    return (digits > 0 ? value : NO_ADDRESS);
+  }
+
+  private static int parseDecimal(final ByteBuffer buffer, final int start, final int end) {
+    int value = 0;
+
+    for(int position = start; position < end; position++) {
+      final byte character = buffer.get(position);
+
+      if(character < '0' || character > '9') {
+        break;
+      }
+
+      value = value * 10 + (character - '0');
+    }
+
+    return value;
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  private DebugLogIndex(final Path logFile, final FileChannel channel, final FileChannel eventChannel) {
+    super();
+
+    this.logFile = logFile;
+    this.channel = channel;
+    this.eventChannel = eventChannel;
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final Path logFile;
+
+  private final FileChannel channel;
+
+  private final FileChannel eventChannel;
+
+  private final ByteBuffer pendingEvents = ByteBuffer.allocate(EVENT_BYTES * 4096);
+
+  // Offsets of every INDEX_INTERVAL-th line.
+  private long[] lineOffsets = new long[1024];
+
+  private long lineCount;
+
+  // Bytes indexed so far, always the end of a line.
+  private long ingested;
+
+  private long eventCount;
+
+  private final long[] eventCounts = new long[EVENT_TYPES.length];
+
+  // The IN: line of a translated block whose first instruction has not been seen yet, or -1.
+  private long pendingBlockLine = -1;
+
+  private boolean closed;
+
+  private final Map<Long, MappedByteBuffer> windows = new LinkedHashMap<>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<Long, MappedByteBuffer> eldest) {
+      return (size() > CACHED_WINDOWS);
+    }
+  };
+
+  // Speeds up reading consecutive lines, which is what scrolling does.
+  private long lastLine = -1;
+
+  private long lastLineOffset;
+
+  // Methods
+  //--------------------------------------------------
+
+  // Indexes whatever QEMU wrote since the last call. Returns whether anything new was indexed. The index lock is released between windows,
+  // so the log stays readable while a large backlog is caught up.
+  public final boolean ingest() throws IOException {
+    boolean changed = false;
+
+    while(ingestWindow()) {
+      changed = true;
+    }
+
+    return changed;
+  }
+
+  public final synchronized String getLine(final long line) throws IOException {
+    if(line < 0 || line >= lineCount) {
+      throw new IndexOutOfBoundsException("line " + line + " of " + lineCount);
+    }
+
+    final long start = getLineOffset(line);
+    final long end = findLineEnd(start);
+
+    lastLine = line + 1;
+    lastLineOffset = Math.min(ingested, end + 1);
+
+    final byte[] bytes = new byte[(int)Math.min(Integer.MAX_VALUE - 8, end - start)];
+
+    for(int i = 0; i < bytes.length; i++) {
+      bytes[i] = byteAt(start + i);
+    }
+
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  public final synchronized Event getEvent(final long event) throws IOException {
+    if(event < 0 || event >= eventCount) {
+      throw new IndexOutOfBoundsException("event " + event + " of " + eventCount);
+    }
+
+    final ByteBuffer record = ByteBuffer.allocate(EVENT_BYTES);
+
+    while(record.hasRemaining()) {
+      if(eventChannel.read(record, event * EVENT_BYTES + record.position()) < 0) {
+        throw new IOException("Truncated event index.");
+      }
+    }
+
+    return new Event(record.getLong(0), record.getLong(Long.BYTES), record.getLong(2 * Long.BYTES));
+  }
+
+  // The first event at or after the line, or the event count if there is none.
+  public final synchronized long findEventAtLine(final long line) throws IOException {
+    long low = 0;
+    long high = eventCount;
+
+    while(low < high) {
+      final long middle = (low + high) >>> 1;
+
+      if(getEvent(middle).getLine() < line) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+
+    return low;
+  }
+
+  // The first matching event at or after fromEvent, or -1.
+  public final synchronized long findNext(final Filter filter, final long fromEvent) throws IOException {
+    Arguments.requireNotNull(filter, "filter == null");
+
+    final long[] found = scanEvents(filter, Math.max(0, fromEvent), 1);
+
+    return (found.length > 0 ? found[0] : -1);
+  }
+
+  // Matching events in log order, at most limit of them.
+  public final synchronized long[] findAll(final Filter filter, final int limit) throws IOException {
+    Arguments.requireNotNull(filter, "filter == null");
+
+    return scanEvents(filter, 0, limit);
+  }
+
+  private long[] scanEvents(final Filter filter, final long fromEvent, final int limit) throws IOException {
+    final long eventsPerWindow = EVENT_WINDOW_SIZE / EVENT_BYTES;
+    long[] found = new long[Math.min(limit, 1024)];
+    int foundCount = 0;
+
+    for(long windowStart = fromEvent; windowStart < eventCount && foundCount < limit; windowStart += eventsPerWindow) {
+      final int windowEvents = (int)Math.min(eventsPerWindow, eventCount - windowStart);
+      final MappedByteBuffer window = eventChannel.map(FileChannel.MapMode.READ_ONLY, windowStart * EVENT_BYTES,
+          (long)windowEvents * EVENT_BYTES);
+
+      for(int i = 0; i < windowEvents && foundCount < limit; i++) {
+        final int record = i * EVENT_BYTES;
+        final long typeAndNumber = window.getLong(record + 2 * Long.BYTES);
+
+        if(filter.matches(EVENT_TYPES[(int)(typeAndNumber >>> 32)], window.getLong(record + Long.BYTES), (int)typeAndNumber)) {
+          if(foundCount == found.length) {
+            found = Arrays.copyOf(found, (int)Math.min(limit, found.length * 2L));
+          }
+
+          found[foundCount++] = windowStart + i;
+        }
+      }
+    }
+
+    return Arrays.copyOf(found, foundCount);
+  }
+
+  private synchronized boolean ingestWindow() throws IOException {
+    if(closed) {
+      return false;
+    }
+
+    final long available = channel.size() - ingested;
+
+    if(available <= 0) {
+      return false;
+    }
+
+    final MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, ingested, Math.min(INGEST_WINDOW_SIZE, available));
+    int lineStart = 0;
+
+    for(int position = 0; position < window.limit(); position++) {
+      if(window.get(position) != '\n') {
+        continue;
+      }
+
+      if(lineCount % INDEX_INTERVAL == 0) {
+        addLineOffset(ingested + lineStart);
+      }
+
+      indexLine(window, lineStart, position);
+
+      lineCount++;
+      lineStart = position + 1;
+    }
+
+    flushEvents();
+
+    ingested += lineStart;
+
+    return (lineStart > 0);
+  }
+
+  private void indexLine(final ByteBuffer buffer, final int start, final int end) throws IOException {
+    if(pendingBlockLine >= 0 && startsWith(buffer, start, end, ADDRESS_PREFIX)) {
+      addEvent(DebugLogEventType.BLOCK, pendingBlockLine, parseHex(buffer, start, end), 0);
+
+      pendingBlockLine = -1;
+
+      return;
+    }
+
+    if(start == end) {
+      return;
+    }
+
+    switch(buffer.get(start)) {
+      case 'T':
+        if(startsWith(buffer, start, end, EXECUTION_PREFIX)) {
+          indexExecution(buffer, start + EXECUTION_PREFIX.length, end);
+        } else if(startsWith(buffer, start, end, ARM_EXCEPTION_PREFIX)) {
+          addEvent(DebugLogEventType.INTERRUPT, lineCount, NO_ADDRESS, parseDecimal(buffer, start + ARM_EXCEPTION_PREFIX.length, end));
+        }
+
+        break;
+      case 'C':
+        if(startsWith(buffer, start, end, CHAIN_PREFIX)) {
+          indexExecution(buffer, start + CHAIN_PREFIX.length, end);
+        } else if(startsWith(buffer, start, end, CPU_RESET_PREFIX)) {
+          addEvent(DebugLogEventType.CPU_RESET, lineCount, NO_ADDRESS, parseDecimal(buffer, start + CPU_RESET_PREFIX.length, end));
+        }
+
+        break;
+      case 'I':
+        if(startsWith(buffer, start, end, BLOCK_PREFIX)) {
+          addPendingBlock();
+
+          pendingBlockLine = lineCount;
+        }
+
+        break;
+      case 'S':
+        if(startsWith(buffer, start, end, HARDWARE_INTERRUPT_PREFIX)) {
+          addEvent(DebugLogEventType.INTERRUPT, lineCount, NO_ADDRESS,
+              (int)parseHex(buffer, start + HARDWARE_INTERRUPT_PREFIX.length, end));
+        }
+
+        break;
+      case 'r':
+        if(startsWith(buffer, start, end, RISCV_INTERRUPT_PREFIX)) {
+          final int cause = find(buffer, start, end, CAUSE_FIELD);
+          final int epc = find(buffer, start, end, EPC_FIELD);
+
+          // The cause may carry the interrupt bit in its top bit.
+          addEvent(DebugLogEventType.INTERRUPT, lineCount, (epc >= 0 ? parseHex(buffer, epc, end) : NO_ADDRESS),
+              (cause >= 0 ? (int)(parseHex(buffer, cause, end) & Integer.MAX_VALUE) : 0));
+        }
+
+        break;
+      default:
+        indexX86Interrupt(buffer, start, end);
+        break;
+    }
+  }
+
+  // "     0: v=0e e=0002 i=0 cpl=0 IP=0008:00000000001000a3 pc=00000000001000a3 SP=..."
+  private void indexX86Interrupt(final ByteBuffer buffer, final int start, final int end) throws IOException {
+    final byte first = buffer.get(start);
+
+    if(first != ' ' && (first < '0' || first > '9')) {
+      return;
+    }
+
+    final int vector = find(buffer, start, Math.min(end, start + 16), VECTOR_FIELD);
+
+    if(vector < 0) {
+      return;
+    }
+
+    final int pc = find(buffer, vector, end, PC_FIELD);
+
+    addEvent(DebugLogEventType.INTERRUPT, lineCount, (pc >= 0 ? parseHex(buffer, pc, end) : NO_ADDRESS), (int)parseHex(buffer, vector, end));
+  }
+
+  // "Trace 0: 0x7f0c54000100 [00000000/00000000000fe05b/00000000/ff000000] ": the guest PC is the second bracketed field.
+  private void indexExecution(final ByteBuffer buffer, final int start, final int end) throws IOException {
+    final int bracket = indexOf(buffer, start, end, (byte)'[');
+    final int slash = (bracket >= 0 ? indexOf(buffer, bracket, end, (byte)'/') : -1);
+
+    addEvent(DebugLogEventType.EXECUTION, lineCount, (slash >= 0 ? parseHex(buffer, slash + 1, end) : NO_ADDRESS),
+        parseDecimal(buffer, start, end));
+  }
+
+  // A block header without an instruction line, e.g. when in_asm could not disassemble it.
+  private void addPendingBlock() throws IOException {
+    if(pendingBlockLine >= 0) {
+      addEvent(DebugLogEventType.BLOCK, pendingBlockLine, NO_ADDRESS, 0);
+
+      pendingBlockLine = -1;
+    }
+  }
+
+  private void addEvent(final DebugLogEventType type, final long line, final long address, final int number) throws IOException {
+    pendingEvents.putLong(line);
+    pendingEvents.putLong(address);
+    pendingEvents.putLong(((long)type.ordinal() << 32) | (number & 0xFFFFFFFFL));
+
+    eventCount++;
+    eventCounts[type.ordinal()]++;
+
+    if(!pendingEvents.hasRemaining()) {
+      flushEvents();
+    }
+  }
+
+  private void flushEvents() throws IOException {
+    pendingEvents.flip();
+
+    try {
+      while(pendingEvents.hasRemaining()) {
+        eventChannel.write(pendingEvents, (eventCount * EVENT_BYTES) - pendingEvents.remaining());
+      }
+    } finally {
+      pendingEvents.clear();
+    }
+  }
+
+  private void addLineOffset(final long offset) {
+    final int entry = (int)(lineCount / INDEX_INTERVAL);
+
+    if(entry == lineOffsets.length) {
+      lineOffsets = Arrays.copyOf(lineOffsets, lineOffsets.length * 2);
+    }
+
+    lineOffsets[entry] = offset;
+  }
+
+  private long getLineOffset(final long line) throws IOException {
+    long currentLine;
+    long offset;
+
+    if(lastLine >= 0 && lastLine <= line && line - lastLine < INDEX_INTERVAL) {
+      currentLine = lastLine;
+      offset = lastLineOffset;
+    } else {
+      currentLine = line - (line % INDEX_INTERVAL);
+      offset = lineOffsets[(int)(line / INDEX_INTERVAL)];
+    }
+
+    while(currentLine < line) {
+      offset = findLineEnd(offset) + 1;
+      currentLine++;
+    }
+
+    return offset;
+  }
+
+  private long findLineEnd(final long start) throws IOException {
+    long position = start;
+
+    while(position < ingested && byteAt(position) != '\n') {
+      position++;
+    }
+
+    return position;
+  }
+
+  private byte byteAt(final long offset) throws IOException {
+    final long windowIndex = offset / WINDOW_SIZE;
+
+    return getWindow(windowIndex).get((int)(offset - windowIndex * WINDOW_SIZE));
+  }
+
+  // The last window grows with the log, so it is mapped again once it no longer covers everything indexed.
+  private MappedByteBuffer getWindow(final long windowIndex) throws IOException {
+    final long start = windowIndex * WINDOW_SIZE;
+    final long length = Math.min(WINDOW_SIZE, ingested - start);
+
+    MappedByteBuffer window = windows.get(windowIndex);
+
+    if(window == null || window.limit() < length) {
+      window = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+
+      windows.put(windowIndex, window);
+    }
+
+    return window;
+  }
+
+  // Getters/setters
+  //--------------------------------------------------
+
+  public final Path getLogFile() {
+    return logFile;
+  }
+
+  public final synchronized long getLineCount() {
+    return lineCount;
+  }
+
+  public final synchronized long getEventCount() {
+    return eventCount;
+  }
+
+  public final synchronized long getEventCount(final DebugLogEventType type) {
+    return eventCounts[type.ordinal()];
+  }
+
+  // Closeable methods
+  //--------------------------------------------------
+
+  @Override
+  public final synchronized void close() throws IOException {
+    closed = true;
+
+    windows.clear();
+
+    try {
+      channel.close();
+    } finally {
+      eventChannel.close();
+    }
+  }
+
+  // Event class
+  //--------------------------------------------------
+
+  public static final class Event {
+
+    // Constructors
+    //--------------------------------------------------
+
+    private Event(final long line, final long address, final long typeAndNumber) {
+      super();
+
+      this.line = line;
+      this.address = address;
+      this.type = EVENT_TYPES[(int)(typeAndNumber >>> 32)];
+      this.number = (int)typeAndNumber;
+    }
+
+    // Fields
+    //--------------------------------------------------
+
+    private final long line;
+
+    private final long address;
+
+    private final DebugLogEventType type;
+
+    private final int number;
+
+    // Getters/setters
+    //--------------------------------------------------
+
+    public final long getLine() {
+      return line;
+    }
+
+    // NO_ADDRESS if the line has none.
+    public final long getAddress() {
+      return address;
+    }
+
+    public final DebugLogEventType getType() {
+      return type;
+    }
+
+    // Interrupt or exception number, or CPU index for executions and resets.
+    public final int getNumber() {
+      return number;
+    }
+
+  }
+
+  // Filter class
+  //--------------------------------------------------
+
+  public static final class Filter {
+
+    // Static fields
+    //--------------------------------------------------
+
+    public static final int ANY_NUMBER = -1;
+
+    // Static methods
+    //--------------------------------------------------
+
+    public static Filter of(final Set<DebugLogEventType> types) {
+      Arguments.requireNotNull(types, "types == null");
+
+      return new Filter((types.isEmpty() ? EnumSet.noneOf(DebugLogEventType.class) : EnumSet.copyOf(types)), false, 0, 0, ANY_NUMBER);
+    }
+
+    // Constructors
+    //--------------------------------------------------
+
+    private Filter(final Set<DebugLogEventType> types, final boolean addressRange, final long fromAddress, final long toAddress,
+        final int number) {
+      super();
+
+      this.types = types;
+      this.addressRange = addressRange;
+      this.fromAddress = fromAddress;
+      this.toAddress = toAddress;
+      this.number = number;
+    }
+
+    // Fields
+    //--------------------------------------------------
+
+    private final Set<DebugLogEventType> types;
+
+    private final boolean addressRange;
+
+    private final long fromAddress;
+
+    // Exclusive.
+    private final long toAddress;
+
+    private final int number;
+
+    // Methods
+    //--------------------------------------------------
+
+    public final Filter withAddressRange(final long fromAddress, final long toAddress) {
+      if(Long.compareUnsigned(fromAddress, toAddress) >= 0) {
+        throw new IllegalArgumentException("fromAddress >= toAddress");
+      }
+
+      return new Filter(types, true, fromAddress, toAddress, number);
+    }
+
+    public final Filter withNumber(final int number) {
+      return new Filter(types, addressRange, fromAddress, toAddress, number);
+    }
+
+    private boolean matches(final DebugLogEventType type, final long address, final int number) {
+      if(!types.contains(type)) {
+        return false;
+      }
+
+      if(this.number != ANY_NUMBER && this.number != number) {
+        return false;
+      }
+
+      return (!addressRange || (address != NO_ADDRESS && Long.compareUnsigned(address, fromAddress) >= 0
+          && Long.compareUnsigned(address, toAddress) < 0));
+    }
+
+  }
+
+}
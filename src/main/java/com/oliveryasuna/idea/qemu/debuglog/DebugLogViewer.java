@@ -0,0 +1,530 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.debuglog;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.DialogWrapper;
+import com.intellij.ui.components.JBCheckBox;
+import com.intellij.ui.components.JBLabel;
+import com.intellij.ui.components.JBList;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.components.JBTextField;
+import com.intellij.util.ui.JBUI;
+import com.oliveryasuna.commons.language.condition.Arguments;
+import com.oliveryasuna.idea.qemu.elf.ElfSymbolTable;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Browses a QEMU debug log while QEMU writes it. The index is brought up to date every second; the list asks it for lines only as they are
+// scrolled into view. Filtering lists the matching events, and double-clicking one shows it in context.
+public final class DebugLogViewer extends DialogWrapper {
+
+  // Logging
+  //--------------------------------------------------
+
+  private static final Logger LOGGER = Logger.getInstance(DebugLogViewer.class);
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final int INGEST_INTERVAL_MILLIS = 1000;
+
+  // Keeps the filtered list's heap use bounded on huge logs.
+  private static final int MAX_FILTERED_EVENTS = 1_000_000;
+
+  // Static methods
+  //--------------------------------------------------
+
+  // Hexadecimal, with or without 0x.
+  private static long parseAddress(final String text) {
+    return Long.parseUnsignedLong((text.startsWith("0x") || text.startsWith("0X") ? text.substring(2) : text), 16);
+  }
+
+  // Hexadecimal with 0x, otherwise decimal.
+  private static int parseNumber(final String text) {
+    return (text.startsWith("0x") || text.startsWith("0X") ? Integer.parseInt(text.substring(2), 16) : Integer.parseInt(text));
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  // The symbol file may be null.
+  public DebugLogViewer(final Project project, final DebugLogIndex index, final File symbolFile) {
+    super(project, false, IdeModalityType.MODELESS);
+
+    Arguments.requireNotNull(index, "index == null");
+
+    this.index = index;
+    this.symbolFile = symbolFile;
+    this.ingestTimer = new Timer(INGEST_INTERVAL_MILLIS, event -> ingest());
+
+    setTitle("QEMU Debug Log - " + index.getLogFile().getFileName());
+    setModal(false);
+
+    init();
+
+    ingest();
+    ingestTimer.start();
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final DebugLogIndex index;
+
+  private final File symbolFile;
+
+  private volatile ElfSymbolTable symbols;
+
+  private final Timer ingestTimer;
+
+  private final AtomicBoolean ingesting = new AtomicBoolean();
+
+  private boolean symbolsLoaded;
+
+  private final LineListModel lineModel = new LineListModel();
+
+  private final JBList<String> lineList = new JBList<>();
+
+  private final Map<DebugLogEventType, JBCheckBox> typeCheckBoxes = new EnumMap<>(DebugLogEventType.class);
+
+  private final JBTextField numberField = new JBTextField(4);
+
+  private final JBTextField addressField = new JBTextField(16);
+
+  private final JBLabel statusLabel = new JBLabel();
+
+  private final JBLabel countsLabel = new JBLabel();
+
+  // Methods
+  //--------------------------------------------------
+
+  private void ingest() {
+    if(!ingesting.compareAndSet(false, true)) {
+      return;
+    }
+
+    ApplicationManager.getApplication().executeOnPooledThread(() -> {
+      try {
+        if(!symbolsLoaded) {
+          symbols = ElfSymbolTable.loadIfElf(symbolFile);
+          symbolsLoaded = true;
+        }
+
+        if(index.ingest()) {
+          ApplicationManager.getApplication().invokeLater(this::indexChanged, ModalityState.any());
+        }
+      } catch(final IOException e) {
+        LOGGER.warn(e); // TODO: Error reporting.
+
+        ApplicationManager.getApplication().invokeLater(ingestTimer::stop, ModalityState.any());
+      } finally {
+        ingesting.set(false);
+      }
+    });
+  }
+
+  private void indexChanged() {
+    if(isDisposed()) {
+      return;
+    }
+
+    lineModel.update();
+
+    final StringBuilder counts = new StringBuilder(String.format("%,d lines", index.getLineCount()));
+
+    for(final DebugLogEventType type : DebugLogEventType.values()) {
+      counts.append(String.format(", %,d %s", index.getEventCount(type), type.getDescription().toLowerCase()));
+    }
+
+    countsLabel.setText(counts.append('.').toString());
+  }
+
+  private void filter() {
+    final DebugLogIndex.Filter filter = createFilter();
+
+    if(filter == null) {
+      return;
+    }
+
+    statusLabel.setText("Filtering...");
+
+    search(() -> {
+      final long[] events = index.findAll(filter, MAX_FILTERED_EVENTS);
+
+      return () -> {
+        lineList.setModel(new EventListModel(events));
+
+        statusLabel.setText(String.format("%,d matching events%s.", events.length,
+            (events.length == MAX_FILTERED_EVENTS ? " (only the first are listed)" : "")));
+      };
+    });
+  }
+
+  private void findNext() {
+    final DebugLogIndex.Filter filter = createFilter();
+
+    if(filter == null) {
+      return;
+    }
+
+    final long fromLine = (lineList.getModel() == lineModel ? lineList.getSelectedIndex() + 1L : 0);
+
+    statusLabel.setText("Searching...");
+
+    search(() -> {
+      final long event = index.findNext(filter, index.findEventAtLine(fromLine));
+      final long line = (event >= 0 ? index.getEvent(event).getLine() : -1);
+
+      return () -> {
+        if(line < 0) {
+          statusLabel.setText("No more matches.");
+        } else {
+          statusLabel.setText("Line " + (line + 1) + ".");
+
+          showLine(line);
+        }
+      };
+    });
+  }
+
+  // Runs the search off the EDT and applies its result on it.
+  private void search(final Search search) {
+    ApplicationManager.getApplication().executeOnPooledThread(() -> {
+      final Runnable result;
+
+      try {
+        result = search.run();
+      } catch(final IOException e) {
+        LOGGER.warn(e); // TODO: Error reporting.
+
+        ApplicationManager.getApplication().invokeLater(() -> statusLabel.setText("Search failed: " + e.getMessage()), ModalityState.any());
+
+        return;
+      }
+
+      ApplicationManager.getApplication().invokeLater(() -> {
+        if(!isDisposed()) {
+          result.run();
+        }
+      }, ModalityState.any());
+    });
+  }
+
+  private DebugLogIndex.Filter createFilter() {
+    final Set<DebugLogEventType> types = EnumSet.noneOf(DebugLogEventType.class);
+
+    typeCheckBoxes.forEach((type, checkBox) -> {
+      if(checkBox.isSelected()) {
+        types.add(type);
+      }
+    });
+
+    if(types.isEmpty()) {
+      statusLabel.setText("Select at least one event type.");
+
+      return null;
+    }
+
+    DebugLogIndex.Filter filter = DebugLogIndex.Filter.of(types);
+
+    final String number = numberField.getText().trim();
+
+    if(!number.isEmpty()) {
+      try {
+        filter = filter.withNumber(parseNumber(number));
+      } catch(final NumberFormatException e) {
+        statusLabel.setText("Enter a decimal number, or hexadecimal with 0x.");
+
+        return null;
+      }
+    }
+
+    final String address = addressField.getText().trim();
+
+    if(!address.isEmpty()) {
+      final ElfSymbolTable symbols = this.symbols;
+      final int symbol = (symbols != null ? symbols.find(address) : -1);
+
+      if(symbol >= 0) {
+        filter = filter.withAddressRange(symbols.getStart(symbol), symbols.getEnd(symbol));
+      } else {
+        try {
+          final long start = parseAddress(address);
+
+          filter = filter.withAddressRange(start, start + 1);
+        } catch(final NumberFormatException | IllegalArgumentException e) {
+          statusLabel.setText(symbols != null ? "Unknown symbol: " + address + "." : "Enter a hexadecimal address; no symbols are loaded.");
+
+          return null;
+        }
+      }
+    }
+
+    return filter;
+  }
+
+  private void showAllLines() {
+    lineList.setModel(lineModel);
+
+    statusLabel.setText("");
+  }
+
+  private void showLine(final long line) {
+    if(lineList.getModel() != lineModel) {
+      showAllLines();
+    }
+
+    if(line < 0 || line >= lineModel.getSize()) {
+      return;
+    }
+
+    lineList.setSelectedIndex((int)line);
+    lineList.ensureIndexIsVisible((int)line);
+  }
+
+  private String formatEvent(final DebugLogIndex.Event event) throws IOException {
+    final String line = String.format("%,d: %s", event.getLine() + 1, index.getLine(event.getLine()));
+    final ElfSymbolTable symbols = this.symbols;
+
+    if(symbols == null || event.getAddress() == DebugLogIndex.NO_ADDRESS) {
+      return line;
+    }
+
+    final int symbol = symbols.indexOf(event.getAddress());
+
+    if(symbol < 0) {
+      return line;
+    }
+
+    final long offset = event.getAddress() - symbols.getStart(symbol);
+
+    return line + "  <" + symbols.getName(symbol) + (offset != 0 ? String.format("+0x%x", offset) : "") + ">";
+  }
+
+  // DialogWrapper methods
+  //--------------------------------------------------
+
+  @Override
+  protected final JComponent createCenterPanel() {
+    lineList.setModel(lineModel);
+    lineList.setFixedCellHeight(JBUI.scale(18));
+    lineList.setPrototypeCellValue("W".repeat(120));
+    lineList.setFont(new Font(Font.MONOSPACED, Font.PLAIN, lineList.getFont().getSize()));
+    lineList.addMouseListener(new MouseAdapter() {
+      @Override
+      public final void mouseClicked(final MouseEvent event) {
+        if(event.getClickCount() == 2 && lineList.getModel() instanceof EventListModel && lineList.getSelectedIndex() >= 0) {
+          final long line = ((EventListModel)lineList.getModel()).getLine(lineList.getSelectedIndex());
+
+          if(line >= 0) {
+            showLine(line);
+          }
+        }
+      }
+    });
+
+    final JPanel toolbar = new JPanel(new FlowLayout(FlowLayout.LEFT));
+
+    for(final DebugLogEventType type : DebugLogEventType.values()) {
+      final JBCheckBox checkBox = new JBCheckBox(type.getDescription(), true);
+
+      checkBox.setToolTipText("-d " + type.getLogItem());
+
+      typeCheckBoxes.put(type, checkBox);
+      toolbar.add(checkBox);
+    }
+
+    final JButton filterButton = new JButton("Filter");
+    final JButton showAllButton = new JButton("Show All");
+    final JButton findNextButton = new JButton("Find Next");
+
+    filterButton.addActionListener(event -> filter());
+    showAllButton.addActionListener(event -> showAllLines());
+    findNextButton.addActionListener(event -> findNext());
+    numberField.addActionListener(event -> filter());
+    addressField.addActionListener(event -> findNext());
+
+    toolbar.add(new JBLabel("Number:"));
+    toolbar.add(numberField);
+    toolbar.add(new JBLabel("Address or symbol:"));
+    toolbar.add(addressField);
+    toolbar.add(filterButton);
+    toolbar.add(showAllButton);
+    toolbar.add(findNextButton);
+
+    final JPanel statusPanel = new JPanel(new BorderLayout());
+
+    statusPanel.add(statusLabel, BorderLayout.WEST);
+    statusPanel.add(countsLabel, BorderLayout.EAST);
+
+    final JPanel panel = new JPanel(new BorderLayout());
+
+    panel.add(toolbar, BorderLayout.NORTH);
+    panel.add(new JBScrollPane(lineList), BorderLayout.CENTER);
+    panel.add(statusPanel, BorderLayout.SOUTH);
+    panel.setPreferredSize(JBUI.size(1000, 600));
+
+    return panel;
+  }
+
+  @Override
+  protected final Action[] createActions() {
+    return new Action[] {getOKAction()};
+  }
+
+  @Override
+  protected final void dispose() {
+    ingestTimer.stop();
+
+    try {
+      index.close();
+    } catch(final IOException e) {
+      LOGGER.warn(e); // TODO: Error reporting.
+    }
+
+    super.dispose();
+  }
+
+  // Search interface
+  //--------------------------------------------------
+
+  @FunctionalInterface
+  private interface Search {
+
+    // Returns what to do with the result on the EDT.
+    Runnable run() throws IOException;
+
+  }
+
+  // LineListModel class
+  //--------------------------------------------------
+
+  private final class LineListModel extends AbstractListModel<String> {
+
+    // Constructors
+    //--------------------------------------------------
+
+    private LineListModel() {
+      super();
+    }
+
+    // Fields
+    //--------------------------------------------------
+
+    // Only grows on the EDT, so the list never sees lines it was not told about.
+    private int size;
+
+    // Methods
+    //--------------------------------------------------
+
+    private void update() {
+      final int oldSize = size;
+
+      size = (int)Math.min(Integer.MAX_VALUE, index.getLineCount());
+
+      if(size > oldSize) {
+        fireIntervalAdded(this, oldSize, size - 1);
+      }
+    }
+
+    // ListModel methods
+    //--------------------------------------------------
+
+    @Override
+    public final int getSize() {
+      return size;
+    }
+
+    @Override
+    public final String getElementAt(final int index) {
+      try {
+        return DebugLogViewer.this.index.getLine(index);
+      } catch(final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+  }
+
+  // EventListModel class
+  //--------------------------------------------------
+
+  private final class EventListModel extends AbstractListModel<String> {
+
+    // Constructors
+    //--------------------------------------------------
+
+    private EventListModel(final long[] events) {
+      super();
+
+      this.events = events;
+    }
+
+    // Fields
+    //--------------------------------------------------
+
+    private final long[] events;
+
+    // Methods
+    //--------------------------------------------------
+
+    private long getLine(final int row) {
+      try {
+        return index.getEvent(events[row]).getLine();
+      } catch(final IOException e) {
+        LOGGER.warn(e); // TODO: Error reporting.
+
+        return -1;
+      }
+    }
+
+    // ListModel methods
+    //--------------------------------------------------
+
+    @Override
+    public final int getSize() {
+      return events.length;
+    }
+
+    @Override
+    public final String getElementAt(final int row) {
+      try {
+        return formatEvent(index.getEvent(events[row]));
+      } catch(final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+  }
+
+}
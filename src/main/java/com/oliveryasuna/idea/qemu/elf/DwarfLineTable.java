@@ -0,0 +1,655 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.elf;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// The line number tables of an ELF file's .debug_line section (DWARF 2 to 5, 32- and 64-bit formats), flattened into address-sorted
+// primitive arrays for lookup. File names are resolved against the unit's directories and shared between units. VLIW operation indexes
+// are ignored.
+public final class DwarfLineTable {
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final DwarfLineTable EMPTY = new DwarfLineTable(new long[0], new int[0], new int[0], new String[0]);
+
+  private static final int DW_LNS_COPY = 1;
+
+  private static final int DW_LNS_ADVANCE_PC = 2;
+
+  private static final int DW_LNS_ADVANCE_LINE = 3;
+
+  private static final int DW_LNS_SET_FILE = 4;
+
+  private static final int DW_LNS_CONST_ADD_PC = 8;
+
+  private static final int DW_LNS_FIXED_ADVANCE_PC = 9;
+
+  private static final int DW_LNE_END_SEQUENCE = 1;
+
+  private static final int DW_LNE_SET_ADDRESS = 2;
+
+  private static final int DW_LNE_DEFINE_FILE = 3;
+
+  private static final int DW_LNCT_PATH = 1;
+
+  private static final int DW_LNCT_DIRECTORY_INDEX = 2;
+
+  private static final int DW_FORM_BLOCK2 = 0x03;
+
+  private static final int DW_FORM_BLOCK4 = 0x04;
+
+  private static final int DW_FORM_DATA2 = 0x05;
+
+  private static final int DW_FORM_DATA4 = 0x06;
+
+  private static final int DW_FORM_DATA8 = 0x07;
+
+  private static final int DW_FORM_STRING = 0x08;
+
+  private static final int DW_FORM_BLOCK = 0x09;
+
+  private static final int DW_FORM_BLOCK1 = 0x0A;
+
+  private static final int DW_FORM_DATA1 = 0x0B;
+
+  private static final int DW_FORM_SDATA = 0x0D;
+
+  private static final int DW_FORM_STRP = 0x0E;
+
+  private static final int DW_FORM_UDATA = 0x0F;
+
+  private static final int DW_FORM_DATA16 = 0x1E;
+
+  private static final int DW_FORM_LINE_STRP = 0x1F;
+
+  // Static methods
+  //--------------------------------------------------
+
+  static DwarfLineTable read(final ElfFile elf) {
+    final int lineSection = elf.findSection(".debug_line");
+    final ByteBuffer lines = (lineSection >= 0 ? elf.getSectionData(lineSection) : null);
+
+    if(lines == null) {
+      return EMPTY;
+    }
+
+    final int stringSection = elf.findSection(".debug_str");
+    final int lineStringSection = elf.findSection(".debug_line_str");
+
+    return new LineReader(lines,
+        (stringSection >= 0 ? elf.getSectionData(stringSection) : null),
+        (lineStringSection >= 0 ? elf.getSectionData(lineStringSection) : null)).read();
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  private DwarfLineTable(final long[] addresses, final int[] files, final int[] lines, final String[] fileNames) {
+    super();
+
+    this.addresses = addresses;
+    this.files = files;
+    this.lines = lines;
+    this.fileNames = fileNames;
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final long[] addresses;
+
+  private final int[] files;
+
+  // 0 for the ends of sequences and for code without a source line.
+  private final int[] lines;
+
+  private final String[] fileNames;
+
+  // Methods
+  //--------------------------------------------------
+
+  // Index of the row covering the address, or -1.
+  public final int indexOf(final long address) {
+    int low = 0;
+    int high = addresses.length - 1;
+    int found = -1;
+
+    while(low <= high) {
+      final int middle = (low + high) >>> 1;
+
+      if(Long.compareUnsigned(addresses[middle], address) <= 0) {
+        found = middle;
+        low = middle + 1;
+      } else {
+        high = middle - 1;
+      }
+    }
+
+    return (found >= 0 && lines[found] != 0 ? found : -1);
+  }
+
+  public final String getFile(final int index) {
+    return fileNames[files[index]];
+  }
+
+  public final int getLine(final int index) {
+    return lines[index];
+  }
+
+  public final int size() {
+    return addresses.length;
+  }
+
+  // LineReader class
+  //--------------------------------------------------
+
+  private static final class LineReader {
+
+    // Static methods
+    //--------------------------------------------------
+
+    private static String join(final String directory, final String name) {
+      if(directory.isEmpty() || name.startsWith("/") || (name.length() > 2 && name.charAt(1) == ':')) {
+        return name;
+      }
+
+      return (directory.endsWith("/") ? directory + name : directory + "/" + name);
+    }
+
+    private static String stringAt(final ByteBuffer strings, final long offset) {
+      if(strings == null) {
+        throw new IllegalArgumentException("Missing string section.");
+      }
+
+      final ByteBuffer string = strings.duplicate();
+
+      string.position((int)offset);
+
+      return cString(string);
+    }
+
+    private static String cString(final ByteBuffer buffer) {
+      final int start = buffer.position();
+      int end = start;
+
+      while(buffer.get(end) != 0) {
+        end++;
+      }
+
+      final byte[] bytes = new byte[end - start];
+
+      buffer.get(bytes);
+      buffer.get(); // Terminator.
+
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Constructors
+    //--------------------------------------------------
+
+    private LineReader(final ByteBuffer section, final ByteBuffer strings, final ByteBuffer lineStrings) {
+      super();
+
+      this.section = section;
+      this.strings = strings;
+      this.lineStrings = lineStrings;
+    }
+
+    // Fields
+    //--------------------------------------------------
+
+    private final ByteBuffer section;
+
+    private final ByteBuffer strings;
+
+    private final ByteBuffer lineStrings;
+
+    private final Map<String, Integer> fileIndexes = new HashMap<>();
+
+    private final List<String> fileNames = new ArrayList<>();
+
+    private long[] addresses = new long[1024];
+
+    private int[] files = new int[1024];
+
+    private int[] lines = new int[1024];
+
+    private int rowCount;
+
+    // Row index where each sequence starts.
+    private int[] sequences = new int[64];
+
+    private int sequenceCount;
+
+    // The current unit's offset size.
+    private boolean offset64;
+
+    private int version;
+
+    private final List<String> directories = new ArrayList<>();
+
+    // Indexes into fileNames. DWARF 5 numbers files from 0, earlier versions from 1.
+    private final List<Integer> unitFiles = new ArrayList<>();
+
+    // Methods
+    //--------------------------------------------------
+
+    private DwarfLineTable read() {
+      while(section.remaining() > 0) {
+        long unitLength = Integer.toUnsignedLong(section.getInt());
+
+        offset64 = (unitLength == 0xFFFFFFFFL);
+
+        if(offset64) {
+          unitLength = section.getLong();
+        }
+
+        final int unitEnd = (int)(section.position() + unitLength);
+
+        readUnit(unitEnd);
+
+        section.position(unitEnd);
+      }
+
+      return sort();
+    }
+
+    private void readUnit(final int unitEnd) {
+      version = Short.toUnsignedInt(section.getShort());
+
+      if(version < 2 || version > 5) {
+        return;
+      }
+
+      if(version >= 5) {
+        section.get(); // Address size.
+        section.get(); // Segment selector size.
+      }
+
+      final long headerLength = offset();
+      final int programStart = (int)(section.position() + headerLength);
+      final int minimumInstructionLength = Byte.toUnsignedInt(section.get());
+
+      if(version >= 4) {
+        section.get(); // Maximum operations per instruction.
+      }
+
+      section.get(); // Default is_stmt.
+      final int lineBase = section.get();
+      final int lineRange = Byte.toUnsignedInt(section.get());
+      final int opcodeBase = Byte.toUnsignedInt(section.get());
+      final int[] opcodeLengths = new int[opcodeBase];
+
+      for(int i = 1; i < opcodeBase; i++) {
+        opcodeLengths[i] = Byte.toUnsignedInt(section.get());
+      }
+
+      directories.clear();
+      unitFiles.clear();
+
+      if(version >= 5) {
+        readEntryTable(true);
+        readEntryTable(false);
+      } else {
+        readLegacyTables();
+      }
+
+      section.position(programStart);
+
+      if(lineRange == 0) {
+        return;
+      }
+
+      runProgram(unitEnd, minimumInstructionLength, lineBase, lineRange, opcodeBase, opcodeLengths);
+    }
+
+    // DWARF 2 to 4: directory 0 is the compilation directory, which only .debug_info knows, so those names stay relative.
+    private void readLegacyTables() {
+      directories.add("");
+
+      String directory;
+
+      while(!(directory = cString(section)).isEmpty()) {
+        directories.add(directory);
+      }
+
+      unitFiles.add(-1);
+
+      String name;
+
+      while(!(name = cString(section)).isEmpty()) {
+        addFile(name, (int)unsigned());
+        unsigned(); // Modification time.
+        unsigned(); // Length.
+      }
+    }
+
+    private void readEntryTable(final boolean directoryTable) {
+      final int formatCount = Byte.toUnsignedInt(section.get());
+      final int[] contentTypes = new int[formatCount];
+      final int[] forms = new int[formatCount];
+
+      for(int i = 0; i < formatCount; i++) {
+        contentTypes[i] = (int)unsigned();
+        forms[i] = (int)unsigned();
+      }
+
+      final long count = unsigned();
+
+      for(long entry = 0; entry < count; entry++) {
+        String path = "";
+        int directory = 0;
+
+        for(int i = 0; i < formatCount; i++) {
+          if(contentTypes[i] == DW_LNCT_PATH) {
+            path = readString(forms[i]);
+          } else if(contentTypes[i] == DW_LNCT_DIRECTORY_INDEX) {
+            directory = (int)readConstant(forms[i]);
+          } else {
+            skipForm(forms[i]);
+          }
+        }
+
+        // Directories after the first, the compilation directory, may be relative to it.
+        if(directoryTable) {
+          directories.add(directories.isEmpty() ? path : join(directories.get(0), path));
+        } else {
+          addFile(path, directory);
+        }
+      }
+    }
+
+    private void addFile(final String name, final int directory) {
+      final String path = join((directory >= 0 && directory < directories.size() ? directories.get(directory) : ""), name);
+
+      unitFiles.add(fileIndexes.computeIfAbsent(path, ignored -> {
+        fileNames.add(path);
+
+        return fileNames.size() - 1;
+      }));
+    }
+
+    private void runProgram(final int unitEnd, final int minimumInstructionLength, final int lineBase, final int lineRange,
+        final int opcodeBase, final int[] opcodeLengths) {
+      long address = 0;
+      int file = 1;
+      int line = 1;
+      boolean sequenceStarted = false;
+
+      while(section.position() < unitEnd) {
+        final int opcode = Byte.toUnsignedInt(section.get());
+
+        if(opcode >= opcodeBase) {
+          final int adjusted = opcode - opcodeBase;
+
+          address += (long)(adjusted / lineRange) * minimumInstructionLength;
+          line += lineBase + (adjusted % lineRange);
+          sequenceStarted = addRow(address, file, line, sequenceStarted);
+
+          continue;
+        }
+
+        switch(opcode) {
+          case 0: {
+            final int length = (int)unsigned();
+            final int next = section.position() + length;
+            final int extendedOpcode = (length > 0 ? Byte.toUnsignedInt(section.get()) : -1);
+
+            if(extendedOpcode == DW_LNE_END_SEQUENCE) {
+              addRow(address, file, 0, sequenceStarted);
+
+              address = 0;
+              file = 1;
+              line = 1;
+              sequenceStarted = false;
+            } else if(extendedOpcode == DW_LNE_SET_ADDRESS) {
+              address = (length - 1 == 8 ? section.getLong() : Integer.toUnsignedLong(section.getInt()));
+            } else if(extendedOpcode == DW_LNE_DEFINE_FILE) {
+              final String name = cString(section);
+
+              addFile(name, (int)unsigned());
+            }
+
+            section.position(next);
+
+            break;
+          }
+          case DW_LNS_COPY:
+            sequenceStarted = addRow(address, file, line, sequenceStarted);
+            break;
+          case DW_LNS_ADVANCE_PC:
+            address += unsigned() * minimumInstructionLength;
+            break;
+          case DW_LNS_ADVANCE_LINE:
+            line += (int)signed();
+            break;
+          case DW_LNS_SET_FILE:
+            file = (int)unsigned();
+            break;
+          case DW_LNS_CONST_ADD_PC:
+            address += (long)((255 - opcodeBase) / lineRange) * minimumInstructionLength;
+            break;
+          case DW_LNS_FIXED_ADVANCE_PC:
+            address += Short.toUnsignedInt(section.getShort());
+            break;
+          default:
+            // Skips the operands of opcodes the row does not depend on, including ones newer than this reader.
+            for(int i = 0; i < opcodeLengths[opcode]; i++) {
+              unsigned();
+            }
+
+            break;
+        }
+      }
+    }
+
+    // Returns true, as the sequence has started.
+    private boolean addRow(final long address, final int file, final int line, final boolean sequenceStarted) {
+      if(!sequenceStarted) {
+        if(sequenceCount == sequences.length) {
+          sequences = Arrays.copyOf(sequences, sequenceCount * 2);
+        }
+
+        sequences[sequenceCount++] = rowCount;
+      }
+
+      if(rowCount == addresses.length) {
+        addresses = Arrays.copyOf(addresses, rowCount * 2);
+        files = Arrays.copyOf(files, rowCount * 2);
+        lines = Arrays.copyOf(lines, rowCount * 2);
+      }
+
+      final Integer fileIndex = (file >= 0 && file < unitFiles.size() ? unitFiles.get(file) : null);
+
+      addresses[rowCount] = address;
+      files[rowCount] = (fileIndex != null && fileIndex >= 0 ? fileIndex : 0);
+      lines[rowCount] = (fileIndex != null && fileIndex >= 0 ? line : 0);
+      rowCount++;
+
+      return true;
+    }
+
+    // Orders sequences by start address. Sequences overlapping an earlier one, such as functions the linker discarded and left at 0, are
+    // dropped.
+    private DwarfLineTable sort() {
+      if(fileNames.isEmpty()) {
+        fileNames.add("");
+      }
+
+      final Integer[] order = new Integer[sequenceCount];
+
+      for(int i = 0; i < sequenceCount; i++) {
+        order[i] = i;
+      }
+
+      // The longest of sequences starting together wins.
+      Arrays.sort(order, ((Comparator<Integer>)(a, b) -> Long.compareUnsigned(addresses[sequences[a]], addresses[sequences[b]]))
+          .thenComparingInt(sequence -> -sequenceLength(sequence)));
+
+      final long[] sortedAddresses = new long[rowCount];
+      final int[] sortedFiles = new int[rowCount];
+      final int[] sortedLines = new int[rowCount];
+      int kept = 0;
+      boolean first = true;
+      long end = 0;
+
+      for(final int sequence : order) {
+        final int start = sequences[sequence];
+        final int length = sequenceLength(sequence);
+
+        if(!first && Long.compareUnsigned(addresses[start], end) < 0) {
+          continue;
+        }
+
+        System.arraycopy(addresses, start, sortedAddresses, kept, length);
+        System.arraycopy(files, start, sortedFiles, kept, length);
+        System.arraycopy(lines, start, sortedLines, kept, length);
+
+        kept += length;
+        end = addresses[start + length - 1];
+        first = false;
+      }
+
+      return new DwarfLineTable(Arrays.copyOf(sortedAddresses, kept), Arrays.copyOf(sortedFiles, kept), Arrays.copyOf(sortedLines, kept),
+          fileNames.toArray(String[]::new));
+    }
+
+    private int sequenceLength(final int sequence) {
+      return (sequence + 1 < sequenceCount ? sequences[sequence + 1] : rowCount) - sequences[sequence];
+    }
+
+    private String readString(final int form) {
+      switch(form) {
+        case DW_FORM_STRING:
+          return cString(section);
+        case DW_FORM_LINE_STRP:
+          return stringAt(lineStrings, offset());
+        case DW_FORM_STRP:
+          return stringAt(strings, offset());
+        default:
+          throw new IllegalArgumentException("Unsupported string form: 0x" + Integer.toHexString(form) + ".");
+      }
+    }
+
+    private long readConstant(final int form) {
+      switch(form) {
+        case DW_FORM_DATA1:
+          return Byte.toUnsignedInt(section.get());
+        case DW_FORM_DATA2:
+          return Short.toUnsignedInt(section.getShort());
+        case DW_FORM_DATA4:
+          return Integer.toUnsignedLong(section.getInt());
+        case DW_FORM_DATA8:
+          return section.getLong();
+        case DW_FORM_UDATA:
+          return unsigned();
+        default:
+          throw new IllegalArgumentException("Unsupported constant form: 0x" + Integer.toHexString(form) + ".");
+      }
+    }
+
+    private void skipForm(final int form) {
+      switch(form) {
+        case DW_FORM_STRING:
+          cString(section);
+          break;
+        case DW_FORM_LINE_STRP:
+        case DW_FORM_STRP:
+          offset();
+          break;
+        case DW_FORM_DATA1:
+        case DW_FORM_DATA2:
+        case DW_FORM_DATA4:
+        case DW_FORM_DATA8:
+        case DW_FORM_UDATA:
+          readConstant(form);
+          break;
+        case DW_FORM_SDATA:
+          signed();
+          break;
+        case DW_FORM_DATA16:
+          section.position(section.position() + 16);
+          break;
+        case DW_FORM_BLOCK1:
+          section.position(section.position() + Byte.toUnsignedInt(section.get()));
+          break;
+        case DW_FORM_BLOCK2:
+          section.position(section.position() + Short.toUnsignedInt(section.getShort()));
+          break;
+        case DW_FORM_BLOCK4:
+          section.position(section.position() + section.getInt());
+          break;
+        case DW_FORM_BLOCK:
+          section.position(section.position() + (int)unsigned());
+          break;
+        default:
+          throw new IllegalArgumentException("Unsupported form: 0x" + Integer.toHexString(form) + ".");
+      }
+    }
+
+    private long offset() {
+      return (offset64 ? section.getLong() : Integer.toUnsignedLong(section.getInt()));
+    }
+
+    private long unsigned() {
+      long value = 0;
+      int shift = 0;
+      byte b;
+
+      do {
+        b = section.get();
+
+        if(shift < 64) {
+          value |= (long)(b & 0x7F) << shift;
+        }
+
+        shift += 7;
+      } while((b & 0x80) != 0);
+
+      return value;
+    }
+
+    private long signed() {
+      long value = 0;
+      int shift = 0;
+      byte b;
+
+      do {
+        b = section.get();
+
+        if(shift < 64) {
+          value |= (long)(b & 0x7F) << shift;
+        }
+
+        shift += 7;
+      } while((b & 0x80) != 0);
+
+      if(shift < 64 && (b & 0x40) != 0) {
+        value |= -1L << shift;
+      }
+
+      return value;
+    }
+
+  }
+
+}
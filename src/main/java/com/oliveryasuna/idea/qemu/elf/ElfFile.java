@@ -0,0 +1,174 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.elf;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// A memory-mapped ELF file and its section headers, for 32- and 64-bit files of either byte order. Throws IllegalArgumentException or
+// IndexOutOfBoundsException on malformed files; the loaders turn those into IOExceptions.
+final class ElfFile {
+
+  // Static fields
+  //--------------------------------------------------
+
+  static final int ELF_MAGIC = 0x7F454C46;
+
+  private static final int ELFCLASS64 = 2;
+
+  private static final int ELFDATA2MSB = 2;
+
+  private static final long SHF_COMPRESSED = 0x800;
+
+  // Static methods
+  //--------------------------------------------------
+
+  static ElfFile map(final Path file) throws IOException {
+    try(final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return new ElfFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  private ElfFile(final ByteBuffer buffer) {
+    super();
+
+    if(buffer.getInt(0) != ELF_MAGIC) {
+      throw new IllegalArgumentException("Not an ELF file.");
+    }
+
+    this.buffer = buffer.order(buffer.get(5) == ELFDATA2MSB ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+    this.is64 = (buffer.get(4) == ELFCLASS64);
+    this.sectionHeaders = word(is64 ? 0x28 : 0x20);
+    this.sectionHeaderSize = Short.toUnsignedInt(buffer.getShort(is64 ? 0x3A : 0x2E));
+    this.sectionCount = Short.toUnsignedInt(buffer.getShort(is64 ? 0x3C : 0x30));
+    this.sectionNameTable = Short.toUnsignedInt(buffer.getShort(is64 ? 0x3E : 0x32));
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final ByteBuffer buffer;
+
+  private final boolean is64;
+
+  private final long sectionHeaders;
+
+  private final int sectionHeaderSize;
+
+  private final int sectionCount;
+
+  private final int sectionNameTable;
+
+  // Methods
+  //--------------------------------------------------
+
+  // Index of the first section with the name, or -1.
+  final int findSection(final String name) {
+    if(sectionNameTable >= sectionCount) {
+      return -1;
+    }
+
+    final long names = getSectionOffset(sectionNameTable);
+
+    for(int i = 0; i < sectionCount; i++) {
+      if(string(names + Integer.toUnsignedLong(buffer.getInt(sectionHeader(i)))).equals(name)) {
+        return i;
+      }
+    }
+
+    return -1;
+  }
+
+  // The section's contents in the file's byte order, or null for compressed sections, which are not supported.
+  final ByteBuffer getSectionData(final int index) {
+    if((word(sectionHeader(index) + 0x08) & SHF_COMPRESSED) != 0) {
+      return null;
+    }
+
+    final int offset = (int)getSectionOffset(index);
+    final int size = (int)getSectionSize(index);
+
+    return buffer.duplicate().position(offset).limit(offset + size).slice().order(buffer.order());
+  }
+
+  final int getSectionType(final int index) {
+    return buffer.getInt(sectionHeader(index) + 4);
+  }
+
+  final long getSectionOffset(final int index) {
+    return word(sectionHeader(index) + (is64 ? 0x18 : 0x10));
+  }
+
+  final long getSectionSize(final int index) {
+    return word(sectionHeader(index) + (is64 ? 0x20 : 0x14));
+  }
+
+  final int getSectionLink(final int index) {
+    return buffer.getInt(sectionHeader(index) + (is64 ? 0x28 : 0x18));
+  }
+
+  final long getSectionEntrySize(final int index) {
+    return word(sectionHeader(index) + (is64 ? 0x38 : 0x24));
+  }
+
+  final long word(final int position) {
+    return (is64 ? buffer.getLong(position) : Integer.toUnsignedLong(buffer.getInt(position)));
+  }
+
+  final String string(final long position) {
+    int end = (int)position;
+
+    while(buffer.get(end) != 0) {
+      end++;
+    }
+
+    final byte[] bytes = new byte[end - (int)position];
+
+    buffer.duplicate().position((int)position).get(bytes);
+
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private int sectionHeader(final int index) {
+    return (int)(sectionHeaders + (long)index * sectionHeaderSize);
+  }
+
+  // Getters/setters
+  //--------------------------------------------------
+
+  final ByteBuffer getBuffer() {
+    return buffer;
+  }
+
+  final boolean is64() {
+    return is64;
+  }
+
+  final int getSectionCount() {
+    return sectionCount;
+  }
+
+}
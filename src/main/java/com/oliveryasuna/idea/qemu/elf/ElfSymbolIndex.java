@@ -0,0 +1,155 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.elf;
+
+import com.oliveryasuna.commons.language.condition.Arguments;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+// Symbols and line numbers of an ELF file, read from a single mapping. Guest addresses resolve to a function and offset and, when the
+// file has DWARF line tables, a source file and line.
+public final class ElfSymbolIndex {
+
+  // Static methods
+  //--------------------------------------------------
+
+  public static ElfSymbolIndex load(final Path file) throws IOException {
+    Arguments.requireNotNull(file, "file == null");
+
+    try {
+      final ElfFile elf = ElfFile.map(file);
+
+      return new ElfSymbolIndex(ElfSymbolTable.read(elf), DwarfLineTable.read(elf));
+    } catch(final IndexOutOfBoundsException | IllegalArgumentException e) {
+      throw new IOException("Malformed ELF file: " + file + ".", e);
+    }
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  private ElfSymbolIndex(final ElfSymbolTable symbols, final DwarfLineTable lines) {
+    super();
+
+    this.symbols = symbols;
+    this.lines = lines;
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final ElfSymbolTable symbols;
+
+  private final DwarfLineTable lines;
+
+  // Methods
+  //--------------------------------------------------
+
+  // The location of the address, or null if no symbol contains it.
+  public final Location lookup(final long address) {
+    final int symbol = symbols.indexOf(address);
+
+    if(symbol < 0) {
+      return null;
+    }
+
+    final int line = lines.indexOf(address);
+
+    return new Location(symbols.getName(symbol), address - symbols.getStart(symbol),
+        (line >= 0 ? lines.getFile(line) : null), (line >= 0 ? lines.getLine(line) : 0));
+  }
+
+  // Getters/setters
+  //--------------------------------------------------
+
+  public final ElfSymbolTable getSymbols() {
+    return symbols;
+  }
+
+  public final DwarfLineTable getLines() {
+    return lines;
+  }
+
+  // Location class
+  //--------------------------------------------------
+
+  public static final class Location {
+
+    // Constructors
+    //--------------------------------------------------
+
+    private Location(final String function, final long offset, final String file, final int line) {
+      super();
+
+      this.function = function;
+      this.offset = offset;
+      this.file = file;
+      this.line = line;
+    }
+
+    // Fields
+    //--------------------------------------------------
+
+    private final String function;
+
+    private final long offset;
+
+    // Null without line tables. May be relative to the compilation directory.
+    private final String file;
+
+    private final int line;
+
+    // Methods
+    //--------------------------------------------------
+
+    // "function+0x1c", or just the function at offset 0.
+    public final String getSymbol() {
+      return (offset != 0 ? function + "+0x" + Long.toHexString(offset) : function);
+    }
+
+    // Getters/setters
+    //--------------------------------------------------
+
+    public final String getFunction() {
+      return function;
+    }
+
+    public final long getOffset() {
+      return offset;
+    }
+
+    public final String getFile() {
+      return file;
+    }
+
+    public final int getLine() {
+      return line;
+    }
+
+    // Object methods
+    //--------------------------------------------------
+
+    @Override
+    public final String toString() {
+      return (file != null ? getSymbol() + " at " + file + ":" + line : getSymbol());
+    }
+
+  }
+
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.elf;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.oliveryasuna.commons.language.condition.Arguments;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+// Symbol indexes of recently run images, built off the calling thread once per file and rebuilt only when the file's size or modification
+// time changes, as it does when the CMake product is rebuilt.
+public final class ElfSymbolIndexCache {
+
+  // Logging
+  //--------------------------------------------------
+
+  private static final Logger LOGGER = Logger.getInstance(ElfSymbolIndexCache.class);
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final int MAX_INDEXES = 8;
+
+  // How long getNow trusts a file's last stamp, as it is called for every console line that has an address.
+  private static final long STAMP_INTERVAL_MILLIS = 2000;
+
+  // Static methods
+  //--------------------------------------------------
+
+  public static ElfSymbolIndexCache getInstance() {
+    return ApplicationManager.getApplication().getService(ElfSymbolIndexCache.class);
+  }
+
+  private static ElfSymbolIndex load(final Path file) {
+    if(!ElfSymbolTable.isElf(file)) {
+      return null;
+    }
+
+    try {
+      return ElfSymbolIndex.load(file);
+    } catch(final IOException e) {
+      LOGGER.warn(e); // TODO: Error reporting.
+
+      return null;
+    }
+  }
+
+  private static String stamp(final Path file) {
+    try {
+      return Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis();
+    } catch(final IOException e) {
+      return "";
+    }
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  public ElfSymbolIndexCache() {
+    super();
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  // Least recently used first.
+  private final Map<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  // Methods
+  //--------------------------------------------------
+
+  // Completes with null for files that are missing or not ELF.
+  public final CompletableFuture<ElfSymbolIndex> get(final Path file) {
+    return get(file, 0);
+  }
+
+  // The index if it is built and current, otherwise null. Starts building it, so callers that must not wait can ask again later. A rebuilt
+  // file is noticed within STAMP_INTERVAL_MILLIS.
+  public final ElfSymbolIndex getNow(final Path file) {
+    return get(file, STAMP_INTERVAL_MILLIS).getNow(null);
+  }
+
+  private CompletableFuture<ElfSymbolIndex> get(final Path file, final long stampInterval) {
+    Arguments.requireNotNull(file, "file == null");
+
+    final Path key = file.toAbsolutePath().normalize();
+    final long now = System.currentTimeMillis();
+
+    synchronized(entries) {
+      final Entry entry = entries.get(key);
+
+      if(entry != null && now - entry.stamped < stampInterval) {
+        return entry.index;
+      }
+    }
+
+    // Outside the lock, so a slow file system does not hold up other callers.
+    final String stamp = stamp(key);
+
+    synchronized(entries) {
+      final Entry entry = entries.get(key);
+
+      if(entry != null && entry.stamp.equals(stamp)) {
+        entry.stamped = now;
+
+        return entry.index;
+      }
+
+      final Entry loading = new Entry(stamp, now, CompletableFuture.supplyAsync(() -> load(key), AppExecutorUtil.getAppExecutorService()));
+
+      entries.put(key, loading);
+
+      if(entries.size() > MAX_INDEXES) {
+        entries.remove(entries.keySet().iterator().next());
+      }
+
+      return loading.index;
+    }
+  }
+
+  // Entry class
+  //--------------------------------------------------
+
+  private static final class Entry {
+
+    // Constructors
+    //--------------------------------------------------
+
+    private Entry(final String stamp, final long stamped, final CompletableFuture<ElfSymbolIndex> index) {
+      super();
+
+      this.stamp = stamp;
+      this.stamped = stamped;
+      this.index = index;
+    }
+
+    // Fields
+    //--------------------------------------------------
+
+    private final String stamp;
+
+    // When stamp was last found current. Guarded by entries.
+    private long stamped;
+
+    private final CompletableFuture<ElfSymbolIndex> index;
+
+  }
+
+}
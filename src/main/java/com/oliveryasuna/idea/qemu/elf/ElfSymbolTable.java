@@ -0,0 +1,275 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.elf;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.oliveryasuna.commons.language.condition.Arguments;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+// Function symbols of an ELF file, sorted by address for lookup. Reads .symtab, or .dynsym when the file is stripped, of 32- and 64-bit
+// files of either byte order. The file is mapped only while loading; names are copied out, so the file may be rebuilt afterwards.
+public final class ElfSymbolTable {
+
+  // Logging
+  //--------------------------------------------------
+
+  private static final Logger LOGGER = Logger.getInstance(ElfSymbolTable.class);
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final int SHT_SYMTAB = 2;
+
+  private static final int SHT_DYNSYM = 11;
+
+  private static final int STT_NOTYPE = 0;
+
+  private static final int STT_FUNC = 2;
+
+  private static final int SHN_UNDEF = 0;
+
+  // Static methods
+  //--------------------------------------------------
+
+  public static boolean isElf(final Path file) {
+    try(final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      final ByteBuffer magic = ByteBuffer.allocate(4);
+
+      return (channel.read(magic, 0) == 4 && magic.getInt(0) == ElfFile.ELF_MAGIC);
+    } catch(final IOException e) {
+      return false;
+    }
+  }
+
+  public static ElfSymbolTable load(final Path file) throws IOException {
+    Arguments.requireNotNull(file, "file == null");
+
+    try {
+      return read(ElfFile.map(file));
+    } catch(final IndexOutOfBoundsException | IllegalArgumentException e) {
+      throw new IOException("Malformed ELF file: " + file + ".", e);
+    }
+  }
+
+  // The symbols of the run's image, or null when there is none, it is not an ELF file (e.g. a bootable ISO) or it cannot be read.
+  public static ElfSymbolTable loadIfElf(final File file) {
+    if(file == null || !isElf(file.toPath())) {
+      return null;
+    }
+
+    try {
+      return load(file.toPath());
+    } catch(final IOException e) {
+      LOGGER.warn(e); // TODO: Error reporting.
+
+      return null;
+    }
+  }
+
+  static ElfSymbolTable read(final ElfFile elf) {
+    return new ElfReader(elf).read();
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  private ElfSymbolTable(final long[] starts, final long[] ends, final String[] names) {
+    super();
+
+    this.starts = starts;
+    this.ends = ends;
+    this.names = names;
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final long[] starts;
+
+  // Exclusive. For symbols without a size, the start of the next symbol.
+  private final long[] ends;
+
+  private final String[] names;
+
+  // Methods
+  //--------------------------------------------------
+
+  // Index of the symbol containing the address, or -1.
+  public final int indexOf(final long address) {
+    int low = 0;
+    int high = starts.length - 1;
+    int found = -1;
+
+    while(low <= high) {
+      final int middle = (low + high) >>> 1;
+
+      if(Long.compareUnsigned(starts[middle], address) <= 0) {
+        found = middle;
+        low = middle + 1;
+      } else {
+        high = middle - 1;
+      }
+    }
+
+    return (found >= 0 && Long.compareUnsigned(address, ends[found]) < 0 ? found : -1);
+  }
+
+  // Index of the first symbol with the name, or -1.
+  public final int find(final String name) {
+    Arguments.requireNotNull(name, "name == null");
+
+    for(int i = 0; i < names.length; i++) {
+      if(names[i].equals(name)) {
+        return i;
+      }
+    }
+
+    return -1;
+  }
+
+  public final String getName(final int index) {
+    return names[index];
+  }
+
+  public final long getStart(final int index) {
+    return starts[index];
+  }
+
+  public final long getEnd(final int index) {
+    return ends[index];
+  }
+
+  public final int size() {
+    return starts.length;
+  }
+
+  // ElfReader class
+  //--------------------------------------------------
+
+  private static final class ElfReader {
+
+    // Constructors
+    //--------------------------------------------------
+
+    private ElfReader(final ElfFile elf) {
+      super();
+
+      this.elf = elf;
+      this.buffer = elf.getBuffer();
+      this.is64 = elf.is64();
+    }
+
+    // Fields
+    //--------------------------------------------------
+
+    private final ElfFile elf;
+
+    private final ByteBuffer buffer;
+
+    private final boolean is64;
+
+    // Methods
+    //--------------------------------------------------
+
+    private ElfSymbolTable read() {
+      int symbolSection = -1;
+
+      for(int i = 0; i < elf.getSectionCount(); i++) {
+        final int type = elf.getSectionType(i);
+
+        if(type == SHT_SYMTAB || (type == SHT_DYNSYM && symbolSection < 0)) {
+          symbolSection = i;
+        }
+      }
+
+      if(symbolSection < 0) {
+        return new ElfSymbolTable(new long[0], new long[0], new String[0]);
+      }
+
+      final long offset = elf.getSectionOffset(symbolSection);
+      final long size = elf.getSectionSize(symbolSection);
+      final long entrySize = elf.getSectionEntrySize(symbolSection);
+      final long stringTable = elf.getSectionOffset(elf.getSectionLink(symbolSection));
+
+      return readSymbols(offset, (int)(size / entrySize), (int)entrySize, stringTable);
+    }
+
+    private ElfSymbolTable readSymbols(final long offset, final int count, final int entrySize, final long stringTable) {
+      final long[] values = new long[count];
+      final long[] sizes = new long[count];
+      final String[] names = new String[count];
+      int kept = 0;
+
+      for(int i = 0; i < count; i++) {
+        final int symbol = (int)(offset + (long)i * entrySize);
+        final int info = Byte.toUnsignedInt(buffer.get(symbol + (is64 ? 4 : 12)));
+        final int sectionIndex = Short.toUnsignedInt(buffer.getShort(symbol + (is64 ? 6 : 14)));
+        final int type = (info & 0xF);
+
+        if((type != STT_FUNC && type != STT_NOTYPE) || sectionIndex == SHN_UNDEF) {
+          continue;
+        }
+
+        final String name = elf.string(stringTable + Integer.toUnsignedLong(buffer.getInt(symbol)));
+
+        // Skips unnamed symbols and ARM/RISC-V mapping symbols such as "$x".
+        if(name.isEmpty() || name.startsWith("$")) {
+          continue;
+        }
+
+        values[kept] = (is64 ? buffer.getLong(symbol + 8) : Integer.toUnsignedLong(buffer.getInt(symbol + 4)));
+        sizes[kept] = (is64 ? buffer.getLong(symbol + 16) : Integer.toUnsignedLong(buffer.getInt(symbol + 8)));
+        names[kept] = name;
+        kept++;
+      }
+
+      // Symbols with a size sort after labels at the same address, so lookups find the function.
+      final Integer[] order = IntStream.range(0, kept).boxed().toArray(Integer[]::new);
+
+      Arrays.sort(order, ((Comparator<Integer>)(a, b) -> Long.compareUnsigned(values[a], values[b])).thenComparing(index -> sizes[index] != 0));
+
+      final long[] starts = new long[kept];
+      final long[] ends = new long[kept];
+      final String[] sortedNames = new String[kept];
+
+      for(int i = 0; i < kept; i++) {
+        starts[i] = values[order[i]];
+        sortedNames[i] = names[order[i]];
+      }
+
+      for(int i = 0; i < kept; i++) {
+        final long symbolSize = sizes[order[i]];
+
+        ends[i] = (symbolSize > 0 ? starts[i] + symbolSize : (i + 1 < kept ? starts[i + 1] : starts[i] + 1));
+      }
+
+      return new ElfSymbolTable(starts, ends, sortedNames);
+    }
+
+  }
+
+}
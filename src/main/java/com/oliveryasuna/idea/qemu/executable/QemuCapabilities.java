@@ -0,0 +1,112 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.oliveryasuna.idea.qemu.executable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class QemuCapabilities {
+
+  // Static methods
+  //--------------------------------------------------
+
+  // Of a version as QemuHelpParser.parseVersion returns it; false if it is null.
+  public static boolean versionAtLeast(final String version, final int major, final int minor) {
+    if(version == null) {
+      return false;
+    }
+
+    final String[] parts = version.split("[.\\-+]");
+
+    try {
+      final int actualMajor = Integer.parseInt(parts[0]);
+      final int actualMinor = (parts.length > 1 ? Integer.parseInt(parts[1]) : 0);
+
+      return (actualMajor > major || (actualMajor == major && actualMinor >= minor));
+    } catch(final NumberFormatException e) {
+      return false;
+    }
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  public QemuCapabilities() {
+    super();
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  public String executable;
+
+  public long size;
+
+  public long lastModified;
+
+  public String version;
+
+  public List<String> machines = new ArrayList<>();
+
+  public List<String> cpus = new ArrayList<>();
+
+  public List<String> accelerators = new ArrayList<>();
+
+  public List<String> devices = new ArrayList<>();
+
+  // Built with io_uring, and the host kernel allows it.
+  public boolean ioUring;
+
+  // Methods
+  //--------------------------------------------------
+
+  public final boolean matchesFingerprint(final long size, final long lastModified) {
+    return (this.size == size && this.lastModified == lastModified);
+  }
+
+  // A binary that did not even report its version is not a usable QEMU.
+  public final boolean wasProbed() {
+    return (version != null);
+  }
+
+  public final boolean versionAtLeast(final int major, final int minor) {
+    return versionAtLeast(version, major, minor);
+  }
+
+  public final boolean supportsMachine(final String machine) {
+    return machines.contains(machine);
+  }
+
+  public final boolean supportsCpu(final String cpu) {
+    return cpus.contains(cpu);
+  }
+
+  public final boolean supportsAccelerator(final String accelerator) {
+    return accelerators.contains(accelerator);
+  }
+
+  public final boolean supportsDevice(final String device) {
+    return devices.contains(device);
+  }
+
+  public final boolean supportsIoUring() {
+    return ioUring;
+  }
+
+}
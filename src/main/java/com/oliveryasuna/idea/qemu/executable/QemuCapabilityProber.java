@@ -0,0 +1,318 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.oliveryasuna.idea.qemu.executable;
+
+import com.intellij.execution.ExecutionException;
+import com.intellij.execution.configurations.GeneralCommandLine;
+import com.intellij.execution.configurations.PathEnvironmentVariableUtil;
+import com.intellij.execution.process.CapturingProcessHandler;
+import com.intellij.execution.process.ProcessOutput;
+import com.intellij.execution.util.ExecUtil;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.RoamingType;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.SystemInfo;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.oliveryasuna.commons.language.condition.Arguments;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+@State(name = "QemuCapabilityProber", storages = @Storage(value = "qemu-capabilities.xml", roamingType = RoamingType.DISABLED))
+public final class QemuCapabilityProber implements PersistentStateComponent<QemuCapabilityProber.ProberState>, Disposable {
+
+  // Logging
+  //--------------------------------------------------
+
+  private static final Logger LOGGER = Logger.getInstance(QemuCapabilityProber.class);
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final int PROBE_TIMEOUT_MILLIS = 10_000;
+
+  private static final int MAX_PARALLEL_PROBES = 4;
+
+  // Static methods
+  //--------------------------------------------------
+
+  public static QemuCapabilityProber getInstance() {
+    return ApplicationManager.getApplication().getService(QemuCapabilityProber.class);
+  }
+
+  // Paths resolve against the working directory; bare names such as "qemu-system-x86_64" through PATH, as they are run. Does no I/O, so
+  // bare names the executable index has not seen yet resolve to null.
+  private static File resolveCached(final String executable) {
+    if(executable.indexOf('/') >= 0 || executable.indexOf(File.separatorChar) >= 0) {
+      return new File(executable).getAbsoluteFile();
+    }
+
+    return QemuExecutableIndex.getInstance().findCached(executable);
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  public QemuCapabilityProber() {
+    super();
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final ExecutorService executor = AppExecutorUtil.createBoundedApplicationPoolExecutor("QemuCapabilityProber", MAX_PARALLEL_PROBES);
+
+  private final Map<String, QemuCapabilities> capabilities = new ConcurrentHashMap<>();
+
+  private final Map<String, CompletableFuture<QemuCapabilities>> pendingProbes = new ConcurrentHashMap<>();
+
+  // Methods
+  //--------------------------------------------------
+
+  // Does no I/O, so it is safe to call on the EDT and on every launch. The entry may be stale until the next getCapabilities() call.
+  public final Optional<QemuCapabilities> getCachedCapabilities(final String executable) {
+    if(executable == null) {
+      return Optional.empty();
+    }
+
+    final File file = resolveCached(executable);
+
+    return (file != null ? Optional.ofNullable(capabilities.get(file.getPath())) : Optional.empty());
+  }
+
+  public final CompletableFuture<QemuCapabilities> getCapabilities(final String executable) {
+    Arguments.requireNotNull(executable, "executable == null");
+
+    final File file = resolveCached(executable);
+
+    if(file == null) {
+      return CompletableFuture.supplyAsync(() -> PathEnvironmentVariableUtil.findInPath(executable), executor)
+          .thenCompose(found -> (found != null
+              ? getCapabilities(found.getAbsolutePath())
+              : CompletableFuture.failedFuture(new FileNotFoundException("Not found in PATH: " + executable + "."))));
+    }
+
+    final String path = file.getPath();
+    final CompletableFuture<QemuCapabilities> future = new CompletableFuture<>();
+    final CompletableFuture<QemuCapabilities> pending = pendingProbes.putIfAbsent(path, future);
+
+    if(pending != null) {
+      return pending;
+    }
+
+    // Registered only once the future is in the map, as it may complete right away.
+    future.whenComplete((result, throwable) -> pendingProbes.remove(path, future));
+
+    CompletableFuture.supplyAsync(file::length, executor)
+        .thenCompose(size -> {
+          final long lastModified = file.lastModified();
+          final QemuCapabilities cached = capabilities.get(path);
+
+          if(cached != null && cached.matchesFingerprint(size, lastModified)) {
+            return CompletableFuture.completedFuture(cached);
+          }
+
+          return probe(file, size, lastModified);
+        })
+        .whenComplete((result, throwable) -> {
+          if(throwable != null) {
+            future.completeExceptionally(throwable);
+          } else {
+            future.complete(result);
+          }
+        });
+
+    return future;
+  }
+
+  public final CompletableFuture<Void> probeAll(final Collection<File> executables) {
+    Arguments.requireNotNull(executables, "executables == null");
+
+    return CompletableFuture.allOf(executables.stream()
+        .map(File::getPath)
+        .distinct()
+        .map(this::getCapabilities)
+        .toArray(CompletableFuture[]::new));
+  }
+
+  private CompletableFuture<QemuCapabilities> probe(final File executable, final long size, final long lastModified) {
+    final CompletableFuture<String> version = runHelp(executable, "-version");
+    final CompletableFuture<String> machines = runHelp(executable, "-machine", "help");
+    final CompletableFuture<String> cpus = runHelp(executable, "-cpu", "help");
+    final CompletableFuture<String> accelerators = runHelp(executable, "-accel", "help");
+    final CompletableFuture<String> devices = runHelp(executable, "-device", "help");
+
+    final CompletableFuture<Boolean> ioUring = version.thenCompose(output -> probeIoUring(executable, output));
+
+    return CompletableFuture.allOf(version, machines, cpus, accelerators, devices, ioUring)
+        .thenApply(ignored -> {
+          final QemuCapabilities result = new QemuCapabilities();
+
+          result.executable = executable.getPath();
+          result.size = size;
+          result.lastModified = lastModified;
+          result.version = QemuHelpParser.parseVersion(version.join());
+          result.machines = QemuHelpParser.parseMachines(machines.join());
+          result.cpus = QemuHelpParser.parseCpus(cpus.join());
+          result.accelerators = QemuHelpParser.parseAccelerators(accelerators.join());
+          result.devices = QemuHelpParser.parseDevices(devices.join());
+          result.ioUring = ioUring.join();
+
+          capabilities.put(result.executable, result);
+
+          return result;
+        });
+  }
+
+  // A version number is no proof: many builds lack liburing, and the host kernel may not allow io_uring. Both make QEMU fail at startup when
+  // a drive asks for it, so QEMU opens a scratch file with aio=io_uring and is told to quit over QMP.
+  private CompletableFuture<Boolean> probeIoUring(final File executable, final String versionOutput) {
+    if(!SystemInfo.isLinux || !QemuCapabilities.versionAtLeast(QemuHelpParser.parseVersion(versionOutput), 5, 0)) {
+      return CompletableFuture.completedFuture(false);
+    }
+
+    return CompletableFuture.supplyAsync(() -> {
+      Path scratch = null;
+
+      try {
+        scratch = Files.createTempFile("qemu-io-uring-", ".img");
+
+        final GeneralCommandLine commandLine = new GeneralCommandLine(executable.getPath())
+            .withParameters("-machine", "none", "-nodefaults", "-display", "none", "-S", "-qmp", "stdio", "-blockdev",
+                "driver=file,node-name=probe,read-only=on,aio=io_uring,filename=" + scratch.toString().replace(",", ",,"));
+        final CapturingProcessHandler processHandler = new CapturingProcessHandler(commandLine);
+
+        try(final Writer input = new OutputStreamWriter(processHandler.getProcessInput(), StandardCharsets.UTF_8)) {
+          input.write("{\"execute\":\"qmp_capabilities\"}\n{\"execute\":\"quit\"}\n");
+        } catch(final IOException e) {
+          // Already exited, having refused the drive.
+        }
+
+        final ProcessOutput output = processHandler.runProcess(PROBE_TIMEOUT_MILLIS, true);
+
+        return (!output.isTimeout() && output.getExitCode() == 0);
+      } catch(final ExecutionException | IOException e) {
+        LOGGER.warn(e); // TODO: Error reporting.
+
+        return false;
+      } finally {
+        if(scratch != null) {
+          try {
+            Files.deleteIfExists(scratch);
+          } catch(final IOException e) {
+            LOGGER.warn(e); // TODO: Error reporting.
+          }
+        }
+      }
+    }, executor);
+  }
+
+  private CompletableFuture<String> runHelp(final File executable, final String... arguments) {
+    return CompletableFuture.supplyAsync(() -> {
+      final GeneralCommandLine commandLine = new GeneralCommandLine(executable.getPath())
+          .withParameters(arguments);
+
+      try {
+        final ProcessOutput output = ExecUtil.execAndGetOutput(commandLine, PROBE_TIMEOUT_MILLIS);
+
+        // Older binaries do not know every help option; treat that as "nothing supported" rather than a failure.
+        if(output.isTimeout() || output.getExitCode() != 0) {
+          return "";
+        }
+
+        return output.getStdout();
+      } catch(final ExecutionException e) {
+        LOGGER.warn(e); // TODO: Error reporting.
+
+        return "";
+      }
+    }, executor);
+  }
+
+  // PersistentStateComponent methods
+  //--------------------------------------------------
+
+  @Override
+  public final ProberState getState() {
+    final ProberState state = new ProberState();
+
+    state.capabilities = new ArrayList<>(capabilities.values());
+
+    return state;
+  }
+
+  @Override
+  public final void loadState(final ProberState state) {
+    Arguments.requireNotNull(state, "state == null");
+
+    capabilities.clear();
+
+    for(final QemuCapabilities entry : state.capabilities) {
+      if(entry.executable != null) {
+        capabilities.put(entry.executable, entry);
+      }
+    }
+  }
+
+  // Disposable methods
+  //--------------------------------------------------
+
+  @Override
+  public final void dispose() {
+    executor.shutdownNow();
+  }
+
+  // ProberState class
+  //--------------------------------------------------
+
+  public static final class ProberState {
+
+    // Constructors
+    //--------------------------------------------------
+
+    public ProberState() {
+      super();
+    }
+
+    // Fields
+    //--------------------------------------------------
+
+    public List<QemuCapabilities> capabilities = new ArrayList<>();
+
+  }
+
+}
@@ -0,0 +1,351 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.oliveryasuna.idea.qemu.executable;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.RoamingType;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import com.intellij.util.PathUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.oliveryasuna.commons.language.condition.Arguments;
+import com.oliveryasuna.idea.qemu.util.CommandUtils;
+import com.oliveryasuna.idea.qemu.util.QemuExecutableFinder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+
+@State(name = "QemuExecutableIndex", storages = @Storage(value = "qemu-integration.xml", roamingType = RoamingType.DISABLED))
+public final class QemuExecutableIndex implements PersistentStateComponent<QemuExecutableIndex.IndexState>, Disposable {
+
+  // Static methods
+  //--------------------------------------------------
+
+  public static QemuExecutableIndex getInstance() {
+    return ApplicationManager.getApplication().getService(QemuExecutableIndex.class);
+  }
+
+  private static List<File> toFiles(final Collection<DirectoryState> directories) {
+    return directories.stream()
+        .flatMap(directory -> directory.executables.stream())
+        .distinct()
+        .map(File::new)
+        .collect(Collectors.toUnmodifiableList());
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  public QemuExecutableIndex() {
+    super();
+
+    ApplicationManager.getApplication().getMessageBus().connect(this)
+        .subscribe(VirtualFileManager.VFS_CHANGES, new SearchDirectoryListener());
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final ExecutorService executor = AppExecutorUtil.createBoundedApplicationPoolExecutor("QemuExecutableIndex", 1);
+
+  private final Map<String, DirectoryState> directories = new ConcurrentHashMap<>();
+
+  private final Object refreshLock = new Object();
+
+  private CompletableFuture<List<File>> refreshFuture;
+
+  private Set<LocalFileSystem.WatchRequest> watchRequests = Set.of();
+
+  // Methods
+  //--------------------------------------------------
+
+  public final CompletableFuture<List<File>> getExecutables() {
+    synchronized(refreshLock) {
+      if(refreshFuture == null) {
+        refreshFuture = CompletableFuture.supplyAsync(this::refreshAll, executor);
+      }
+
+      return refreshFuture;
+    }
+  }
+
+  public final List<File> getCachedExecutables() {
+    return toFiles(directories.values());
+  }
+
+  public final CompletableFuture<List<File>> refresh() {
+    synchronized(refreshLock) {
+      refreshFuture = CompletableFuture.supplyAsync(this::refreshAll, executor);
+
+      return refreshFuture;
+    }
+  }
+
+  public final boolean isKnownExecutable(final String candidate) {
+    if(candidate == null) {
+      return false;
+    }
+
+    for(final DirectoryState directory : directories.values()) {
+      for(final String executable : directory.executables) {
+        if(executable.equals(candidate) || PathUtil.getFileName(executable).equals(candidate)) {
+          return true;
+        }
+      }
+    }
+
+    final File file = new File(candidate);
+
+    return (file.isAbsolute() && Files.isExecutable(file.toPath()));
+  }
+
+  // The first indexed executable with the file name, in PATH order, the way a shell resolves a bare command. Does no I/O, so it is null
+  // for names the index has not seen yet.
+  public final File findCached(final String name) {
+    Arguments.requireNotNull(name, "name == null");
+
+    return CommandUtils.getSearchDirectories()
+        .map(directory -> directories.get(CommandUtils.normalize(directory).getPath()))
+        .filter(Objects::nonNull)
+        .flatMap(directory -> directory.executables.stream())
+        .filter(executable -> PathUtil.getFileName(executable).equals(name))
+        .findFirst()
+        .map(File::new)
+        .orElse(null);
+  }
+
+  private List<File> refreshAll() {
+    // Aliases of an earlier directory are dropped here, in PATH order, so findCached resolves names the way a shell would.
+    final List<File> searchDirectories = CommandUtils.distinctDirectories(CommandUtils.getSearchDirectories().collect(Collectors.toList()),
+        CommandUtils.DEFAULT_DIRECTORY_TIMEOUT);
+    final Set<String> searchPaths = searchDirectories.stream()
+        .map(File::getPath)
+        .collect(Collectors.toSet());
+
+    directories.keySet().retainAll(searchPaths);
+
+    watchDirectories(scanDirectories(searchDirectories, false));
+
+    final List<File> executables = getCachedExecutables();
+
+    QemuCapabilityProber.getInstance().probeAll(executables);
+
+    return executables;
+  }
+
+  // Returns the paths of the directories that were scanned. Directories that timed out are missing and are retried on the next refresh,
+  // unless their scan is still stuck.
+  private Set<String> scanDirectories(final List<File> searchDirectories, final boolean force) {
+    final Set<String> scannedPaths = new LinkedHashSet<>();
+
+    CommandUtils.scanDirectories(searchDirectories, directory -> scanDirectory(directory, force),
+            CommandUtils.DEFAULT_DIRECTORY_TIMEOUT)
+        .forEach((directory, state) -> {
+          directories.put(state.path, state);
+          scannedPaths.add(state.path);
+        });
+
+    return scannedPaths;
+  }
+
+  // Runs on the search threads, as even the modification time check can hang. Unchanged directories keep their cached listing.
+  private DirectoryState scanDirectory(final File directory, final boolean force) {
+    final DirectoryState state = new DirectoryState();
+
+    state.path = directory.getPath();
+    state.lastModified = directory.lastModified();
+
+    final DirectoryState cached = directories.get(state.path);
+
+    if(!force && cached != null && cached.lastModified == state.lastModified) {
+      return cached;
+    }
+
+    state.executables = QemuExecutableFinder.findQemuExecutables(directory).stream()
+        .map(File::getAbsolutePath)
+        .collect(Collectors.toList());
+
+    return state;
+  }
+
+  // Only directories that were just scanned, so a hung mount cannot stall the index here either. Their children are not loaded into VFS,
+  // which only reports changes to loaded files; changes it misses are still found by the modification time check on the next refresh.
+  private void watchDirectories(final Set<String> paths) {
+    final LocalFileSystem fileSystem = LocalFileSystem.getInstance();
+    final Set<LocalFileSystem.WatchRequest> requests = new HashSet<>();
+
+    for(final String path : paths) {
+      final LocalFileSystem.WatchRequest request = fileSystem.addRootToWatch(path, false);
+
+      if(request != null) {
+        requests.add(request);
+      }
+    }
+
+    fileSystem.removeWatchedRoots(watchRequests);
+
+    watchRequests = requests;
+  }
+
+  private void rescanDirectories(final Set<String> paths) {
+    if(paths.isEmpty()) {
+      return;
+    }
+
+    executor.execute(() -> scanDirectories(paths.stream()
+        .map(File::new)
+        .collect(Collectors.toList()), true));
+  }
+
+  // PersistentStateComponent methods
+  //--------------------------------------------------
+
+  @Override
+  public final IndexState getState() {
+    final IndexState state = new IndexState();
+
+    state.directories = new ArrayList<>(directories.values());
+
+    return state;
+  }
+
+  @Override
+  public final void loadState(final IndexState state) {
+    Arguments.requireNotNull(state, "state == null");
+
+    directories.clear();
+
+    for(final DirectoryState directory : state.directories) {
+      if(directory.path != null) {
+        directories.put(directory.path, directory);
+      }
+    }
+  }
+
+  // Disposable methods
+  //--------------------------------------------------
+
+  @Override
+  public final void dispose() {
+    LocalFileSystem.getInstance().removeWatchedRoots(watchRequests);
+
+    executor.shutdownNow();
+  }
+
+  // IndexState class
+  //--------------------------------------------------
+
+  public static final class IndexState {
+
+    // Constructors
+    //--------------------------------------------------
+
+    public IndexState() {
+      super();
+    }
+
+    // Fields
+    //--------------------------------------------------
+
+    public List<DirectoryState> directories = new ArrayList<>();
+
+  }
+
+  // DirectoryState class
+  //--------------------------------------------------
+
+  public static final class DirectoryState {
+
+    // Constructors
+    //--------------------------------------------------
+
+    public DirectoryState() {
+      super();
+    }
+
+    // Fields
+    //--------------------------------------------------
+
+    public String path;
+
+    public long lastModified;
+
+    public List<String> executables = new ArrayList<>();
+
+  }
+
+  // SearchDirectoryListener class
+  //--------------------------------------------------
+
+  private final class SearchDirectoryListener implements BulkFileListener {
+
+    // Constructors
+    //--------------------------------------------------
+
+    private SearchDirectoryListener() {
+      super();
+    }
+
+    // BulkFileListener methods
+    //--------------------------------------------------
+
+    @Override
+    public final void after(final List<? extends VFileEvent> events) {
+      final Set<String> changedDirectories = new HashSet<>();
+
+      for(final VFileEvent event : events) {
+        addIfIndexed(changedDirectories, PathUtil.getParentPath(event.getPath()));
+
+        if(event instanceof VFileMoveEvent) {
+          addIfIndexed(changedDirectories, PathUtil.getParentPath(((VFileMoveEvent)event).getOldPath()));
+        } else if(event instanceof VFilePropertyChangeEvent) {
+          addIfIndexed(changedDirectories, PathUtil.getParentPath(((VFilePropertyChangeEvent)event).getOldPath()));
+        }
+      }
+
+      rescanDirectories(changedDirectories);
+    }
+
+    // Methods
+    //--------------------------------------------------
+
+    private void addIfIndexed(final Set<String> paths, final String directory) {
+      final String path = new File(directory).getPath();
+
+      if(directories.containsKey(path)) {
+        paths.add(path);
+      }
+    }
+
+  }
+
+}
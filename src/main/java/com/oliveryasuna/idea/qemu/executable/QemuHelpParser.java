@@ -0,0 +1,154 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.oliveryasuna.idea.qemu.executable;
+
+import com.oliveryasuna.commons.language.exception.UnsupportedInstantiationException;
+import com.oliveryasuna.commons.language.marker.Utility;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Utility
+public final class QemuHelpParser {
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final Pattern VERSION_PATTERN = Pattern.compile("version\\s+(\\S+)");
+
+  private static final Pattern DEVICE_PATTERN = Pattern.compile("^name \"([^\"]+)\"");
+
+  private static final Pattern DEVICE_ALIAS_PATTERN = Pattern.compile("alias \"([^\"]+)\"");
+
+  // Some targets prefix every CPU model with the architecture, e.g. "x86 Skylake-Client".
+  private static final Set<String> CPU_ARCHITECTURE_PREFIXES = Set.of("x86", "PowerPC", "s390", "s390x", "Sparc", "sparc");
+
+  // Static utility methods
+  //--------------------------------------------------
+
+  public static String parseVersion(final String output) {
+    if(output == null) {
+      return null;
+    }
+
+    final Matcher matcher = VERSION_PATTERN.matcher(output);
+
+    return (matcher.find() ? matcher.group(1) : null);
+  }
+
+  public static List<String> parseMachines(final String output) {
+    return parseFirstColumn(output);
+  }
+
+  public static List<String> parseCpus(final String output) {
+    final List<String> cpus = new ArrayList<>();
+
+    for(final String line : bodyLines(output)) {
+      final String[] columns = line.trim().split("\\s+");
+
+      if(columns.length > 1 && CPU_ARCHITECTURE_PREFIXES.contains(columns[0])) {
+        cpus.add(columns[1]);
+      } else {
+        cpus.add(columns[0]);
+      }
+    }
+
+    return cpus;
+  }
+
+  public static List<String> parseAccelerators(final String output) {
+    return parseFirstColumn(output);
+  }
+
+  public static List<String> parseDevices(final String output) {
+    final List<String> devices = new ArrayList<>();
+
+    if(output == null) {
+      return devices;
+    }
+
+    for(final String line : output.split("\\R")) {
+      final Matcher matcher = DEVICE_PATTERN.matcher(line);
+
+      if(matcher.find()) {
+        devices.add(matcher.group(1));
+
+        final Matcher aliasMatcher = DEVICE_ALIAS_PATTERN.matcher(line);
+
+        if(aliasMatcher.find()) {
+          devices.add(aliasMatcher.group(1));
+        }
+      }
+    }
+
+    return devices;
+  }
+
+  private static List<String> parseFirstColumn(final String output) {
+    final List<String> values = new ArrayList<>();
+
+    for(final String line : bodyLines(output)) {
+      values.add(line.trim().split("\\s+", 2)[0]);
+    }
+
+    return values;
+  }
+
+  // Lines of the first section after its "...:" header, up to the next blank line or header.
+  private static List<String> bodyLines(final String output) {
+    final List<String> lines = new ArrayList<>();
+
+    if(output == null) {
+      return lines;
+    }
+
+    boolean inBody = false;
+
+    for(final String line : output.split("\\R")) {
+      final String trimmed = line.trim();
+
+      if(!inBody) {
+        inBody = trimmed.endsWith(":");
+
+        continue;
+      }
+
+      if(trimmed.isEmpty() || trimmed.endsWith(":")) {
+        break;
+      }
+
+      lines.add(trimmed);
+    }
+
+    return lines;
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  private QemuHelpParser() {
+    super();
+
+    throw new UnsupportedInstantiationException();
+  }
+
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.oliveryasuna.idea.qemu.instance;
+
+import com.intellij.execution.process.BaseProcessHandler;
+import com.intellij.execution.process.ProcessAdapter;
+import com.intellij.execution.process.ProcessEvent;
+import com.intellij.execution.process.ProcessHandler;
+import com.oliveryasuna.commons.language.condition.Arguments;
+import com.oliveryasuna.idea.qemu.qmp.QmpClient;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+public final class QemuInstance {
+
+  // Constructors
+  //--------------------------------------------------
+
+  QemuInstance(final String projectLocationHash, final String configurationName, final ProcessHandler processHandler, final int qmpPort,
+      final int gdbPort) {
+    super();
+
+    Arguments.requireNotNull(projectLocationHash, "projectLocationHash == null");
+    Arguments.requireNotNull(configurationName, "configurationName == null");
+    Arguments.requireNotNull(processHandler, "processHandler == null");
+
+    this.projectLocationHash = projectLocationHash;
+    this.configurationName = configurationName;
+    this.processHandler = processHandler;
+    this.qmpPort = qmpPort;
+    this.gdbPort = gdbPort;
+
+    if(processHandler instanceof BaseProcessHandler && ((BaseProcessHandler<?>)processHandler).getProcess() != null) {
+      this.processHandle = ((BaseProcessHandler<?>)processHandler).getProcess().toHandle();
+    } else {
+      this.processHandle = null;
+    }
+
+    processHandler.addProcessListener(new ProcessAdapter() {
+      @Override
+      public void processTerminated(final ProcessEvent event) {
+        terminated.complete(null);
+      }
+    });
+
+    if(processHandler.isProcessTerminated()) {
+      terminated.complete(null);
+    }
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final UUID id = UUID.randomUUID();
+
+  private final String projectLocationHash;
+
+  private final String configurationName;
+
+  private final ProcessHandler processHandler;
+
+  private final ProcessHandle processHandle;
+
+  private final int qmpPort;
+
+  private final int gdbPort;
+
+  private final Instant startTime = Instant.now();
+
+  private final CompletableFuture<Void> terminated = new CompletableFuture<>();
+
+  private volatile QmpClient qmpClient;
+
+  private volatile boolean pooled;
+
+  // Methods
+  //--------------------------------------------------
+
+  public final boolean belongsTo(final String projectLocationHash, final String configurationName) {
+    return (this.projectLocationHash.equals(projectLocationHash) && this.configurationName.equals(configurationName));
+  }
+
+  public final boolean isTerminated() {
+    return terminated.isDone();
+  }
+
+  // Quits over QMP when possible, destroys the process handler if QEMU is still running after the timeout, and finally kills the process
+  // forcibly if even that did not end it.
+  public final CompletableFuture<Void> shutdown(final Duration timeout) {
+    Arguments.requireNotNull(timeout, "timeout == null");
+
+    if(isTerminated()) {
+      return terminated;
+    }
+
+    final QmpClient client = qmpClient;
+
+    if(client != null && client.isConnected()) {
+      client.quit();
+    } else {
+      processHandler.destroyProcess();
+    }
+
+    return terminated.copy()
+        .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+        .handle((ignored, throwable) -> {
+          if(throwable == null) {
+            return terminated;
+          }
+
+          processHandler.destroyProcess();
+
+          return terminated.copy().orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        })
+        .thenCompose(Function.identity())
+        .exceptionally(throwable -> {
+          if(processHandle != null) {
+            processHandle.destroyForcibly();
+          }
+
+          return null;
+        });
+  }
+
+  // Getters/setters
+  //--------------------------------------------------
+
+  public final UUID getId() {
+    return id;
+  }
+
+  public final String getProjectLocationHash() {
+    return projectLocationHash;
+  }
+
+  public final String getConfigurationName() {
+    return configurationName;
+  }
+
+  public final ProcessHandler getProcessHandler() {
+    return processHandler;
+  }
+
+  public final Optional<ProcessHandle> getProcessHandle() {
+    return Optional.ofNullable(processHandle);
+  }
+
+  public final long getPid() {
+    return (processHandle != null ? processHandle.pid() : -1);
+  }
+
+  public final int getQmpPort() {
+    return qmpPort;
+  }
+
+  public final int getGdbPort() {
+    return gdbPort;
+  }
+
+  public final Instant getStartTime() {
+    return startTime;
+  }
+
+  public final CompletableFuture<Void> getTerminatedFuture() {
+    return terminated;
+  }
+
+  public final QmpClient getQmpClient() {
+    return qmpClient;
+  }
+
+  public final void setQmpClient(final QmpClient qmpClient) {
+    this.qmpClient = qmpClient;
+  }
+
+  // Pooled instances are idle in a warm pool and not yet owned by a run.
+  public final boolean isPooled() {
+    return pooled;
+  }
+
+  public final void setPooled(final boolean pooled) {
+    this.pooled = pooled;
+  }
+
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.oliveryasuna.idea.qemu.instance;
+
+import com.intellij.execution.process.ProcessHandler;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.oliveryasuna.commons.language.condition.Arguments;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+// Tracks every QEMU process launched by the plugin. Each live instance also has a small record file in the system directory, so instances
+// that survive an IDE crash can be found and reaped on the next start.
+public final class QemuInstanceRegistry implements Disposable {
+
+  // Logging
+  //--------------------------------------------------
+
+  private static final Logger LOGGER = Logger.getInstance(QemuInstanceRegistry.class);
+
+  // Static fields
+  //--------------------------------------------------
+
+  public static final Duration DEFAULT_SHUTDOWN_TIMEOUT = Duration.ofSeconds(3);
+
+  private static final String RECORD_EXTENSION = ".instance";
+
+  // Static methods
+  //--------------------------------------------------
+
+  public static QemuInstanceRegistry getInstance() {
+    return ApplicationManager.getApplication().getService(QemuInstanceRegistry.class);
+  }
+
+  private static Path getRecordDirectory() {
+    return Paths.get(PathManager.getSystemPath(), "qemu-integration", "instances");
+  }
+
+  private static UUID parseId(final String id) {
+    try {
+      return UUID.fromString(id);
+    } catch(final IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  public QemuInstanceRegistry() {
+    super();
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final Map<UUID, QemuInstance> instances = new ConcurrentHashMap<>();
+
+  // Methods
+  //--------------------------------------------------
+
+  public final QemuInstance register(final Project project, final String configurationName, final ProcessHandler processHandler,
+      final int qmpPort, final int gdbPort) {
+    return register(project, configurationName, processHandler, qmpPort, gdbPort, false);
+  }
+
+  public final QemuInstance register(final Project project, final String configurationName, final ProcessHandler processHandler,
+      final int qmpPort, final int gdbPort, final boolean pooled) {
+    Arguments.requireNotNull(project, "project == null");
+
+    final QemuInstance instance = new QemuInstance(project.getLocationHash(), configurationName, processHandler, qmpPort, gdbPort);
+
+    instance.setPooled(pooled);
+
+    instances.put(instance.getId(), instance);
+
+    writeRecord(instance);
+
+    instance.getTerminatedFuture().whenComplete((ignored, throwable) -> unregister(instance));
+
+    return instance;
+  }
+
+  public final List<QemuInstance> getInstances() {
+    return List.copyOf(instances.values());
+  }
+
+  // Instances owned by runs of the configuration. Pooled instances are left out.
+  public final List<QemuInstance> getInstances(final Project project, final String configurationName) {
+    Arguments.requireNotNull(project, "project == null");
+
+    return instances.values().stream()
+        .filter(instance -> !instance.isPooled())
+        .filter(instance -> instance.belongsTo(project.getLocationHash(), configurationName))
+        .collect(Collectors.toUnmodifiableList());
+  }
+
+  public final CompletableFuture<Void> shutdownInstances(final Project project, final String configurationName) {
+    return CompletableFuture.allOf(getInstances(project, configurationName).stream()
+        .map(instance -> instance.shutdown(DEFAULT_SHUTDOWN_TIMEOUT))
+        .toArray(CompletableFuture[]::new));
+  }
+
+  // Kills QEMU processes recorded by a previous IDE session that are still running. The recorded start time guards against killing an
+  // unrelated process that reused the PID.
+  public final void reapOrphans() {
+    final Path recordDirectory = getRecordDirectory();
+
+    if(!Files.isDirectory(recordDirectory)) {
+      return;
+    }
+
+    try(final DirectoryStream<Path> records = Files.newDirectoryStream(recordDirectory, "*" + RECORD_EXTENSION)) {
+      for(final Path record : records) {
+        final String fileName = record.getFileName().toString();
+
+        final UUID id = parseId(fileName.substring(0, fileName.length() - RECORD_EXTENSION.length()));
+
+        if(id != null && instances.containsKey(id)) {
+          continue;
+        }
+
+        reapOrphan(record);
+
+        Files.deleteIfExists(record);
+      }
+    } catch(final IOException e) {
+      LOGGER.warn(e); // TODO: Error reporting.
+    }
+  }
+
+  private void reapOrphan(final Path record) throws IOException {
+    final Properties properties = new Properties();
+
+    try(final Reader reader = Files.newBufferedReader(record)) {
+      properties.load(reader);
+    }
+
+    final long pid;
+    final long startTime;
+
+    try {
+      pid = Long.parseLong(properties.getProperty("pid", "-1"));
+      startTime = Long.parseLong(properties.getProperty("processStartTime", "-1"));
+    } catch(final NumberFormatException e) {
+      return;
+    }
+
+    ProcessHandle.of(pid)
+        .filter(ProcessHandle::isAlive)
+        .filter(process -> process.info().startInstant()
+            .map(instant -> instant.toEpochMilli() == startTime)
+            .orElse(false))
+        .ifPresent(process -> {
+          LOGGER.info("Killing orphaned QEMU process " + pid + " of " + properties.getProperty("configuration") + ".");
+
+          process.destroyForcibly();
+        });
+  }
+
+  private void unregister(final QemuInstance instance) {
+    instances.remove(instance.getId());
+
+    try {
+      Files.deleteIfExists(getRecordDirectory().resolve(instance.getId() + RECORD_EXTENSION));
+    } catch(final IOException e) {
+      LOGGER.warn(e); // TODO: Error reporting.
+    }
+  }
+
+  private void writeRecord(final QemuInstance instance) {
+    final Optional<ProcessHandle> processHandle = instance.getProcessHandle();
+
+    if(processHandle.isEmpty()) {
+      return;
+    }
+
+    final Properties properties = new Properties();
+
+    properties.setProperty("pid", Long.toString(processHandle.get().pid()));
+    properties.setProperty("processStartTime", Long.toString(processHandle.get().info().startInstant()
+        .map(Instant::toEpochMilli)
+        .orElse(-1L)));
+    properties.setProperty("project", instance.getProjectLocationHash());
+    properties.setProperty("configuration", instance.getConfigurationName());
+    properties.setProperty("qmpPort", Integer.toString(instance.getQmpPort()));
+    properties.setProperty("gdbPort", Integer.toString(instance.getGdbPort()));
+    properties.setProperty("startTime", instance.getStartTime().toString());
+
+    try {
+      final Path recordDirectory = getRecordDirectory();
+
+      Files.createDirectories(recordDirectory);
+
+      try(final Writer writer = Files.newBufferedWriter(recordDirectory.resolve(instance.getId() + RECORD_EXTENSION))) {
+        properties.store(writer, null);
+      }
+    } catch(final IOException e) {
+      LOGGER.warn(e); // TODO: Error reporting.
+    }
+  }
+
+  // Disposable methods
+  //--------------------------------------------------
+
+  @Override
+  public final void dispose() {
+    for(final QemuInstance instance : instances.values()) {
+      instance.shutdown(DEFAULT_SHUTDOWN_TIMEOUT);
+    }
+  }
+
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.monitor;
+
+import com.intellij.ui.JBColor;
+import com.intellij.util.ui.JBUI;
+import com.intellij.util.ui.UIUtil;
+import com.oliveryasuna.commons.language.condition.Arguments;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.List;
+
+// Line chart of metrics sharing a unit over the sampler's history window. Samples are copied into arrays owned by the chart, so repainting
+// allocates nothing.
+final class GuestPerformanceChart extends JComponent {
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final Color[] COLORS = {JBColor.BLUE, JBColor.ORANGE, JBColor.GREEN, JBColor.MAGENTA};
+
+  private static final int GRID_LINES = 4;
+
+  // Constructors
+  //--------------------------------------------------
+
+  GuestPerformanceChart(final GuestPerformanceSampler sampler, final String title, final List<GuestPerformanceMetric> metrics) {
+    super();
+
+    Arguments.requireNotNull(sampler, "sampler == null");
+    Arguments.requireNotNull(title, "title == null");
+    Arguments.requireNotNull(metrics, "metrics == null");
+
+    this.sampler = sampler;
+    this.title = title;
+    this.metrics = List.copyOf(metrics);
+    this.times = new long[metrics.size()][GuestPerformanceSampler.HISTORY_SIZE];
+    this.values = new double[metrics.size()][GuestPerformanceSampler.HISTORY_SIZE];
+    this.counts = new int[metrics.size()];
+
+    setPreferredSize(JBUI.size(400, 140));
+    setMinimumSize(JBUI.size(200, 80));
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final GuestPerformanceSampler sampler;
+
+  private final String title;
+
+  private final List<GuestPerformanceMetric> metrics;
+
+  private final long[][] times;
+
+  private final double[][] values;
+
+  private final int[] counts;
+
+  // Methods
+  //--------------------------------------------------
+
+  @Override
+  protected final void paintComponent(final Graphics graphics) {
+    final Graphics2D g = (Graphics2D)graphics.create();
+
+    try {
+      UIUtil.applyRenderingHints(g);
+
+      g.setColor(UIUtil.getPanelBackground());
+      g.fillRect(0, 0, getWidth(), getHeight());
+
+      final FontMetrics fontMetrics = g.getFontMetrics();
+      final Insets insets = JBUI.insets(fontMetrics.getHeight() + 4, 4, 4, 4);
+      final Rectangle plot = new Rectangle(insets.left, insets.top, getWidth() - insets.left - insets.right,
+          getHeight() - insets.top - insets.bottom);
+
+      if(plot.width <= 0 || plot.height <= 0) {
+        return;
+      }
+
+      long end = Long.MIN_VALUE;
+      double max = 0;
+
+      for(int m = 0; m < metrics.size(); m++) {
+        counts[m] = sampler.getSamples(metrics.get(m)).copyTo(times[m], values[m]);
+
+        for(int i = 0; i < counts[m]; i++) {
+          max = Math.max(max, values[m][i]);
+        }
+
+        if(counts[m] > 0) {
+          end = Math.max(end, times[m][counts[m] - 1]);
+        }
+      }
+
+      final GuestPerformanceMetric.Unit unit = metrics.get(0).getUnit();
+
+      if(unit == GuestPerformanceMetric.Unit.PERCENT) {
+        max = Math.max(max, 100.0);
+      }
+
+      max = (max > 0 ? max * 1.1 : 1.0);
+
+      paintGrid(g, plot, max, unit);
+
+      final long span = (long)GuestPerformanceSampler.HISTORY_SIZE * sampler.getIntervalMillis();
+
+      for(int m = 0; m < metrics.size(); m++) {
+        g.setColor(COLORS[m % COLORS.length]);
+
+        paintLine(g, plot, times[m], values[m], counts[m], end - span, span, max);
+      }
+
+      paintLegend(g, insets.left, fontMetrics.getAscent() + 2);
+    } finally {
+      g.dispose();
+    }
+  }
+
+  private void paintGrid(final Graphics2D g, final Rectangle plot, final double max, final GuestPerformanceMetric.Unit unit) {
+    g.setColor(JBColor.border());
+    g.drawRect(plot.x, plot.y, plot.width, plot.height);
+
+    g.setFont(JBUI.Fonts.miniFont());
+
+    for(int i = 1; i < GRID_LINES; i++) {
+      final int y = plot.y + plot.height - plot.height * i / GRID_LINES;
+
+      g.setColor(JBColor.border());
+      g.drawLine(plot.x, y, plot.x + plot.width, y);
+
+      g.setColor(UIUtil.getContextHelpForeground());
+      g.drawString(unit.format(max * i / GRID_LINES), plot.x + 2, y - 2);
+    }
+  }
+
+  private void paintLine(final Graphics2D g, final Rectangle plot, final long[] times, final double[] values, final int count, final long start,
+      final long span, final double max) {
+    int previousX = -1;
+    int previousY = -1;
+
+    for(int i = 0; i < count; i++) {
+      if(times[i] < start) {
+        continue;
+      }
+
+      final int x = plot.x + (int)((times[i] - start) * plot.width / Math.max(span, 1));
+      final int y = plot.y + plot.height - (int)(values[i] / max * plot.height);
+
+      if(previousX >= 0) {
+        g.drawLine(previousX, previousY, x, y);
+      }
+
+      previousX = x;
+      previousY = y;
+    }
+  }
+
+  private void paintLegend(final Graphics2D g, final int x, final int baseline) {
+    g.setFont(UIUtil.getLabelFont());
+    g.setColor(UIUtil.getLabelForeground());
+    g.drawString(title, x, baseline);
+
+    int legendX = x + g.getFontMetrics().stringWidth(title) + JBUI.scale(12);
+
+    for(int m = 0; m < metrics.size(); m++) {
+      final GuestPerformanceMetric metric = metrics.get(m);
+      final double latest = sampler.getSamples(metric).getLatest();
+      final String text = metric.getDescription() + ": " + (Double.isNaN(latest) ? "n/a" : metric.getUnit().format(latest));
+
+      g.setColor(COLORS[m % COLORS.length]);
+      g.drawString(text, legendX, baseline);
+
+      legendX += g.getFontMetrics().stringWidth(text) + JBUI.scale(12);
+    }
+  }
+
+}
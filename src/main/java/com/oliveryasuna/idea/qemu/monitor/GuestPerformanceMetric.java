@@ -0,0 +1,108 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.monitor;
+
+import com.intellij.openapi.util.text.StringUtil;
+
+public enum GuestPerformanceMetric {
+
+  // Values
+  //--------------------------------------------------
+
+  VCPU_UTILIZATION("vCPU", "CPU", Unit.PERCENT),
+  PROCESS_CPU("QEMU process", "CPU", Unit.PERCENT),
+  BLOCK_READ("Read", "Block I/O", Unit.BYTES_PER_SECOND),
+  BLOCK_WRITE("Write", "Block I/O", Unit.BYTES_PER_SECOND),
+  RESIDENT_MEMORY("Resident", "Memory", Unit.BYTES),
+  KVM_EXITS("Exits", "KVM", Unit.PER_SECOND);
+
+  // Constructors
+  //--------------------------------------------------
+
+  GuestPerformanceMetric(final String description, final String chart, final Unit unit) {
+    this.description = description;
+    this.chart = chart;
+    this.unit = unit;
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final String description;
+
+  // Metrics with the same chart are drawn together.
+  private final String chart;
+
+  private final Unit unit;
+
+  // Getters/setters
+  //--------------------------------------------------
+
+  public final String getDescription() {
+    return description;
+  }
+
+  public final String getChart() {
+    return chart;
+  }
+
+  public final Unit getUnit() {
+    return unit;
+  }
+
+  // Unit enum
+  //--------------------------------------------------
+
+  public enum Unit {
+
+    // Values
+    //--------------------------------------------------
+
+    PERCENT {
+      @Override
+      public String format(final double value) {
+        return String.format("%.1f%%", value);
+      }
+    },
+    BYTES {
+      @Override
+      public String format(final double value) {
+        return StringUtil.formatFileSize((long)value);
+      }
+    },
+    BYTES_PER_SECOND {
+      @Override
+      public String format(final double value) {
+        return StringUtil.formatFileSize((long)value) + "/s";
+      }
+    },
+    PER_SECOND {
+      @Override
+      public String format(final double value) {
+        return String.format("%.0f/s", value);
+      }
+    };
+
+    // Methods
+    //--------------------------------------------------
+
+    public abstract String format(double value);
+
+  }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.monitor;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.project.Project;
+import com.oliveryasuna.commons.language.condition.Arguments;
+import com.oliveryasuna.idea.qemu.instance.QemuInstance;
+import com.oliveryasuna.idea.qemu.qmp.QmpClient;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+// Performance samplers of running QEMU instances. A sampler stops when its instance's QMP connection closes, but stays here with its history
+// until the instance is forgotten, so the last minutes of a run can still be inspected after it ended.
+public final class GuestPerformanceMonitor implements Disposable {
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final int MAX_STOPPED_SAMPLERS = 10;
+
+  // Static methods
+  //--------------------------------------------------
+
+  public static GuestPerformanceMonitor getInstance() {
+    return ApplicationManager.getApplication().getService(GuestPerformanceMonitor.class);
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  public GuestPerformanceMonitor() {
+    super();
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final Map<UUID, GuestPerformanceSampler> samplers = new ConcurrentHashMap<>();
+
+  // Methods
+  //--------------------------------------------------
+
+  public final GuestPerformanceSampler start(final QemuInstance instance, final QmpClient client, final int intervalMillis) {
+    Arguments.requireNotNull(instance, "instance == null");
+
+    final GuestPerformanceSampler sampler = new GuestPerformanceSampler(instance, client, intervalMillis);
+
+    if(samplers.putIfAbsent(instance.getId(), sampler) != null) {
+      return samplers.get(instance.getId());
+    }
+
+    forgetStoppedSamplers();
+
+    sampler.start();
+
+    ApplicationManager.getApplication().getMessageBus().syncPublisher(GuestPerformanceMonitorListener.TOPIC).samplerStarted(sampler);
+
+    return sampler;
+  }
+
+  public final void forget(final GuestPerformanceSampler sampler) {
+    sampler.stop();
+
+    samplers.remove(sampler.getInstance().getId(), sampler);
+  }
+
+  public final List<GuestPerformanceSampler> getSamplers(final Project project) {
+    Arguments.requireNotNull(project, "project == null");
+
+    return samplers.values().stream()
+        .filter(sampler -> sampler.getInstance().getProjectLocationHash().equals(project.getLocationHash()))
+        .sorted((a, b) -> a.getInstance().getStartTime().compareTo(b.getInstance().getStartTime()))
+        .collect(Collectors.toUnmodifiableList());
+  }
+
+  private void forgetStoppedSamplers() {
+    final List<GuestPerformanceSampler> stopped = samplers.values().stream()
+        .filter(sampler -> !sampler.isRunning())
+        .sorted((a, b) -> b.getInstance().getStartTime().compareTo(a.getInstance().getStartTime()))
+        .collect(Collectors.toList());
+
+    stopped.stream()
+        .skip(MAX_STOPPED_SAMPLERS)
+        .forEach(this::forget);
+  }
+
+  // Disposable methods
+  //--------------------------------------------------
+
+  @Override
+  public final void dispose() {
+    samplers.values().forEach(GuestPerformanceSampler::stop);
+    samplers.clear();
+  }
+
+}
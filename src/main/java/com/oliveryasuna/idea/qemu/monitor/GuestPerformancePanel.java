@@ -0,0 +1,99 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.monitor;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.ui.components.JBLabel;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.util.ui.JBUI;
+import com.oliveryasuna.commons.language.condition.Arguments;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// One chart per metric group of a sampler, repainted at the sampling interval while the sampler runs.
+final class GuestPerformancePanel extends JPanel implements Disposable {
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final int MIN_REPAINT_MILLIS = 250;
+
+  // Constructors
+  //--------------------------------------------------
+
+  GuestPerformancePanel(final GuestPerformanceSampler sampler) {
+    super(new BorderLayout());
+
+    Arguments.requireNotNull(sampler, "sampler == null");
+
+    this.sampler = sampler;
+    this.repaintTimer = new Timer(Math.max(sampler.getIntervalMillis(), MIN_REPAINT_MILLIS), event -> refresh());
+
+    final Map<String, List<GuestPerformanceMetric>> charts = List.of(GuestPerformanceMetric.values()).stream()
+        .collect(Collectors.groupingBy(GuestPerformanceMetric::getChart, LinkedHashMap::new, Collectors.toList()));
+    final JPanel chartPanel = new JPanel(new GridLayout(charts.size(), 1, 0, JBUI.scale(4)));
+
+    charts.forEach((title, metrics) -> chartPanel.add(new GuestPerformanceChart(sampler, title, metrics)));
+
+    statusLabel.setBorder(JBUI.Borders.empty(4));
+
+    add(statusLabel, BorderLayout.NORTH);
+    add(new JBScrollPane(chartPanel), BorderLayout.CENTER);
+
+    refresh();
+
+    repaintTimer.start();
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final GuestPerformanceSampler sampler;
+
+  private final JBLabel statusLabel = new JBLabel();
+
+  private final Timer repaintTimer;
+
+  // Methods
+  //--------------------------------------------------
+
+  private void refresh() {
+    statusLabel.setText("PID " + sampler.getInstance().getPid() + ", sampled every " + sampler.getIntervalMillis() + " ms"
+        + (sampler.isRunning() ? "" : " (stopped)"));
+
+    repaint();
+
+    if(!sampler.isRunning()) {
+      repaintTimer.stop();
+    }
+  }
+
+  // Disposable methods
+  //--------------------------------------------------
+
+  @Override
+  public final void dispose() {
+    repaintTimer.stop();
+  }
+
+}
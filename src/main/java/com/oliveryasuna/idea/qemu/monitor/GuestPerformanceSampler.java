@@ -0,0 +1,369 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.monitor;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.oliveryasuna.commons.language.condition.Arguments;
+import com.oliveryasuna.idea.qemu.instance.QemuInstance;
+import com.oliveryasuna.idea.qemu.qmp.QmpClient;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Periodically samples one running QEMU instance: vCPU thread utilization (query-cpus-fast thread ids against /proc), block throughput
+// (query-blockstats), KVM exits (query-stats, where QEMU and the accelerator support it) and the process' own CPU and resident memory. At
+// most one sample is in flight; a tick that finds the previous sample unfinished is skipped.
+public final class GuestPerformanceSampler {
+
+  // Logging
+  //--------------------------------------------------
+
+  private static final Logger LOGGER = Logger.getInstance(GuestPerformanceSampler.class);
+
+  // Static fields
+  //--------------------------------------------------
+
+  public static final int HISTORY_SIZE = 600;
+
+  // USER_HZ, which the JVM cannot query. It is 100 on every mainstream Linux architecture.
+  private static final double CLOCK_TICKS_PER_SECOND = 100.0;
+
+  private static final Path PROC = Paths.get("/proc");
+
+  // Static methods
+  //--------------------------------------------------
+
+  // utime + stime from a /proc stat file. The command name may contain spaces and parentheses, so fields are counted from the last ')'.
+  private static long readCpuTicks(final Path statFile) throws IOException {
+    final String stat = Files.readString(statFile, StandardCharsets.US_ASCII);
+    final String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+
+    return Long.parseLong(fields[11]) + Long.parseLong(fields[12]);
+  }
+
+  private static long readResidentBytes(final Path statusFile) throws IOException {
+    try(final BufferedReader reader = Files.newBufferedReader(statusFile, StandardCharsets.US_ASCII)) {
+      String line;
+
+      while((line = reader.readLine()) != null) {
+        if(line.startsWith("VmRSS:")) {
+          return Long.parseLong(line.substring("VmRSS:".length()).replace("kB", "").trim()) * 1024L;
+        }
+      }
+    }
+
+    return -1;
+  }
+
+  private static long getLong(final JsonObject object, final String member) {
+    final JsonElement element = object.get(member);
+
+    return (element != null && element.isJsonPrimitive() ? element.getAsLong() : 0);
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  GuestPerformanceSampler(final QemuInstance instance, final QmpClient client, final int intervalMillis) {
+    super();
+
+    Arguments.requireNotNull(instance, "instance == null");
+    Arguments.requireNotNull(client, "client == null");
+
+    this.instance = instance;
+    this.client = client;
+    this.intervalMillis = intervalMillis;
+    this.processDirectory = (instance.getPid() > 0 ? PROC.resolve(Long.toString(instance.getPid())) : null);
+
+    for(final GuestPerformanceMetric metric : GuestPerformanceMetric.values()) {
+      samples.put(metric, new SampleRingBuffer(HISTORY_SIZE));
+    }
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final QemuInstance instance;
+
+  private final QmpClient client;
+
+  private final int intervalMillis;
+
+  // Null when the PID is unknown. Process metrics are also skipped when the directory does not exist, i.e. on hosts without procfs.
+  private final Path processDirectory;
+
+  private final Map<GuestPerformanceMetric, SampleRingBuffer> samples = new EnumMap<>(GuestPerformanceMetric.class);
+
+  private final AtomicBoolean sampling = new AtomicBoolean();
+
+  // Counters are only touched by the sample in flight, which the sampling flag serializes.
+  private final RateCounter processTicks = new RateCounter();
+
+  private final Map<Long, RateCounter> vcpuTicks = new HashMap<>();
+
+  private final RateCounter blockReadBytes = new RateCounter();
+
+  private final RateCounter blockWriteBytes = new RateCounter();
+
+  private final RateCounter kvmExits = new RateCounter();
+
+  private volatile boolean statsSupported = true;
+
+  private volatile ScheduledFuture<?> schedule;
+
+  // Methods
+  //--------------------------------------------------
+
+  final void start() {
+    schedule = AppExecutorUtil.getAppScheduledExecutorService().scheduleWithFixedDelay(this::sample, 0, intervalMillis, TimeUnit.MILLISECONDS);
+
+    client.getClosedFuture().whenComplete((ignored, throwable) -> stop());
+  }
+
+  final void stop() {
+    final ScheduledFuture<?> schedule = this.schedule;
+
+    if(schedule != null) {
+      schedule.cancel(false);
+    }
+  }
+
+  public final boolean isRunning() {
+    final ScheduledFuture<?> schedule = this.schedule;
+
+    return (schedule != null && !schedule.isDone());
+  }
+
+  public final SampleRingBuffer getSamples(final GuestPerformanceMetric metric) {
+    return samples.get(metric);
+  }
+
+  private void sample() {
+    if(!client.isConnected()) {
+      stop();
+
+      return;
+    }
+
+    if(!sampling.compareAndSet(false, true)) {
+      return;
+    }
+
+    final long timeMillis = System.currentTimeMillis();
+    final long nanos = System.nanoTime();
+
+    sampleProcess(timeMillis, nanos);
+
+    CompletableFuture.allOf(sampleVcpus(timeMillis, nanos), sampleBlockStats(timeMillis, nanos), sampleKvmStats(timeMillis, nanos))
+        .whenComplete((ignored, throwable) -> sampling.set(false));
+  }
+
+  private void sampleProcess(final long timeMillis, final long nanos) {
+    if(processDirectory == null || !Files.isDirectory(processDirectory)) {
+      return;
+    }
+
+    try {
+      record(GuestPerformanceMetric.PROCESS_CPU, timeMillis, toPercent(processTicks.update(readCpuTicks(processDirectory.resolve("stat")), nanos)));
+
+      final long residentBytes = readResidentBytes(processDirectory.resolve("status"));
+
+      if(residentBytes >= 0) {
+        record(GuestPerformanceMetric.RESIDENT_MEMORY, timeMillis, residentBytes);
+      }
+    } catch(final IOException | RuntimeException e) {
+      // The process may exit between the check and the read.
+      LOGGER.debug(e);
+    }
+  }
+
+  private CompletableFuture<Void> sampleVcpus(final long timeMillis, final long nanos) {
+    if(processDirectory == null) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    return client.execute("query-cpus-fast")
+        .thenAccept(cpus -> {
+          double total = 0;
+          int count = 0;
+
+          for(final JsonElement cpu : cpus.getAsJsonArray()) {
+            final long threadId = getLong(cpu.getAsJsonObject(), "thread-id");
+            final double rate;
+
+            try {
+              rate = vcpuTicks.computeIfAbsent(threadId, ignored -> new RateCounter())
+                  .update(readCpuTicks(processDirectory.resolve("task").resolve(Long.toString(threadId)).resolve("stat")), nanos);
+            } catch(final IOException | RuntimeException e) {
+              LOGGER.debug(e);
+
+              continue;
+            }
+
+            if(!Double.isNaN(rate)) {
+              total += toPercent(rate);
+              count++;
+            }
+          }
+
+          if(count > 0) {
+            record(GuestPerformanceMetric.VCPU_UTILIZATION, timeMillis, total / count);
+          }
+        })
+        .exceptionally(this::sampleFailed);
+  }
+
+  private CompletableFuture<Void> sampleBlockStats(final long timeMillis, final long nanos) {
+    return client.execute("query-blockstats")
+        .thenAccept(devices -> {
+          long readBytes = 0;
+          long writtenBytes = 0;
+
+          for(final JsonElement device : devices.getAsJsonArray()) {
+            final JsonObject stats = device.getAsJsonObject().getAsJsonObject("stats");
+
+            if(stats != null) {
+              readBytes += getLong(stats, "rd_bytes");
+              writtenBytes += getLong(stats, "wr_bytes");
+            }
+          }
+
+          record(GuestPerformanceMetric.BLOCK_READ, timeMillis, blockReadBytes.update(readBytes, nanos));
+          record(GuestPerformanceMetric.BLOCK_WRITE, timeMillis, blockWriteBytes.update(writtenBytes, nanos));
+        })
+        .exceptionally(this::sampleFailed);
+  }
+
+  // query-stats exists since QEMU 7.1 and only reports for KVM. Once it fails it is not asked again.
+  private CompletableFuture<Void> sampleKvmStats(final long timeMillis, final long nanos) {
+    if(!statsSupported) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    final JsonObject arguments = new JsonObject();
+
+    arguments.addProperty("target", "vcpu");
+
+    return client.execute("query-stats", arguments)
+        .thenAccept(results -> {
+          long exits = 0;
+          boolean found = false;
+
+          for(final JsonElement result : results.getAsJsonArray()) {
+            for(final JsonElement stat : result.getAsJsonObject().getAsJsonArray("stats")) {
+              final JsonObject statObject = stat.getAsJsonObject();
+
+              if("exits".equals(statObject.get("name").getAsString()) && statObject.get("value").isJsonPrimitive()) {
+                exits += statObject.get("value").getAsLong();
+                found = true;
+              }
+            }
+          }
+
+          if(found) {
+            record(GuestPerformanceMetric.KVM_EXITS, timeMillis, kvmExits.update(exits, nanos));
+          } else {
+            statsSupported = false;
+          }
+        })
+        .exceptionally(throwable -> {
+          statsSupported = false;
+
+          return null;
+        });
+  }
+
+  private Void sampleFailed(final Throwable throwable) {
+    LOGGER.debug(throwable);
+
+    return null;
+  }
+
+  private void record(final GuestPerformanceMetric metric, final long timeMillis, final double value) {
+    if(!Double.isNaN(value)) {
+      samples.get(metric).add(timeMillis, value);
+    }
+  }
+
+  private double toPercent(final double ticksPerSecond) {
+    return ticksPerSecond / CLOCK_TICKS_PER_SECOND * 100.0;
+  }
+
+  // Getters/setters
+  //--------------------------------------------------
+
+  public final QemuInstance getInstance() {
+    return instance;
+  }
+
+  public final int getIntervalMillis() {
+    return intervalMillis;
+  }
+
+  // RateCounter class
+  //--------------------------------------------------
+
+  // Per-second rate of a monotonically increasing counter. The first update, and any update after the counter went backwards (a device was
+  // removed), yields NaN.
+  private static final class RateCounter {
+
+    // Constructors
+    //--------------------------------------------------
+
+    private RateCounter() {
+      super();
+    }
+
+    // Fields
+    //--------------------------------------------------
+
+    private long value = -1;
+
+    private long nanos;
+
+    // Methods
+    //--------------------------------------------------
+
+    private double update(final long value, final long nanos) {
+      final double rate = (this.value >= 0 && value >= this.value && nanos > this.nanos
+          ? (value - this.value) / ((nanos - this.nanos) / 1_000_000_000.0)
+          : Double.NaN);
+
+      this.value = value;
+      this.nanos = nanos;
+
+      return rate;
+    }
+
+  }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.monitor;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.openapi.wm.ToolWindowFactory;
+import com.intellij.ui.content.Content;
+import com.intellij.ui.content.ContentFactory;
+import com.intellij.ui.content.ContentManager;
+import com.intellij.ui.content.ContentManagerEvent;
+import com.intellij.ui.content.ContentManagerListener;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// A tab per monitored QEMU instance of the project. Closing a tab forgets the instance's samples.
+public final class GuestPerformanceToolWindowFactory implements ToolWindowFactory, DumbAware {
+
+  // Constructors
+  //--------------------------------------------------
+
+  public GuestPerformanceToolWindowFactory() {
+    super();
+  }
+
+  // Methods
+  //--------------------------------------------------
+
+  private void addContent(final ContentManager contentManager, final Map<Content, GuestPerformanceSampler> samplers,
+      final GuestPerformanceSampler sampler) {
+    if(samplers.containsValue(sampler)) {
+      return;
+    }
+
+    final GuestPerformancePanel panel = new GuestPerformancePanel(sampler);
+    final Content content = ContentFactory.SERVICE.getInstance().createContent(panel,
+        sampler.getInstance().getConfigurationName() + " (" + sampler.getInstance().getPid() + ")", false);
+
+    content.setDisposer(panel);
+    content.setCloseable(true);
+
+    samplers.put(content, sampler);
+
+    contentManager.addContent(content);
+    contentManager.setSelectedContent(content);
+  }
+
+  // ToolWindowFactory methods
+  //--------------------------------------------------
+
+  @Override
+  public final void createToolWindowContent(final Project project, final ToolWindow toolWindow) {
+    final ContentManager contentManager = toolWindow.getContentManager();
+    final Map<Content, GuestPerformanceSampler> samplers = new HashMap<>();
+
+    GuestPerformanceMonitor.getInstance().getSamplers(project).forEach(sampler -> addContent(contentManager, samplers, sampler));
+
+    contentManager.addContentManagerListener(new ContentManagerListener() {
+      @Override
+      public void contentRemoved(final ContentManagerEvent event) {
+        final GuestPerformanceSampler sampler = samplers.remove(event.getContent());
+
+        if(sampler != null) {
+          GuestPerformanceMonitor.getInstance().forget(sampler);
+        }
+      }
+    });
+
+    ApplicationManager.getApplication().getMessageBus().connect(toolWindow.getDisposable())
+        .subscribe(GuestPerformanceMonitorListener.TOPIC, (GuestPerformanceMonitorListener)sampler -> {
+          if(!sampler.getInstance().getProjectLocationHash().equals(project.getLocationHash())) {
+            return;
+          }
+
+          ApplicationManager.getApplication().invokeLater(() -> addContent(contentManager, samplers, sampler), project.getDisposed());
+        });
+  }
+
+}
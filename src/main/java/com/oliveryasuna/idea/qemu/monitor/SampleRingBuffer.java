@@ -0,0 +1,98 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.monitor;
+
+// Fixed-size ring of (time, value) samples held in primitive arrays, so a long-running monitor neither grows nor boxes. The oldest sample is
+// overwritten once the ring is full.
+public final class SampleRingBuffer {
+
+  // Constructors
+  //--------------------------------------------------
+
+  public SampleRingBuffer(final int capacity) {
+    super();
+
+    if(capacity <= 0) {
+      throw new IllegalArgumentException("capacity <= 0");
+    }
+
+    this.times = new long[capacity];
+    this.values = new double[capacity];
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final long[] times;
+
+  private final double[] values;
+
+  // Index of the next write.
+  private int head;
+
+  private int size;
+
+  // Methods
+  //--------------------------------------------------
+
+  public final synchronized void add(final long timeMillis, final double value) {
+    times[head] = timeMillis;
+    values[head] = value;
+
+    head = (head + 1) % times.length;
+
+    if(size < times.length) {
+      size++;
+    }
+  }
+
+  // Copies the samples, oldest first, into the given arrays and returns how many were copied. The arrays must hold at least getCapacity()
+  // elements; callers keep and reuse them between repaints.
+  public final synchronized int copyTo(final long[] timesOut, final double[] valuesOut) {
+    final int start = (head - size + times.length) % times.length;
+    final int firstPart = Math.min(size, times.length - start);
+
+    System.arraycopy(times, start, timesOut, 0, firstPart);
+    System.arraycopy(values, start, valuesOut, 0, firstPart);
+    System.arraycopy(times, 0, timesOut, firstPart, size - firstPart);
+    System.arraycopy(values, 0, valuesOut, firstPart, size - firstPart);
+
+    return size;
+  }
+
+  public final synchronized double getLatest() {
+    return (size > 0 ? values[(head - 1 + values.length) % values.length] : Double.NaN);
+  }
+
+  public final synchronized int size() {
+    return size;
+  }
+
+  public final synchronized void clear() {
+    head = 0;
+    size = 0;
+  }
+
+  // Getters/setters
+  //--------------------------------------------------
+
+  public final int getCapacity() {
+    return times.length;
+  }
+
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.profiler;
+
+import java.util.Arrays;
+import java.util.function.LongUnaryOperator;
+
+// Call stacks merged into a trie: one node per distinct path of frames, counting the samples that passed through it (total) and that ended
+// in it (self). Nodes live in parallel primitive arrays, linked first-child/next-sibling. Frames are opaque long keys: program counters while
+// sampling, symbol addresses once symbolized.
+public final class CallStackTrie {
+
+  // Static fields
+  //--------------------------------------------------
+
+  public static final int ROOT = 0;
+
+  private static final int NONE = -1;
+
+  private static final int INITIAL_CAPACITY = 1024;
+
+  // Constructors
+  //--------------------------------------------------
+
+  public CallStackTrie() {
+    super();
+
+    createNode(0);
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private long[] keys = new long[INITIAL_CAPACITY];
+
+  private int[] firstChild = new int[INITIAL_CAPACITY];
+
+  private int[] nextSibling = new int[INITIAL_CAPACITY];
+
+  private int[] selfCount = new int[INITIAL_CAPACITY];
+
+  private int[] totalCount = new int[INITIAL_CAPACITY];
+
+  private int nodeCount;
+
+  // Methods
+  //--------------------------------------------------
+
+  // Adds a sampled stack, innermost frame first.
+  public final void add(final long[] stack, final int depth) {
+    int node = ROOT;
+
+    totalCount[ROOT]++;
+
+    for(int i = depth - 1; i >= 0; i--) {
+      node = getOrCreateChild(node, stack[i]);
+
+      totalCount[node]++;
+    }
+
+    selfCount[node]++;
+  }
+
+  // A trie with every key mapped, merging siblings that map to the same key. Used to fold program counters into functions.
+  public final CallStackTrie map(final LongUnaryOperator mapper) {
+    final CallStackTrie mapped = new CallStackTrie();
+
+    mapInto(mapped, ROOT, ROOT, mapper);
+
+    return mapped;
+  }
+
+  public final int getSampleCount() {
+    return totalCount[ROOT];
+  }
+
+  public final int getNodeCount() {
+    return nodeCount;
+  }
+
+  public final long getKey(final int node) {
+    return keys[node];
+  }
+
+  public final int getSelfCount(final int node) {
+    return selfCount[node];
+  }
+
+  public final int getTotalCount(final int node) {
+    return totalCount[node];
+  }
+
+  // The first child of the node, or -1.
+  public final int getFirstChild(final int node) {
+    return firstChild[node];
+  }
+
+  // The next sibling of the node, or -1.
+  public final int getNextSibling(final int node) {
+    return nextSibling[node];
+  }
+
+  private void mapInto(final CallStackTrie mapped, final int node, final int mappedNode, final LongUnaryOperator mapper) {
+    mapped.totalCount[mappedNode] += (node == ROOT ? totalCount[node] : 0);
+    mapped.selfCount[mappedNode] += selfCount[node];
+
+    for(int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+      final int mappedChild = mapped.getOrCreateChild(mappedNode, mapper.applyAsLong(keys[child]));
+
+      mapped.totalCount[mappedChild] += totalCount[child];
+
+      mapInto(mapped, child, mappedChild, mapper);
+    }
+  }
+
+  private int getOrCreateChild(final int node, final long key) {
+    int previous = NONE;
+
+    for(int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+      if(keys[child] == key) {
+        // Moves the child to the front: the same few stacks recur sample after sample.
+        if(previous != NONE) {
+          nextSibling[previous] = nextSibling[child];
+          nextSibling[child] = firstChild[node];
+          firstChild[node] = child;
+        }
+
+        return child;
+      }
+
+      previous = child;
+    }
+
+    final int child = createNode(key);
+
+    nextSibling[child] = firstChild[node];
+    firstChild[node] = child;
+
+    return child;
+  }
+
+  private int createNode(final long key) {
+    if(nodeCount == keys.length) {
+      final int capacity = keys.length * 2;
+
+      keys = Arrays.copyOf(keys, capacity);
+      firstChild = Arrays.copyOf(firstChild, capacity);
+      nextSibling = Arrays.copyOf(nextSibling, capacity);
+      selfCount = Arrays.copyOf(selfCount, capacity);
+      totalCount = Arrays.copyOf(totalCount, capacity);
+    }
+
+    final int node = nodeCount++;
+
+    keys[node] = key;
+    firstChild[node] = NONE;
+    nextSibling[node] = NONE;
+
+    return node;
+  }
+
+}
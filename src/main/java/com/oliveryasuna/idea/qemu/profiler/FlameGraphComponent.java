@@ -0,0 +1,270 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.profiler;
+
+import com.intellij.util.ui.JBUI;
+import com.intellij.util.ui.UIUtil;
+import com.oliveryasuna.commons.language.condition.Arguments;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+// Flame graph of a guest profile: the root at the bottom, callees stacked above their callers, widths proportional to samples and siblings in
+// name order. Clicking a frame zooms into it; clicking the root zooms out.
+final class FlameGraphComponent extends JComponent {
+
+  // Static fields
+  //--------------------------------------------------
+
+  // Frames narrower than this fraction of the graph are left out of the layout.
+  private static final double MIN_WIDTH = 0.0005;
+
+  // Constructors
+  //--------------------------------------------------
+
+  FlameGraphComponent(final GuestProfile profile) {
+    super();
+
+    Arguments.requireNotNull(profile, "profile == null");
+
+    this.trie = profile.getTrie();
+    this.names = new String[trie.getNodeCount()];
+    this.parents = new int[trie.getNodeCount()];
+
+    for(int node = 0; node < names.length; node++) {
+      names[node] = profile.getFrameName(node);
+
+      for(int child = trie.getFirstChild(node); child >= 0; child = trie.getNextSibling(child)) {
+        parents[child] = node;
+      }
+    }
+
+    setToolTipText("");
+    setOpaque(true);
+
+    addMouseListener(new MouseAdapter() {
+      @Override
+      public void mouseClicked(final MouseEvent event) {
+        final int node = nodeAt(event.getPoint());
+
+        if(node >= 0) {
+          zoom(node == zoomNode ? parents[node] : node);
+        }
+      }
+    });
+
+    layoutFrames();
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final CallStackTrie trie;
+
+  private final String[] names;
+
+  private final int[] parents;
+
+  private final int rowHeight = JBUI.scale(18);
+
+  private int zoomNode = CallStackTrie.ROOT;
+
+  // The layout: node, depth, left edge and width of each visible frame, the latter two as fractions of the graph width.
+  private int[] frameNodes = new int[0];
+
+  private int[] frameDepths = new int[0];
+
+  private double[] frameLefts = new double[0];
+
+  private double[] frameWidths = new double[0];
+
+  private int frameCount;
+
+  private int maxDepth;
+
+  // Methods
+  //--------------------------------------------------
+
+  @Override
+  public final Dimension getPreferredSize() {
+    return new Dimension(JBUI.scale(800), (maxDepth + 1) * rowHeight);
+  }
+
+  @Override
+  public final String getToolTipText(final MouseEvent event) {
+    final int node = nodeAt(event.getPoint());
+
+    if(node < 0) {
+      return null;
+    }
+
+    final int total = trie.getTotalCount(node);
+
+    return String.format("<html><b>%s</b><br>%d samples (%.1f%%), %d self</html>", escape(names[node]), total,
+        100.0 * total / Math.max(trie.getSampleCount(), 1), trie.getSelfCount(node));
+  }
+
+  @Override
+  protected final void paintComponent(final Graphics graphics) {
+    final Graphics2D g = (Graphics2D)graphics.create();
+
+    try {
+      UIUtil.applyRenderingHints(g);
+
+      g.setColor(UIUtil.getPanelBackground());
+      g.fillRect(0, 0, getWidth(), getHeight());
+      g.setFont(UIUtil.getLabelFont(UIUtil.FontSize.SMALL));
+
+      final FontMetrics fontMetrics = g.getFontMetrics();
+      final int width = getWidth();
+
+      for(int i = 0; i < frameCount; i++) {
+        final int x = (int)(frameLefts[i] * width);
+        final int frameWidth = Math.max((int)((frameLefts[i] + frameWidths[i]) * width) - x, 1);
+        final int y = getHeight() - (frameDepths[i] + 1) * rowHeight;
+        final String name = names[frameNodes[i]];
+
+        g.setColor(getFrameColor(name));
+        g.fillRect(x, y, frameWidth, rowHeight - 1);
+
+        if(frameWidth > fontMetrics.charWidth('m') * 3) {
+          g.setColor(Color.BLACK);
+          g.drawString(clip(name, fontMetrics, frameWidth - 4), x + 2, y + (rowHeight + fontMetrics.getAscent()) / 2 - 2);
+        }
+      }
+    } finally {
+      g.dispose();
+    }
+  }
+
+  private void zoom(final int node) {
+    zoomNode = node;
+
+    layoutFrames();
+    revalidate();
+    repaint();
+  }
+
+  private void layoutFrames() {
+    frameCount = 0;
+    maxDepth = 0;
+
+    // The zoomed frame's callers span the full width below it.
+    final List<Integer> callers = new ArrayList<>();
+
+    for(int node = zoomNode; node != CallStackTrie.ROOT; ) {
+      node = parents[node];
+
+      callers.add(0, node);
+    }
+
+    for(int depth = 0; depth < callers.size(); depth++) {
+      addFrame(callers.get(depth), depth, 0.0, 1.0);
+    }
+
+    layoutFrame(zoomNode, callers.size(), 0.0, 1.0);
+  }
+
+  private void layoutFrame(final int node, final int depth, final double left, final double width) {
+    addFrame(node, depth, left, width);
+
+    final List<Integer> children = new ArrayList<>();
+
+    for(int child = trie.getFirstChild(node); child >= 0; child = trie.getNextSibling(child)) {
+      children.add(child);
+    }
+
+    children.sort(Comparator.comparing(child -> names[child]));
+
+    double childLeft = left;
+
+    for(final int child : children) {
+      final double childWidth = width * trie.getTotalCount(child) / trie.getTotalCount(node);
+
+      if(childWidth >= MIN_WIDTH) {
+        layoutFrame(child, depth + 1, childLeft, childWidth);
+      }
+
+      childLeft += childWidth;
+    }
+  }
+
+  private void addFrame(final int node, final int depth, final double left, final double width) {
+    if(frameCount == frameNodes.length) {
+      final int capacity = Math.max(frameNodes.length * 2, 256);
+
+      frameNodes = Arrays.copyOf(frameNodes, capacity);
+      frameDepths = Arrays.copyOf(frameDepths, capacity);
+      frameLefts = Arrays.copyOf(frameLefts, capacity);
+      frameWidths = Arrays.copyOf(frameWidths, capacity);
+    }
+
+    frameNodes[frameCount] = node;
+    frameDepths[frameCount] = depth;
+    frameLefts[frameCount] = left;
+    frameWidths[frameCount] = width;
+    frameCount++;
+
+    maxDepth = Math.max(maxDepth, depth);
+  }
+
+  private int nodeAt(final Point point) {
+    final int depth = (getHeight() - point.y) / rowHeight;
+    final double position = (double)point.x / Math.max(getWidth(), 1);
+
+    for(int i = 0; i < frameCount; i++) {
+      if(frameDepths[i] == depth && position >= frameLefts[i] && position < frameLefts[i] + frameWidths[i]) {
+        return frameNodes[i];
+      }
+    }
+
+    return -1;
+  }
+
+  // Warm colors, stable per name so a function keeps its color across zooms.
+  private Color getFrameColor(final String name) {
+    final int hash = name.hashCode();
+
+    return Color.getHSBColor(0.0f + (hash & 0xFF) / 255.0f * 0.12f, 0.5f + ((hash >>> 8) & 0xFF) / 255.0f * 0.3f, 0.95f);
+  }
+
+  private String clip(final String text, final FontMetrics fontMetrics, final int width) {
+    if(fontMetrics.stringWidth(text) <= width) {
+      return text;
+    }
+
+    int length = text.length();
+
+    while(length > 0 && fontMetrics.stringWidth(text.substring(0, length) + "...") > width) {
+      length--;
+    }
+
+    return (length > 0 ? text.substring(0, length) + "..." : "");
+  }
+
+  private String escape(final String text) {
+    return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+  }
+
+}
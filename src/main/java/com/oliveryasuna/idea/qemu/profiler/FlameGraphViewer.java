@@ -0,0 +1,78 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.profiler;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.DialogWrapper;
+import com.intellij.ui.components.JBLabel;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.util.ui.JBUI;
+import com.oliveryasuna.commons.language.condition.Arguments;
+
+import javax.swing.*;
+import java.awt.*;
+
+public final class FlameGraphViewer extends DialogWrapper {
+
+  // Constructors
+  //--------------------------------------------------
+
+  public FlameGraphViewer(final Project project, final String configurationName, final GuestProfile profile) {
+    super(project, false, IdeModalityType.MODELESS);
+
+    Arguments.requireNotNull(profile, "profile == null");
+
+    this.profile = profile;
+
+    setTitle("QEMU Guest Profile - " + configurationName);
+    setModal(false);
+
+    init();
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final GuestProfile profile;
+
+  // DialogWrapper methods
+  //--------------------------------------------------
+
+  @Override
+  protected final JComponent createCenterPanel() {
+    final JBScrollPane scrollPane = new JBScrollPane(new FlameGraphComponent(profile));
+    final JBLabel statusLabel = new JBLabel(profile.getTrie().getSampleCount() + " samples. " + profile.getSymbolStatus());
+
+    // Opens at the bottom, where the flame graph is rooted.
+    SwingUtilities.invokeLater(() -> scrollPane.getVerticalScrollBar().setValue(scrollPane.getVerticalScrollBar().getMaximum()));
+
+    final JPanel panel = new JPanel(new BorderLayout());
+
+    panel.add(scrollPane, BorderLayout.CENTER);
+    panel.add(statusLabel, BorderLayout.SOUTH);
+    panel.setPreferredSize(JBUI.size(1000, 600));
+
+    return panel;
+  }
+
+  @Override
+  protected final Action[] createActions() {
+    return new Action[] {getOKAction()};
+  }
+
+}
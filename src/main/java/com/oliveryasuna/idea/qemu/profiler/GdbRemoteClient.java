@@ -0,0 +1,338 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.profiler;
+
+import com.oliveryasuna.commons.language.condition.Arguments;
+
+import java.io.*;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Minimal blocking client for the GDB remote serial protocol, enough to stop the guest, read registers and memory of each vCPU thread and
+// let it run again. Not thread-safe; one thread owns the connection.
+final class GdbRemoteClient implements Closeable {
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final long CONNECT_RETRY_MILLIS = 100;
+
+  private static final int READ_TIMEOUT_MILLIS = 2000;
+
+  private static final int INTERRUPT = 0x03;
+
+  // Static methods
+  //--------------------------------------------------
+
+  // The stub is opened some time after QEMU starts, or later still when it is deferred, so refused connections are retried until the
+  // timeout elapses.
+  static GdbRemoteClient connect(final InetSocketAddress address, final Duration timeout) throws IOException, InterruptedException {
+    Arguments.requireNotNull(address, "address == null");
+    Arguments.requireNotNull(timeout, "timeout == null");
+
+    final long deadline = System.nanoTime() + timeout.toNanos();
+
+    while(true) {
+      final Socket socket = new Socket();
+
+      try {
+        socket.connect(address, READ_TIMEOUT_MILLIS);
+        socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+        socket.setTcpNoDelay(true);
+
+        final GdbRemoteClient client = new GdbRemoteClient(socket);
+
+        client.handshake();
+
+        return client;
+      } catch(final ConnectException e) {
+        socket.close();
+
+        if(System.nanoTime() - deadline >= 0) {
+          throw e;
+        }
+
+        Thread.sleep(CONNECT_RETRY_MILLIS);
+      } catch(final IOException e) {
+        socket.close();
+
+        throw e;
+      }
+    }
+  }
+
+  private static long parseLittleEndian(final String hex) throws StubErrorException {
+    long value = 0;
+
+    try {
+      for(int i = hex.length() - 2; i >= 0; i -= 2) {
+        value = (value << 8) | Integer.parseInt(hex.substring(i, i + 2), 16);
+      }
+    } catch(final NumberFormatException e) {
+      throw new StubErrorException("Unexpected GDB stub reply: " + hex + ".");
+    }
+
+    return value;
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  private GdbRemoteClient(final Socket socket) throws IOException {
+    super();
+
+    this.socket = socket;
+    this.input = new BufferedInputStream(socket.getInputStream());
+    this.output = new BufferedOutputStream(socket.getOutputStream());
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final Socket socket;
+
+  private final InputStream input;
+
+  private final OutputStream output;
+
+  private boolean noAck;
+
+  // The thread selected for register and memory access, to skip redundant Hg packets.
+  private String selectedThread;
+
+  // Methods
+  //--------------------------------------------------
+
+  // Stops the guest and waits for the stop reply. Returns false when none comes within the read timeout: the stub ignores the interrupt when
+  // the guest is already stopped.
+  final boolean interrupt() throws IOException {
+    output.write(INTERRUPT);
+    output.flush();
+
+    try {
+      awaitStopReply();
+
+      return true;
+    } catch(final SocketTimeoutException e) {
+      return false;
+    }
+  }
+
+  // Reads the stop replies the stub sent on its own, as it does when the guest is paused from elsewhere, so they are not taken for the reply
+  // to a later interrupt or request. Does not block. Returns whether there were any.
+  final boolean drainStopReplies() throws IOException {
+    boolean stopped = false;
+
+    while(input.available() > 0) {
+      input.mark(1);
+
+      // Stray acknowledgements.
+      if(read() != '$') {
+        continue;
+      }
+
+      input.reset();
+
+      final String reply = receive();
+
+      if(reply.startsWith("T") || reply.startsWith("S")) {
+        stopped = true;
+      } else if(reply.startsWith("W") || reply.startsWith("X")) {
+        throw new EOFException("Guest exited.");
+      }
+    }
+
+    return stopped;
+  }
+
+  // Lets the guest run. There is no reply until it stops again.
+  final void resume() throws IOException {
+    send("c");
+  }
+
+  final List<String> getThreads() throws IOException {
+    final List<String> threads = new ArrayList<>();
+    String reply = request("qfThreadInfo");
+
+    while(reply.startsWith("m")) {
+      for(final String thread : reply.substring(1).split(",")) {
+        threads.add(thread);
+      }
+
+      reply = request("qsThreadInfo");
+    }
+
+    return threads;
+  }
+
+  final long readRegister(final String thread, final int register) throws IOException {
+    selectThread(thread);
+
+    return parseLittleEndian(checkError(request("p" + Integer.toHexString(register))));
+  }
+
+  final long readWord(final String thread, final long address, final int wordSize) throws IOException {
+    selectThread(thread);
+
+    return parseLittleEndian(checkError(request("m" + Long.toHexString(address) + "," + Integer.toHexString(wordSize))));
+  }
+
+  private void handshake() throws IOException {
+    // Enables no-ack mode when the stub supports it, which saves a round trip per packet.
+    noAck = "OK".equals(request("QStartNoAckMode"));
+  }
+
+  private void selectThread(final String thread) throws IOException {
+    if(thread.equals(selectedThread)) {
+      return;
+    }
+
+    checkError(request("Hg" + thread));
+
+    selectedThread = thread;
+  }
+
+  private String request(final String packet) throws IOException {
+    send(packet);
+
+    return receive();
+  }
+
+  private void awaitStopReply() throws IOException {
+    while(true) {
+      final String reply = receive();
+
+      // Console output ("O...") may come before the stop reply.
+      if(reply.startsWith("T") || reply.startsWith("S")) {
+        return;
+      }
+
+      if(reply.startsWith("W") || reply.startsWith("X")) {
+        throw new EOFException("Guest exited.");
+      }
+    }
+  }
+
+  private String checkError(final String reply) throws IOException {
+    if(reply.isEmpty() || (reply.length() == 3 && reply.charAt(0) == 'E')) {
+      throw new StubErrorException("GDB stub error" + (reply.isEmpty() ? "" : " " + reply.substring(1)) + ".");
+    }
+
+    return reply;
+  }
+
+  private void send(final String packet) throws IOException {
+    int checksum = 0;
+
+    for(int i = 0; i < packet.length(); i++) {
+      checksum += packet.charAt(i);
+    }
+
+    output.write(('$' + packet + '#' + String.format("%02x", checksum & 0xFF)).getBytes(StandardCharsets.US_ASCII));
+    output.flush();
+
+    if(!noAck) {
+      awaitAck();
+    }
+  }
+
+  private void awaitAck() throws IOException {
+    final int ack = read();
+
+    if(ack != '+') {
+      throw new IOException("GDB stub did not acknowledge the packet.");
+    }
+  }
+
+  // Reads one packet, undoing escapes and run-length encoding. Checksums are not verified: the transport is TCP.
+  private String receive() throws IOException {
+    // Skips stray acknowledgements.
+    int c = read();
+
+    while(c != '$') {
+      c = read();
+    }
+
+    final StringBuilder packet = new StringBuilder();
+
+    while((c = read()) != '#') {
+      if(c == '}') {
+        packet.append((char)(read() ^ 0x20));
+      } else if(c == '*' && packet.length() > 0) {
+        final char repeated = packet.charAt(packet.length() - 1);
+        final int count = read() - 29;
+
+        for(int i = 0; i < count; i++) {
+          packet.append(repeated);
+        }
+      } else {
+        packet.append((char)c);
+      }
+    }
+
+    read();
+    read();
+
+    if(!noAck) {
+      output.write('+');
+      output.flush();
+    }
+
+    return packet.toString();
+  }
+
+  private int read() throws IOException {
+    final int c = input.read();
+
+    if(c < 0) {
+      throw new EOFException("GDB stub closed the connection.");
+    }
+
+    return c;
+  }
+
+  // Closeable methods
+  //--------------------------------------------------
+
+  @Override
+  public final void close() throws IOException {
+    socket.close();
+  }
+
+  // StubErrorException class
+  //--------------------------------------------------
+
+  // An error reply to a request, such as a read of unmapped memory. The connection stays usable.
+  static final class StubErrorException extends IOException {
+
+    // Constructors
+    //--------------------------------------------------
+
+    private StubErrorException(final String message) {
+      super(message);
+    }
+
+  }
+
+}
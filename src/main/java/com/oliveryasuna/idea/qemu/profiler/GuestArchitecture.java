@@ -0,0 +1,109 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.profiler;
+
+import java.io.File;
+import java.util.Optional;
+
+// Register numbers in the GDB stub's layout and the frame record of each guest architecture QEMU is commonly used for. Frame pointer
+// unwinding assumes the guest was built with frame pointers; without them stacks are cut short, but program counters are still right.
+enum GuestArchitecture {
+
+  // Values
+  //--------------------------------------------------
+
+  // rip, rbp. The frame pointer points at the saved frame pointer, followed by the return address.
+  X86_64("qemu-system-x86_64", 16, 6, 8, 0, 8),
+  // eip, ebp.
+  I386("qemu-system-i386", 8, 5, 4, 0, 4),
+  // pc, x29. The frame record is (x29, x30) at the frame pointer.
+  AARCH64("qemu-system-aarch64", 32, 29, 8, 0, 8),
+  // pc, s0. The frame pointer points past the saved (s0, ra) pair.
+  RISCV64("qemu-system-riscv64", 32, 8, 8, -16, -8);
+
+  // Static methods
+  //--------------------------------------------------
+
+  static Optional<GuestArchitecture> of(final String qemuExecutable) {
+    if(qemuExecutable == null) {
+      return Optional.empty();
+    }
+
+    final String name = new File(qemuExecutable).getName();
+
+    for(final GuestArchitecture architecture : values()) {
+      if(name.startsWith(architecture.executableName)) {
+        return Optional.of(architecture);
+      }
+    }
+
+    return Optional.empty();
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  GuestArchitecture(final String executableName, final int pcRegister, final int framePointerRegister, final int wordSize,
+      final int savedFramePointerOffset, final int returnAddressOffset) {
+    this.executableName = executableName;
+    this.pcRegister = pcRegister;
+    this.framePointerRegister = framePointerRegister;
+    this.wordSize = wordSize;
+    this.savedFramePointerOffset = savedFramePointerOffset;
+    this.returnAddressOffset = returnAddressOffset;
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final String executableName;
+
+  private final int pcRegister;
+
+  private final int framePointerRegister;
+
+  private final int wordSize;
+
+  private final int savedFramePointerOffset;
+
+  private final int returnAddressOffset;
+
+  // Getters/setters
+  //--------------------------------------------------
+
+  final int getPcRegister() {
+    return pcRegister;
+  }
+
+  final int getFramePointerRegister() {
+    return framePointerRegister;
+  }
+
+  final int getWordSize() {
+    return wordSize;
+  }
+
+  final int getSavedFramePointerOffset() {
+    return savedFramePointerOffset;
+  }
+
+  final int getReturnAddressOffset() {
+    return returnAddressOffset;
+  }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.profiler;
+
+import com.oliveryasuna.commons.language.condition.Arguments;
+import com.oliveryasuna.idea.qemu.elf.ElfSymbolTable;
+
+import java.io.File;
+
+// Samples with program counters folded into the functions of the guest image. Without symbols, frames keep their addresses.
+public final class GuestProfile {
+
+  // Static methods
+  //--------------------------------------------------
+
+  // The symbol file may be null or not an ELF file, e.g. a bootable ISO.
+  public static GuestProfile symbolize(final CallStackTrie samples, final File symbolFile) {
+    Arguments.requireNotNull(samples, "samples == null");
+
+    final ElfSymbolTable symbols = ElfSymbolTable.loadIfElf(symbolFile);
+
+    if(symbols == null) {
+      return new GuestProfile(samples, null, (symbolFile != null
+          ? "No ELF symbols in " + symbolFile.getName() + "; showing addresses."
+          : "No ELF image to symbolize against; showing addresses."));
+    }
+
+    final CallStackTrie functions = samples.map(pc -> {
+      final int index = symbols.indexOf(pc);
+
+      return (index >= 0 ? symbols.getStart(index) : pc);
+    });
+
+    return new GuestProfile(functions, symbols, "Symbols from " + symbolFile.getAbsolutePath() + ".");
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  private GuestProfile(final CallStackTrie trie, final ElfSymbolTable symbols, final String symbolStatus) {
+    super();
+
+    this.trie = trie;
+    this.symbols = symbols;
+    this.symbolStatus = symbolStatus;
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final CallStackTrie trie;
+
+  private final ElfSymbolTable symbols;
+
+  private final String symbolStatus;
+
+  // Methods
+  //--------------------------------------------------
+
+  public final String getFrameName(final int node) {
+    if(node == CallStackTrie.ROOT) {
+      return "all";
+    }
+
+    final long key = trie.getKey(node);
+    final int index = (symbols != null ? symbols.indexOf(key) : -1);
+
+    return (index >= 0 ? symbols.getName(index) : String.format("0x%x", key));
+  }
+
+  // Getters/setters
+  //--------------------------------------------------
+
+  public final CallStackTrie getTrie() {
+    return trie;
+  }
+
+  public final String getSymbolStatus() {
+    return symbolStatus;
+  }
+
+}
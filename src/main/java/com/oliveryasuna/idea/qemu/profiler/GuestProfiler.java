@@ -0,0 +1,270 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.profiler;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.oliveryasuna.commons.language.condition.Arguments;
+import com.oliveryasuna.idea.qemu.qmp.QmpClient;
+import com.oliveryasuna.idea.qemu.qmp.QmpEvent;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// Samples the program counter and frame-pointer call stack of every vCPU through QEMU's GDB stub: each tick interrupts the guest, reads the
+// stacks and lets it run again. The stub takes a single client, so a debugger cannot attach while profiling.
+public final class GuestProfiler {
+
+  // Logging
+  //--------------------------------------------------
+
+  private static final Logger LOGGER = Logger.getInstance(GuestProfiler.class);
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(30);
+
+  private static final int MAX_STACK_DEPTH = 32;
+
+  // Static methods
+  //--------------------------------------------------
+
+  // Empty when the guest architecture, which is taken from the QEMU executable name, is not supported.
+  public static Optional<GuestProfiler> create(final String qemuExecutable, final int gdbPort, final int sampleRate) {
+    return GuestArchitecture.of(qemuExecutable).map(architecture -> new GuestProfiler(architecture, gdbPort, sampleRate));
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  private GuestProfiler(final GuestArchitecture architecture, final int gdbPort, final int sampleRate) {
+    super();
+
+    Arguments.requireNotNull(architecture, "architecture == null");
+
+    this.architecture = architecture;
+    this.gdbAddress = new InetSocketAddress(InetAddress.getLoopbackAddress(), gdbPort);
+    this.periodNanos = 1_000_000_000L / Math.max(sampleRate, 1);
+    this.addressMask = (architecture.getWordSize() == 8 ? -1L : 0xFFFF_FFFFL);
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final GuestArchitecture architecture;
+
+  private final InetSocketAddress gdbAddress;
+
+  private final long periodNanos;
+
+  private final long addressMask;
+
+  private final CallStackTrie samples = new CallStackTrie();
+
+  private final CompletableFuture<CallStackTrie> finished = new CompletableFuture<>();
+
+  private volatile boolean guestRunning;
+
+  // Interrupts by the profiler whose STOP event has not arrived yet.
+  private final AtomicInteger pendingOwnStops = new AtomicInteger();
+
+  // Set by a STOP event the profiler did not cause, such as a pause from the IDE or another QMP client.
+  private volatile boolean pausedElsewhere;
+
+  private volatile boolean stopped;
+
+  private Thread thread;
+
+  // Methods
+  //--------------------------------------------------
+
+  // Profiling begins once the guest runs; a launch that waits for its boot image is not started by the profiler connecting.
+  public final void start(final QmpClient client) {
+    Arguments.requireNotNull(client, "client == null");
+
+    client.addEventListener(this::qmpEventReceived);
+    client.queryStatus()
+        .thenAccept(status -> guestRunning = status.getAsJsonObject().get("running").getAsBoolean());
+
+    thread = new Thread(this::run, "QEMU guest profiler");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  // Completes with the samples once the sampling thread has finished.
+  public final CompletableFuture<CallStackTrie> stop() {
+    stopped = true;
+
+    if(thread == null) {
+      finished.complete(samples);
+    } else {
+      LockSupport.unpark(thread);
+    }
+
+    return finished;
+  }
+
+  private void run() {
+    try {
+      while(!stopped && !guestRunning) {
+        LockSupport.parkNanos(periodNanos);
+      }
+
+      if(stopped) {
+        return;
+      }
+
+      // QEMU stops the guest when a GDB client connects.
+      pendingOwnStops.incrementAndGet();
+
+      try(final GdbRemoteClient client = GdbRemoteClient.connect(gdbAddress, CONNECT_TIMEOUT)) {
+        final List<String> threads = client.getThreads();
+
+        if(!pausedElsewhere) {
+          client.resume();
+        }
+
+        sample(client, threads);
+      }
+    } catch(final EOFException | SocketException e) {
+      // QEMU exited.
+      LOGGER.debug(e);
+    } catch(final IOException e) {
+      LOGGER.warn(e); // TODO: Error reporting.
+    } catch(final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      finished.complete(samples);
+    }
+  }
+
+  private void sample(final GdbRemoteClient client, final List<String> threads) throws IOException {
+    final long[] stack = new long[MAX_STACK_DEPTH];
+    long nextTick = System.nanoTime() + periodNanos;
+
+    while(!stopped) {
+      final long delay = nextTick - System.nanoTime();
+
+      if(delay > 0) {
+        LockSupport.parkNanos(delay);
+
+        continue;
+      }
+
+      nextTick += periodNanos * Math.max(1, -delay / periodNanos + 1);
+
+      // A pause from the IDE is respected. One that lands while the guest is interrupted never reaches QEMU, which has already stopped it,
+      // so it is lost when the guest is resumed.
+      if(!guestRunning) {
+        continue;
+      }
+
+      // The guest was paused from elsewhere, and the QMP event has not arrived yet.
+      if(client.drainStopReplies()) {
+        continue;
+      }
+
+      pausedElsewhere = false;
+      pendingOwnStops.incrementAndGet();
+
+      if(!client.interrupt()) {
+        // Paused from elsewhere in the meantime.
+        pendingOwnStops.updateAndGet(count -> Math.max(0, count - 1));
+
+        continue;
+      }
+
+      try {
+        for(final String thread : threads) {
+          final int depth = readStack(client, thread, stack);
+
+          if(depth > 0) {
+            samples.add(stack, depth);
+          }
+        }
+      } finally {
+        if(!pausedElsewhere) {
+          client.resume();
+        }
+      }
+    }
+  }
+
+  // Walks the frame-pointer chain. The walk ends at a null or non-increasing frame pointer, since stacks grow down, or an unreadable frame.
+  // Returns zero when not even the program counter could be read.
+  private int readStack(final GdbRemoteClient client, final String thread, final long[] stack) throws IOException {
+    int depth = 0;
+
+    try {
+      stack[0] = client.readRegister(thread, architecture.getPcRegister()) & addressMask;
+      depth = 1;
+
+      long framePointer = client.readRegister(thread, architecture.getFramePointerRegister()) & addressMask;
+
+      while(depth < stack.length && framePointer != 0) {
+        final long returnAddress = client.readWord(thread, framePointer + architecture.getReturnAddressOffset(), architecture.getWordSize());
+        final long callerFramePointer = client.readWord(thread, framePointer + architecture.getSavedFramePointerOffset(),
+            architecture.getWordSize());
+
+        if(returnAddress == 0) {
+          break;
+        }
+
+        // The return address is past the call; one byte back is still inside the calling function.
+        stack[depth++] = (returnAddress - 1) & addressMask;
+
+        if(Long.compareUnsigned(callerFramePointer, framePointer) <= 0) {
+          break;
+        }
+
+        framePointer = callerFramePointer;
+      }
+    } catch(final GdbRemoteClient.StubErrorException e) {
+      // Usually the frame pointer did not point at readable memory: the guest was built without frame pointers, or is between frames.
+      LOGGER.debug(e);
+    }
+
+    return depth;
+  }
+
+  private void qmpEventReceived(final QmpEvent event) {
+    switch(event.getName()) {
+      case "STOP":
+        guestRunning = false;
+
+        if(pendingOwnStops.getAndUpdate(count -> Math.max(0, count - 1)) == 0) {
+          pausedElsewhere = true;
+        }
+
+        break;
+      case "RESUME":
+        guestRunning = true;
+        break;
+    }
+  }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.profiler;
+
+import com.oliveryasuna.commons.language.condition.Arguments;
+
+// Executed translation blocks of one guest function.
+public final class HotSpot {
+
+  // Constructors
+  //--------------------------------------------------
+
+  HotSpot(final String function, final long address) {
+    super();
+
+    Arguments.requireNotNull(function, "function == null");
+
+    this.function = function;
+    this.address = address;
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final String function;
+
+  private final long address;
+
+  private int blocks;
+
+  private long executions;
+
+  private long instructions;
+
+  // Methods
+  //--------------------------------------------------
+
+  final void addBlock(final long blockInstructions, final long blockExecutions) {
+    blocks++;
+    executions += blockExecutions;
+    instructions += blockInstructions * blockExecutions;
+  }
+
+  // Getters/setters
+  //--------------------------------------------------
+
+  public final String getFunction() {
+    return function;
+  }
+
+  public final long getAddress() {
+    return address;
+  }
+
+  public final int getBlocks() {
+    return blocks;
+  }
+
+  public final long getExecutions() {
+    return executions;
+  }
+
+  public final long getInstructions() {
+    return instructions;
+  }
+
+}
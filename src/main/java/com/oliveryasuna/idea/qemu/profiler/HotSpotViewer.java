@@ -0,0 +1,202 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.profiler;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.DialogWrapper;
+import com.intellij.ui.components.JBLabel;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.table.TableView;
+import com.intellij.util.ui.ColumnInfo;
+import com.intellij.util.ui.JBUI;
+import com.intellij.util.ui.ListTableModel;
+import com.oliveryasuna.commons.language.condition.Arguments;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Sortable per-function counts from a TCG plugin, hottest by executed instructions first.
+public final class HotSpotViewer extends DialogWrapper {
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final ColumnInfo<HotSpot, String> FUNCTION_COLUMN = new ColumnInfo<>("Function") {
+    @Override
+    public String valueOf(final HotSpot hotSpot) {
+      return hotSpot.getFunction();
+    }
+
+    @Override
+    public Comparator<HotSpot> getComparator() {
+      return Comparator.comparing(HotSpot::getFunction);
+    }
+  };
+
+  private static final ColumnInfo<HotSpot, String> ADDRESS_COLUMN = new ColumnInfo<>("Address") {
+    @Override
+    public String valueOf(final HotSpot hotSpot) {
+      return String.format("0x%x", hotSpot.getAddress());
+    }
+
+    @Override
+    public Comparator<HotSpot> getComparator() {
+      return (a, b) -> Long.compareUnsigned(a.getAddress(), b.getAddress());
+    }
+  };
+
+  private static final ColumnInfo<HotSpot, Integer> BLOCKS_COLUMN = new ColumnInfo<>("Blocks") {
+    @Override
+    public Integer valueOf(final HotSpot hotSpot) {
+      return hotSpot.getBlocks();
+    }
+
+    @Override
+    public Class<?> getColumnClass() {
+      return Integer.class;
+    }
+
+    @Override
+    public Comparator<HotSpot> getComparator() {
+      return Comparator.comparingInt(HotSpot::getBlocks);
+    }
+  };
+
+  private static final ColumnInfo<HotSpot, Long> EXECUTIONS_COLUMN = new ColumnInfo<>("Block executions") {
+    @Override
+    public Long valueOf(final HotSpot hotSpot) {
+      return hotSpot.getExecutions();
+    }
+
+    @Override
+    public Class<?> getColumnClass() {
+      return Long.class;
+    }
+
+    @Override
+    public Comparator<HotSpot> getComparator() {
+      return Comparator.comparingLong(HotSpot::getExecutions);
+    }
+  };
+
+  private static final ColumnInfo<HotSpot, Long> INSTRUCTIONS_COLUMN = new ColumnInfo<>("Instructions") {
+    @Override
+    public Long valueOf(final HotSpot hotSpot) {
+      return hotSpot.getInstructions();
+    }
+
+    @Override
+    public Class<?> getColumnClass() {
+      return Long.class;
+    }
+
+    @Override
+    public Comparator<HotSpot> getComparator() {
+      return Comparator.comparingLong(HotSpot::getInstructions);
+    }
+  };
+
+  private static final int INSTRUCTIONS_COLUMN_INDEX = 4;
+
+  // Constructors
+  //--------------------------------------------------
+
+  public HotSpotViewer(final Project project, final String configurationName, final TcgPluginReport report) {
+    super(project, false, IdeModalityType.MODELESS);
+
+    Arguments.requireNotNull(report, "report == null");
+
+    this.report = report;
+
+    setTitle("QEMU Hot Spots - " + configurationName);
+    setModal(false);
+
+    init();
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final TcgPluginReport report;
+
+  // Methods
+  //--------------------------------------------------
+
+  private String getStatus(final long instructions) {
+    final StringBuilder status = new StringBuilder();
+
+    status.append(report.getHotSpots().size()).append(" functions from ").append(report.getBlockCount()).append(" blocks, ")
+        .append(instructions).append(" instructions attributed");
+
+    if(report.getTotalInstructions() > 0) {
+      status.append(" of ").append(report.getTotalInstructions()).append(" executed");
+    }
+
+    status.append('.');
+
+    if(!report.isSymbolized()) {
+      status.append(" No ELF image to symbolize against; showing block addresses.");
+    }
+
+    return status.toString();
+  }
+
+  // DialogWrapper methods
+  //--------------------------------------------------
+
+  @Override
+  protected final JComponent createCenterPanel() {
+    final long instructions = report.getHotSpots().stream().mapToLong(HotSpot::getInstructions).sum();
+    final ColumnInfo<HotSpot, String> shareColumn = new ColumnInfo<>("Share") {
+      @Override
+      public String valueOf(final HotSpot hotSpot) {
+        return String.format("%.1f%%", 100.0 * hotSpot.getInstructions() / Math.max(instructions, 1));
+      }
+
+      @Override
+      public Comparator<HotSpot> getComparator() {
+        return Comparator.comparingLong(HotSpot::getInstructions);
+      }
+    };
+    final ListTableModel<HotSpot> model = new ListTableModel<>(new ColumnInfo[] {FUNCTION_COLUMN, ADDRESS_COLUMN, BLOCKS_COLUMN,
+        EXECUTIONS_COLUMN, INSTRUCTIONS_COLUMN, shareColumn}, new ArrayList<>(report.getHotSpots()));
+
+    model.setSortable(true);
+
+    final TableView<HotSpot> table = new TableView<>(model);
+
+    table.getRowSorter().setSortKeys(List.of(new RowSorter.SortKey(INSTRUCTIONS_COLUMN_INDEX, SortOrder.DESCENDING)));
+
+    final JPanel panel = new JPanel(new BorderLayout());
+
+    panel.add(new JBScrollPane(table), BorderLayout.CENTER);
+    panel.add(new JBLabel(getStatus(instructions)), BorderLayout.SOUTH);
+    panel.setPreferredSize(JBUI.size(900, 600));
+
+    return panel;
+  }
+
+  @Override
+  protected final Action[] createActions() {
+    return new Action[] {getOKAction()};
+  }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.profiler;
+
+import com.oliveryasuna.commons.language.condition.Arguments;
+import com.oliveryasuna.idea.qemu.elf.ElfSymbolTable;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// TCG plugin output collected from QEMU's log, folded into per-function hot spots. Understands the block lines of the hotblocks plugin
+// ("pc, translations, instructions, executions"), plain "pc, count" lines as a bundled or custom plugin would print them, and the instruction
+// totals of the insn plugin. Other lines are ignored.
+public final class TcgPluginReport {
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final Pattern BLOCK_LINE = Pattern.compile("^\\s*0x([0-9a-fA-F]+)((?:\\s*,\\s*\\d+)+)\\s*$");
+
+  private static final Pattern INSTRUCTION_TOTAL_LINE = Pattern.compile("^\\s*(total\\s+|cpu\\s+\\d+\\s+)?insns:\\s*(\\d+)\\s*$");
+
+  // Static methods
+  //--------------------------------------------------
+
+  public static TcgPluginReport read(final Path pluginLog, final File symbolFile) throws IOException {
+    Arguments.requireNotNull(pluginLog, "pluginLog == null");
+
+    final Map<Long, long[]> blocks = new HashMap<>();
+    long cpuInstructions = 0;
+    long totalInstructions = -1;
+
+    try(final BufferedReader reader = Files.newBufferedReader(pluginLog, StandardCharsets.ISO_8859_1)) {
+      String line;
+
+      while((line = reader.readLine()) != null) {
+        final Matcher blockMatcher = BLOCK_LINE.matcher(line);
+
+        if(blockMatcher.matches()) {
+          addBlock(blocks, Long.parseUnsignedLong(blockMatcher.group(1), 16), blockMatcher.group(2).split(","));
+
+          continue;
+        }
+
+        final Matcher totalMatcher = INSTRUCTION_TOTAL_LINE.matcher(line);
+
+        if(totalMatcher.matches()) {
+          if(totalMatcher.group(1) != null && totalMatcher.group(1).startsWith("cpu")) {
+            cpuInstructions += Long.parseLong(totalMatcher.group(2));
+          } else {
+            totalInstructions = Long.parseLong(totalMatcher.group(2));
+          }
+        }
+      }
+    }
+
+    return new TcgPluginReport(blocks, (totalInstructions >= 0 ? totalInstructions : cpuInstructions), ElfSymbolTable.loadIfElf(symbolFile));
+  }
+
+  // Block counts: instructions per execution and executions. Two-column lines count executions of a single-instruction block.
+  private static void addBlock(final Map<Long, long[]> blocks, final long pc, final String[] columns) {
+    final long instructions;
+    final long executions;
+
+    if(columns.length >= 4) {
+      instructions = Long.parseLong(columns[2].trim());
+      executions = Long.parseLong(columns[3].trim());
+    } else {
+      instructions = 1;
+      executions = Long.parseLong(columns[columns.length - 1].trim());
+    }
+
+    final long[] counts = blocks.computeIfAbsent(pc, ignored -> new long[2]);
+
+    counts[0] = Math.max(counts[0], instructions);
+    counts[1] += executions;
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  private TcgPluginReport(final Map<Long, long[]> blocks, final long totalInstructions, final ElfSymbolTable symbols) {
+    super();
+
+    final Map<String, HotSpot> hotSpots = new HashMap<>();
+
+    for(final Map.Entry<Long, long[]> block : blocks.entrySet()) {
+      final long pc = block.getKey();
+      final int symbol = (symbols != null ? symbols.indexOf(pc) : -1);
+      final String function = (symbol >= 0 ? symbols.getName(symbol) : String.format("0x%x", pc));
+      final long address = (symbol >= 0 ? symbols.getStart(symbol) : pc);
+
+      hotSpots.computeIfAbsent(function, ignored -> new HotSpot(function, address))
+          .addBlock(block.getValue()[0], block.getValue()[1]);
+    }
+
+    this.hotSpots = List.copyOf(hotSpots.values());
+    this.blockCount = blocks.size();
+    this.totalInstructions = totalInstructions;
+    this.symbolized = (symbols != null);
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final List<HotSpot> hotSpots;
+
+  private final int blockCount;
+
+  // From the insn plugin, or 0 if it was not loaded.
+  private final long totalInstructions;
+
+  private final boolean symbolized;
+
+  // Getters/setters
+  //--------------------------------------------------
+
+  public final List<HotSpot> getHotSpots() {
+    return hotSpots;
+  }
+
+  public final int getBlockCount() {
+    return blockCount;
+  }
+
+  public final long getTotalInstructions() {
+    return totalInstructions;
+  }
+
+  public final boolean isSymbolized() {
+    return symbolized;
+  }
+
+}
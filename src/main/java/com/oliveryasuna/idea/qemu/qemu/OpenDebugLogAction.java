@@ -0,0 +1,88 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.qemu;
+
+import com.intellij.icons.AllIcons;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.oliveryasuna.commons.language.condition.Arguments;
+import com.oliveryasuna.idea.qemu.debuglog.DebugLogIndex;
+import com.oliveryasuna.idea.qemu.debuglog.DebugLogViewer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Supplier;
+
+final class OpenDebugLogAction extends DumbAwareAction {
+
+  // Logging
+  //--------------------------------------------------
+
+  private static final Logger LOGGER = Logger.getInstance(OpenDebugLogAction.class);
+
+  // Constructors
+  //--------------------------------------------------
+
+  OpenDebugLogAction(final Supplier<Path> logFile, final Supplier<File> symbolFile) {
+    super("Open Debug Log", "Browse and filter the QEMU debug log (-d) of this run", AllIcons.Actions.ListFiles);
+
+    Arguments.requireNotNull(logFile, "logFile == null");
+    Arguments.requireNotNull(symbolFile, "symbolFile == null");
+
+    this.logFile = logFile;
+    this.symbolFile = symbolFile;
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final Supplier<Path> logFile;
+
+  private final Supplier<File> symbolFile;
+
+  // AnAction methods
+  //--------------------------------------------------
+
+  @Override
+  public final void actionPerformed(final AnActionEvent event) {
+    final Path path = logFile.get();
+
+    if(path == null) {
+      return;
+    }
+
+    try {
+      new DebugLogViewer(event.getProject(), DebugLogIndex.open(path), symbolFile.get()).show();
+    } catch(final IOException e) {
+      LOGGER.warn(e); // TODO: Error reporting.
+    }
+  }
+
+  @Override
+  public final void update(final AnActionEvent event) {
+    final Path path = logFile.get();
+
+    // Only runs with a debug log have one.
+    event.getPresentation().setVisible(path != null);
+    event.getPresentation().setEnabled(path != null && Files.isRegularFile(path));
+  }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.oliveryasuna.idea.qemu.qemu;
+
+import com.oliveryasuna.commons.language.condition.Arguments;
+
+public final class QemuAcceleration {
+
+  // Constructors
+  //--------------------------------------------------
+
+  QemuAcceleration(final String accelerator, final int vcpuCount, final String reason) {
+    super();
+
+    Arguments.requireNotNull(accelerator, "accelerator == null");
+    Arguments.requireNotNull(reason, "reason == null");
+
+    this.accelerator = accelerator;
+    this.vcpuCount = vcpuCount;
+    this.reason = reason;
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final String accelerator;
+
+  private final int vcpuCount;
+
+  private final String reason;
+
+  // Methods
+  //--------------------------------------------------
+
+  public final String getDescription() {
+    final String vcpus = (vcpuCount > 0 ? vcpuCount + (vcpuCount == 1 ? " vCPU" : " vCPUs") : "machine default vCPUs");
+
+    return accelerator + ", " + vcpus + " (" + reason + ")";
+  }
+
+  // Getters/setters
+  //--------------------------------------------------
+
+  public final String getAccelerator() {
+    return accelerator;
+  }
+
+  // 0 for the machine's default.
+  public final int getVcpuCount() {
+    return vcpuCount;
+  }
+
+  public final String getReason() {
+    return reason;
+  }
+
+}
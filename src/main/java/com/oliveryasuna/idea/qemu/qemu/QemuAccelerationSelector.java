@@ -0,0 +1,155 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.oliveryasuna.idea.qemu.qemu;
+
+import com.oliveryasuna.commons.language.condition.Arguments;
+import com.oliveryasuna.commons.language.exception.UnsupportedInstantiationException;
+import com.oliveryasuna.commons.language.marker.Utility;
+import com.oliveryasuna.idea.qemu.executable.QemuCapabilities;
+import com.oliveryasuna.idea.qemu.run.config.QemuRunConfigOptions;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+@Utility
+public final class QemuAccelerationSelector {
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final Path KVM_DEVICE = Paths.get("/dev/kvm");
+
+  private static final String QEMU_SYSTEM_PREFIX = "qemu-system-";
+
+  private static final int MIN_TB_SIZE_MIB = 256;
+
+  private static final int MAX_TB_SIZE_MIB = 1024;
+
+  // os.arch -> guest architectures KVM can run natively on that host.
+  private static final Map<String, Set<String>> KVM_GUESTS_BY_HOST = Map.of(
+      "amd64", Set.of("x86_64", "i386"),
+      "x86_64", Set.of("x86_64", "i386"),
+      "aarch64", Set.of("aarch64"),
+      "ppc64le", Set.of("ppc64"),
+      "s390x", Set.of("s390x"),
+      "riscv64", Set.of("riscv64"));
+
+  // Static utility methods
+  //--------------------------------------------------
+
+  // A vCPU count of 0 leaves it to the machine, as boards such as versatilepb or raspi* reject more CPUs than they have.
+  public static QemuAcceleration select(final QemuRunConfigOptions.AccelerationMode mode, final int vcpuCount, final String executable,
+      final Optional<QemuCapabilities> capabilities) {
+    Arguments.requireNotNull(mode, "mode == null");
+    Arguments.requireNotNull(capabilities, "capabilities == null");
+
+    final int vcpus = Math.max(0, vcpuCount);
+
+    switch(mode) {
+      case KVM:
+        return new QemuAcceleration("kvm", vcpus, "selected");
+      case TCG:
+        return new QemuAcceleration(tcgAccelerator(vcpus, capabilities), vcpus, "selected");
+      case AUTO:
+      default:
+        final String kvmUnavailableReason = getKvmUnavailableReason(executable, capabilities);
+
+        if(kvmUnavailableReason == null) {
+          return new QemuAcceleration("kvm", vcpus, "KVM available");
+        }
+
+        return new QemuAcceleration(tcgAccelerator(vcpus, capabilities), vcpus, kvmUnavailableReason);
+    }
+  }
+
+  // Returns null if KVM can be used.
+  static String getKvmUnavailableReason(final String executable, final Optional<QemuCapabilities> capabilities) {
+    if(!Files.exists(KVM_DEVICE)) {
+      return "no /dev/kvm";
+    }
+
+    if(!Files.isReadable(KVM_DEVICE) || !Files.isWritable(KVM_DEVICE)) {
+      return "no access to /dev/kvm";
+    }
+
+    final String guestArchitecture = getGuestArchitecture(executable);
+    final Set<String> kvmGuests = KVM_GUESTS_BY_HOST.getOrDefault(System.getProperty("os.arch"), Set.of());
+
+    if(guestArchitecture == null || !kvmGuests.contains(guestArchitecture)) {
+      return "guest architecture " + guestArchitecture + " does not match host " + System.getProperty("os.arch");
+    }
+
+    if(capabilities.isPresent() && capabilities.get().wasProbed() && !capabilities.get().supportsAccelerator("kvm")) {
+      return "QEMU built without KVM";
+    }
+
+    return null;
+  }
+
+  static String getGuestArchitecture(final String executable) {
+    if(executable == null) {
+      return null;
+    }
+
+    final String name = new File(executable).getName();
+
+    if(!name.startsWith(QEMU_SYSTEM_PREFIX)) {
+      return null;
+    }
+
+    // Strip a platform suffix such as ".exe" or "w.exe".
+    return name.substring(QEMU_SYSTEM_PREFIX.length()).replaceFirst("w?\\.exe$", "");
+  }
+
+  // QEMU before 5.0 rejects tb-size, so it is only set once the binary is known to be newer.
+  private static String tcgAccelerator(final int vcpus, final Optional<QemuCapabilities> capabilities) {
+    final boolean tbSize = capabilities.map(probed -> probed.versionAtLeast(5, 0)).orElse(false);
+
+    return "tcg" + (vcpus > 1 ? ",thread=multi" : "") + (tbSize ? ",tb-size=" + tbSizeMib() : "");
+  }
+
+  // An eighth of host memory for translated code, within sensible bounds.
+  private static int tbSizeMib() {
+    final java.lang.management.OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+
+    if(bean instanceof com.sun.management.OperatingSystemMXBean) {
+      final long totalMib = ((com.sun.management.OperatingSystemMXBean)bean).getTotalPhysicalMemorySize() / (1024 * 1024);
+
+      return (int)Math.max(MIN_TB_SIZE_MIB, Math.min(MAX_TB_SIZE_MIB, totalMib / 8));
+    }
+
+    return MIN_TB_SIZE_MIB;
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  private QemuAccelerationSelector() {
+    super();
+
+    throw new UnsupportedInstantiationException();
+  }
+
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.qemu;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.intellij.execution.ExecutionException;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.oliveryasuna.commons.language.condition.Arguments;
+import com.oliveryasuna.idea.qemu.qmp.QmpClient;
+import com.oliveryasuna.idea.qemu.qmp.QmpException;
+import com.oliveryasuna.idea.qemu.run.config.QemuRunConfig;
+import com.oliveryasuna.idea.qemu.run.config.QemuRunConfigOptions;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+
+// One VM snapshot per run configuration. The snapshot lives in a small qcow2 file in the system directory, next to a record of the
+// arguments and boot image it was taken with. A checkpoint only restores while both are unchanged; otherwise it is deleted. The boot
+// image is the base image or CMake product, not the overlay the run actually boots, which changes with every run.
+public final class QemuCheckpointStore {
+
+  // Logging
+  //--------------------------------------------------
+
+  private static final Logger LOGGER = Logger.getInstance(QemuCheckpointStore.class);
+
+  // Static fields
+  //--------------------------------------------------
+
+  static final String SNAPSHOT_TAG = "qemu-integration";
+
+  static final String STATE_NODE_NAME = "qemu-integration-state";
+
+  // Holds only the VM state, so the virtual size does not matter.
+  private static final String STATE_IMAGE_SIZE = "1M";
+
+  // Static methods
+  //--------------------------------------------------
+
+  public static QemuCheckpointStore getInstance() {
+    return ApplicationManager.getApplication().getService(QemuCheckpointStore.class);
+  }
+
+  private static Path getCheckpointDirectory(final Project project) {
+    return Paths.get(PathManager.getSystemPath(), "qemu-integration", "checkpoints", project.getLocationHash());
+  }
+
+  // Why checkpoints cannot be kept for a launch, or null. savevm also snapshots every writable disk inside its own image: a raw image
+  // cannot hold that snapshot, and a throwaway overlay is deleted with it after the run. The overlay is null before it is created.
+  public static String getUnsupportedReason(final QemuRunConfig runConfig, final File bootImage, final File overlay) {
+    Arguments.requireNotNull(runConfig, "runConfig == null");
+
+    final boolean writableDisk = (!runConfig.isKernelBoot() && runConfig.getDiskIoProfile() != QemuRunConfigOptions.DiskIoProfile.CDROM
+        && (bootImage == null || !QemuDiskAttachment.isIso(bootImage)));
+
+    if(!writableDisk) {
+      return null;
+    }
+
+    if(!runConfig.isUseOverlay() || !runConfig.isReuseOverlay()) {
+      return "checkpoints of a writable disk need a reused overlay to hold the disk snapshot.";
+    }
+
+    if(overlay != null && !QemuOverlayManager.getInstance().isReusable(overlay)) {
+      return "the reused overlay is open in another instance, so this run boots a throwaway one.";
+    }
+
+    return null;
+  }
+
+  private static String getArgumentsKey(final QemuLaunchPlan launchPlan) {
+    return String.join("\u0000", launchPlan.getBaseArguments().toArgumentList());
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  public QemuCheckpointStore() {
+    super();
+  }
+
+  // Methods
+  //--------------------------------------------------
+
+  // The state image to restore for a launch with the given plan. Checkpoints taken with other arguments, or before the boot image last
+  // changed, are deleted.
+  public final Optional<File> findCheckpoint(final Project project, final QemuRunConfig runConfig, final QemuLaunchPlan launchPlan,
+      final File bootImage) {
+    Arguments.requireNotNull(project, "project == null");
+    Arguments.requireNotNull(runConfig, "runConfig == null");
+    Arguments.requireNotNull(launchPlan, "launchPlan == null");
+    Arguments.requireNotNull(bootImage, "bootImage == null");
+
+    final File stateFile = getStateFile(project, runConfig);
+    final File recordFile = getRecordFile(project, runConfig);
+
+    if(!stateFile.isFile() || !recordFile.isFile()) {
+      return Optional.empty();
+    }
+
+    final Properties record = new Properties();
+
+    try(final Reader reader = Files.newBufferedReader(recordFile.toPath())) {
+      record.load(reader);
+    } catch(final IOException e) {
+      LOGGER.warn(e); // TODO: Error reporting.
+
+      return Optional.empty();
+    }
+
+    if(!createRecord(launchPlan, bootImage).equals(withoutCreated(record))) {
+      invalidate(project, runConfig);
+
+      return Optional.empty();
+    }
+
+    return Optional.of(stateFile);
+  }
+
+  public final Optional<Instant> getCheckpointTime(final Project project, final QemuRunConfig runConfig) {
+    final Properties record = new Properties();
+
+    try(final Reader reader = Files.newBufferedReader(getRecordFile(project, runConfig).toPath())) {
+      record.load(reader);
+
+      return Optional.of(Instant.parse(record.getProperty("created")));
+    } catch(final IOException | RuntimeException e) {
+      return Optional.empty();
+    }
+  }
+
+  // Snapshots the running VM. The state image is created and attached on first use; a launch that restored a checkpoint already has it.
+  public final CompletableFuture<Void> save(final Project project, final QemuRunConfig runConfig, final QmpClient client,
+      final QemuLaunchPlan launchPlan, final File bootImage, final File overlay, final boolean stateNodeAttached) {
+    Arguments.requireNotNull(project, "project == null");
+    Arguments.requireNotNull(runConfig, "runConfig == null");
+    Arguments.requireNotNull(client, "client == null");
+    Arguments.requireNotNull(launchPlan, "launchPlan == null");
+
+    if(launchPlan.isPipelined() || bootImage == null) {
+      return CompletableFuture.failedFuture(new IllegalStateException("Checkpoints are not available for pipelined or warm launches."));
+    }
+
+    final String unsupportedReason = getUnsupportedReason(runConfig, bootImage, overlay);
+
+    if(unsupportedReason != null) {
+      return CompletableFuture.failedFuture(new IllegalStateException(unsupportedReason));
+    }
+
+    final File stateFile = getStateFile(project, runConfig);
+
+    final CompletableFuture<JsonElement> stateNode;
+
+    if(stateNodeAttached) {
+      stateNode = CompletableFuture.completedFuture(null);
+    } else {
+      stateNode = CompletableFuture.runAsync(() -> createStateImage(project, runConfig, stateFile), AppExecutorUtil.getAppExecutorService())
+          .thenCompose(ignored -> client.execute("blockdev-add", createStateNodeArguments(stateFile)));
+    }
+
+    return stateNode
+        .thenCompose(ignored -> {
+          final JsonObject arguments = new JsonObject();
+
+          arguments.addProperty("command-line", "savevm " + SNAPSHOT_TAG);
+
+          return client.execute("human-monitor-command", arguments);
+        })
+        .thenCompose(output -> {
+          // HMP reports errors as text instead of a QMP error.
+          if(output != null && output.isJsonPrimitive() && !output.getAsString().isBlank()) {
+            return CompletableFuture.<Void>failedFuture(new QmpException(output.getAsString().trim()));
+          }
+
+          writeRecord(project, runConfig, launchPlan, bootImage);
+
+          return CompletableFuture.<Void>completedFuture(null);
+        });
+  }
+
+  public final void invalidate(final Project project, final QemuRunConfig runConfig) {
+    FileUtil.delete(getRecordFile(project, runConfig));
+    FileUtil.delete(getStateFile(project, runConfig));
+  }
+
+  private void createStateImage(final Project project, final QemuRunConfig runConfig, final File stateFile) {
+    invalidate(project, runConfig);
+
+    final File qemuImg = QemuImg.findExecutable(runConfig.getQemuExecutable())
+        .orElseThrow(() -> new IllegalStateException("qemu-img not found."));
+
+    try {
+      Files.createDirectories(stateFile.toPath().getParent());
+
+      QemuImg.create(qemuImg, stateFile, "qcow2", STATE_IMAGE_SIZE);
+    } catch(final IOException | ExecutionException e) {
+      throw new IllegalStateException(e.getMessage(), e);
+    }
+  }
+
+  private JsonObject createStateNodeArguments(final File stateFile) {
+    final JsonObject file = new JsonObject();
+
+    file.addProperty("driver", "file");
+    file.addProperty("filename", stateFile.getAbsolutePath());
+
+    final JsonObject arguments = new JsonObject();
+
+    arguments.addProperty("driver", "qcow2");
+    arguments.addProperty("node-name", STATE_NODE_NAME);
+    arguments.add("file", file);
+
+    return arguments;
+  }
+
+  private Properties createRecord(final QemuLaunchPlan launchPlan, final File bootImage) {
+    final Properties record = new Properties();
+
+    record.setProperty("arguments", getArgumentsKey(launchPlan));
+    record.setProperty("bootImage", bootImage.getAbsolutePath());
+    record.setProperty("bootImageLength", Long.toString(bootImage.length()));
+    record.setProperty("bootImageLastModified", Long.toString(bootImage.lastModified()));
+
+    return record;
+  }
+
+  private Properties withoutCreated(final Properties record) {
+    final Properties copy = new Properties();
+
+    copy.putAll(record);
+    copy.remove("created");
+
+    return copy;
+  }
+
+  private void writeRecord(final Project project, final QemuRunConfig runConfig, final QemuLaunchPlan launchPlan, final File bootImage) {
+    final Properties record = createRecord(launchPlan, bootImage);
+
+    record.setProperty("created", Instant.now().toString());
+
+    try(final Writer writer = Files.newBufferedWriter(getRecordFile(project, runConfig).toPath())) {
+      record.store(writer, null);
+    } catch(final IOException e) {
+      throw new IllegalStateException(e.getMessage(), e);
+    }
+  }
+
+  private File getStateFile(final Project project, final QemuRunConfig runConfig) {
+    return getCheckpointDirectory(project).resolve(FileUtil.sanitizeFileName(runConfig.getName()) + ".qcow2").toFile();
+  }
+
+  private File getRecordFile(final Project project, final QemuRunConfig runConfig) {
+    return getCheckpointDirectory(project).resolve(FileUtil.sanitizeFileName(runConfig.getName()) + ".checkpoint").toFile();
+  }
+
+}
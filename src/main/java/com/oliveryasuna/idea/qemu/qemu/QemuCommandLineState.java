@@ -18,25 +18,88 @@
 
 package com.oliveryasuna.idea.qemu.qemu;
 
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.intellij.execution.ExecutionException;
+import com.intellij.execution.Executor;
+import com.intellij.execution.ProgramRunnerUtil;
+import com.intellij.execution.RunManager;
+import com.intellij.execution.RunnerAndConfigurationSettings;
 import com.intellij.execution.configurations.CommandLineState;
 import com.intellij.execution.configurations.GeneralCommandLine;
+import com.intellij.execution.executors.DefaultDebugExecutor;
 import com.intellij.execution.process.*;
 import com.intellij.execution.runners.ExecutionEnvironment;
+import com.intellij.execution.ui.ConsoleView;
+import com.intellij.icons.AllIcons;
+import com.intellij.openapi.actionSystem.ActionManager;
+import com.intellij.openapi.actionSystem.ActionPlaces;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.util.ArrayUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.messages.MessageBusConnection;
+import com.intellij.util.net.NetUtils;
+import com.intellij.xdebugger.XDebugProcess;
+import com.intellij.xdebugger.XDebuggerManager;
+import com.intellij.xdebugger.XDebuggerManagerListener;
 import com.jetbrains.cidr.cpp.cmake.model.CMakeConfiguration;
 import com.jetbrains.cidr.cpp.cmake.model.CMakeTarget;
 import com.jetbrains.cidr.cpp.execution.CMakeBuildConfigurationHelper;
 import com.oliveryasuna.commons.language.condition.Arguments;
 import com.oliveryasuna.idea.qemu.cmake.CMakeBuildProcessHandler;
+import com.oliveryasuna.idea.qemu.console.ConsoleLogWriter;
+import com.oliveryasuna.idea.qemu.console.ConsolePipeline;
+import com.oliveryasuna.idea.qemu.console.GuestAddressFilter;
+import com.oliveryasuna.idea.qemu.console.StreamingPatternMatcher;
+import com.oliveryasuna.idea.qemu.elf.ElfSymbolIndexCache;
+import com.oliveryasuna.idea.qemu.instance.QemuInstance;
+import com.oliveryasuna.idea.qemu.instance.QemuInstanceRegistry;
+import com.oliveryasuna.idea.qemu.monitor.GuestPerformanceMonitor;
+import com.oliveryasuna.idea.qemu.profiler.FlameGraphViewer;
+import com.oliveryasuna.idea.qemu.profiler.GuestProfile;
+import com.oliveryasuna.idea.qemu.profiler.GuestProfiler;
+import com.oliveryasuna.idea.qemu.profiler.HotSpotViewer;
+import com.oliveryasuna.idea.qemu.profiler.QemuProfileExecutor;
+import com.oliveryasuna.idea.qemu.profiler.TcgPluginReport;
+import com.oliveryasuna.idea.qemu.qmp.QmpClient;
+import com.oliveryasuna.idea.qemu.qmp.QmpEvent;
+import com.oliveryasuna.idea.qemu.run.config.OutputTrigger;
 import com.oliveryasuna.idea.qemu.run.config.QemuRunConfig;
+import com.oliveryasuna.idea.qemu.timing.QemuLaunchPhase;
+import com.oliveryasuna.idea.qemu.timing.QemuLaunchTimeline;
+import com.oliveryasuna.idea.qemu.timing.QemuLaunchTimings;
+import com.oliveryasuna.idea.qemu.trace.SimpleTraceReader;
+import com.oliveryasuna.idea.qemu.trace.TraceReportViewer;
+import com.oliveryasuna.idea.qemu.trace.TraceStatistics;
+import com.oliveryasuna.idea.qemu.util.FileUtils;
+import org.apache.commons.lang3.StringUtils;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.OptionalInt;
-import java.util.Scanner;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 public final class QemuCommandLineState extends CommandLineState {
 
@@ -48,43 +111,19 @@ public final class QemuCommandLineState extends CommandLineState {
   // Static fields
   //--------------------------------------------------
 
-  private static File ACTIVE_QEMU_PID_FILE;
+  private static final Duration QMP_CONNECT_TIMEOUT = Duration.ofSeconds(10);
 
-  // Static methods
-  //--------------------------------------------------
-
-  private static void killActiveQemuProcess() {
-    final OptionalInt pid = readActiveQemuProcessPid();
-
-    pid.ifPresent(OSProcessUtil::killProcess);
-  }
-
-  private static OptionalInt readActiveQemuProcessPid() {
-    final Scanner scanner;
+  private static final String DEBUG_LOG_DIRECTORY = "debug";
 
-    try {
-      scanner = new Scanner(ACTIVE_QEMU_PID_FILE);
-    } catch(final FileNotFoundException e) {
-      return OptionalInt.empty();
-    }
+  // Debug logs and traces are large, so only a few are kept.
+  private static final int KEPT_DEBUG_LOGS = 3;
 
-    if(!scanner.hasNextInt()) {
-      return OptionalInt.empty();
-    }
-
-    return OptionalInt.of(scanner.nextInt());
-  }
+  private static final String TRACE_DIRECTORY = "trace";
 
-  // Static initializers
-  //--------------------------------------------------
+  private static final int KEPT_TRACES = 3;
 
-  static {
-    try {
-      ACTIVE_QEMU_PID_FILE = File.createTempFile("clion-qemu-", ".pid");
-    } catch(final IOException e) {
-      LOGGER.error(e); // TODO: Error reporting.
-    }
-  }
+  // Temporary, and apart from the console logs so their rotation never sees them.
+  private static final String PLUGIN_LOG_DIRECTORY = "plugin";
 
   // Constructors
   //--------------------------------------------------
@@ -95,6 +134,8 @@ public final class QemuCommandLineState extends CommandLineState {
     Arguments.requireNotNull(runConfig, "runConfig");
 
     this.runConfig = runConfig;
+
+    addConsoleFilters(new GuestAddressFilter(environment.getProject(), () -> symbolFile));
   }
 
   // Fields
@@ -108,6 +149,58 @@ public final class QemuCommandLineState extends CommandLineState {
 
   private ProcessHandler qemuProcess;
 
+  private CompletableFuture<Void> previousInstancesStopped = CompletableFuture.completedFuture(null);
+
+  private int qmpPort;
+
+  private volatile QemuInstance qemuInstance;
+
+  private volatile boolean guestPaused;
+
+  private QemuLaunchPlan launchPlan;
+
+  private boolean pipelined;
+
+  private volatile File overlay;
+
+  // What the run boots, before any overlay: the base image or CMake product checkpoints are keyed on.
+  private volatile File bootImage;
+
+  // Whether the checkpoint state image is open in the running QEMU.
+  private volatile boolean checkpointAttached;
+
+  private final CompletableFuture<QmpClient> qmpConnected = new CompletableFuture<>();
+
+  // Everything shown in the run console, QEMU's output and the run's own messages, goes through it to keep them in order.
+  private ConsolePipeline consolePipeline;
+
+  private ConsoleLogWriter consoleLog;
+
+  private QemuLaunchTimeline timeline;
+
+  private MessageBusConnection debuggerConnection;
+
+  private List<OutputTrigger> outputTriggers;
+
+  private StreamingPatternMatcher outputMatcher;
+
+  private GuestProfiler profiler;
+
+  // The -D file for the configured debug log items, or null.
+  private volatile Path debugLog;
+
+  // Where TCG plugin output goes: a temporary file, or the debug log.
+  private volatile Path pluginLog;
+
+  // The -trace file for the configured trace events, or null.
+  private volatile Path traceFile;
+
+  // The image guest addresses are symbolized against: the kernel file, or the CMake product once built.
+  private volatile File symbolFile;
+
+  // Set when the run should end with a specific exit code.
+  private volatile Integer exitCode;
+
   private boolean processFailed = false;
 
   // CommandLineState methods
@@ -116,28 +209,294 @@ public final class QemuCommandLineState extends CommandLineState {
   @Override
   protected final ProcessHandler startProcess() throws ExecutionException {
     if(!runConfig.isAllowRunningInParallel()) {
-      killActiveQemuProcess();
+      previousInstancesStopped = QemuInstanceRegistry.getInstance().shutdownInstances(getEnvironment().getProject(), runConfig.getName());
     }
 
+    timeline = QemuLaunchTimings.getInstance().start(getEnvironment().getProject(), runConfig.getName());
+
     mainProcess = new MainProcessHandler();
+    consolePipeline = new ConsolePipeline(mainProcess::notifyTextAvailable);
+
+    openConsoleLog();
+    watchGdbAttach();
+    compileOutputTriggers();
+    monitorPerformance();
+    startProfiler();
+
+    final QemuWarmPool warmPool = QemuWarmPool.getInstance();
+    final QemuWarmInstance warmInstance = warmPool.acquire(getEnvironment().getProject(), runConfig);
+
+    // A warm instance is already running with an empty drive, just like a pipelined launch.
+    pipelined = (warmInstance != null || runConfig.isPipelinedLaunchApplicable());
+
+    timeline.mark(QemuLaunchPhase.CONFIGURATION_RESOLVED);
+
+    if(warmInstance != null) {
+      adoptWarmInstance(warmInstance);
+    }
 
     switch(runConfig.getDiskImageSource()) {
       case CMAKE_TARGET:
         cmakeProcess = runCMakeBuild();
+
+        if(pipelined && warmInstance == null) {
+          runQemuPipelined();
+        }
+
         break;
       case CDROM_FILE:
-        runQemu(new File(runConfig.getCdromFile()));
+        if(warmInstance != null) {
+          insertBootImage(new File(runConfig.getCdromFile()));
+        } else {
+          runQemu(new File(runConfig.getCdromFile()));
+        }
+
+        break;
+      case KERNEL_FILE:
+        setSymbolFile(new File(runConfig.getKernelFile()));
+        runQemu(new File(runConfig.getKernelFile()));
         break;
     }
 
+    warmPool.refill(getEnvironment().getProject(), runConfig);
+
     return mainProcess;
   }
 
+  @Override
+  protected final AnAction[] createActions(final ConsoleView console, final ProcessHandler processHandler, final Executor executor) {
+    return ArrayUtil.mergeArrays(super.createActions(console, processHandler, executor), new AnAction[] {
+        new QmpPauseAction(this::getQmpClient, () -> guestPaused),
+        new QmpAction("Reset", "Reset the virtual machine", AllIcons.Actions.Refresh, this::getQmpClient, QmpClient::systemReset),
+        new QmpAction("Power Down", "Request an ACPI power down of the virtual machine", AllIcons.Actions.Exit, this::getQmpClient,
+            QmpClient::systemPowerdown),
+        new QmpAction("Save Checkpoint", "Snapshot the virtual machine for \"Restore checkpoint\" launches", AllIcons.Actions.MenuSaveall,
+            this::getQmpClient, this::saveCheckpoint),
+        new OpenConsoleLogAction(() -> (consoleLog != null ? consoleLog.getLogFile() : null)),
+        new OpenDebugLogAction(() -> debugLog, () -> symbolFile)
+    });
+  }
+
   // Methods
   //--------------------------------------------------
 
-  private void runQemu(final File diskImage) {
-    final GeneralCommandLine commandLine = createRunQemuCommandLine(diskImage);
+  private void runQemu(final File bootImage) {
+    final QemuOverlayManager overlayManager = QemuOverlayManager.getInstance();
+
+    this.bootImage = bootImage;
+
+    if(!overlayManager.isApplicable(runConfig, bootImage)) {
+      startQemu(() -> applyCheckpoint(runConfig.getLaunchPlan(bootImage)));
+
+      return;
+    }
+
+    overlayManager.acquire(getEnvironment().getProject(), runConfig, bootImage)
+        .whenComplete((overlay, throwable) -> {
+          if(throwable != null) {
+            consolePipeline.offer("Failed to create overlay: " + throwable.getMessage() + "\n", ProcessOutputTypes.SYSTEM);
+
+            processFailed();
+
+            return;
+          }
+
+          this.overlay = overlay;
+
+          if(mainProcess.isProcessTerminating() || mainProcess.isProcessTerminated()) {
+            releaseOverlay();
+
+            return;
+          }
+
+          consolePipeline.offer("Overlay: " + overlay.getAbsolutePath() + " (base: " + bootImage.getAbsolutePath() + ")\n",
+              ProcessOutputTypes.SYSTEM);
+
+          startQemu(() -> applyCheckpoint(runConfig.getLaunchPlan(overlay)));
+        });
+  }
+
+  private Path getLogDirectory() {
+    return Paths.get(PathManager.getLogPath(), "qemu-integration", getEnvironment().getProject().getLocationHash(),
+        FileUtil.sanitizeFileName(runConfig.getName()));
+  }
+
+  private void openConsoleLog() {
+    try {
+      consoleLog = ConsoleLogWriter.open(getLogDirectory());
+    } catch(final IOException e) {
+      LOGGER.warn(e); // TODO: Error reporting.
+    }
+  }
+
+  private void closeConsoleLog() {
+    if(consoleLog != null) {
+      consoleLog.close();
+    }
+  }
+
+  // QEMU cannot tell us when a debugger connects to its GDB stub, so count the first debug session started in the project once QEMU is up.
+  // That is how the GDB remote configurations attach.
+  private void watchGdbAttach() {
+    if(!runConfig.isEnableGdb()) {
+      return;
+    }
+
+    debuggerConnection = getEnvironment().getProject().getMessageBus().connect();
+    debuggerConnection.subscribe(XDebuggerManager.TOPIC, new XDebuggerManagerListener() {
+      @Override
+      public void processStarted(final XDebugProcess debugProcess) {
+        if(timeline.isMarked(QemuLaunchPhase.QEMU_STARTED)) {
+          timeline.mark(QemuLaunchPhase.GDB_ATTACHED);
+        }
+      }
+    });
+  }
+
+  private void compileOutputTriggers() {
+    final List<OutputTrigger> triggers = new ArrayList<>(runConfig.getOutputTriggers());
+
+    if(StringUtils.isNotEmpty(runConfig.getBootCompleteMarker())) {
+      triggers.add(new OutputTrigger(runConfig.getBootCompleteMarker(), OutputTrigger.Action.MARK_BOOT_COMPLETE, null));
+    }
+
+    outputTriggers = List.copyOf(triggers);
+    outputMatcher = StreamingPatternMatcher.compile(triggers.stream()
+        .map(OutputTrigger::getPattern)
+        .collect(Collectors.toList()));
+  }
+
+  private void monitorPerformance() {
+    final int intervalMillis = runConfig.getMonitorSampleInterval();
+
+    if(intervalMillis <= 0) {
+      return;
+    }
+
+    qmpConnected.thenAccept(client -> GuestPerformanceMonitor.getInstance().start(qemuInstance, client, intervalMillis));
+  }
+
+  // Starts building the image's symbol index, so the console can symbolize the guest's first lines.
+  private void setSymbolFile(final File symbolFile) {
+    this.symbolFile = symbolFile;
+
+    ElfSymbolIndexCache.getInstance().get(symbolFile.toPath());
+  }
+
+  private void startProfiler() {
+    if(!(getEnvironment().getExecutor() instanceof QemuProfileExecutor)) {
+      return;
+    }
+
+    profiler = GuestProfiler.create(runConfig.getQemuExecutable(), runConfig.getGdbTcpPort(), runConfig.getProfilerSampleRate()).orElse(null);
+
+    if(profiler == null) {
+      consolePipeline.offer("Profiling is not supported for " + runConfig.getQemuExecutable() + ".\n", ProcessOutputTypes.SYSTEM);
+
+      return;
+    }
+
+    qmpConnected.thenAccept(profiler::start);
+  }
+
+  private void stopProfiler() {
+    if(profiler == null) {
+      return;
+    }
+
+    final Project project = getEnvironment().getProject();
+    final File symbolFile = this.symbolFile;
+
+    profiler.stop()
+        .thenApplyAsync(samples -> GuestProfile.symbolize(samples, symbolFile), AppExecutorUtil.getAppExecutorService())
+        .thenAccept(profile -> ApplicationManager.getApplication().invokeLater(
+            () -> new FlameGraphViewer(project, runConfig.getName(), profile).show(), project.getDisposed()));
+  }
+
+  private void endRun(final int exitCode) {
+    this.exitCode = exitCode;
+
+    mainProcess.destroyProcess();
+  }
+
+  private void debugConfiguration(final String name) {
+    final Project project = getEnvironment().getProject();
+
+    ApplicationManager.getApplication().invokeLater(() -> {
+      final RunnerAndConfigurationSettings settings = RunManager.getInstance(project).findConfigurationByName(name);
+
+      if(settings == null) {
+        consolePipeline.offer("No run configuration named \"" + name + "\".\n", ProcessOutputTypes.SYSTEM);
+
+        return;
+      }
+
+      ProgramRunnerUtil.executeConfiguration(settings, DefaultDebugExecutor.getDebugExecutorInstance());
+    }, project.getDisposed());
+  }
+
+  private void runIdeAction(final String actionId) {
+    ApplicationManager.getApplication().invokeLater(() -> {
+      final ActionManager actionManager = ActionManager.getInstance();
+      final AnAction action = actionManager.getAction(actionId);
+
+      if(action == null) {
+        consolePipeline.offer("No IDE action with ID \"" + actionId + "\".\n", ProcessOutputTypes.SYSTEM);
+
+        return;
+      }
+
+      actionManager.tryToExecute(action, null, null, ActionPlaces.UNKNOWN, true);
+    }, getEnvironment().getProject().getDisposed());
+  }
+
+  private void launchTerminated() {
+    if(debuggerConnection != null) {
+      debuggerConnection.disconnect();
+    }
+
+    stopProfiler();
+    showTcgPluginReport();
+    showTraceReport();
+
+    timeline.mark(QemuLaunchPhase.TERMINATED);
+
+    consolePipeline.offer(timeline.formatBreakdown(), ProcessOutputTypes.SYSTEM);
+  }
+
+  private void releaseOverlay() {
+    QemuOverlayManager.getInstance().release(overlay);
+  }
+
+  private void runQemuPipelined() {
+    startQemu(runConfig::getPipelinedLaunchPlan);
+  }
+
+  private void startQemu(final Supplier<QemuLaunchPlan> launchPlanSupplier) {
+    if(!previousInstancesStopped.isDone()) {
+      previousInstancesStopped.whenComplete((ignored, throwable) -> {
+        if(!mainProcess.isProcessTerminating() && !mainProcess.isProcessTerminated()) {
+          startQemu(launchPlanSupplier);
+        }
+      });
+
+      return;
+    }
+
+    try {
+      qmpPort = NetUtils.findAvailableSocketPort();
+    } catch(final IOException e) {
+      LOGGER.error(e); // TODO: Error reporting.
+
+      processFailed();
+
+      return;
+    }
+
+    launchPlan = launchPlanSupplier.get();
+    checkpointAttached = (launchPlan.getCheckpoint() != null);
+
+    final GeneralCommandLine commandLine = createRunQemuCommandLine();
 
     try {
       qemuProcess = ProcessHandlerFactory.getInstance().createProcessHandler(commandLine);
@@ -150,33 +509,324 @@ public final class QemuCommandLineState extends CommandLineState {
     }
 
     qemuProcess.addProcessListener(new QemuProcessAdaptor());
+
+    qemuInstance = QemuInstanceRegistry.getInstance().register(getEnvironment().getProject(), runConfig.getName(), qemuProcess, qmpPort,
+        (runConfig.isEnableGdb() ? runConfig.getGdbTcpPort() : 0));
+
+    printLaunchSummary();
+
     qemuProcess.startNotify();
+
+    timeline.mark(QemuLaunchPhase.QEMU_STARTED);
+
+    connectQmp();
+  }
+
+  private void adoptWarmInstance(final QemuWarmInstance warmInstance) {
+    final QemuInstance instance = warmInstance.getInstance();
+    final QmpClient client = instance.getQmpClient();
+
+    qemuInstance = instance;
+    qemuProcess = instance.getProcessHandler();
+    qmpPort = instance.getQmpPort();
+    launchPlan = warmInstance.getLaunchPlan();
+    guestPaused = true;
+
+    consolePipeline.offer("Using warm QEMU instance (PID " + instance.getPid() + ").\n", ProcessOutputTypes.SYSTEM);
+
+    printLaunchSummary();
+
+    timeline.mark(QemuLaunchPhase.QEMU_STARTED);
+
+    warmInstance.handOver(new QemuProcessAdaptor());
+
+    client.addEventListener(this::qmpEventReceived);
+
+    qmpConnected.complete(client);
+  }
+
+  private void printLaunchSummary() {
+    if(launchPlan.getAcceleration() != null) {
+      consolePipeline.offer("Acceleration: " + launchPlan.getAcceleration().getDescription() + "\n", ProcessOutputTypes.SYSTEM);
+    }
+
+    if(launchPlan.isKernelBoot()) {
+      consolePipeline.offer("Kernel: " + launchPlan.getBootImage().getAbsolutePath() + "\n", ProcessOutputTypes.SYSTEM);
+    } else {
+      consolePipeline.offer("Disk: " + launchPlan.getDiskAttachment().getDescription() + "\n", ProcessOutputTypes.SYSTEM);
+    }
+
+    if(StringUtils.isNotBlank(runConfig.getTcgPlugin()) && !launchPlan.isTcgPlugin()) {
+      consolePipeline.offer("TCG plugin not loaded: the guest does not run under TCG.\n", ProcessOutputTypes.SYSTEM);
+    }
+
+    if(debugLog != null) {
+      consolePipeline.offer("Debug log: " + debugLog + "\n", ProcessOutputTypes.SYSTEM);
+    } else if(StringUtils.isNotBlank(runConfig.getDebugLogItems())) {
+      consolePipeline.offer("Debug log not collected: -d or -D is in the QEMU arguments.\n", ProcessOutputTypes.SYSTEM);
+    }
+
+    if(traceFile != null) {
+      consolePipeline.offer("Trace: " + traceFile + "\n", ProcessOutputTypes.SYSTEM);
+    } else if(StringUtils.isNotBlank(runConfig.getTraceEvents())) {
+      consolePipeline.offer("Trace events not enabled: -trace is in the QEMU arguments.\n", ProcessOutputTypes.SYSTEM);
+    }
+  }
+
+  // Pipelined launches: QEMU is already running with an empty drive, so insert the product and let the guest go. Warm instances open
+  // their GDB stub first, once any previous instance has released the port.
+  private void insertBootImage(final File bootImage) {
+    previousInstancesStopped
+        .handle((ignored, throwable) -> qmpConnected)
+        .thenCompose(Function.identity())
+        .thenCompose(client -> openDeferredGdbStub(client)
+            .thenCompose(ignored -> client.execute("blockdev-change-medium", launchPlan.getDiskAttachment().createMediumChangeArguments(bootImage)))
+            .thenCompose(ignored -> {
+              consolePipeline.offer("Inserted: " + bootImage.getAbsolutePath() + "\n", ProcessOutputTypes.SYSTEM);
+
+              return (launchPlan.isResumeAfterInsert() ? client.cont() : CompletableFuture.<JsonElement>completedFuture(null));
+            }))
+        .whenComplete((ignored, throwable) -> {
+          if(throwable != null) {
+            consolePipeline.offer("Failed to insert boot image: " + throwable.getMessage() + "\n", ProcessOutputTypes.SYSTEM);
+
+            processFailed();
+          }
+        });
+  }
+
+  private CompletableFuture<JsonElement> openDeferredGdbStub(final QmpClient client) {
+    if(launchPlan.getDeferredGdbPort() == 0) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    final JsonObject arguments = new JsonObject();
+
+    arguments.addProperty("command-line", "gdbserver tcp::" + launchPlan.getDeferredGdbPort());
+
+    return client.execute("human-monitor-command", arguments);
+  }
+
+  private QemuLaunchPlan applyCheckpoint(final QemuLaunchPlan launchPlan) {
+    if(!runConfig.isRestoreCheckpoint()) {
+      return launchPlan;
+    }
+
+    final String unsupportedReason = QemuCheckpointStore.getUnsupportedReason(runConfig, bootImage, overlay);
+
+    if(unsupportedReason != null) {
+      consolePipeline.offer("Checkpoint not restored: " + unsupportedReason + "\n", ProcessOutputTypes.SYSTEM);
+
+      return launchPlan;
+    }
+
+    final QemuCheckpointStore checkpointStore = QemuCheckpointStore.getInstance();
+    final Optional<Instant> checkpointTime = checkpointStore.getCheckpointTime(getEnvironment().getProject(), runConfig);
+    final Optional<File> checkpoint = checkpointStore.findCheckpoint(getEnvironment().getProject(), runConfig, launchPlan, bootImage);
+
+    if(checkpoint.isPresent()) {
+      consolePipeline.offer("Restoring checkpoint from " + checkpointTime.map(Instant::toString).orElse("unknown time") + ".\n",
+          ProcessOutputTypes.SYSTEM);
+
+      return launchPlan.withCheckpoint(checkpoint.get());
+    }
+
+    if(checkpointTime.isPresent()) {
+      consolePipeline.offer("Checkpoint discarded: the boot image or arguments changed.\n", ProcessOutputTypes.SYSTEM);
+    }
+
+    return launchPlan;
+  }
+
+  private CompletableFuture<Void> saveCheckpoint(final QmpClient client) {
+    final QemuLaunchPlan plan = launchPlan;
+
+    return QemuCheckpointStore.getInstance().save(getEnvironment().getProject(), runConfig, client, plan, bootImage, overlay, checkpointAttached)
+        .whenComplete((ignored, throwable) -> {
+          if(throwable != null) {
+            consolePipeline.offer("Failed to save checkpoint: " + throwable.getMessage() + "\n", ProcessOutputTypes.SYSTEM);
+
+            return;
+          }
+
+          checkpointAttached = true;
+
+          consolePipeline.offer("Checkpoint saved.\n", ProcessOutputTypes.SYSTEM);
+        });
   }
 
-  private GeneralCommandLine createRunQemuCommandLine(final File diskImage) {
-    final GeneralCommandLine commandLine = new GeneralCommandLine(runConfig.getQemuExecutable());
+  private void connectQmp() {
+    final QemuInstance instance = qemuInstance;
+
+    QmpClient.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), qmpPort), QMP_CONNECT_TIMEOUT)
+        .whenComplete((client, throwable) -> {
+          if(throwable != null) {
+            qmpConnected.completeExceptionally(throwable);
+
+            if(!instance.isTerminated()) {
+              consolePipeline.offer("QMP unavailable: " + throwable.getMessage() + "\n", ProcessOutputTypes.SYSTEM);
+            }
+
+            return;
+          }
 
-    commandLine.addParameters("-cdrom", diskImage.getAbsolutePath());
+          client.addEventListener(this::qmpEventReceived);
+          client.queryStatus()
+              .thenAccept(status -> guestPaused = !status.getAsJsonObject().get("running").getAsBoolean());
+
+          instance.setQmpClient(client);
+
+          instance.getTerminatedFuture().whenComplete((ignored, ignoredThrowable) -> client.close());
+
+          qmpConnected.complete(client);
+        });
+  }
+
+  private void qmpEventReceived(final QmpEvent event) {
+    switch(event.getName()) {
+      case "STOP":
+        guestPaused = true;
+        break;
+      case "RESUME":
+        guestPaused = false;
+        break;
+    }
+  }
+
+  private CompletableFuture<Void> shutdownQemu() {
+    final QemuInstance instance = qemuInstance;
+
+    if(instance == null) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    return instance.shutdown(QemuInstanceRegistry.DEFAULT_SHUTDOWN_TIMEOUT);
+  }
+
+  private QmpClient getQmpClient() {
+    final QemuInstance instance = qemuInstance;
+
+    return (instance != null ? instance.getQmpClient() : null);
+  }
+
+  private GeneralCommandLine createRunQemuCommandLine() {
+    return launchPlan.createCommandLine(runConfig.getQemuExecutable(), qmpPort, createDebugLog(), createTraceFile());
+  }
 
-    if(runConfig.isEnableGdb()) {
-      if(runConfig.getGdbTcpPort() == 1234) {
-        commandLine.addParameter("-s");
+  private File createDebugLog() {
+    if(!launchPlan.isDebugLogCollected()) {
+      return null;
+    }
+
+    try {
+      final Path log;
+
+      if(launchPlan.getDebugLogItems() != null) {
+        log = FileUtils.newTimestampedFile(getLogDirectory().resolve(DEBUG_LOG_DIRECTORY), ".log", KEPT_DEBUG_LOGS);
+
+        debugLog = log;
       } else {
-        commandLine.addParameters("-gdb", "tcp::" + runConfig.getGdbTcpPort());
+        // Plugin output alone is only read once.
+        final Path directory = Files.createDirectories(getLogDirectory().resolve(PLUGIN_LOG_DIRECTORY));
+
+        log = Files.createTempFile(directory, "plugin-", ".log");
       }
 
-      if(runConfig.isQemuWaitForGdb()) {
-        commandLine.addParameter("-S");
+      if(launchPlan.isTcgPluginOutputCollected()) {
+        pluginLog = log;
       }
+
+      return log.toFile();
+    } catch(final IOException e) {
+      LOGGER.warn(e); // TODO: Error reporting.
+
+      return null;
+    }
+  }
+
+  private File createTraceFile() {
+    if(!launchPlan.isTraceCollected()) {
+      return null;
     }
 
-    commandLine.addParameters("-pidfile", ACTIVE_QEMU_PID_FILE.getAbsolutePath());
+    try {
+      traceFile = FileUtils.newTimestampedFile(getLogDirectory().resolve(TRACE_DIRECTORY), ".trace", KEPT_TRACES);
 
-    commandLine.addParameter(runConfig.getQemuArguments());
+      return traceFile.toFile();
+    } catch(final IOException e) {
+      LOGGER.warn(e); // TODO: Error reporting.
 
-    return commandLine;
+      return null;
+    }
   }
 
+  // The log is only read once QEMU has exited and flushed it, and is deleted afterwards unless it is the debug log.
+  private void showTcgPluginReport() {
+    final Path pluginLog = this.pluginLog;
+
+    if(pluginLog == null) {
+      return;
+    }
+
+    final boolean temporary = !pluginLog.equals(debugLog);
+    final Project project = getEnvironment().getProject();
+    final File symbolFile = this.symbolFile;
+
+    CompletableFuture.supplyAsync(() -> {
+      try {
+        return TcgPluginReport.read(pluginLog, symbolFile);
+      } catch(final IOException e) {
+        throw new UncheckedIOException(e);
+      } finally {
+        if(temporary) {
+          FileUtil.delete(pluginLog.toFile());
+        }
+      }
+    }, AppExecutorUtil.getAppExecutorService()).whenComplete((report, throwable) -> {
+      if(throwable != null) {
+        LOGGER.warn(throwable); // TODO: Error reporting.
+      } else if(report.getBlockCount() > 0) {
+        ApplicationManager.getApplication().invokeLater(() -> new HotSpotViewer(project, runConfig.getName(), report).show(),
+            project.getDisposed());
+      }
+    });
+  }
+
+  // Only QEMU's simple trace backend writes a file that can be decoded. Builds with just the log backend send trace events to the QEMU log
+  // instead.
+  private void showTraceReport() {
+    final Path traceFile = this.traceFile;
+
+    if(traceFile == null) {
+      return;
+    }
+
+    if(!SimpleTraceReader.isSimpleTrace(traceFile)) {
+      consolePipeline.offer("Trace not decoded: QEMU did not write a simpletrace file. It needs the simple trace backend.\n",
+          ProcessOutputTypes.SYSTEM);
+
+      return;
+    }
+
+    final Project project = getEnvironment().getProject();
+
+    CompletableFuture.supplyAsync(() -> {
+      try {
+        return TraceStatistics.read(traceFile);
+      } catch(final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }, AppExecutorUtil.getAppExecutorService()).whenComplete((statistics, throwable) -> {
+      if(throwable != null) {
+        LOGGER.warn(throwable); // TODO: Error reporting.
+      } else if(!statistics.getHistograms().isEmpty()) {
+        ApplicationManager.getApplication().invokeLater(() -> new TraceReportViewer(project, runConfig.getName(), statistics).show(),
+            project.getDisposed());
+      }
+    });
+  }
+
+
   private ProcessHandler runCMakeBuild() throws ExecutionException {
     final CMakeTarget target = runConfig.getCmakeTarget();
 
@@ -191,6 +841,8 @@ public final class QemuCommandLineState extends CommandLineState {
       throw new ExecutionException("No CMake configuration for selected target.");
     }
 
+    timeline.mark(QemuLaunchPhase.CMAKE_STARTED);
+
     final CMakeBuildProcessHandler processHandler = new CMakeBuildProcessHandler(getEnvironment().getProject(), config);
 
     processHandler.addProcessListener(new CMakeBuildProcessAdaptor(config.getProductFile()));
@@ -223,22 +875,23 @@ public final class QemuCommandLineState extends CommandLineState {
 
     @Override
     protected final void destroyProcessImpl() {
-      destroyOtherProcesses();
-
-      notifyProcessTerminated(processFailed ? 1 : 0);
-    }
-
-    // Methods
-    //--------------------------------------------------
-
-    private void destroyOtherProcesses() {
       if(QemuCommandLineState.this.cmakeProcess != null && !QemuCommandLineState.this.cmakeProcess.isProcessTerminated()) {
         QemuCommandLineState.this.cmakeProcess.destroyProcess();
       }
 
-      if(QemuCommandLineState.this.qemuProcess != null && !QemuCommandLineState.this.qemuProcess.isProcessTerminated()) {
-        QemuCommandLineState.this.qemuProcess.destroyProcess();
-      }
+      // Closing the console log can wait several seconds for its writer, and shutdownQemu() is already complete when QEMU is gone, so the
+      // rest would run on the caller: the EDT when the user presses Stop.
+      QemuCommandLineState.this.shutdownQemu()
+          .whenCompleteAsync((ignored, throwable) -> {
+            QemuCommandLineState.this.releaseOverlay();
+            QemuCommandLineState.this.closeConsoleLog();
+            QemuCommandLineState.this.launchTerminated();
+            QemuCommandLineState.this.consolePipeline.close();
+
+            final Integer exitCode = QemuCommandLineState.this.exitCode;
+
+            notifyProcessTerminated(exitCode != null ? exitCode : (processFailed ? 1 : 0));
+          }, AppExecutorUtil.getAppExecutorService());
     }
 
   }
@@ -269,13 +922,21 @@ public final class QemuCommandLineState extends CommandLineState {
 
     @Override
     public final void processTerminated(final ProcessEvent event) {
+      QemuCommandLineState.this.timeline.mark(QemuLaunchPhase.CMAKE_FINISHED);
+
       if(event.getExitCode() != 0) {
         QemuCommandLineState.this.processFailed();
 
         return;
       }
 
-      runQemu(product);
+      QemuCommandLineState.this.setSymbolFile(product);
+
+      if(pipelined) {
+        insertBootImage(product);
+      } else {
+        runQemu(product);
+      }
     }
 
   }
@@ -292,11 +953,68 @@ public final class QemuCommandLineState extends CommandLineState {
       super();
     }
 
+    // Fields
+    //--------------------------------------------------
+
+    // One per output type. stdout and stderr are read on separate threads, and a match must not continue across them.
+    private final Map<Key, StreamingPatternMatcher.Scanner> outputScanners = new ConcurrentHashMap<>();
+
+    // Guarded by itself.
+    private final BitSet firedTriggers = new BitSet();
+
+    // Methods
+    //--------------------------------------------------
+
+    private void outputTriggerMatched(final int index) {
+      synchronized(firedTriggers) {
+        if(firedTriggers.get(index)) {
+          return;
+        }
+
+        firedTriggers.set(index);
+      }
+
+      final OutputTrigger trigger = QemuCommandLineState.this.outputTriggers.get(index);
+
+      switch(trigger.getAction()) {
+        case MARK_BOOT_COMPLETE:
+          bootComplete();
+          break;
+        case END_RUN:
+          consolePipeline.offer("\nRun ended by output trigger \"" + trigger.getPattern() + "\" (exit code " + trigger.getExitCode() + ").\n",
+              ProcessOutputTypes.SYSTEM);
+
+          QemuCommandLineState.this.endRun(trigger.getExitCode());
+          break;
+        case DEBUG_CONFIGURATION:
+          QemuCommandLineState.this.debugConfiguration(StringUtils.trimToEmpty(trigger.getArgument()));
+          break;
+        case RUN_IDE_ACTION:
+          QemuCommandLineState.this.runIdeAction(StringUtils.trimToEmpty(trigger.getArgument()));
+          break;
+      }
+    }
+
+    private void bootComplete() {
+      if(QemuCommandLineState.this.timeline.mark(QemuLaunchPhase.BOOT_COMPLETE)) {
+        final String bootTime = QemuCommandLineState.this.timeline.getOffset(QemuLaunchPhase.BOOT_COMPLETE)
+            .map(QemuLaunchTimeline::formatDuration)
+            .orElse("");
+
+        consolePipeline.offer("\nBoot complete after " + bootTime + ".\n", ProcessOutputTypes.SYSTEM);
+      }
+    }
+
     // ProcessAdaptor methods
     //--------------------------------------------------
 
     @Override
     public final void processTerminated(final ProcessEvent event) {
+      // Messages after QEMU's output are forwarded right away.
+      QemuCommandLineState.this.consolePipeline.close();
+
+      QemuCommandLineState.this.releaseOverlay();
+
       if(event.getExitCode() != 0) {
         QemuCommandLineState.this.processFailed();
 
@@ -308,7 +1026,22 @@ public final class QemuCommandLineState extends CommandLineState {
 
     @Override
     public final void onTextAvailable(final ProcessEvent event, final Key outputType) {
-      QemuCommandLineState.this.mainProcess.notifyTextAvailable(event.getText(), outputType);
+      if(QemuCommandLineState.this.consoleLog != null) {
+        QemuCommandLineState.this.consoleLog.append(event.getText());
+      }
+
+      consolePipeline.offer(event.getText(), outputType);
+
+      if(outputType != ProcessOutputTypes.SYSTEM) {
+        QemuCommandLineState.this.timeline.mark(QemuLaunchPhase.FIRST_OUTPUT);
+
+        final StreamingPatternMatcher.Scanner outputScanner = outputScanners.computeIfAbsent(outputType,
+            ignored -> QemuCommandLineState.this.outputMatcher.newScanner());
+
+        synchronized(outputScanner) {
+          outputScanner.feed(event.getText(), this::outputTriggerMatched);
+        }
+      }
     }
 
   }
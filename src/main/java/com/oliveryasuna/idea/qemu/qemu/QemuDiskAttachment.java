@@ -0,0 +1,223 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.oliveryasuna.idea.qemu.qemu;
+
+import com.google.gson.JsonObject;
+import com.intellij.openapi.util.SystemInfo;
+import com.oliveryasuna.commons.language.condition.Arguments;
+import com.oliveryasuna.idea.qemu.executable.QemuCapabilities;
+import com.oliveryasuna.idea.qemu.run.config.QemuRunConfigOptions;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+public final class QemuDiskAttachment {
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final String DRIVE_ID = "qemu-integration-disk0";
+
+  private static final String IOTHREAD_ID = "qemu-integration-io0";
+
+  private static final String SCSI_CONTROLLER_ID = "qemu-integration-scsi0";
+
+  private static final String CD_DEVICE_ID = "qemu-integration-cd0";
+
+  // Static methods
+  //--------------------------------------------------
+
+  public static QemuDiskAttachment create(final File image, final QemuRunConfigOptions.DiskIoProfile profile,
+      final QemuRunConfigOptions.DiskCacheMode cacheMode, final Optional<QemuCapabilities> capabilities) {
+    Arguments.requireNotNull(image, "image == null");
+    Arguments.requireNotNull(profile, "profile == null");
+    Arguments.requireNotNull(cacheMode, "cacheMode == null");
+    Arguments.requireNotNull(capabilities, "capabilities == null");
+
+    final List<String> arguments = new ArrayList<>();
+
+    if(profile == QemuRunConfigOptions.DiskIoProfile.CDROM) {
+      arguments.add("-cdrom");
+      arguments.add(image.getAbsolutePath());
+
+      return new QemuDiskAttachment(arguments, "IDE CD-ROM");
+    }
+
+    final String controller = (profile == QemuRunConfigOptions.DiskIoProfile.VIRTIO_BLK ? "virtio-blk-pci" : "virtio-scsi-pci");
+
+    if(capabilities.isPresent() && capabilities.get().wasProbed() && !capabilities.get().supportsDevice(controller)) {
+      arguments.add("-cdrom");
+      arguments.add(image.getAbsolutePath());
+
+      return new QemuDiskAttachment(arguments, "IDE CD-ROM (" + controller + " not supported by this QEMU)");
+    }
+
+    final String cache = cacheMode.name().toLowerCase(Locale.ROOT);
+    final String aio = selectAio(cacheMode, capabilities);
+    final boolean iso = isIso(image);
+    final String format = getImageFormat(image);
+
+    arguments.add("-object");
+    arguments.add("iothread,id=" + IOTHREAD_ID);
+
+    arguments.add("-drive");
+    arguments.add("file=" + escapeOptionValue(image.getAbsolutePath()) + ",if=none,id=" + DRIVE_ID + ",format=" + format + ",cache=" + cache
+        + ",aio=" + aio + (iso ? ",readonly=on" : ""));
+
+    if(profile == QemuRunConfigOptions.DiskIoProfile.VIRTIO_BLK) {
+      arguments.add("-device");
+      arguments.add("virtio-blk-pci,drive=" + DRIVE_ID + ",iothread=" + IOTHREAD_ID + ",bootindex=0");
+    } else {
+      arguments.add("-device");
+      arguments.add("virtio-scsi-pci,id=" + SCSI_CONTROLLER_ID + ",iothread=" + IOTHREAD_ID);
+      arguments.add("-device");
+      arguments.add((iso ? "scsi-cd" : "scsi-hd") + ",bus=" + SCSI_CONTROLLER_ID + ".0,drive=" + DRIVE_ID + ",bootindex=0");
+    }
+
+    return new QemuDiskAttachment(arguments, controller + ", cache=" + cache + ", aio=" + aio + ", iothread");
+  }
+
+  // An empty CD-ROM drive, for starting QEMU before the image exists. The image is inserted later with blockdev-change-medium. virtio-blk has no
+  // removable media, so that profile falls back to the IDE CD-ROM.
+  public static QemuDiskAttachment createRemovable(final QemuRunConfigOptions.DiskIoProfile profile, final Optional<QemuCapabilities> capabilities) {
+    Arguments.requireNotNull(profile, "profile == null");
+    Arguments.requireNotNull(capabilities, "capabilities == null");
+
+    final List<String> arguments = new ArrayList<>();
+
+    final boolean scsiSupported = (capabilities.isEmpty() || !capabilities.get().wasProbed() || capabilities.get().supportsDevice("virtio-scsi-pci"));
+
+    if(profile == QemuRunConfigOptions.DiskIoProfile.VIRTIO_SCSI && scsiSupported) {
+      arguments.add("-object");
+      arguments.add("iothread,id=" + IOTHREAD_ID);
+      arguments.add("-drive");
+      arguments.add("if=none,id=" + DRIVE_ID + ",media=cdrom");
+      arguments.add("-device");
+      arguments.add("virtio-scsi-pci,id=" + SCSI_CONTROLLER_ID + ",iothread=" + IOTHREAD_ID);
+      arguments.add("-device");
+      arguments.add("scsi-cd,bus=" + SCSI_CONTROLLER_ID + ".0,drive=" + DRIVE_ID + ",id=" + CD_DEVICE_ID + ",bootindex=0");
+
+      return new QemuDiskAttachment(arguments, "virtio-scsi-pci CD-ROM, iothread, inserted after build", "id", CD_DEVICE_ID);
+    }
+
+    // Same drive -cdrom would create, but without a medium.
+    arguments.add("-drive");
+    arguments.add("index=2,media=cdrom,id=" + DRIVE_ID);
+
+    return new QemuDiskAttachment(arguments, "IDE CD-ROM, inserted after build", "device", DRIVE_ID);
+  }
+
+  // io_uring only where the probe found QEMU and the kernel support it. Native AIO needs O_DIRECT, which only the "none" and "directsync"
+  // cache modes use.
+  private static String selectAio(final QemuRunConfigOptions.DiskCacheMode cacheMode, final Optional<QemuCapabilities> capabilities) {
+    if(!SystemInfo.isLinux) {
+      return "threads";
+    }
+
+    if(capabilities.isPresent() && capabilities.get().supportsIoUring()) {
+      return "io_uring";
+    }
+
+    if(cacheMode == QemuRunConfigOptions.DiskCacheMode.NONE || cacheMode == QemuRunConfigOptions.DiskCacheMode.DIRECTSYNC) {
+      return "native";
+    }
+
+    return "threads";
+  }
+
+  static boolean isIso(final File image) {
+    return image.getName().toLowerCase(Locale.ROOT).endsWith(".iso");
+  }
+
+  static String getImageFormat(final File image) {
+    return (image.getName().toLowerCase(Locale.ROOT).endsWith(".qcow2") ? "qcow2" : "raw");
+  }
+
+  // Commas separate sub-options, so a literal comma in a value is written twice.
+  static String escapeOptionValue(final String value) {
+    return value.replace(",", ",,");
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  private QemuDiskAttachment(final List<String> arguments, final String description) {
+    this(arguments, description, null, null);
+  }
+
+  private QemuDiskAttachment(final List<String> arguments, final String description, final String mediumTargetKey, final String mediumTarget) {
+    super();
+
+    this.arguments = List.copyOf(arguments);
+    this.description = description;
+    this.mediumTargetKey = mediumTargetKey;
+    this.mediumTarget = mediumTarget;
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final List<String> arguments;
+
+  private final String description;
+
+  private final String mediumTargetKey;
+
+  private final String mediumTarget;
+
+  // Methods
+  //--------------------------------------------------
+
+  // Arguments for the QMP blockdev-change-medium command.
+  public final JsonObject createMediumChangeArguments(final File image) {
+    Arguments.requireNotNull(image, "image == null");
+
+    if(!isRemovable()) {
+      throw new IllegalStateException("Disk attachment has no removable medium.");
+    }
+
+    final JsonObject arguments = new JsonObject();
+
+    arguments.addProperty(mediumTargetKey, mediumTarget);
+    arguments.addProperty("filename", image.getAbsolutePath());
+    arguments.addProperty("format", getImageFormat(image));
+    arguments.addProperty("read-only-mode", "read-only");
+
+    return arguments;
+  }
+
+  // Getters/setters
+  //--------------------------------------------------
+
+  public final List<String> getArguments() {
+    return arguments;
+  }
+
+  public final String getDescription() {
+    return description;
+  }
+
+  public final boolean isRemovable() {
+    return (mediumTarget != null);
+  }
+
+}
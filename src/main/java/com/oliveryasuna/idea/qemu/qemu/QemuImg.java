@@ -0,0 +1,102 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.qemu;
+
+import com.intellij.execution.ExecutionException;
+import com.intellij.execution.configurations.GeneralCommandLine;
+import com.intellij.execution.configurations.PathEnvironmentVariableUtil;
+import com.intellij.execution.process.ProcessOutput;
+import com.intellij.execution.util.ExecUtil;
+import com.intellij.openapi.util.SystemInfo;
+import com.oliveryasuna.commons.language.condition.Arguments;
+import com.oliveryasuna.commons.language.exception.UnsupportedInstantiationException;
+import com.oliveryasuna.commons.language.marker.Utility;
+
+import java.io.File;
+import java.util.Optional;
+
+// Wrapper around the qemu-img tool that ships next to the QEMU binaries.
+@Utility
+public final class QemuImg {
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final int TIMEOUT_MILLIS = 30_000;
+
+  // Static utility methods
+  //--------------------------------------------------
+
+  // Prefers the qemu-img installed alongside the given QEMU executable, so both come from the same version.
+  public static Optional<File> findExecutable(final String qemuExecutable) {
+    final String name = (SystemInfo.isWindows ? "qemu-img.exe" : "qemu-img");
+
+    if(qemuExecutable != null) {
+      final File sibling = new File(new File(qemuExecutable).getAbsoluteFile().getParentFile(), name);
+
+      if(sibling.canExecute()) {
+        return Optional.of(sibling);
+      }
+    }
+
+    return Optional.ofNullable(PathEnvironmentVariableUtil.findInPath(name));
+  }
+
+  public static void create(final File qemuImg, final File image, final String format, final String size) throws ExecutionException {
+    Arguments.requireNotNull(format, "format == null");
+    Arguments.requireNotNull(size, "size == null");
+
+    run(qemuImg, image, new GeneralCommandLine()
+        .withParameters("create", "-q", "-f", format, image.getAbsolutePath(), size));
+  }
+
+  // Creates a copy-on-write overlay that reads through to the backing image and keeps every write to itself.
+  public static void createOverlay(final File qemuImg, final File overlay, final File backing, final String backingFormat)
+      throws ExecutionException {
+    Arguments.requireNotNull(backing, "backing == null");
+    Arguments.requireNotNull(backingFormat, "backingFormat == null");
+
+    run(qemuImg, overlay, new GeneralCommandLine()
+        .withParameters("create", "-q", "-f", "qcow2", "-b", backing.getAbsolutePath(), "-F", backingFormat, overlay.getAbsolutePath()));
+  }
+
+  private static void run(final File qemuImg, final File image, final GeneralCommandLine commandLine) throws ExecutionException {
+    Arguments.requireNotNull(qemuImg, "qemuImg == null");
+    Arguments.requireNotNull(image, "image == null");
+
+    final ProcessOutput output = ExecUtil.execAndGetOutput(commandLine.withExePath(qemuImg.getAbsolutePath()), TIMEOUT_MILLIS);
+
+    if(output.isTimeout()) {
+      throw new ExecutionException("qemu-img timed out creating " + image + ".");
+    }
+
+    if(output.getExitCode() != 0) {
+      throw new ExecutionException("qemu-img failed creating " + image + ": " + output.getStderr().trim());
+    }
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  private QemuImg() {
+    super();
+
+    throw new UnsupportedInstantiationException();
+  }
+
+}
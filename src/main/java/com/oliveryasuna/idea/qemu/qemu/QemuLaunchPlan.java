@@ -0,0 +1,446 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.oliveryasuna.idea.qemu.qemu;
+
+import com.intellij.execution.configurations.GeneralCommandLine;
+import com.oliveryasuna.commons.language.condition.Arguments;
+import com.oliveryasuna.idea.qemu.args.QemuArguments;
+import com.oliveryasuna.idea.qemu.args.QemuOption;
+import com.oliveryasuna.idea.qemu.executable.QemuCapabilities;
+import com.oliveryasuna.idea.qemu.run.config.QemuRunConfig;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+// Everything about a launch that only depends on the run configuration and the boot image. Run configurations cache their plan, so the
+// argument list is only rebuilt after the configuration changes.
+public final class QemuLaunchPlan {
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final long DEFAULT_MEMORY_MIB = 128;
+
+  // Static methods
+  //--------------------------------------------------
+
+  public static QemuLaunchPlan create(final QemuRunConfig runConfig, final File bootImage) {
+    Arguments.requireNotNull(runConfig, "runConfig == null");
+
+    return create(runConfig, bootImage, runConfig.getQemuCapabilities());
+  }
+
+  // With the capabilities the caller already looked up, so a cached plan matches the capabilities it is cached under.
+  public static QemuLaunchPlan create(final QemuRunConfig runConfig, final File bootImage, final Optional<QemuCapabilities> capabilities) {
+    Arguments.requireNotNull(runConfig, "runConfig == null");
+    Arguments.requireNotNull(bootImage, "bootImage == null");
+    Arguments.requireNotNull(capabilities, "capabilities == null");
+
+    return create(runConfig, capabilities, bootImage, false, GdbStub.OPEN, true, runConfig.getVcpuCount());
+  }
+
+  // For starting QEMU while the boot image is still being built. The guest is held with -S and the drive is empty until the image is inserted.
+  public static QemuLaunchPlan createPipelined(final QemuRunConfig runConfig) {
+    Arguments.requireNotNull(runConfig, "runConfig == null");
+
+    if(runConfig.isKernelBoot()) {
+      throw new IllegalArgumentException("Direct kernel boot cannot be pipelined.");
+    }
+
+    return create(runConfig, runConfig.getQemuCapabilities(), null, true, GdbStub.OPEN, true, runConfig.getVcpuCount());
+  }
+
+  // For warm pool instances. Like a pipelined launch, but the GDB stub is only opened when an instance is handed to a run, since idle
+  // instances would otherwise fight over the port.
+  public static QemuLaunchPlan createWarm(final QemuRunConfig runConfig) {
+    Arguments.requireNotNull(runConfig, "runConfig == null");
+
+    if(runConfig.isKernelBoot()) {
+      throw new IllegalArgumentException("Direct kernel boot cannot use warm instances.");
+    }
+
+    // Configurations with a TCG plugin, debug log or trace are not pooled, as the instance could not write the run's output.
+    return create(runConfig, runConfig.getQemuCapabilities(), null, true, GdbStub.DEFERRED, false, runConfig.getVcpuCount());
+  }
+
+  // For boot time benchmarks. There is no GDB stub, so concurrent instances cannot collide or wait for a debugger, and -snapshot keeps
+  // every boot starting from the same disk contents. TCG plugins, debug logging and tracing are left out, as they slow the guest down. The
+  // vCPU count is given by the benchmark, which shares the host between concurrent boots.
+  public static QemuLaunchPlan createBenchmark(final QemuRunConfig runConfig, final File bootImage, final int vcpuCount) {
+    Arguments.requireNotNull(runConfig, "runConfig == null");
+    Arguments.requireNotNull(bootImage, "bootImage == null");
+
+    final QemuLaunchPlan plan = create(runConfig, runConfig.getQemuCapabilities(), bootImage, false, GdbStub.DISABLED, false,
+        vcpuCount);
+    final List<QemuOption> options = new ArrayList<>(plan.arguments.getOptions());
+
+    if(!plan.arguments.has("-snapshot")) {
+      options.add(QemuOption.flag("-snapshot"));
+    }
+
+    return new QemuLaunchPlan(QemuArguments.of(options), plan.acceleration, plan.diskAttachment, bootImage, false, 0, false, null,
+        List.of());
+  }
+
+  private static QemuLaunchPlan create(final QemuRunConfig runConfig, final Optional<QemuCapabilities> capabilities, final File bootImage,
+      final boolean pipelined, final GdbStub gdbStub, final boolean instrumented, final int vcpuCount) {
+    final QemuArguments userArguments = runConfig.getQemuArgumentModel();
+    final QemuAcceleration acceleration = QemuAccelerationSelector.select(runConfig.getAccelerationMode(), vcpuCount,
+        runConfig.getQemuExecutable(), capabilities);
+    final List<QemuOption> generated = new ArrayList<>();
+    final QemuDiskAttachment diskAttachment;
+
+    if(runConfig.isKernelBoot()) {
+      // Direct kernel boot: QEMU loads the image itself, so there is no ISO to build and no bootloader to run.
+      diskAttachment = null;
+
+      generated.add(QemuOption.of("-kernel", bootImage.getAbsolutePath()));
+
+      if(StringUtils.isNotBlank(runConfig.getInitrdFile())) {
+        generated.add(QemuOption.of("-initrd", runConfig.getInitrdFile()));
+      }
+
+      if(StringUtils.isNotBlank(runConfig.getKernelCommandLine())) {
+        generated.add(QemuOption.of("-append", runConfig.getKernelCommandLine()));
+      }
+    } else if(pipelined) {
+      diskAttachment = QemuDiskAttachment.createRemovable(runConfig.getDiskIoProfile(), capabilities);
+
+      generated.addAll(QemuArguments.parse(diskAttachment.getArguments()).getOptions());
+    } else {
+      diskAttachment = QemuDiskAttachment.create(bootImage, runConfig.getDiskIoProfile(), runConfig.getDiskCacheMode(),
+          capabilities);
+
+      generated.addAll(QemuArguments.parse(diskAttachment.getArguments()).getOptions());
+    }
+
+    final boolean enableGdb = (runConfig.isEnableGdb() && gdbStub != GdbStub.DISABLED);
+
+    if(enableGdb) {
+      // Deferred stubs are opened with the gdbserver monitor command on hand-over.
+      if(gdbStub == GdbStub.OPEN) {
+        if(runConfig.getGdbTcpPort() == 1234) {
+          generated.add(QemuOption.flag("-s"));
+        } else {
+          generated.add(QemuOption.of("-gdb", "tcp::" + runConfig.getGdbTcpPort()));
+        }
+      }
+
+      if(runConfig.isQemuWaitForGdb()) {
+        generated.add(QemuOption.flag("-S"));
+      }
+    }
+
+    final boolean userPaused = (userArguments.has("-S") || (enableGdb && runConfig.isQemuWaitForGdb()));
+
+    if(pipelined && !userPaused) {
+      generated.add(QemuOption.flag("-S"));
+    }
+
+    generated.add(QemuOption.of("-accel", acceleration.getAccelerator()));
+
+    if(acceleration.getVcpuCount() > 0) {
+      generated.add(QemuOption.of("-smp", Integer.toString(acceleration.getVcpuCount())));
+    }
+
+    // Plugins only see code that TCG translates.
+    final boolean tcgPlugin = (instrumented && StringUtils.isNotBlank(runConfig.getTcgPlugin()) && usesTcg(userArguments, acceleration));
+
+    if(tcgPlugin) {
+      generated.add(QemuOption.of("-plugin", "file=" + QemuDiskAttachment.escapeOptionValue(runConfig.getTcgPlugin())
+          + (StringUtils.isNotBlank(runConfig.getTcgPluginArguments()) ? "," + runConfig.getTcgPluginArguments().trim() : "")));
+    }
+
+    final QemuArguments arguments = QemuArguments.merge(QemuArguments.of(generated), userArguments);
+
+    // Logging and tracing the user set up in the arguments win.
+    final Set<String> debugLogItems = (instrumented && !userArguments.has("-d", "-D") ? splitItems(runConfig.getDebugLogItems()) : Set.of());
+    final Set<String> traceEvents = (instrumented && !userArguments.has("-trace") ? splitItems(runConfig.getTraceEvents()) : Set.of());
+
+    return new QemuLaunchPlan(arguments, (userArguments.findAccelerator().isPresent() ? null : acceleration), diskAttachment, bootImage,
+        (pipelined && !userPaused), (gdbStub == GdbStub.DEFERRED && enableGdb ? runConfig.getGdbTcpPort() : 0), tcgPlugin,
+        (debugLogItems.isEmpty() ? null : String.join(",", debugLogItems)), List.copyOf(traceEvents));
+  }
+
+  // Separated by commas or whitespace, without duplicates.
+  private static Set<String> splitItems(final String items) {
+    final Set<String> split = new LinkedHashSet<>();
+
+    if(StringUtils.isBlank(items)) {
+      return split;
+    }
+
+    for(final String item : items.split("[,\\s]+")) {
+      if(!item.isEmpty()) {
+        split.add(item);
+      }
+    }
+
+    return split;
+  }
+
+  private static boolean usesTcg(final QemuArguments userArguments, final QemuAcceleration acceleration) {
+    return userArguments.findAccelerator()
+        .orElse(acceleration.getAccelerator())
+        .startsWith("tcg");
+  }
+
+  // Guest RAM in MiB as QEMU would interpret -m. Bare numbers are MiB.
+  static long parseMemoryMib(final String size) {
+    if(StringUtils.isBlank(size)) {
+      return DEFAULT_MEMORY_MIB;
+    }
+
+    final String trimmed = size.trim();
+    final char suffix = Character.toUpperCase(trimmed.charAt(trimmed.length() - 1));
+    final String number = (Character.isLetter(suffix) ? trimmed.substring(0, trimmed.length() - 1) : trimmed);
+
+    final double value;
+
+    try {
+      value = Double.parseDouble(number);
+    } catch(final NumberFormatException e) {
+      return DEFAULT_MEMORY_MIB;
+    }
+
+    switch(suffix) {
+      case 'K':
+        return (long)Math.ceil(value / 1024);
+      case 'G':
+        return (long)Math.ceil(value * 1024);
+      case 'T':
+        return (long)Math.ceil(value * 1024 * 1024);
+      default:
+        return (long)Math.ceil(value);
+    }
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  private QemuLaunchPlan(final QemuArguments arguments, final QemuAcceleration acceleration, final QemuDiskAttachment diskAttachment,
+      final File bootImage, final boolean resumeAfterInsert, final int deferredGdbPort, final boolean tcgPlugin, final String debugLogItems,
+      final List<String> traceEvents) {
+    this(arguments, arguments, acceleration, diskAttachment, bootImage, resumeAfterInsert, deferredGdbPort, tcgPlugin, debugLogItems,
+        traceEvents, null);
+  }
+
+  private QemuLaunchPlan(final QemuArguments arguments, final QemuArguments baseArguments, final QemuAcceleration acceleration,
+      final QemuDiskAttachment diskAttachment, final File bootImage, final boolean resumeAfterInsert, final int deferredGdbPort,
+      final boolean tcgPlugin, final String debugLogItems, final List<String> traceEvents, final File checkpoint) {
+    super();
+
+    this.arguments = arguments;
+    this.baseArguments = baseArguments;
+    this.acceleration = acceleration;
+    this.diskAttachment = diskAttachment;
+    this.bootImage = bootImage;
+    this.resumeAfterInsert = resumeAfterInsert;
+    this.deferredGdbPort = deferredGdbPort;
+    this.tcgPlugin = tcgPlugin;
+    this.debugLogItems = debugLogItems;
+    this.traceEvents = traceEvents;
+    this.checkpoint = checkpoint;
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final QemuArguments arguments;
+
+  private final QemuArguments baseArguments;
+
+  private final QemuAcceleration acceleration;
+
+  private final QemuDiskAttachment diskAttachment;
+
+  private final File bootImage;
+
+  private final boolean resumeAfterInsert;
+
+  private final int deferredGdbPort;
+
+  private final boolean tcgPlugin;
+
+  private final String debugLogItems;
+
+  private final List<String> traceEvents;
+
+  private final File checkpoint;
+
+  // Methods
+  //--------------------------------------------------
+
+  // The same launch, restoring the VM from a checkpoint state image instead of booting.
+  public final QemuLaunchPlan withCheckpoint(final File stateImage) {
+    Arguments.requireNotNull(stateImage, "stateImage == null");
+
+    if(isPipelined()) {
+      throw new IllegalStateException("Pipelined launches cannot restore checkpoints.");
+    }
+
+    final List<QemuOption> options = new ArrayList<>(baseArguments.getOptions());
+
+    options.add(QemuOption.of("-blockdev", "driver=qcow2,node-name=" + QemuCheckpointStore.STATE_NODE_NAME + ",file.driver=file,file.filename="
+        + QemuDiskAttachment.escapeOptionValue(stateImage.getAbsolutePath())));
+    options.add(QemuOption.of("-loadvm", QemuCheckpointStore.SNAPSHOT_TAG));
+
+    return new QemuLaunchPlan(QemuArguments.of(options), baseArguments, acceleration, diskAttachment, bootImage, resumeAfterInsert,
+        deferredGdbPort, tcgPlugin, debugLogItems, traceEvents, stateImage);
+  }
+
+  public final GeneralCommandLine createCommandLine(final String executable, final int qmpPort) {
+    Arguments.requireNotNull(executable, "executable == null");
+
+    final GeneralCommandLine commandLine = new GeneralCommandLine(executable);
+
+    commandLine.addParameters(arguments.toArgumentList());
+
+    commandLine.addParameters("-qmp", "tcp:" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + qmpPort + ",server=on,wait=off");
+
+    return commandLine;
+  }
+
+  // Sends the debug log items and TCG plugin output to one log file, unless the user set up QEMU logging in the arguments. QEMU only takes
+  // a single -d and -D, so both share the mask and the file. Trace events go to their own file.
+  public final GeneralCommandLine createCommandLine(final String executable, final int qmpPort, final File debugLog, final File traceFile) {
+    final GeneralCommandLine commandLine = createCommandLine(executable, qmpPort);
+
+    if(isTraceCollected() && traceFile != null) {
+      for(final String event : traceEvents) {
+        commandLine.addParameters("-trace", "enable=" + event);
+      }
+
+      commandLine.addParameters("-trace", "file=" + traceFile.getAbsolutePath());
+    }
+
+    if(isDebugLogCollected() && debugLog != null) {
+      final String items = (isTcgPluginOutputCollected()
+          ? (debugLogItems != null ? debugLogItems + ",plugin" : "plugin")
+          : debugLogItems);
+
+      commandLine.addParameters("-d", items, "-D", debugLog.getAbsolutePath());
+    }
+
+    return commandLine;
+  }
+
+  public final boolean isTcgPluginOutputCollected() {
+    return (tcgPlugin && !arguments.has("-d", "-D"));
+  }
+
+  public final boolean isDebugLogCollected() {
+    return (debugLogItems != null || isTcgPluginOutputCollected());
+  }
+
+  public final boolean isTraceCollected() {
+    return !traceEvents.isEmpty();
+  }
+
+  public final long getGuestMemoryMib() {
+    return arguments.find("-m")
+        .flatMap(option -> option.getPrimaryValue("size"))
+        .map(QemuLaunchPlan::parseMemoryMib)
+        .orElse(DEFAULT_MEMORY_MIB);
+  }
+
+  // Getters/setters
+  //--------------------------------------------------
+
+  public final QemuArguments getArguments() {
+    return arguments;
+  }
+
+  // The arguments without the checkpoint restore options.
+  public final QemuArguments getBaseArguments() {
+    return baseArguments;
+  }
+
+  // Null if the user chose the accelerator in the arguments.
+  public final QemuAcceleration getAcceleration() {
+    return acceleration;
+  }
+
+  // Null for direct kernel boot.
+  public final QemuDiskAttachment getDiskAttachment() {
+    return diskAttachment;
+  }
+
+  // Null for pipelined launches.
+  public final File getBootImage() {
+    return bootImage;
+  }
+
+  public final boolean isPipelined() {
+    return (bootImage == null);
+  }
+
+  // False if the user wants the guest to stay paused, e.g. to wait for GDB.
+  public final boolean isResumeAfterInsert() {
+    return resumeAfterInsert;
+  }
+
+  public final boolean isKernelBoot() {
+    return (diskAttachment == null);
+  }
+
+  // The restored state image, or null.
+  public final File getCheckpoint() {
+    return checkpoint;
+  }
+
+  // GDB port to open once the instance is in use, or 0.
+  public final int getDeferredGdbPort() {
+    return deferredGdbPort;
+  }
+
+  public final boolean isTcgPlugin() {
+    return tcgPlugin;
+  }
+
+  // The -d items the run configuration asked for, or null.
+  public final String getDebugLogItems() {
+    return debugLogItems;
+  }
+
+  // The trace event patterns the run configuration asked for.
+  public final List<String> getTraceEvents() {
+    return traceEvents;
+  }
+
+  // GdbStub enum
+  //--------------------------------------------------
+
+  private enum GdbStub {
+
+    OPEN,
+
+    DEFERRED,
+
+    DISABLED
+
+  }
+
+}
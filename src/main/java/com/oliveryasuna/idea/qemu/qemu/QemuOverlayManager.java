@@ -0,0 +1,238 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.qemu;
+
+import com.intellij.execution.ExecutionException;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.SystemInfo;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.oliveryasuna.commons.language.condition.Arguments;
+import com.oliveryasuna.idea.qemu.run.config.QemuRunConfig;
+import com.oliveryasuna.idea.qemu.run.config.QemuRunConfigOptions;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Per-instance qcow2 overlays on top of a shared, read-only base image, so parallel instances never copy or lock the base. Overlays go to
+// tmpfs when there is one. Throwaway overlays are named after the IDE process, so the ones left behind by a crashed IDE can be removed.
+public final class QemuOverlayManager {
+
+  // Logging
+  //--------------------------------------------------
+
+  private static final Logger LOGGER = Logger.getInstance(QemuOverlayManager.class);
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final String THROWAWAY_PREFIX = "overlay-";
+
+  private static final String OVERLAY_EXTENSION = ".qcow2";
+
+  private static final String BASE_RECORD_EXTENSION = ".base";
+
+  // Static methods
+  //--------------------------------------------------
+
+  public static QemuOverlayManager getInstance() {
+    return ApplicationManager.getApplication().getService(QemuOverlayManager.class);
+  }
+
+  private static Path getOverlayDirectory() {
+    final Path shm = Paths.get("/dev/shm");
+
+    if(SystemInfo.isLinux && Files.isDirectory(shm) && Files.isWritable(shm)) {
+      return shm.resolve("qemu-integration-" + FileUtil.sanitizeFileName(SystemInfo.getUserName()));
+    }
+
+    return Paths.get(PathManager.getTempPath(), "qemu-integration", "overlays");
+  }
+
+  private static Properties createBaseRecord(final File base) {
+    final Properties record = new Properties();
+
+    record.setProperty("base", base.getAbsolutePath());
+    record.setProperty("length", Long.toString(base.length()));
+    record.setProperty("lastModified", Long.toString(base.lastModified()));
+
+    return record;
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  public QemuOverlayManager() {
+    super();
+
+    ApplicationManager.getApplication().executeOnPooledThread(this::deleteStaleOverlays);
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final Set<File> overlaysInUse = ConcurrentHashMap.newKeySet();
+
+  // Methods
+  //--------------------------------------------------
+
+  // Only writable drives benefit. CD-ROMs and ISO images are opened read-only and are already shared safely.
+  public final boolean isApplicable(final QemuRunConfig runConfig, final File base) {
+    return (runConfig.isUseOverlay() && !runConfig.isKernelBoot() && runConfig.getDiskIoProfile() != QemuRunConfigOptions.DiskIoProfile.CDROM
+        && !QemuDiskAttachment.isIso(base));
+  }
+
+  // Creates the overlay off the calling thread. With reuse enabled, the configuration's previous overlay is handed out again as long as
+  // the base is unchanged and no other instance has it open.
+  public final CompletableFuture<File> acquire(final Project project, final QemuRunConfig runConfig, final File base) {
+    Arguments.requireNotNull(project, "project == null");
+    Arguments.requireNotNull(runConfig, "runConfig == null");
+    Arguments.requireNotNull(base, "base == null");
+
+    final String qemuExecutable = runConfig.getQemuExecutable();
+    final boolean reuse = runConfig.isReuseOverlay();
+    final String reusableName = project.getLocationHash() + "-" + FileUtil.sanitizeFileName(runConfig.getName());
+
+    return CompletableFuture.supplyAsync(() -> {
+      final Path directory = getOverlayDirectory();
+      final File reusable = directory.resolve(reusableName + OVERLAY_EXTENSION).toFile();
+
+      if(reuse && overlaysInUse.add(reusable)) {
+        if(reusable.isFile() && createBaseRecord(base).equals(readBaseRecord(reusable))) {
+          return reusable;
+        }
+
+        try {
+          createOverlay(qemuExecutable, reusable, base);
+          writeBaseRecord(reusable, base);
+        } catch(final RuntimeException e) {
+          overlaysInUse.remove(reusable);
+
+          throw e;
+        }
+
+        return reusable;
+      }
+
+      final File throwaway = directory.resolve(THROWAWAY_PREFIX + ProcessHandle.current().pid() + "-" + UUID.randomUUID() + OVERLAY_EXTENSION)
+          .toFile();
+
+      overlaysInUse.add(throwaway);
+
+      try {
+        createOverlay(qemuExecutable, throwaway, base);
+      } catch(final RuntimeException e) {
+        release(throwaway);
+
+        throw e;
+      }
+
+      return throwaway;
+    }, AppExecutorUtil.getAppExecutorService());
+  }
+
+  // False for throwaway overlays, which are deleted once released.
+  public final boolean isReusable(final File overlay) {
+    return !overlay.getName().startsWith(THROWAWAY_PREFIX);
+  }
+
+  // Called once the instance using the overlay has terminated. Throwaway overlays are deleted; reusable ones are kept for the next run.
+  public final void release(final File overlay) {
+    if(overlay == null || !overlaysInUse.remove(overlay)) {
+      return;
+    }
+
+    if(overlay.getName().startsWith(THROWAWAY_PREFIX)) {
+      FileUtil.delete(overlay);
+    }
+  }
+
+  private void createOverlay(final String qemuExecutable, final File overlay, final File base) {
+    final File qemuImg = QemuImg.findExecutable(qemuExecutable)
+        .orElseThrow(() -> new IllegalStateException("qemu-img not found."));
+
+    try {
+      Files.createDirectories(overlay.toPath().getParent());
+      Files.deleteIfExists(overlay.toPath());
+
+      QemuImg.createOverlay(qemuImg, overlay, base, QemuDiskAttachment.getImageFormat(base));
+    } catch(final IOException | ExecutionException e) {
+      throw new CompletionException(e);
+    }
+  }
+
+  private Properties readBaseRecord(final File overlay) {
+    final Properties record = new Properties();
+
+    try(final Reader reader = Files.newBufferedReader(Paths.get(overlay.getPath() + BASE_RECORD_EXTENSION))) {
+      record.load(reader);
+    } catch(final IOException e) {
+      return null;
+    }
+
+    return record;
+  }
+
+  private void writeBaseRecord(final File overlay, final File base) {
+    try(final Writer writer = Files.newBufferedWriter(Paths.get(overlay.getPath() + BASE_RECORD_EXTENSION))) {
+      createBaseRecord(base).store(writer, null);
+    } catch(final IOException e) {
+      LOGGER.warn(e); // TODO: Error reporting.
+    }
+  }
+
+  private void deleteStaleOverlays() {
+    final Path directory = getOverlayDirectory();
+
+    if(!Files.isDirectory(directory)) {
+      return;
+    }
+
+    try(final DirectoryStream<Path> overlays = Files.newDirectoryStream(directory, THROWAWAY_PREFIX + "*" + OVERLAY_EXTENSION)) {
+      for(final Path overlay : overlays) {
+        final String[] parts = overlay.getFileName().toString().split("-", 3);
+
+        try {
+          if(ProcessHandle.of(Long.parseLong(parts[1])).isEmpty()) {
+            Files.deleteIfExists(overlay);
+          }
+        } catch(final NumberFormatException | ArrayIndexOutOfBoundsException e) {
+          // Not one of ours.
+        }
+      }
+    } catch(final IOException e) {
+      LOGGER.warn(e); // TODO: Error reporting.
+    }
+  }
+
+}
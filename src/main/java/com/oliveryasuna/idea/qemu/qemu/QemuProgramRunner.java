@@ -27,6 +27,8 @@ import com.intellij.execution.runners.ExecutionEnvironment;
 import com.intellij.execution.runners.GenericProgramRunner;
 import com.intellij.execution.runners.RunContentBuilder;
 import com.intellij.execution.ui.RunContentDescriptor;
+import com.oliveryasuna.idea.qemu.benchmark.QemuBenchmarkExecutor;
+import com.oliveryasuna.idea.qemu.profiler.QemuProfileExecutor;
 import com.oliveryasuna.idea.qemu.run.config.QemuRunConfig;
 
 final class QemuProgramRunner extends GenericProgramRunner {
@@ -36,6 +38,10 @@ final class QemuProgramRunner extends GenericProgramRunner {
 
   private static final String RUN_EXECUTOR = DefaultRunExecutor.EXECUTOR_ID;
 
+  private static final String BENCHMARK_EXECUTOR = QemuBenchmarkExecutor.EXECUTOR_ID;
+
+  private static final String PROFILE_EXECUTOR = QemuProfileExecutor.EXECUTOR_ID;
+
   // Constructors
   //--------------------------------------------------
 
@@ -53,7 +59,8 @@ final class QemuProgramRunner extends GenericProgramRunner {
 
   @Override
   public final boolean canRun(final String executorId, final RunProfile profile) {
-    return (profile instanceof QemuRunConfig && executorId.equals(RUN_EXECUTOR));
+    return (profile instanceof QemuRunConfig && (executorId.equals(RUN_EXECUTOR) || executorId.equals(BENCHMARK_EXECUTOR)
+        || executorId.equals(PROFILE_EXECUTOR)));
   }
 
   @Override
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.qemu;
+
+import com.intellij.execution.process.ProcessAdapter;
+import com.intellij.execution.process.ProcessEvent;
+import com.intellij.execution.process.ProcessListener;
+import com.intellij.openapi.util.Key;
+import com.oliveryasuna.commons.language.condition.Arguments;
+import com.oliveryasuna.idea.qemu.instance.QemuInstance;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// A QEMU process started ahead of time and paused with an empty drive, waiting to be handed to a run.
+final class QemuWarmInstance {
+
+  // Constructors
+  //--------------------------------------------------
+
+  QemuWarmInstance(final QemuInstance instance, final String executable, final QemuLaunchPlan launchPlan, final OutputBuffer outputBuffer) {
+    super();
+
+    Arguments.requireNotNull(instance, "instance == null");
+    Arguments.requireNotNull(executable, "executable == null");
+    Arguments.requireNotNull(launchPlan, "launchPlan == null");
+    Arguments.requireNotNull(outputBuffer, "outputBuffer == null");
+
+    this.instance = instance;
+    this.executable = executable;
+    this.launchPlan = launchPlan;
+    this.outputBuffer = outputBuffer;
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final QemuInstance instance;
+
+  private final String executable;
+
+  private final QemuLaunchPlan launchPlan;
+
+  private final OutputBuffer outputBuffer;
+
+  // Methods
+  //--------------------------------------------------
+
+  // Whether a run with this executable and plan could use the instance as if it had started it itself.
+  final boolean matches(final String executable, final QemuLaunchPlan launchPlan) {
+    return (this.executable.equals(executable) && this.launchPlan.getArguments().equals(launchPlan.getArguments()));
+  }
+
+  final boolean isUsable() {
+    return (!instance.isTerminated() && instance.getQmpClient() != null && instance.getQmpClient().isConnected());
+  }
+
+  // Replays what the process printed while idle, then forwards everything to the listener.
+  final void handOver(final ProcessListener listener) {
+    instance.setPooled(false);
+
+    outputBuffer.forwardTo(listener);
+  }
+
+  // Getters/setters
+  //--------------------------------------------------
+
+  final QemuInstance getInstance() {
+    return instance;
+  }
+
+  final QemuLaunchPlan getLaunchPlan() {
+    return launchPlan;
+  }
+
+  // OutputBuffer class
+  //--------------------------------------------------
+
+  static final class OutputBuffer extends ProcessAdapter {
+
+    // Constructors
+    //--------------------------------------------------
+
+    OutputBuffer() {
+      super();
+    }
+
+    // Fields
+    //--------------------------------------------------
+
+    private final List<ProcessEvent> textEvents = new ArrayList<>();
+
+    private final List<Key> textTypes = new ArrayList<>();
+
+    private ProcessEvent terminatedEvent;
+
+    private ProcessListener target;
+
+    // Methods
+    //--------------------------------------------------
+
+    private synchronized void forwardTo(final ProcessListener listener) {
+      for(int i = 0; i < textEvents.size(); i++) {
+        listener.onTextAvailable(textEvents.get(i), textTypes.get(i));
+      }
+
+      textEvents.clear();
+      textTypes.clear();
+
+      if(terminatedEvent != null) {
+        listener.processTerminated(terminatedEvent);
+      }
+
+      target = listener;
+    }
+
+    // ProcessListener methods
+    //--------------------------------------------------
+
+    @Override
+    public final synchronized void onTextAvailable(final ProcessEvent event, final Key outputType) {
+      if(target != null) {
+        target.onTextAvailable(event, outputType);
+      } else {
+        textEvents.add(event);
+        textTypes.add(outputType);
+      }
+    }
+
+    @Override
+    public final synchronized void processTerminated(final ProcessEvent event) {
+      if(target != null) {
+        target.processTerminated(event);
+      } else {
+        terminatedEvent = event;
+      }
+    }
+
+  }
+
+}
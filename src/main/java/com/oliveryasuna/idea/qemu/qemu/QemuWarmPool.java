@@ -0,0 +1,247 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.qemu;
+
+import com.intellij.execution.ExecutionException;
+import com.intellij.execution.process.ProcessHandler;
+import com.intellij.execution.process.ProcessHandlerFactory;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.util.net.NetUtils;
+import com.oliveryasuna.commons.language.condition.Arguments;
+import com.oliveryasuna.idea.qemu.instance.QemuInstance;
+import com.oliveryasuna.idea.qemu.instance.QemuInstanceRegistry;
+import com.oliveryasuna.idea.qemu.qmp.QmpClient;
+import com.oliveryasuna.idea.qemu.run.config.QemuRunConfig;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+// Keeps QEMU processes started and paused ahead of time, per run configuration, so a launch only has to insert the image and resume.
+// Instances are started from a warm launch plan and are only handed out while the configuration still produces the same plan.
+public final class QemuWarmPool {
+
+  // Logging
+  //--------------------------------------------------
+
+  private static final Logger LOGGER = Logger.getInstance(QemuWarmPool.class);
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final Duration QMP_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+
+  // Static methods
+  //--------------------------------------------------
+
+  public static QemuWarmPool getInstance() {
+    return ApplicationManager.getApplication().getService(QemuWarmPool.class);
+  }
+
+  private static String createKey(final Project project, final QemuRunConfig runConfig) {
+    return project.getLocationHash() + '\n' + runConfig.getName();
+  }
+
+  // Warm instances are started before their run, so they cannot write the run's TCG plugin output, debug log or trace, and get their image
+  // as removable media.
+  private static boolean isEnabled(final QemuRunConfig runConfig) {
+    return (runConfig.getWarmPoolSize() > 0 && !runConfig.isKernelBoot() && !runConfig.isRestoreCheckpoint()
+        && runConfig.isBootImageInsertable() && StringUtils.isBlank(runConfig.getTcgPlugin()) && StringUtils.isBlank(runConfig.getDebugLogItems())
+        && StringUtils.isBlank(runConfig.getTraceEvents()));
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  public QemuWarmPool() {
+    super();
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  // Guarded by this.
+  private final Map<String, Deque<QemuWarmInstance>> pools = new HashMap<>();
+
+  // Guarded by this.
+  private final Map<String, Integer> startingCounts = new HashMap<>();
+
+  // Methods
+  //--------------------------------------------------
+
+  // Takes an idle instance matching the configuration, or returns null. Stale instances found on the way are shut down.
+  final synchronized QemuWarmInstance acquire(final Project project, final QemuRunConfig runConfig) {
+    Arguments.requireNotNull(project, "project == null");
+    Arguments.requireNotNull(runConfig, "runConfig == null");
+
+    if(!isEnabled(runConfig)) {
+      return null;
+    }
+
+    final Deque<QemuWarmInstance> pool = pools.get(createKey(project, runConfig));
+
+    if(pool == null) {
+      return null;
+    }
+
+    final QemuLaunchPlan launchPlan = QemuLaunchPlan.createWarm(runConfig);
+
+    QemuWarmInstance warmInstance;
+
+    while((warmInstance = pool.poll()) != null) {
+      if(warmInstance.isUsable() && warmInstance.matches(runConfig.getQemuExecutable(), launchPlan)) {
+        return warmInstance;
+      }
+
+      warmInstance.getInstance().shutdown(QemuInstanceRegistry.DEFAULT_SHUTDOWN_TIMEOUT);
+    }
+
+    return null;
+  }
+
+  // Starts instances in the background until the pool holds the configured number, as long as their guest memory stays within the
+  // configured limit.
+  public final void refill(final Project project, final QemuRunConfig runConfig) {
+    Arguments.requireNotNull(project, "project == null");
+    Arguments.requireNotNull(runConfig, "runConfig == null");
+
+    final String key = createKey(project, runConfig);
+
+    if(!isEnabled(runConfig)) {
+      drain(key);
+
+      return;
+    }
+
+    final String executable = runConfig.getQemuExecutable();
+    final QemuLaunchPlan launchPlan = QemuLaunchPlan.createWarm(runConfig);
+    final long memoryMib = Math.max(1, launchPlan.getGuestMemoryMib());
+
+    final int startCount;
+
+    synchronized(this) {
+      final Deque<QemuWarmInstance> pool = pools.computeIfAbsent(key, ignored -> new ArrayDeque<>());
+
+      pool.removeIf(warmInstance -> {
+        if(warmInstance.isUsable() && warmInstance.matches(executable, launchPlan)) {
+          return false;
+        }
+
+        warmInstance.getInstance().shutdown(QemuInstanceRegistry.DEFAULT_SHUTDOWN_TIMEOUT);
+
+        return true;
+      });
+
+      final int count = pool.size() + startingCounts.getOrDefault(key, 0);
+      final long affordable = runConfig.getWarmPoolMemoryLimit() / memoryMib;
+
+      startCount = (int)Math.max(0, Math.min(runConfig.getWarmPoolSize(), affordable) - count);
+
+      if(startCount > 0) {
+        startingCounts.merge(key, startCount, Integer::sum);
+      }
+    }
+
+    for(int i = 0; i < startCount; i++) {
+      ApplicationManager.getApplication().executeOnPooledThread(() -> start(project, runConfig.getName(), key, executable, launchPlan));
+    }
+  }
+
+  private void start(final Project project, final String configurationName, final String key, final String executable,
+      final QemuLaunchPlan launchPlan) {
+    final int qmpPort;
+    final ProcessHandler processHandler;
+
+    try {
+      qmpPort = NetUtils.findAvailableSocketPort();
+      processHandler = ProcessHandlerFactory.getInstance().createProcessHandler(launchPlan.createCommandLine(executable, qmpPort));
+    } catch(final IOException | ExecutionException e) {
+      LOGGER.warn(e); // TODO: Error reporting.
+
+      startFinished(key, null);
+
+      return;
+    }
+
+    final QemuWarmInstance.OutputBuffer outputBuffer = new QemuWarmInstance.OutputBuffer();
+
+    processHandler.addProcessListener(outputBuffer);
+
+    final QemuInstance instance = QemuInstanceRegistry.getInstance().register(project, configurationName, processHandler, qmpPort, 0, true);
+
+    processHandler.startNotify();
+
+    QmpClient.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), qmpPort), QMP_CONNECT_TIMEOUT)
+        .whenComplete((client, throwable) -> {
+          if(throwable != null) {
+            LOGGER.warn("Warm QEMU instance did not accept QMP connections.", throwable); // TODO: Error reporting.
+
+            instance.shutdown(QemuInstanceRegistry.DEFAULT_SHUTDOWN_TIMEOUT);
+
+            startFinished(key, null);
+
+            return;
+          }
+
+          instance.setQmpClient(client);
+
+          final QemuWarmInstance warmInstance = new QemuWarmInstance(instance, executable, launchPlan, outputBuffer);
+
+          instance.getTerminatedFuture().whenComplete((ignored, ignoredThrowable) -> {
+            client.close();
+
+            remove(key, warmInstance);
+          });
+
+          startFinished(key, warmInstance);
+        });
+  }
+
+  private synchronized void startFinished(final String key, final QemuWarmInstance warmInstance) {
+    startingCounts.computeIfPresent(key, (ignored, count) -> (count > 1 ? count - 1 : null));
+
+    if(warmInstance != null && !warmInstance.getInstance().isTerminated()) {
+      pools.computeIfAbsent(key, ignored -> new ArrayDeque<>()).add(warmInstance);
+    }
+  }
+
+  private synchronized void remove(final String key, final QemuWarmInstance warmInstance) {
+    final Deque<QemuWarmInstance> pool = pools.get(key);
+
+    if(pool != null) {
+      pool.remove(warmInstance);
+    }
+  }
+
+  private synchronized void drain(final String key) {
+    final Deque<QemuWarmInstance> pool = pools.remove(key);
+
+    if(pool != null) {
+      pool.forEach(warmInstance -> warmInstance.getInstance().shutdown(QemuInstanceRegistry.DEFAULT_SHUTDOWN_TIMEOUT));
+    }
+  }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.oliveryasuna.idea.qemu.qemu;
+
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.oliveryasuna.commons.language.condition.Arguments;
+import com.oliveryasuna.idea.qemu.qmp.QmpClient;
+
+import javax.swing.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+final class QmpAction extends DumbAwareAction {
+
+  // Logging
+  //--------------------------------------------------
+
+  private static final Logger LOGGER = Logger.getInstance(QmpAction.class);
+
+  // Constructors
+  //--------------------------------------------------
+
+  QmpAction(final String text, final String description, final Icon icon, final Supplier<QmpClient> client,
+      final Function<QmpClient, CompletableFuture<?>> command) {
+    super(text, description, icon);
+
+    Arguments.requireNotNull(client, "client == null");
+    Arguments.requireNotNull(command, "command == null");
+
+    this.client = client;
+    this.command = command;
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final Supplier<QmpClient> client;
+
+  private final Function<QmpClient, CompletableFuture<?>> command;
+
+  // AnAction methods
+  //--------------------------------------------------
+
+  @Override
+  public final void update(final AnActionEvent event) {
+    final QmpClient qmpClient = client.get();
+
+    event.getPresentation().setEnabled(qmpClient != null && qmpClient.isConnected());
+  }
+
+  @Override
+  public final void actionPerformed(final AnActionEvent event) {
+    final QmpClient qmpClient = client.get();
+
+    if(qmpClient == null) {
+      return;
+    }
+
+    command.apply(qmpClient).exceptionally(throwable -> {
+      LOGGER.warn(throwable); // TODO: Error reporting.
+
+      return null;
+    });
+  }
+
+}
@@ -0,0 +1,402 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.oliveryasuna.idea.qemu.qmp;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.intellij.openapi.diagnostic.Logger;
+import com.oliveryasuna.commons.language.condition.Arguments;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// QEMU Machine Protocol client. All I/O is asynchronous: commands return futures correlated with their responses through the "id" member, and
+// asynchronous events are dispatched to listeners on the channel's completion thread.
+public final class QmpClient implements Closeable {
+
+  // Logging
+  //--------------------------------------------------
+
+  private static final Logger LOGGER = Logger.getInstance(QmpClient.class);
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final long CONNECT_RETRY_MILLIS = 50;
+
+  private static final int READ_BUFFER_SIZE = 8192;
+
+  // Static methods
+  //--------------------------------------------------
+
+  // QEMU opens the monitor socket some time after the process starts, so refused connections are retried until the timeout elapses.
+  public static CompletableFuture<QmpClient> connect(final InetSocketAddress address, final Duration timeout) {
+    Arguments.requireNotNull(address, "address == null");
+    Arguments.requireNotNull(timeout, "timeout == null");
+
+    final CompletableFuture<QmpClient> result = new CompletableFuture<>();
+
+    tryConnect(address, System.nanoTime() + timeout.toNanos(), result);
+
+    return result;
+  }
+
+  private static void tryConnect(final InetSocketAddress address, final long deadline, final CompletableFuture<QmpClient> result) {
+    final AsynchronousSocketChannel channel;
+
+    try {
+      channel = AsynchronousSocketChannel.open();
+    } catch(final IOException e) {
+      result.completeExceptionally(e);
+
+      return;
+    }
+
+    channel.connect(address, null, new CompletionHandler<Void, Void>() {
+      @Override
+      public void completed(final Void ignored, final Void attachment) {
+        final QmpClient client = new QmpClient(channel);
+
+        client.handshake().whenComplete((greeting, throwable) -> {
+          if(throwable != null) {
+            client.close();
+
+            result.completeExceptionally(throwable);
+          } else {
+            result.complete(client);
+          }
+        });
+      }
+
+      @Override
+      public void failed(final Throwable throwable, final Void attachment) {
+        closeQuietly(channel);
+
+        if(result.isDone()) {
+          return;
+        }
+
+        if(System.nanoTime() - deadline >= 0) {
+          result.completeExceptionally(new QmpException("Could not connect to QMP at " + address + ".", throwable));
+        } else {
+          CompletableFuture.delayedExecutor(CONNECT_RETRY_MILLIS, TimeUnit.MILLISECONDS)
+              .execute(() -> tryConnect(address, deadline, result));
+        }
+      }
+    });
+  }
+
+  private static void closeQuietly(final AsynchronousSocketChannel channel) {
+    try {
+      channel.close();
+    } catch(final IOException e) {
+      LOGGER.debug(e);
+    }
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  private QmpClient(final AsynchronousSocketChannel channel) {
+    super();
+
+    this.channel = channel;
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final AsynchronousSocketChannel channel;
+
+  private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+  private final ByteArrayOutputStream lineBuffer = new ByteArrayOutputStream();
+
+  private final Queue<ByteBuffer> writeQueue = new ArrayDeque<>();
+
+  private boolean writing;
+
+  private final AtomicLong nextCommandId = new AtomicLong();
+
+  private final Map<Long, CompletableFuture<JsonElement>> pendingCommands = new ConcurrentHashMap<>();
+
+  private final List<QmpEventListener> eventListeners = new CopyOnWriteArrayList<>();
+
+  private final CompletableFuture<JsonObject> greeting = new CompletableFuture<>();
+
+  private final CompletableFuture<Void> closed = new CompletableFuture<>();
+
+  // Methods
+  //--------------------------------------------------
+
+  public final CompletableFuture<JsonElement> execute(final String command) {
+    return execute(command, null);
+  }
+
+  public final CompletableFuture<JsonElement> execute(final String command, final JsonObject arguments) {
+    Arguments.requireNotNull(command, "command == null");
+
+    final long id = nextCommandId.incrementAndGet();
+    final CompletableFuture<JsonElement> response = new CompletableFuture<>();
+    final JsonObject message = new JsonObject();
+
+    message.addProperty("execute", command);
+
+    if(arguments != null) {
+      message.add("arguments", arguments);
+    }
+
+    message.addProperty("id", id);
+
+    pendingCommands.put(id, response);
+
+    if(closed.isDone()) {
+      pendingCommands.remove(id);
+
+      response.completeExceptionally(new QmpException("QMP connection is closed."));
+
+      return response;
+    }
+
+    write(message.toString() + "\r\n");
+
+    return response;
+  }
+
+  public final CompletableFuture<JsonElement> stop() {
+    return execute("stop");
+  }
+
+  public final CompletableFuture<JsonElement> cont() {
+    return execute("cont");
+  }
+
+  public final CompletableFuture<JsonElement> systemReset() {
+    return execute("system_reset");
+  }
+
+  public final CompletableFuture<JsonElement> systemPowerdown() {
+    return execute("system_powerdown");
+  }
+
+  public final CompletableFuture<JsonElement> quit() {
+    return execute("quit");
+  }
+
+  public final CompletableFuture<JsonElement> queryStatus() {
+    return execute("query-status");
+  }
+
+  public final void addEventListener(final QmpEventListener listener) {
+    Arguments.requireNotNull(listener, "listener == null");
+
+    eventListeners.add(listener);
+  }
+
+  public final void removeEventListener(final QmpEventListener listener) {
+    eventListeners.remove(listener);
+  }
+
+  public final boolean isConnected() {
+    return !closed.isDone();
+  }
+
+  public final CompletableFuture<Void> getClosedFuture() {
+    return closed;
+  }
+
+  private CompletableFuture<JsonElement> handshake() {
+    read();
+
+    return greeting.thenCompose(ignored -> execute("qmp_capabilities"));
+  }
+
+  private void read() {
+    channel.read(readBuffer, null, new CompletionHandler<Integer, Void>() {
+      @Override
+      public void completed(final Integer count, final Void attachment) {
+        if(count < 0) {
+          close();
+
+          return;
+        }
+
+        readBuffer.flip();
+
+        while(readBuffer.hasRemaining()) {
+          final byte b = readBuffer.get();
+
+          if(b == '\n') {
+            messageReceived(new String(lineBuffer.toByteArray(), StandardCharsets.UTF_8).trim());
+
+            lineBuffer.reset();
+          } else {
+            lineBuffer.write(b);
+          }
+        }
+
+        readBuffer.clear();
+
+        read();
+      }
+
+      @Override
+      public void failed(final Throwable throwable, final Void attachment) {
+        close();
+      }
+    });
+  }
+
+  private void messageReceived(final String line) {
+    if(line.isEmpty()) {
+      return;
+    }
+
+    final JsonObject message;
+
+    try {
+      message = JsonParser.parseString(line).getAsJsonObject();
+    } catch(final JsonParseException | IllegalStateException e) {
+      LOGGER.warn("Malformed QMP message: " + line, e);
+
+      return;
+    }
+
+    if(message.has("QMP")) {
+      greeting.complete(message.getAsJsonObject("QMP"));
+    } else if(message.has("event")) {
+      eventReceived(message);
+    } else if(message.has("id")) {
+      final CompletableFuture<JsonElement> response = pendingCommands.remove(message.get("id").getAsLong());
+
+      if(response == null) {
+        return;
+      }
+
+      if(message.has("error")) {
+        final JsonObject error = message.getAsJsonObject("error");
+
+        response.completeExceptionally(new QmpException(error.get("class").getAsString(), error.get("desc").getAsString()));
+      } else {
+        response.complete(message.get("return"));
+      }
+    }
+  }
+
+  private void eventReceived(final JsonObject message) {
+    final JsonObject data = (message.has("data") ? message.getAsJsonObject("data") : new JsonObject());
+    long timestampMicros = 0;
+
+    if(message.has("timestamp")) {
+      final JsonObject timestamp = message.getAsJsonObject("timestamp");
+
+      timestampMicros = timestamp.get("seconds").getAsLong() * 1_000_000L + timestamp.get("microseconds").getAsLong();
+    }
+
+    final QmpEvent event = new QmpEvent(message.get("event").getAsString(), data, timestampMicros);
+
+    for(final QmpEventListener listener : eventListeners) {
+      try {
+        listener.eventReceived(event);
+      } catch(final RuntimeException e) {
+        LOGGER.error(e);
+      }
+    }
+  }
+
+  private void write(final String message) {
+    synchronized(writeQueue) {
+      writeQueue.add(ByteBuffer.wrap(message.getBytes(StandardCharsets.UTF_8)));
+
+      if(!writing) {
+        writing = true;
+
+        writeNext();
+      }
+    }
+  }
+
+  // Must be called while holding the writeQueue lock. Only one write may be outstanding on an asynchronous channel.
+  private void writeNext() {
+    final ByteBuffer buffer = writeQueue.peek();
+
+    if(buffer == null) {
+      writing = false;
+
+      return;
+    }
+
+    channel.write(buffer, null, new CompletionHandler<Integer, Void>() {
+      @Override
+      public void completed(final Integer count, final Void attachment) {
+        synchronized(writeQueue) {
+          if(!buffer.hasRemaining()) {
+            writeQueue.remove();
+          }
+
+          writeNext();
+        }
+      }
+
+      @Override
+      public void failed(final Throwable throwable, final Void attachment) {
+        close();
+      }
+    });
+  }
+
+  // Closeable methods
+  //--------------------------------------------------
+
+  @Override
+  public final void close() {
+    if(!closed.complete(null)) {
+      return;
+    }
+
+    closeQuietly(channel);
+
+    final QmpException exception = new QmpException("QMP connection closed.");
+
+    greeting.completeExceptionally(exception);
+
+    pendingCommands.values().forEach(response -> response.completeExceptionally(exception));
+    pendingCommands.clear();
+
+    synchronized(writeQueue) {
+      writeQueue.clear();
+    }
+  }
+
+}
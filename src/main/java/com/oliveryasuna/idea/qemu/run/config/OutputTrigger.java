@@ -0,0 +1,212 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.run.config;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+// Something to do when a literal pattern appears in the guest's output. Each trigger fires at most once per run.
+public final class OutputTrigger {
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final String FIELD_SEPARATOR = "\t";
+
+  // Static methods
+  //--------------------------------------------------
+
+  // Stored one per line as action, argument, pattern, separated by tabs. The pattern is last, so it may itself contain tabs.
+  static List<OutputTrigger> parseAll(final String text) {
+    final List<OutputTrigger> triggers = new ArrayList<>();
+
+    if(text == null) {
+      return triggers;
+    }
+
+    for(final String line : text.split("\n")) {
+      final String[] fields = line.split(FIELD_SEPARATOR, 3);
+
+      if(fields.length < 3) {
+        continue;
+      }
+
+      try {
+        triggers.add(new OutputTrigger(fields[2], Action.valueOf(fields[0]), fields[1]));
+      } catch(final IllegalArgumentException e) {
+        // Unknown action; written by a newer version.
+      }
+    }
+
+    return triggers;
+  }
+
+  static String formatAll(final List<OutputTrigger> triggers) {
+    final StringBuilder text = new StringBuilder();
+
+    for(final OutputTrigger trigger : triggers) {
+      if(StringUtils.isEmpty(trigger.getPattern())) {
+        continue;
+      }
+
+      text.append(trigger.getAction().name())
+          .append(FIELD_SEPARATOR)
+          .append(StringUtils.defaultString(trigger.getArgument()).replaceAll("[\t\n]", " "))
+          .append(FIELD_SEPARATOR)
+          .append(trigger.getPattern().replace('\n', ' '))
+          .append('\n');
+    }
+
+    return (text.length() == 0 ? null : text.toString());
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  public OutputTrigger() {
+    this("", Action.MARK_BOOT_COMPLETE, "");
+  }
+
+  public OutputTrigger(final String pattern, final Action action, final String argument) {
+    super();
+
+    this.pattern = pattern;
+    this.action = action;
+    this.argument = argument;
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private String pattern;
+
+  private Action action;
+
+  private String argument;
+
+  // Methods
+  //--------------------------------------------------
+
+  // For END_RUN: 0 when no argument is given, 1 when it is not a number.
+  public final int getExitCode() {
+    if(StringUtils.isBlank(argument)) {
+      return 0;
+    }
+
+    try {
+      return Integer.parseInt(argument.trim());
+    } catch(final NumberFormatException e) {
+      return 1;
+    }
+  }
+
+  // Getters/setters
+  //--------------------------------------------------
+
+  public final String getPattern() {
+    return pattern;
+  }
+
+  public final void setPattern(final String pattern) {
+    this.pattern = pattern;
+  }
+
+  public final Action getAction() {
+    return action;
+  }
+
+  public final void setAction(final Action action) {
+    this.action = action;
+  }
+
+  public final String getArgument() {
+    return argument;
+  }
+
+  public final void setArgument(final String argument) {
+    this.argument = argument;
+  }
+
+  // Object methods
+  //--------------------------------------------------
+
+  @Override
+  public final boolean equals(final Object other) {
+    if(this == other) return true;
+    if(!(other instanceof OutputTrigger)) return false;
+
+    final OutputTrigger trigger = (OutputTrigger)other;
+
+    return (Objects.equals(pattern, trigger.pattern) && action == trigger.action && Objects.equals(argument, trigger.argument));
+  }
+
+  @Override
+  public final int hashCode() {
+    return Objects.hash(pattern, action, argument);
+  }
+
+  // Action enum
+  //--------------------------------------------------
+
+  public enum Action {
+
+    // Record the boot complete phase of the launch timing.
+    MARK_BOOT_COMPLETE("Mark boot complete"),
+
+    // Stop QEMU and end the run. The argument is the exit code, 0 by default.
+    END_RUN("End run (exit code)"),
+
+    // Debug another run configuration, e.g. a GDB remote one. The argument is its name.
+    DEBUG_CONFIGURATION("Debug configuration (name)"),
+
+    // Invoke an IDE action. The argument is its ID.
+    RUN_IDE_ACTION("Run IDE action (ID)");
+
+    // Constructors
+    //--------------------------------------------------
+
+    Action(final String description) {
+      this.description = description;
+    }
+
+    // Fields
+    //--------------------------------------------------
+
+    private final String description;
+
+    // Getters/setters
+    //--------------------------------------------------
+
+    public final String getDescription() {
+      return description;
+    }
+
+    // Object methods
+    //--------------------------------------------------
+
+    @Override
+    public final String toString() {
+      return description;
+    }
+
+  }
+
+}
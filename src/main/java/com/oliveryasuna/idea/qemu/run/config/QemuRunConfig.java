@@ -24,13 +24,31 @@ import com.intellij.execution.configurations.ConfigurationFactory;
 import com.intellij.execution.configurations.RunConfiguration;
 import com.intellij.execution.configurations.RunConfigurationBase;
 import com.intellij.execution.configurations.RunProfileState;
+import com.intellij.execution.configurations.RuntimeConfigurationError;
+import com.intellij.execution.configurations.RuntimeConfigurationException;
+import com.intellij.execution.configurations.RuntimeConfigurationWarning;
 import com.intellij.execution.executors.DefaultRunExecutor;
 import com.intellij.execution.runners.ExecutionEnvironment;
 import com.intellij.openapi.options.SettingsEditor;
 import com.intellij.openapi.project.Project;
 import com.jetbrains.cidr.cpp.cmake.model.CMakeTarget;
+import com.oliveryasuna.idea.qemu.args.QemuArgumentValidator;
+import com.oliveryasuna.idea.qemu.args.QemuArguments;
+import com.oliveryasuna.idea.qemu.benchmark.QemuBenchmarkExecutor;
+import com.oliveryasuna.idea.qemu.benchmark.QemuBootBenchmarkState;
+import com.oliveryasuna.idea.qemu.executable.QemuCapabilities;
+import com.oliveryasuna.idea.qemu.executable.QemuCapabilityProber;
+import com.oliveryasuna.idea.qemu.profiler.QemuProfileExecutor;
+import com.oliveryasuna.idea.qemu.qemu.QemuCheckpointStore;
 import com.oliveryasuna.idea.qemu.qemu.QemuCommandLineState;
+import com.oliveryasuna.idea.qemu.qemu.QemuLaunchPlan;
 import com.oliveryasuna.idea.qemu.run.config.ui.QemuRunConfigEditor;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
 
 public final class QemuRunConfig extends RunConfigurationBase<QemuRunConfigOptions> {
 
@@ -41,6 +59,13 @@ public final class QemuRunConfig extends RunConfigurationBase<QemuRunConfigOptio
     super(project, factory, name);
   }
 
+  // Fields
+  //--------------------------------------------------
+
+  private QemuLaunchPlan launchPlan;
+
+  private List<Object> launchPlanKey;
+
   // Option getters/setters
   //--------------------------------------------------
 
@@ -60,6 +85,10 @@ public final class QemuRunConfig extends RunConfigurationBase<QemuRunConfigOptio
     getOptions().setQemuArguments(qemuArguments);
   }
 
+  public final QemuArguments getQemuArgumentModel() {
+    return getOptions().getQemuArgumentModel();
+  }
+
   public final QemuRunConfigOptions.DiskImageSource getDiskImageSource() {
     return getOptions().getDiskImageSource();
   }
@@ -92,6 +121,46 @@ public final class QemuRunConfig extends RunConfigurationBase<QemuRunConfigOptio
     getOptions().setKernelFile(kernelFile);
   }
 
+  public final boolean isDirectKernelBoot() {
+    return getOptions().isDirectKernelBoot();
+  }
+
+  public final void setDirectKernelBoot(final boolean directKernelBoot) {
+    getOptions().setDirectKernelBoot(directKernelBoot);
+  }
+
+  public final String getInitrdFile() {
+    return getOptions().getInitrdFile();
+  }
+
+  public final void setInitrdFile(final String initrdFile) {
+    getOptions().setInitrdFile(initrdFile);
+  }
+
+  public final String getKernelCommandLine() {
+    return getOptions().getKernelCommandLine();
+  }
+
+  public final void setKernelCommandLine(final String kernelCommandLine) {
+    getOptions().setKernelCommandLine(kernelCommandLine);
+  }
+
+  public final boolean isPipelinedLaunch() {
+    return getOptions().isPipelinedLaunch();
+  }
+
+  public final void setPipelinedLaunch(final boolean pipelinedLaunch) {
+    getOptions().setPipelinedLaunch(pipelinedLaunch);
+  }
+
+  public final boolean isRestoreCheckpoint() {
+    return getOptions().isRestoreCheckpoint();
+  }
+
+  public final void setRestoreCheckpoint(final boolean restoreCheckpoint) {
+    getOptions().setRestoreCheckpoint(restoreCheckpoint);
+  }
+
   public final boolean isEnableGdb() {
     return getOptions().isEnableGdb();
   }
@@ -116,6 +185,238 @@ public final class QemuRunConfig extends RunConfigurationBase<QemuRunConfigOptio
     getOptions().setQemuWaitForGdb(qemuWaitForGdb);
   }
 
+  public final QemuRunConfigOptions.AccelerationMode getAccelerationMode() {
+    return getOptions().getAccelerationMode();
+  }
+
+  public final void setAccelerationMode(final QemuRunConfigOptions.AccelerationMode accelerationMode) {
+    getOptions().setAccelerationMode(accelerationMode);
+  }
+
+  public final int getVcpuCount() {
+    return getOptions().getVcpuCount();
+  }
+
+  public final void setVcpuCount(final int vcpuCount) {
+    getOptions().setVcpuCount(vcpuCount);
+  }
+
+  public final QemuRunConfigOptions.DiskIoProfile getDiskIoProfile() {
+    return getOptions().getDiskIoProfile();
+  }
+
+  public final void setDiskIoProfile(final QemuRunConfigOptions.DiskIoProfile diskIoProfile) {
+    getOptions().setDiskIoProfile(diskIoProfile);
+  }
+
+  public final QemuRunConfigOptions.DiskCacheMode getDiskCacheMode() {
+    return getOptions().getDiskCacheMode();
+  }
+
+  public final void setDiskCacheMode(final QemuRunConfigOptions.DiskCacheMode diskCacheMode) {
+    getOptions().setDiskCacheMode(diskCacheMode);
+  }
+
+  public final boolean isUseOverlay() {
+    return getOptions().isUseOverlay();
+  }
+
+  public final void setUseOverlay(final boolean useOverlay) {
+    getOptions().setUseOverlay(useOverlay);
+  }
+
+  public final boolean isReuseOverlay() {
+    return getOptions().isReuseOverlay();
+  }
+
+  public final void setReuseOverlay(final boolean reuseOverlay) {
+    getOptions().setReuseOverlay(reuseOverlay);
+  }
+
+  public final int getWarmPoolSize() {
+    return getOptions().getWarmPoolSize();
+  }
+
+  public final void setWarmPoolSize(final int warmPoolSize) {
+    getOptions().setWarmPoolSize(warmPoolSize);
+  }
+
+  public final int getWarmPoolMemoryLimit() {
+    return getOptions().getWarmPoolMemoryLimit();
+  }
+
+  public final void setWarmPoolMemoryLimit(final int warmPoolMemoryLimit) {
+    getOptions().setWarmPoolMemoryLimit(warmPoolMemoryLimit);
+  }
+
+  public final String getBootCompleteMarker() {
+    return getOptions().getBootCompleteMarker();
+  }
+
+  public final void setBootCompleteMarker(final String bootCompleteMarker) {
+    getOptions().setBootCompleteMarker(bootCompleteMarker);
+  }
+
+  public final List<OutputTrigger> getOutputTriggers() {
+    return getOptions().getOutputTriggers();
+  }
+
+  public final void setOutputTriggers(final List<OutputTrigger> outputTriggers) {
+    getOptions().setOutputTriggers(outputTriggers);
+  }
+
+  public final int getBenchmarkIterations() {
+    return getOptions().getBenchmarkIterations();
+  }
+
+  public final void setBenchmarkIterations(final int benchmarkIterations) {
+    getOptions().setBenchmarkIterations(benchmarkIterations);
+  }
+
+  public final int getBenchmarkWarmupIterations() {
+    return getOptions().getBenchmarkWarmupIterations();
+  }
+
+  public final void setBenchmarkWarmupIterations(final int benchmarkWarmupIterations) {
+    getOptions().setBenchmarkWarmupIterations(benchmarkWarmupIterations);
+  }
+
+  public final int getBenchmarkConcurrency() {
+    return getOptions().getBenchmarkConcurrency();
+  }
+
+  public final void setBenchmarkConcurrency(final int benchmarkConcurrency) {
+    getOptions().setBenchmarkConcurrency(benchmarkConcurrency);
+  }
+
+  public final int getBenchmarkTimeout() {
+    return getOptions().getBenchmarkTimeout();
+  }
+
+  public final void setBenchmarkTimeout(final int benchmarkTimeout) {
+    getOptions().setBenchmarkTimeout(benchmarkTimeout);
+  }
+
+  public final int getMonitorSampleInterval() {
+    return getOptions().getMonitorSampleInterval();
+  }
+
+  public final void setMonitorSampleInterval(final int monitorSampleInterval) {
+    getOptions().setMonitorSampleInterval(monitorSampleInterval);
+  }
+
+  public final int getProfilerSampleRate() {
+    return getOptions().getProfilerSampleRate();
+  }
+
+  public final void setProfilerSampleRate(final int profilerSampleRate) {
+    getOptions().setProfilerSampleRate(profilerSampleRate);
+  }
+
+  public final String getTcgPlugin() {
+    return getOptions().getTcgPlugin();
+  }
+
+  public final void setTcgPlugin(final String tcgPlugin) {
+    getOptions().setTcgPlugin(tcgPlugin);
+  }
+
+  public final String getTcgPluginArguments() {
+    return getOptions().getTcgPluginArguments();
+  }
+
+  public final void setTcgPluginArguments(final String tcgPluginArguments) {
+    getOptions().setTcgPluginArguments(tcgPluginArguments);
+  }
+
+  public final String getDebugLogItems() {
+    return getOptions().getDebugLogItems();
+  }
+
+  public final void setDebugLogItems(final String debugLogItems) {
+    getOptions().setDebugLogItems(debugLogItems);
+  }
+
+  public final String getTraceEvents() {
+    return getOptions().getTraceEvents();
+  }
+
+  public final void setTraceEvents(final String traceEvents) {
+    getOptions().setTraceEvents(traceEvents);
+  }
+
+  // Methods
+  //--------------------------------------------------
+
+  // The boot image goes to -kernel instead of being attached as a disk.
+  public final boolean isKernelBoot() {
+    return (getDiskImageSource() == QemuRunConfigOptions.DiskImageSource.KERNEL_FILE
+        || (getDiskImageSource() == QemuRunConfigOptions.DiskImageSource.CMAKE_TARGET && isDirectKernelBoot()));
+  }
+
+  // QEMU starts alongside the CMake build and the product is inserted once it exists. Restoring a checkpoint needs the final image at startup.
+  public final boolean isPipelinedLaunchApplicable() {
+    return (isPipelinedLaunch() && !isRestoreCheckpoint() && getDiskImageSource() == QemuRunConfigOptions.DiskImageSource.CMAKE_TARGET
+        && !isKernelBoot() && isBootImageInsertable());
+  }
+
+  // Pipelined and warm launches insert the image into a running QEMU as read-only removable media. Only the CD-ROM profile without an
+  // overlay boots that way, so other disk setups start QEMU with the image instead of being downgraded.
+  public final boolean isBootImageInsertable() {
+    return (getDiskIoProfile() == QemuRunConfigOptions.DiskIoProfile.CDROM && !isUseOverlay());
+  }
+
+  private void checkOutputTrigger(final OutputTrigger trigger) throws RuntimeConfigurationException {
+    switch(trigger.getAction()) {
+      case END_RUN:
+        if(StringUtils.isNotBlank(trigger.getArgument()) && !trigger.getArgument().trim().matches("-?\\d{1,9}")) {
+          throw new RuntimeConfigurationWarning("Output trigger \"" + trigger.getPattern() + "\" needs a numeric exit code.");
+        }
+
+        break;
+      case DEBUG_CONFIGURATION:
+      case RUN_IDE_ACTION:
+        if(StringUtils.isBlank(trigger.getArgument())) {
+          throw new RuntimeConfigurationWarning("Output trigger \"" + trigger.getPattern() + "\" has no target.");
+        }
+
+        break;
+    }
+  }
+
+  public final Optional<QemuCapabilities> getQemuCapabilities() {
+    return QemuCapabilityProber.getInstance().getCachedCapabilities(getQemuExecutable());
+  }
+
+  public final synchronized QemuLaunchPlan getLaunchPlan(final File bootImage) {
+    final Optional<QemuCapabilities> capabilities = getQemuCapabilities();
+    final List<Object> key = Arrays.asList(getOptions().getModificationCount(), bootImage.getAbsolutePath(), capabilities.orElse(null));
+
+    if(launchPlan == null || !key.equals(launchPlanKey)) {
+      launchPlan = QemuLaunchPlan.create(this, bootImage, capabilities);
+      launchPlanKey = key;
+    }
+
+    return launchPlan;
+  }
+
+  public final synchronized QemuLaunchPlan getPipelinedLaunchPlan() {
+    final List<Object> key = Arrays.asList(getOptions().getModificationCount(), null, getQemuCapabilities().orElse(null));
+
+    if(launchPlan == null || !key.equals(launchPlanKey)) {
+      launchPlan = QemuLaunchPlan.createPipelined(this);
+      launchPlanKey = key;
+    }
+
+    return launchPlan;
+  }
+
+  public final List<String> validateQemuArguments() {
+    return getQemuCapabilities()
+        .map(capabilities -> QemuArgumentValidator.validate(getQemuArgumentModel(), capabilities))
+        .orElse(List.of());
+  }
+
   // RunConfigurationBase methods
   //--------------------------------------------------
 
@@ -132,12 +433,61 @@ public final class QemuRunConfig extends RunConfigurationBase<QemuRunConfigOptio
     return new QemuRunConfigEditor(getProject());
   }
 
+  @Override
+  public final void checkConfiguration() throws RuntimeConfigurationException {
+    if(StringUtils.isBlank(getQemuExecutable())) {
+      throw new RuntimeConfigurationError("QEMU executable is not set.");
+    }
+
+    if(getDiskImageSource() == QemuRunConfigOptions.DiskImageSource.KERNEL_FILE && StringUtils.isBlank(getKernelFile())) {
+      throw new RuntimeConfigurationError("Kernel file is not set.");
+    }
+
+    final Optional<QemuCapabilities> capabilities = getQemuCapabilities();
+
+    if(capabilities.isEmpty()) {
+      // Warm the cache so the launch does not have to wait for a probe.
+      QemuCapabilityProber.getInstance().getCapabilities(getQemuExecutable());
+    } else if(!capabilities.get().wasProbed()) {
+      throw new RuntimeConfigurationWarning("QEMU executable did not report its version.");
+    }
+
+    final List<String> argumentProblems = validateQemuArguments();
+
+    if(!argumentProblems.isEmpty()) {
+      throw new RuntimeConfigurationWarning(String.join(" ", argumentProblems));
+    }
+
+    for(final OutputTrigger trigger : getOutputTriggers()) {
+      checkOutputTrigger(trigger);
+    }
+
+    if(isRestoreCheckpoint()) {
+      final File bootImage = (getDiskImageSource() == QemuRunConfigOptions.DiskImageSource.CDROM_FILE && StringUtils.isNotBlank(getCdromFile())
+          ? new File(getCdromFile())
+          : null);
+      final String unsupportedReason = QemuCheckpointStore.getUnsupportedReason(this, bootImage, null);
+
+      if(unsupportedReason != null) {
+        throw new RuntimeConfigurationWarning("Checkpoints cannot be restored: " + unsupportedReason);
+      }
+    }
+  }
+
   // RunProfile methods
   //--------------------------------------------------
 
   @Override
   public final RunProfileState getState(final Executor executor, final ExecutionEnvironment environment) throws ExecutionException {
     if(executor instanceof DefaultRunExecutor) {
+      return new QemuCommandLineState(environment, this);
+    } else if(executor instanceof QemuBenchmarkExecutor) {
+      return new QemuBootBenchmarkState(environment, this);
+    } else if(executor instanceof QemuProfileExecutor) {
+      if(!isEnableGdb()) {
+        throw new ExecutionException("Profiling samples the guest through the GDB stub. Enable it in the run configuration.");
+      }
+
       return new QemuCommandLineState(environment, this);
     } else {
       //noinspection DialogTitleCapitalization
@@ -20,9 +20,12 @@ package com.oliveryasuna.idea.qemu.run.config;
 
 import com.intellij.execution.configurations.RunConfigurationOptions;
 import com.intellij.openapi.components.StoredProperty;
+import com.intellij.util.xmlb.annotations.Transient;
 import com.jetbrains.cidr.cpp.cmake.model.CMakeTarget;
 import com.oliveryasuna.commons.language.condition.Arguments;
+import com.oliveryasuna.idea.qemu.args.QemuArguments;
 
+import java.util.List;
 import java.util.Objects;
 
 public final class QemuRunConfigOptions extends RunConfigurationOptions {
@@ -32,6 +35,18 @@ public final class QemuRunConfigOptions extends RunConfigurationOptions {
 
   public static final int DEFAULT_GDB_TCP_PORT = 2345;
 
+  public static final int DEFAULT_WARM_POOL_MEMORY_LIMIT = 2048;
+
+  public static final int DEFAULT_BENCHMARK_ITERATIONS = 10;
+
+  public static final int DEFAULT_BENCHMARK_WARMUP_ITERATIONS = 2;
+
+  public static final int DEFAULT_BENCHMARK_TIMEOUT = 120;
+
+  public static final int DEFAULT_MONITOR_SAMPLE_INTERVAL = 1000;
+
+  public static final int DEFAULT_PROFILER_SAMPLE_RATE = 50;
+
   // Constructors
   //--------------------------------------------------
 
@@ -60,6 +75,21 @@ public final class QemuRunConfigOptions extends RunConfigurationOptions {
   private final StoredProperty<String> kernelFile = string(null)
       .provideDelegate(this, "kernelFile");
 
+  private final StoredProperty<Boolean> directKernelBoot = property(false)
+      .provideDelegate(this, "directKernelBoot");
+
+  private final StoredProperty<String> initrdFile = string(null)
+      .provideDelegate(this, "initrdFile");
+
+  private final StoredProperty<String> kernelCommandLine = string(null)
+      .provideDelegate(this, "kernelCommandLine");
+
+  private final StoredProperty<Boolean> pipelinedLaunch = property(false)
+      .provideDelegate(this, "pipelinedLaunch");
+
+  private final StoredProperty<Boolean> restoreCheckpoint = property(false)
+      .provideDelegate(this, "restoreCheckpoint");
+
   private final StoredProperty<Boolean> enableGdb = property(true)
       .provideDelegate(this, "enableGdb");
 
@@ -69,6 +99,80 @@ public final class QemuRunConfigOptions extends RunConfigurationOptions {
   private final StoredProperty<Boolean> qemuWaitForGdb = property(true)
       .provideDelegate(this, "qemuWaitForGdb");
 
+  private final StoredProperty<AccelerationMode> accelerationMode = doEnum(AccelerationMode.AUTO, AccelerationMode.class)
+      .provideDelegate(this, "accelerationMode");
+
+  private final StoredProperty<Integer> vcpuCount = property(0)
+      .provideDelegate(this, "vcpuCount");
+
+  private final StoredProperty<DiskIoProfile> diskIoProfile = doEnum(DiskIoProfile.CDROM, DiskIoProfile.class)
+      .provideDelegate(this, "diskIoProfile");
+
+  private final StoredProperty<DiskCacheMode> diskCacheMode = doEnum(DiskCacheMode.WRITEBACK, DiskCacheMode.class)
+      .provideDelegate(this, "diskCacheMode");
+
+  private final StoredProperty<Boolean> useOverlay = property(false)
+      .provideDelegate(this, "useOverlay");
+
+  private final StoredProperty<Boolean> reuseOverlay = property(false)
+      .provideDelegate(this, "reuseOverlay");
+
+  private final StoredProperty<Integer> warmPoolSize = property(0)
+      .provideDelegate(this, "warmPoolSize");
+
+  // MiB.
+  private final StoredProperty<Integer> warmPoolMemoryLimit = property(DEFAULT_WARM_POOL_MEMORY_LIMIT)
+      .provideDelegate(this, "warmPoolMemoryLimit");
+
+  private final StoredProperty<String> bootCompleteMarker = string(null)
+      .provideDelegate(this, "bootCompleteMarker");
+
+  private final StoredProperty<String> outputTriggers = string(null)
+      .provideDelegate(this, "outputTriggers");
+
+  private final StoredProperty<Integer> benchmarkIterations = property(DEFAULT_BENCHMARK_ITERATIONS)
+      .provideDelegate(this, "benchmarkIterations");
+
+  private final StoredProperty<Integer> benchmarkWarmupIterations = property(DEFAULT_BENCHMARK_WARMUP_ITERATIONS)
+      .provideDelegate(this, "benchmarkWarmupIterations");
+
+  private final StoredProperty<Integer> benchmarkConcurrency = property(1)
+      .provideDelegate(this, "benchmarkConcurrency");
+
+  // Seconds.
+  private final StoredProperty<Integer> benchmarkTimeout = property(DEFAULT_BENCHMARK_TIMEOUT)
+      .provideDelegate(this, "benchmarkTimeout");
+
+  // Milliseconds. Zero disables the performance monitor.
+  private final StoredProperty<Integer> monitorSampleInterval = property(DEFAULT_MONITOR_SAMPLE_INTERVAL)
+      .provideDelegate(this, "monitorSampleInterval");
+
+  // Samples per second.
+  private final StoredProperty<Integer> profilerSampleRate = property(DEFAULT_PROFILER_SAMPLE_RATE)
+      .provideDelegate(this, "profilerSampleRate");
+
+  // Shared library loaded with -plugin on TCG launches. Blank disables.
+  private final StoredProperty<String> tcgPlugin = string(null)
+      .provideDelegate(this, "tcgPlugin");
+
+  // Comma-separated, as in -plugin file=...,<arguments>.
+  private final StoredProperty<String> tcgPluginArguments = string(null)
+      .provideDelegate(this, "tcgPluginArguments");
+
+  // QEMU log items for -d, e.g. "in_asm,int,exec". Blank disables.
+  private final StoredProperty<String> debugLogItems = string(null)
+      .provideDelegate(this, "debugLogItems");
+
+  // Trace event names or patterns for -trace enable=..., e.g. "virtio_blk_*". Blank disables.
+  private final StoredProperty<String> traceEvents = string(null)
+      .provideDelegate(this, "traceEvents");
+
+  @Transient
+  private String parsedQemuArguments;
+
+  @Transient
+  private QemuArguments qemuArgumentModel = QemuArguments.EMPTY;
+
   // Option getters/setters
   //--------------------------------------------------
 
@@ -88,6 +192,18 @@ public final class QemuRunConfigOptions extends RunConfigurationOptions {
     this.qemuArguments.setValue(this, qemuArguments);
   }
 
+  // Parsed once per change of the raw argument string.
+  final synchronized QemuArguments getQemuArgumentModel() {
+    final String arguments = getQemuArguments();
+
+    if(!Objects.equals(arguments, parsedQemuArguments)) {
+      qemuArgumentModel = QemuArguments.parse(arguments);
+      parsedQemuArguments = arguments;
+    }
+
+    return qemuArgumentModel;
+  }
+
   final DiskImageSource getDiskImageSource() {
     return diskImageSource.getValue(this);
   }
@@ -122,6 +238,46 @@ public final class QemuRunConfigOptions extends RunConfigurationOptions {
     this.kernelFile.setValue(this, kernelFile);
   }
 
+  final boolean isDirectKernelBoot() {
+    return directKernelBoot.getValue(this);
+  }
+
+  final void setDirectKernelBoot(final boolean directKernelBoot) {
+    this.directKernelBoot.setValue(this, directKernelBoot);
+  }
+
+  final String getInitrdFile() {
+    return initrdFile.getValue(this);
+  }
+
+  final void setInitrdFile(final String initrdFile) {
+    this.initrdFile.setValue(this, initrdFile);
+  }
+
+  final String getKernelCommandLine() {
+    return kernelCommandLine.getValue(this);
+  }
+
+  final void setKernelCommandLine(final String kernelCommandLine) {
+    this.kernelCommandLine.setValue(this, kernelCommandLine);
+  }
+
+  final boolean isPipelinedLaunch() {
+    return pipelinedLaunch.getValue(this);
+  }
+
+  final void setPipelinedLaunch(final boolean pipelinedLaunch) {
+    this.pipelinedLaunch.setValue(this, pipelinedLaunch);
+  }
+
+  final boolean isRestoreCheckpoint() {
+    return restoreCheckpoint.getValue(this);
+  }
+
+  final void setRestoreCheckpoint(final boolean restoreCheckpoint) {
+    this.restoreCheckpoint.setValue(this, restoreCheckpoint);
+  }
+
   final boolean isEnableGdb() {
     return enableGdb.getValue(this);
   }
@@ -146,6 +302,174 @@ public final class QemuRunConfigOptions extends RunConfigurationOptions {
     this.qemuWaitForGdb.setValue(this, qemuWaitForGdb);
   }
 
+  final AccelerationMode getAccelerationMode() {
+    return accelerationMode.getValue(this);
+  }
+
+  final void setAccelerationMode(final AccelerationMode accelerationMode) {
+    Arguments.requireNotNull(accelerationMode, "accelerationMode == null");
+
+    this.accelerationMode.setValue(this, accelerationMode);
+  }
+
+  final int getVcpuCount() {
+    return vcpuCount.getValue(this);
+  }
+
+  final void setVcpuCount(final int vcpuCount) {
+    this.vcpuCount.setValue(this, vcpuCount);
+  }
+
+  final DiskIoProfile getDiskIoProfile() {
+    return diskIoProfile.getValue(this);
+  }
+
+  final void setDiskIoProfile(final DiskIoProfile diskIoProfile) {
+    Arguments.requireNotNull(diskIoProfile, "diskIoProfile == null");
+
+    this.diskIoProfile.setValue(this, diskIoProfile);
+  }
+
+  final DiskCacheMode getDiskCacheMode() {
+    return diskCacheMode.getValue(this);
+  }
+
+  final void setDiskCacheMode(final DiskCacheMode diskCacheMode) {
+    Arguments.requireNotNull(diskCacheMode, "diskCacheMode == null");
+
+    this.diskCacheMode.setValue(this, diskCacheMode);
+  }
+
+  final boolean isUseOverlay() {
+    return useOverlay.getValue(this);
+  }
+
+  final void setUseOverlay(final boolean useOverlay) {
+    this.useOverlay.setValue(this, useOverlay);
+  }
+
+  final boolean isReuseOverlay() {
+    return reuseOverlay.getValue(this);
+  }
+
+  final void setReuseOverlay(final boolean reuseOverlay) {
+    this.reuseOverlay.setValue(this, reuseOverlay);
+  }
+
+  final int getWarmPoolSize() {
+    return warmPoolSize.getValue(this);
+  }
+
+  final void setWarmPoolSize(final int warmPoolSize) {
+    this.warmPoolSize.setValue(this, warmPoolSize);
+  }
+
+  final int getWarmPoolMemoryLimit() {
+    return warmPoolMemoryLimit.getValue(this);
+  }
+
+  final void setWarmPoolMemoryLimit(final int warmPoolMemoryLimit) {
+    this.warmPoolMemoryLimit.setValue(this, warmPoolMemoryLimit);
+  }
+
+  final String getBootCompleteMarker() {
+    return bootCompleteMarker.getValue(this);
+  }
+
+  final void setBootCompleteMarker(final String bootCompleteMarker) {
+    this.bootCompleteMarker.setValue(this, bootCompleteMarker);
+  }
+
+  final List<OutputTrigger> getOutputTriggers() {
+    return OutputTrigger.parseAll(outputTriggers.getValue(this));
+  }
+
+  final void setOutputTriggers(final List<OutputTrigger> outputTriggers) {
+    Arguments.requireNotNull(outputTriggers, "outputTriggers == null");
+
+    this.outputTriggers.setValue(this, OutputTrigger.formatAll(outputTriggers));
+  }
+
+  final int getBenchmarkIterations() {
+    return benchmarkIterations.getValue(this);
+  }
+
+  final void setBenchmarkIterations(final int benchmarkIterations) {
+    this.benchmarkIterations.setValue(this, benchmarkIterations);
+  }
+
+  final int getBenchmarkWarmupIterations() {
+    return benchmarkWarmupIterations.getValue(this);
+  }
+
+  final void setBenchmarkWarmupIterations(final int benchmarkWarmupIterations) {
+    this.benchmarkWarmupIterations.setValue(this, benchmarkWarmupIterations);
+  }
+
+  final int getBenchmarkConcurrency() {
+    return benchmarkConcurrency.getValue(this);
+  }
+
+  final void setBenchmarkConcurrency(final int benchmarkConcurrency) {
+    this.benchmarkConcurrency.setValue(this, benchmarkConcurrency);
+  }
+
+  final int getBenchmarkTimeout() {
+    return benchmarkTimeout.getValue(this);
+  }
+
+  final void setBenchmarkTimeout(final int benchmarkTimeout) {
+    this.benchmarkTimeout.setValue(this, benchmarkTimeout);
+  }
+
+  final int getMonitorSampleInterval() {
+    return monitorSampleInterval.getValue(this);
+  }
+
+  final void setMonitorSampleInterval(final int monitorSampleInterval) {
+    this.monitorSampleInterval.setValue(this, monitorSampleInterval);
+  }
+
+  final int getProfilerSampleRate() {
+    return profilerSampleRate.getValue(this);
+  }
+
+  final void setProfilerSampleRate(final int profilerSampleRate) {
+    this.profilerSampleRate.setValue(this, profilerSampleRate);
+  }
+
+  final String getTcgPlugin() {
+    return tcgPlugin.getValue(this);
+  }
+
+  final void setTcgPlugin(final String tcgPlugin) {
+    this.tcgPlugin.setValue(this, tcgPlugin);
+  }
+
+  final String getTcgPluginArguments() {
+    return tcgPluginArguments.getValue(this);
+  }
+
+  final void setTcgPluginArguments(final String tcgPluginArguments) {
+    this.tcgPluginArguments.setValue(this, tcgPluginArguments);
+  }
+
+  final String getDebugLogItems() {
+    return debugLogItems.getValue(this);
+  }
+
+  final void setDebugLogItems(final String debugLogItems) {
+    this.debugLogItems.setValue(this, debugLogItems);
+  }
+
+  final String getTraceEvents() {
+    return traceEvents.getValue(this);
+  }
+
+  final void setTraceEvents(final String traceEvents) {
+    this.traceEvents.setValue(this, traceEvents);
+  }
+
   // DiskImageSource enum
   //--------------------------------------------------
 
@@ -153,7 +477,52 @@ public final class QemuRunConfigOptions extends RunConfigurationOptions {
 
     CMAKE_TARGET,
 
-    CDROM_FILE
+    CDROM_FILE,
+
+    KERNEL_FILE
+
+  }
+
+  // AccelerationMode enum
+  //--------------------------------------------------
+
+  public enum AccelerationMode {
+
+    AUTO,
+
+    KVM,
+
+    TCG
+
+  }
+
+  // DiskIoProfile enum
+  //--------------------------------------------------
+
+  public enum DiskIoProfile {
+
+    CDROM,
+
+    VIRTIO_BLK,
+
+    VIRTIO_SCSI
+
+  }
+
+  // DiskCacheMode enum
+  //--------------------------------------------------
+
+  public enum DiskCacheMode {
+
+    WRITEBACK,
+
+    NONE,
+
+    WRITETHROUGH,
+
+    DIRECTSYNC,
+
+    UNSAFE
 
   }
 
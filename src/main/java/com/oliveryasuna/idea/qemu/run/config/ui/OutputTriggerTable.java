@@ -0,0 +1,144 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.run.config.ui;
+
+import com.intellij.openapi.ui.ComboBox;
+import com.intellij.ui.ToolbarDecorator;
+import com.intellij.ui.table.TableView;
+import com.intellij.util.ui.ColumnInfo;
+import com.intellij.util.ui.ListTableModel;
+import com.oliveryasuna.idea.qemu.run.config.OutputTrigger;
+
+import javax.swing.*;
+import javax.swing.table.TableCellEditor;
+import java.util.ArrayList;
+import java.util.List;
+
+final class OutputTriggerTable {
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final ColumnInfo<OutputTrigger, String> PATTERN_COLUMN = new ColumnInfo<>("Output contains") {
+    @Override
+    public String valueOf(final OutputTrigger trigger) {
+      return trigger.getPattern();
+    }
+
+    @Override
+    public boolean isCellEditable(final OutputTrigger trigger) {
+      return true;
+    }
+
+    @Override
+    public void setValue(final OutputTrigger trigger, final String value) {
+      trigger.setPattern(value);
+    }
+  };
+
+  private static final ColumnInfo<OutputTrigger, OutputTrigger.Action> ACTION_COLUMN = new ColumnInfo<>("Action") {
+    @Override
+    public OutputTrigger.Action valueOf(final OutputTrigger trigger) {
+      return trigger.getAction();
+    }
+
+    @Override
+    public boolean isCellEditable(final OutputTrigger trigger) {
+      return true;
+    }
+
+    @Override
+    public void setValue(final OutputTrigger trigger, final OutputTrigger.Action value) {
+      trigger.setAction(value);
+    }
+
+    @Override
+    public TableCellEditor getEditor(final OutputTrigger trigger) {
+      return new DefaultCellEditor(new ComboBox<>(OutputTrigger.Action.values()));
+    }
+  };
+
+  private static final ColumnInfo<OutputTrigger, String> ARGUMENT_COLUMN = new ColumnInfo<>("Argument") {
+    @Override
+    public String valueOf(final OutputTrigger trigger) {
+      return trigger.getArgument();
+    }
+
+    @Override
+    public boolean isCellEditable(final OutputTrigger trigger) {
+      return true;
+    }
+
+    @Override
+    public void setValue(final OutputTrigger trigger, final String value) {
+      trigger.setArgument(value);
+    }
+  };
+
+  // Constructors
+  //--------------------------------------------------
+
+  OutputTriggerTable() {
+    super();
+
+    this.component = ToolbarDecorator.createDecorator(table)
+        .setAddAction(button -> addTrigger())
+        .createPanel();
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final ListTableModel<OutputTrigger> model = new ListTableModel<>(PATTERN_COLUMN, ACTION_COLUMN, ARGUMENT_COLUMN);
+
+  private final TableView<OutputTrigger> table = new TableView<>(model);
+
+  private final JPanel component;
+
+  // Methods
+  //--------------------------------------------------
+
+  private void addTrigger() {
+    model.addRow(new OutputTrigger());
+
+    final int row = model.getRowCount() - 1;
+
+    table.getSelectionModel().setSelectionInterval(row, row);
+    table.editCellAt(row, 0);
+  }
+
+  // Getters/setters
+  //--------------------------------------------------
+
+  final JPanel getComponent() {
+    return component;
+  }
+
+  final List<OutputTrigger> getTriggers() {
+    if(table.isEditing()) {
+      table.getCellEditor().stopCellEditing();
+    }
+
+    return new ArrayList<>(model.getItems());
+  }
+
+  final void setTriggers(final List<OutputTrigger> triggers) {
+    model.setItems(new ArrayList<>(triggers));
+  }
+
+}
@@ -18,26 +18,38 @@
 
 package com.oliveryasuna.idea.qemu.run.config.ui;
 
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.fileChooser.FileChooserDescriptorFactory;
 import com.intellij.openapi.options.ConfigurationException;
 import com.intellij.openapi.options.SettingsEditor;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.*;
+import com.intellij.ui.DocumentAdapter;
+import com.intellij.ui.EnumComboBoxModel;
 import com.intellij.ui.JBIntSpinner;
 import com.intellij.ui.ListCellRendererWithRightAlignedComponent;
 import com.intellij.ui.components.JBCheckBox;
+import com.intellij.ui.components.JBTextField;
 import com.intellij.ui.components.fields.ExpandableTextField;
 import com.jetbrains.cidr.cpp.cmake.model.CMakeTarget;
 import com.jetbrains.cidr.cpp.execution.CMakeBuildConfigurationHelper;
+import com.oliveryasuna.idea.qemu.args.QemuArgumentValidator;
+import com.oliveryasuna.idea.qemu.args.QemuArguments;
+import com.oliveryasuna.idea.qemu.executable.QemuCapabilities;
+import com.oliveryasuna.idea.qemu.executable.QemuCapabilityProber;
+import com.oliveryasuna.idea.qemu.executable.QemuExecutableIndex;
 import com.oliveryasuna.idea.qemu.run.config.QemuRunConfig;
 import com.oliveryasuna.idea.qemu.run.config.QemuRunConfigOptions;
-import com.oliveryasuna.idea.qemu.util.CommandUtils;
-import com.oliveryasuna.idea.qemu.util.QemuExecutableFinder;
 import org.apache.commons.lang3.StringUtils;
 import org.jdesktop.swingx.combobox.ListComboBoxModel;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
 import java.awt.event.ActionEvent;
 import java.io.File;
+import java.util.List;
+import java.util.Optional;
 
 // I hate Swing...
 public class QemuRunConfigEditor extends SettingsEditor<QemuRunConfig> {
@@ -56,6 +68,8 @@ public class QemuRunConfigEditor extends SettingsEditor<QemuRunConfig> {
 
   private final Project project;
 
+  private final OutputTriggerTable outputTriggerTable = new OutputTriggerTable();
+
   // UI components
   //--------------------------------------------------
 
@@ -72,10 +86,25 @@ public class QemuRunConfigEditor extends SettingsEditor<QemuRunConfig> {
   // TODO: JBRadioButton.
   private JRadioButton cdromFileRadio;
 
+  // TODO: JBRadioButton.
+  private JRadioButton kernelFileRadio;
+
   private ComboBox<CMakeTarget> cmakeTargetField;
 
   private TextFieldWithBrowseButton cdromFileField;
 
+  private TextFieldWithBrowseButton kernelFileField;
+
+  private JBCheckBox directKernelBootCheckbox;
+
+  private JBCheckBox pipelinedLaunchCheckbox;
+
+  private JBCheckBox restoreCheckpointCheckbox;
+
+  private TextFieldWithBrowseButton initrdFileField;
+
+  private ExpandableTextField kernelCommandLineField;
+
   private JBCheckBox enableGdbCheckbox;
 
   private LabeledComponent<JBIntSpinner> gdbTcpPortField;
@@ -83,6 +112,46 @@ public class QemuRunConfigEditor extends SettingsEditor<QemuRunConfig> {
   // TODO: JBCheckBox.
   private JCheckBox qemuWaitForGdbCheckbox;
 
+  private ComboBox<QemuRunConfigOptions.AccelerationMode> accelerationModeField;
+
+  private LabeledComponent<JBIntSpinner> vcpuCountField;
+
+  private ComboBox<QemuRunConfigOptions.DiskIoProfile> diskIoProfileField;
+
+  private ComboBox<QemuRunConfigOptions.DiskCacheMode> diskCacheModeField;
+
+  private JBCheckBox useOverlayCheckbox;
+
+  private JBCheckBox reuseOverlayCheckbox;
+
+  private LabeledComponent<JBIntSpinner> warmPoolSizeField;
+
+  private LabeledComponent<JBIntSpinner> warmPoolMemoryLimitField;
+
+  private JBTextField bootCompleteMarkerField;
+
+  private LabeledComponent<JPanel> outputTriggersField;
+
+  private LabeledComponent<JBIntSpinner> benchmarkIterationsField;
+
+  private LabeledComponent<JBIntSpinner> benchmarkWarmupIterationsField;
+
+  private LabeledComponent<JBIntSpinner> benchmarkConcurrencyField;
+
+  private LabeledComponent<JBIntSpinner> benchmarkTimeoutField;
+
+  private LabeledComponent<JBIntSpinner> monitorSampleIntervalField;
+
+  private LabeledComponent<JBIntSpinner> profilerSampleRateField;
+
+  private TextFieldWithBrowseButton tcgPluginField;
+
+  private JBTextField tcgPluginArgumentsField;
+
+  private JBTextField debugLogItemsField;
+
+  private JBTextField traceEventsField;
+
   // SettingsEditor methods
   //--------------------------------------------------
 
@@ -98,10 +167,23 @@ public class QemuRunConfigEditor extends SettingsEditor<QemuRunConfig> {
       case CDROM_FILE:
         cdromFileRadio.doClick();
         break;
+      case KERNEL_FILE:
+        kernelFileRadio.doClick();
+        break;
     }
 
     cmakeTargetField.setSelectedItem(runConfig.getCmakeTarget());
     cdromFileField.setText(runConfig.getCdromFile());
+    kernelFileField.setText(runConfig.getKernelFile());
+
+    directKernelBootCheckbox.setSelected(runConfig.isDirectKernelBoot());
+    pipelinedLaunchCheckbox.setSelected(runConfig.isPipelinedLaunch());
+    restoreCheckpointCheckbox.setSelected(runConfig.isRestoreCheckpoint());
+
+    initrdFileField.setText(runConfig.getInitrdFile());
+    kernelCommandLineField.setText(runConfig.getKernelCommandLine());
+
+    updateKernelBootFields();
 
     if(runConfig.isEnableGdb()) {
       enableGdbCheckbox.doClick();
@@ -112,6 +194,37 @@ public class QemuRunConfigEditor extends SettingsEditor<QemuRunConfig> {
     if(runConfig.isQemuWaitForGdb()) {
       qemuWaitForGdbCheckbox.doClick();
     }
+
+    accelerationModeField.setSelectedItem(runConfig.getAccelerationMode());
+    vcpuCountField.getComponent().setValue(runConfig.getVcpuCount());
+
+    diskIoProfileField.setSelectedItem(runConfig.getDiskIoProfile());
+    diskCacheModeField.setSelectedItem(runConfig.getDiskCacheMode());
+
+    useOverlayCheckbox.setSelected(runConfig.isUseOverlay());
+    reuseOverlayCheckbox.setSelected(runConfig.isReuseOverlay());
+    reuseOverlayCheckbox.setEnabled(runConfig.isUseOverlay());
+
+    warmPoolSizeField.getComponent().setValue(runConfig.getWarmPoolSize());
+    warmPoolMemoryLimitField.getComponent().setValue(runConfig.getWarmPoolMemoryLimit());
+
+    bootCompleteMarkerField.setText(runConfig.getBootCompleteMarker());
+
+    outputTriggerTable.setTriggers(runConfig.getOutputTriggers());
+
+    benchmarkIterationsField.getComponent().setValue(runConfig.getBenchmarkIterations());
+    benchmarkWarmupIterationsField.getComponent().setValue(runConfig.getBenchmarkWarmupIterations());
+    benchmarkConcurrencyField.getComponent().setValue(runConfig.getBenchmarkConcurrency());
+    benchmarkTimeoutField.getComponent().setValue(runConfig.getBenchmarkTimeout());
+
+    monitorSampleIntervalField.getComponent().setValue(runConfig.getMonitorSampleInterval());
+    profilerSampleRateField.getComponent().setValue(runConfig.getProfilerSampleRate());
+
+    tcgPluginField.setText(runConfig.getTcgPlugin());
+    tcgPluginArgumentsField.setText(runConfig.getTcgPluginArguments());
+
+    debugLogItemsField.setText(runConfig.getDebugLogItems());
+    traceEventsField.setText(runConfig.getTraceEvents());
   }
 
   @Override
@@ -123,26 +236,78 @@ public class QemuRunConfigEditor extends SettingsEditor<QemuRunConfig> {
       runConfig.setDiskImageSource(QemuRunConfigOptions.DiskImageSource.CMAKE_TARGET);
     } else if(cdromFileRadio.isSelected()) {
       runConfig.setDiskImageSource(QemuRunConfigOptions.DiskImageSource.CDROM_FILE);
+    } else if(kernelFileRadio.isSelected()) {
+      runConfig.setDiskImageSource(QemuRunConfigOptions.DiskImageSource.KERNEL_FILE);
     }
 
     runConfig.setCmakeTarget((CMakeTarget)cmakeTargetField.getSelectedItem());
     runConfig.setCdromFile(cdromFileField.getText());
+    runConfig.setKernelFile(kernelFileField.getText());
+
+    runConfig.setDirectKernelBoot(directKernelBootCheckbox.isSelected());
+    runConfig.setPipelinedLaunch(pipelinedLaunchCheckbox.isSelected());
+    runConfig.setRestoreCheckpoint(restoreCheckpointCheckbox.isSelected());
+
+    runConfig.setInitrdFile(initrdFileField.getText());
+    runConfig.setKernelCommandLine(kernelCommandLineField.getText());
 
     runConfig.setEnableGdb(enableGdbCheckbox.isSelected());
 
     runConfig.setGdbTcpPort((int)gdbTcpPortField.getComponent().getValue());
 
     runConfig.setQemuWaitForGdb(qemuWaitForGdbCheckbox.isSelected());
+
+    runConfig.setAccelerationMode((QemuRunConfigOptions.AccelerationMode)accelerationModeField.getSelectedItem());
+    runConfig.setVcpuCount((int)vcpuCountField.getComponent().getValue());
+
+    runConfig.setDiskIoProfile((QemuRunConfigOptions.DiskIoProfile)diskIoProfileField.getSelectedItem());
+    runConfig.setDiskCacheMode((QemuRunConfigOptions.DiskCacheMode)diskCacheModeField.getSelectedItem());
+
+    runConfig.setUseOverlay(useOverlayCheckbox.isSelected());
+    runConfig.setReuseOverlay(reuseOverlayCheckbox.isSelected());
+
+    runConfig.setWarmPoolSize((int)warmPoolSizeField.getComponent().getValue());
+    runConfig.setWarmPoolMemoryLimit((int)warmPoolMemoryLimitField.getComponent().getValue());
+
+    runConfig.setBootCompleteMarker(bootCompleteMarkerField.getText());
+
+    runConfig.setOutputTriggers(outputTriggerTable.getTriggers());
+
+    runConfig.setBenchmarkIterations((int)benchmarkIterationsField.getComponent().getValue());
+    runConfig.setBenchmarkWarmupIterations((int)benchmarkWarmupIterationsField.getComponent().getValue());
+    runConfig.setBenchmarkConcurrency((int)benchmarkConcurrencyField.getComponent().getValue());
+    runConfig.setBenchmarkTimeout((int)benchmarkTimeoutField.getComponent().getValue());
+
+    runConfig.setMonitorSampleInterval((int)monitorSampleIntervalField.getComponent().getValue());
+    runConfig.setProfilerSampleRate((int)profilerSampleRateField.getComponent().getValue());
+
+    runConfig.setTcgPlugin(tcgPluginField.getText());
+    runConfig.setTcgPluginArguments(tcgPluginArgumentsField.getText());
+
+    runConfig.setDebugLogItems(debugLogItemsField.getText());
+    runConfig.setTraceEvents(traceEventsField.getText());
   }
 
   @Override
   protected final JComponent createEditor() {
-    qemuExecutableField.setModel(new DefaultComboBoxModel<>(QemuExecutableFinder.findQemuExecutables().stream()
-        .map(File::getAbsolutePath)
-        .toArray(String[]::new)));
+    final QemuExecutableIndex executableIndex = QemuExecutableIndex.getInstance();
+
+    setQemuExecutableFieldItems(executableIndex.getCachedExecutables());
+
+    executableIndex.getExecutables()
+        .thenAccept(executables -> ApplicationManager.getApplication()
+            .invokeLater(() -> setQemuExecutableFieldItems(executables), ModalityState.any()));
 
     cmakeTargetRadio.addActionListener(this::diskImageSourceRadioChanged);
     cdromFileRadio.addActionListener(this::diskImageSourceRadioChanged);
+    kernelFileRadio.addActionListener(this::diskImageSourceRadioChanged);
+
+    kernelFileField.addBrowseFolderListener("Kernel File", null, project, FileChooserDescriptorFactory.createSingleFileDescriptor());
+    initrdFileField.addBrowseFolderListener("Initrd File", null, project, FileChooserDescriptorFactory.createSingleFileDescriptor());
+    tcgPluginField.addBrowseFolderListener("TCG Plugin", null, project, FileChooserDescriptorFactory.createSingleFileDescriptor());
+
+    directKernelBootCheckbox.addActionListener(event -> updateKernelBootFields());
+    restoreCheckpointCheckbox.addActionListener(event -> updateKernelBootFields());
 
     cmakeTargetField.setModel(new ListComboBoxModel<>(new CMakeBuildConfigurationHelper(project).getTargets()));
     cmakeTargetField.setRenderer(new CMakeTargetCellRenderer());
@@ -155,13 +320,92 @@ public class QemuRunConfigEditor extends SettingsEditor<QemuRunConfig> {
 
     gdbTcpPortField.setComponent(gdbTcpPortFieldComponent);
 
+    accelerationModeField.setModel(new EnumComboBoxModel<>(QemuRunConfigOptions.AccelerationMode.class));
+
+    final JBIntSpinner vcpuCountFieldComponent = new JBIntSpinner(0, 0, 512);
+
+    ((JSpinner.DefaultEditor)vcpuCountFieldComponent.getEditor()).getTextField().setHorizontalAlignment(JTextField.LEFT);
+
+    vcpuCountField.setComponent(vcpuCountFieldComponent);
+
+    diskIoProfileField.setModel(new EnumComboBoxModel<>(QemuRunConfigOptions.DiskIoProfile.class));
+    diskCacheModeField.setModel(new EnumComboBoxModel<>(QemuRunConfigOptions.DiskCacheMode.class));
+
+    diskIoProfileField.addActionListener(this::diskIoProfileFieldChanged);
+
+    useOverlayCheckbox.addActionListener(event -> reuseOverlayCheckbox.setEnabled(useOverlayCheckbox.isSelected()));
+
+    final JBIntSpinner warmPoolSizeFieldComponent = new JBIntSpinner(0, 0, 8);
+
+    ((JSpinner.DefaultEditor)warmPoolSizeFieldComponent.getEditor()).getTextField().setHorizontalAlignment(JTextField.LEFT);
+
+    warmPoolSizeField.setComponent(warmPoolSizeFieldComponent);
+
+    final JBIntSpinner warmPoolMemoryLimitFieldComponent = new JBIntSpinner(QemuRunConfigOptions.DEFAULT_WARM_POOL_MEMORY_LIMIT, 0, 1048576, 128);
+
+    ((JSpinner.DefaultEditor)warmPoolMemoryLimitFieldComponent.getEditor()).getTextField().setHorizontalAlignment(JTextField.LEFT);
+
+    warmPoolMemoryLimitField.setComponent(warmPoolMemoryLimitFieldComponent);
+
+    outputTriggersField.setComponent(outputTriggerTable.getComponent());
+
+    final JBIntSpinner benchmarkIterationsFieldComponent = new JBIntSpinner(QemuRunConfigOptions.DEFAULT_BENCHMARK_ITERATIONS, 1, 10000);
+
+    ((JSpinner.DefaultEditor)benchmarkIterationsFieldComponent.getEditor()).getTextField().setHorizontalAlignment(JTextField.LEFT);
+
+    benchmarkIterationsField.setComponent(benchmarkIterationsFieldComponent);
+
+    final JBIntSpinner benchmarkWarmupIterationsFieldComponent = new JBIntSpinner(QemuRunConfigOptions.DEFAULT_BENCHMARK_WARMUP_ITERATIONS, 0, 1000);
+
+    ((JSpinner.DefaultEditor)benchmarkWarmupIterationsFieldComponent.getEditor()).getTextField().setHorizontalAlignment(JTextField.LEFT);
+
+    benchmarkWarmupIterationsField.setComponent(benchmarkWarmupIterationsFieldComponent);
+
+    final JBIntSpinner benchmarkConcurrencyFieldComponent = new JBIntSpinner(1, 1, 64);
+
+    ((JSpinner.DefaultEditor)benchmarkConcurrencyFieldComponent.getEditor()).getTextField().setHorizontalAlignment(JTextField.LEFT);
+
+    benchmarkConcurrencyField.setComponent(benchmarkConcurrencyFieldComponent);
+
+    final JBIntSpinner benchmarkTimeoutFieldComponent = new JBIntSpinner(QemuRunConfigOptions.DEFAULT_BENCHMARK_TIMEOUT, 1, 3600);
+
+    ((JSpinner.DefaultEditor)benchmarkTimeoutFieldComponent.getEditor()).getTextField().setHorizontalAlignment(JTextField.LEFT);
+
+    benchmarkTimeoutField.setComponent(benchmarkTimeoutFieldComponent);
+
+    final JBIntSpinner monitorSampleIntervalFieldComponent = new JBIntSpinner(QemuRunConfigOptions.DEFAULT_MONITOR_SAMPLE_INTERVAL, 0, 60000, 100);
+
+    ((JSpinner.DefaultEditor)monitorSampleIntervalFieldComponent.getEditor()).getTextField().setHorizontalAlignment(JTextField.LEFT);
+
+    monitorSampleIntervalField.setComponent(monitorSampleIntervalFieldComponent);
+
+    final JBIntSpinner profilerSampleRateFieldComponent = new JBIntSpinner(QemuRunConfigOptions.DEFAULT_PROFILER_SAMPLE_RATE, 1, 1000);
+
+    ((JSpinner.DefaultEditor)profilerSampleRateFieldComponent.getEditor()).getTextField().setHorizontalAlignment(JTextField.LEFT);
+
+    profilerSampleRateField.setComponent(profilerSampleRateFieldComponent);
+
     addQemuExecutableFieldValidator();
+    addQemuArgumentsFieldValidator();
     addCMakeTargetFieldValidator();
     addCdromFileFieldValidator();
+    addKernelFileFieldValidator();
 
     return rootPanel;
   }
 
+  // Methods
+  //--------------------------------------------------
+
+  private void setQemuExecutableFieldItems(final List<File> executables) {
+    final Object selectedItem = qemuExecutableField.getSelectedItem();
+
+    qemuExecutableField.setModel(new DefaultComboBoxModel<>(executables.stream()
+        .map(File::getAbsolutePath)
+        .toArray(String[]::new)));
+    qemuExecutableField.setSelectedItem(selectedItem);
+  }
+
   // Validation methods
   //--------------------------------------------------
 
@@ -171,10 +415,14 @@ public class QemuRunConfigEditor extends SettingsEditor<QemuRunConfig> {
           final String qemuExecutableCandidate = qemuExecutableField.getItem();
 
           if(StringUtils.isBlank(qemuExecutableCandidate)) return new ValidationInfo("Required field.", qemuExecutableField);
-          if(!(QemuExecutableFinder.findQemuExecutables().contains(new File(qemuExecutableCandidate)) ||
-              !CommandUtils.findExecutables(qemuExecutableCandidate).isEmpty()))
+          if(!QemuExecutableIndex.getInstance().isKnownExecutable(qemuExecutableCandidate))
             return new ValidationInfo("Not found.", qemuExecutableField);
 
+          final Optional<QemuCapabilities> capabilities = QemuCapabilityProber.getInstance().getCachedCapabilities(qemuExecutableCandidate);
+
+          if(capabilities.isPresent() && !capabilities.get().wasProbed())
+            return new ValidationInfo("Not a working QEMU executable.", qemuExecutableField).asWarning();
+
           return null;
         })
         .installOn(qemuExecutableField);
@@ -183,6 +431,30 @@ public class QemuRunConfigEditor extends SettingsEditor<QemuRunConfig> {
         .ifPresent(ComponentValidator::revalidate));
   }
 
+  private void addQemuArgumentsFieldValidator() {
+    new ComponentValidator(project)
+        .withValidator(() -> {
+          final List<String> problems = QemuCapabilityProber.getInstance().getCachedCapabilities(qemuExecutableField.getItem())
+              .map(capabilities -> QemuArgumentValidator.validate(QemuArguments.parse(qemuArgumentsField.getText()), capabilities))
+              .orElse(List.of());
+
+          if(!problems.isEmpty()) {
+            return new ValidationInfo(String.join(" ", problems), qemuArgumentsField).asWarning();
+          }
+
+          return null;
+        })
+        .installOn(qemuArgumentsField);
+
+    qemuArgumentsField.getDocument().addDocumentListener(new DocumentAdapter() {
+      @Override
+      protected void textChanged(final DocumentEvent event) {
+        ComponentValidator.getInstance(qemuArgumentsField)
+            .ifPresent(ComponentValidator::revalidate);
+      }
+    });
+  }
+
   private void addCMakeTargetFieldValidator() {
     new ComponentValidator(project)
         .withValidator(() -> {
@@ -219,6 +491,26 @@ public class QemuRunConfigEditor extends SettingsEditor<QemuRunConfig> {
         .ifPresent(ComponentValidator::revalidate));
   }
 
+  private void addKernelFileFieldValidator() {
+    new ComponentValidator(project)
+        .withValidator(() -> {
+          if(kernelFileField.isEnabled() && StringUtils.isBlank(kernelFileField.getText())) {
+            return new ValidationInfo("Required field.", kernelFileField);
+          }
+
+          return null;
+        })
+        .installOn(kernelFileField);
+
+    kernelFileField.getTextField().getDocument().addDocumentListener(new DocumentAdapter() {
+      @Override
+      protected void textChanged(final DocumentEvent event) {
+        ComponentValidator.getInstance(kernelFileField)
+            .ifPresent(ComponentValidator::revalidate);
+      }
+    });
+  }
+
   // Listener callbacks
   //--------------------------------------------------
 
@@ -228,10 +520,29 @@ public class QemuRunConfigEditor extends SettingsEditor<QemuRunConfig> {
     if(source == cmakeTargetRadio) {
       cmakeTargetField.setEnabled(true);
       cdromFileField.setEnabled(false);
+      kernelFileField.setEnabled(false);
     } else if(source == cdromFileRadio) {
       cmakeTargetField.setEnabled(false);
       cdromFileField.setEnabled(true);
+      kernelFileField.setEnabled(false);
+    } else if(source == kernelFileRadio) {
+      cmakeTargetField.setEnabled(false);
+      cdromFileField.setEnabled(false);
+      kernelFileField.setEnabled(true);
     }
+
+    updateKernelBootFields();
+  }
+
+  private void updateKernelBootFields() {
+    final boolean kernelBoot = (kernelFileRadio.isSelected() || (cmakeTargetRadio.isSelected() && directKernelBootCheckbox.isSelected()));
+
+    directKernelBootCheckbox.setEnabled(cmakeTargetRadio.isSelected());
+    pipelinedLaunchCheckbox.setEnabled(cmakeTargetRadio.isSelected() && !kernelBoot && !restoreCheckpointCheckbox.isSelected());
+    initrdFileField.setEnabled(kernelBoot);
+    kernelCommandLineField.setEnabled(kernelBoot);
+    diskIoProfileField.setEnabled(!kernelBoot);
+    diskCacheModeField.setEnabled(!kernelBoot && diskIoProfileField.getSelectedItem() != QemuRunConfigOptions.DiskIoProfile.CDROM);
   }
 
   private void enableGdbCheckboxChanged(final ActionEvent event) {
@@ -241,6 +552,10 @@ public class QemuRunConfigEditor extends SettingsEditor<QemuRunConfig> {
     qemuWaitForGdbCheckbox.setEnabled(gdbFieldsEnabled);
   }
 
+  private void diskIoProfileFieldChanged(final ActionEvent event) {
+    diskCacheModeField.setEnabled(diskIoProfileField.isEnabled() && diskIoProfileField.getSelectedItem() != QemuRunConfigOptions.DiskIoProfile.CDROM);
+  }
+
   // CMakeTargetCellRenderer class
   //--------------------------------------------------
 
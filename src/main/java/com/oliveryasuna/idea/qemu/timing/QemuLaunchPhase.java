@@ -0,0 +1,58 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.timing;
+
+// In the order they normally happen. Phases that do not apply to a run (no CMake build, no marker, no debugger) are simply never recorded.
+public enum QemuLaunchPhase {
+
+  CONFIGURATION_RESOLVED("Configuration resolved"),
+
+  CMAKE_STARTED("CMake build started"),
+
+  CMAKE_FINISHED("CMake build finished"),
+
+  QEMU_STARTED("QEMU started"),
+
+  FIRST_OUTPUT("First guest output"),
+
+  BOOT_COMPLETE("Boot complete"),
+
+  GDB_ATTACHED("GDB attached"),
+
+  TERMINATED("Terminated");
+
+  // Constructors
+  //--------------------------------------------------
+
+  QemuLaunchPhase(final String description) {
+    this.description = description;
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final String description;
+
+  // Getters/setters
+  //--------------------------------------------------
+
+  public final String getDescription() {
+    return description;
+  }
+
+}
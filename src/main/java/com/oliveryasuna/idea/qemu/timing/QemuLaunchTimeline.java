@@ -0,0 +1,162 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.timing;
+
+import com.oliveryasuna.commons.language.condition.Arguments;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+// When each phase of one run happened, relative to the launch. Offsets come from System.nanoTime(), so they are unaffected by clock
+// changes; the wall-clock start time is only kept to tell runs apart.
+public final class QemuLaunchTimeline {
+
+  // Static methods
+  //--------------------------------------------------
+
+  public static String formatDuration(final Duration duration) {
+    Arguments.requireNotNull(duration, "duration == null");
+
+    final long millis = duration.toMillis();
+
+    return (millis < 10_000 ? millis + " ms" : String.format("%.1f s", millis / 1000.0));
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  QemuLaunchTimeline(final String projectLocationHash, final String configurationName,
+      final BiConsumer<QemuLaunchTimeline, QemuLaunchPhase> listener) {
+    super();
+
+    Arguments.requireNotNull(projectLocationHash, "projectLocationHash == null");
+    Arguments.requireNotNull(listener, "listener == null");
+
+    this.projectLocationHash = projectLocationHash;
+    this.configurationName = configurationName;
+    this.listener = listener;
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final String projectLocationHash;
+
+  private final String configurationName;
+
+  private final BiConsumer<QemuLaunchTimeline, QemuLaunchPhase> listener;
+
+  private final Instant startTime = Instant.now();
+
+  private final long startNanos = System.nanoTime();
+
+  private final Map<QemuLaunchPhase, Long> phaseNanos = new EnumMap<>(QemuLaunchPhase.class);
+
+  // Methods
+  //--------------------------------------------------
+
+  // Only the first mark of a phase counts. Returns whether this was it.
+  public final boolean mark(final QemuLaunchPhase phase) {
+    Arguments.requireNotNull(phase, "phase == null");
+
+    final long now = System.nanoTime();
+
+    synchronized(phaseNanos) {
+      if(phaseNanos.containsKey(phase)) {
+        return false;
+      }
+
+      phaseNanos.put(phase, now - startNanos);
+    }
+
+    listener.accept(this, phase);
+
+    return true;
+  }
+
+  public final boolean isMarked(final QemuLaunchPhase phase) {
+    synchronized(phaseNanos) {
+      return phaseNanos.containsKey(phase);
+    }
+  }
+
+  public final Optional<Duration> getOffset(final QemuLaunchPhase phase) {
+    synchronized(phaseNanos) {
+      return Optional.ofNullable(phaseNanos.get(phase)).map(Duration::ofNanos);
+    }
+  }
+
+  public final Map<QemuLaunchPhase, Duration> getOffsets() {
+    final Map<QemuLaunchPhase, Duration> offsets = new EnumMap<>(QemuLaunchPhase.class);
+
+    synchronized(phaseNanos) {
+      phaseNanos.forEach((phase, nanos) -> offsets.put(phase, Duration.ofNanos(nanos)));
+    }
+
+    return Collections.unmodifiableMap(offsets);
+  }
+
+  // Time until the guest was usable: boot complete if a marker was seen, otherwise first output.
+  public final Optional<Duration> getBootTime() {
+    final Optional<Duration> bootComplete = getOffset(QemuLaunchPhase.BOOT_COMPLETE);
+
+    return (bootComplete.isPresent() ? bootComplete : getOffset(QemuLaunchPhase.FIRST_OUTPUT));
+  }
+
+  // One line per recorded phase, in the order they happened: offset from the launch, then time since the previous phase.
+  public final String formatBreakdown() {
+    final StringBuilder breakdown = new StringBuilder("Launch timing:\n");
+    final List<Map.Entry<QemuLaunchPhase, Duration>> entries = new ArrayList<>(getOffsets().entrySet());
+
+    entries.sort(Map.Entry.comparingByValue());
+
+    Duration previous = Duration.ZERO;
+
+    for(final Map.Entry<QemuLaunchPhase, Duration> entry : entries) {
+      breakdown.append(String.format("  %-24s +%-10s (%s)%n", entry.getKey().getDescription(), formatDuration(entry.getValue()),
+          formatDuration(entry.getValue().minus(previous))));
+
+      previous = entry.getValue();
+    }
+
+    return breakdown.toString();
+  }
+
+  // Getters/setters
+  //--------------------------------------------------
+
+  public final String getProjectLocationHash() {
+    return projectLocationHash;
+  }
+
+  public final String getConfigurationName() {
+    return configurationName;
+  }
+
+  public final Instant getStartTime() {
+    return startTime;
+  }
+
+}
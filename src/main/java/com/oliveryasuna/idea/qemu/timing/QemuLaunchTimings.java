@@ -0,0 +1,99 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.timing;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.project.Project;
+import com.oliveryasuna.commons.language.condition.Arguments;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+// Recent launch timelines, newest first, for trend tracking. Changes are published on QemuLaunchTimingsListener.TOPIC.
+public final class QemuLaunchTimings {
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final int MAX_TIMELINES = 100;
+
+  // Static methods
+  //--------------------------------------------------
+
+  public static QemuLaunchTimings getInstance() {
+    return ApplicationManager.getApplication().getService(QemuLaunchTimings.class);
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  public QemuLaunchTimings() {
+    super();
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final Deque<QemuLaunchTimeline> timelines = new ArrayDeque<>();
+
+  // Methods
+  //--------------------------------------------------
+
+  public final QemuLaunchTimeline start(final Project project, final String configurationName) {
+    Arguments.requireNotNull(project, "project == null");
+
+    final QemuLaunchTimeline timeline = new QemuLaunchTimeline(project.getLocationHash(), configurationName, this::timelineUpdated);
+
+    synchronized(timelines) {
+      timelines.addFirst(timeline);
+
+      while(timelines.size() > MAX_TIMELINES) {
+        timelines.removeLast();
+      }
+    }
+
+    return timeline;
+  }
+
+  public final List<QemuLaunchTimeline> getTimelines() {
+    synchronized(timelines) {
+      return List.copyOf(timelines);
+    }
+  }
+
+  public final List<QemuLaunchTimeline> getTimelines(final Project project, final String configurationName) {
+    Arguments.requireNotNull(project, "project == null");
+
+    return getTimelines().stream()
+        .filter(timeline -> timeline.getProjectLocationHash().equals(project.getLocationHash()))
+        .filter(timeline -> configurationName == null || configurationName.equals(timeline.getConfigurationName()))
+        .collect(Collectors.toUnmodifiableList());
+  }
+
+  public final Optional<QemuLaunchTimeline> getLatest(final Project project) {
+    return getTimelines(project, null).stream().findFirst();
+  }
+
+  private void timelineUpdated(final QemuLaunchTimeline timeline, final QemuLaunchPhase phase) {
+    ApplicationManager.getApplication().getMessageBus().syncPublisher(QemuLaunchTimingsListener.TOPIC).timelineUpdated(timeline, phase);
+  }
+
+}
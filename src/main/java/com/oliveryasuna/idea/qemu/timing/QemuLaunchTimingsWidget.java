@@ -0,0 +1,152 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.timing;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.wm.StatusBar;
+import com.intellij.openapi.wm.StatusBarWidget;
+import com.intellij.util.Consumer;
+import com.oliveryasuna.commons.language.condition.Arguments;
+
+import java.awt.*;
+import java.awt.event.MouseEvent;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+// Boot time of the latest run in the project. The tooltip has its full breakdown and the boot times of the runs before it.
+final class QemuLaunchTimingsWidget implements StatusBarWidget, StatusBarWidget.TextPresentation {
+
+  // Static fields
+  //--------------------------------------------------
+
+  static final String ID = "QemuLaunchTimings";
+
+  private static final int TREND_RUNS = 10;
+
+  // Constructors
+  //--------------------------------------------------
+
+  QemuLaunchTimingsWidget(final Project project) {
+    super();
+
+    Arguments.requireNotNull(project, "project == null");
+
+    this.project = project;
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final Project project;
+
+  private StatusBar statusBar;
+
+  // Methods
+  //--------------------------------------------------
+
+  private void timelineUpdated(final QemuLaunchTimeline timeline) {
+    if(!timeline.getProjectLocationHash().equals(project.getLocationHash())) {
+      return;
+    }
+
+    ApplicationManager.getApplication().invokeLater(() -> {
+      if(statusBar != null) {
+        statusBar.updateWidget(ID);
+      }
+    }, project.getDisposed());
+  }
+
+  // StatusBarWidget methods
+  //--------------------------------------------------
+
+  @Override
+  public final String ID() {
+    return ID;
+  }
+
+  @Override
+  public final WidgetPresentation getPresentation() {
+    return this;
+  }
+
+  @Override
+  public final void install(final StatusBar statusBar) {
+    this.statusBar = statusBar;
+
+    ApplicationManager.getApplication().getMessageBus().connect(this)
+        .subscribe(QemuLaunchTimingsListener.TOPIC, (timeline, phase) -> timelineUpdated(timeline));
+  }
+
+  // Disposable methods
+  //--------------------------------------------------
+
+  @Override
+  public final void dispose() {
+    statusBar = null;
+  }
+
+  // TextPresentation methods
+  //--------------------------------------------------
+
+  @Override
+  public final String getText() {
+    final Optional<QemuLaunchTimeline> latest = QemuLaunchTimings.getInstance().getLatest(project);
+
+    if(latest.isEmpty()) {
+      return "";
+    }
+
+    return "QEMU boot: " + latest.get().getBootTime().map(QemuLaunchTimeline::formatDuration).orElse("...");
+  }
+
+  @Override
+  public final float getAlignment() {
+    return Component.CENTER_ALIGNMENT;
+  }
+
+  @Override
+  public final String getTooltipText() {
+    final Optional<QemuLaunchTimeline> latest = QemuLaunchTimings.getInstance().getLatest(project);
+
+    if(latest.isEmpty()) {
+      return null;
+    }
+
+    final List<String> trend = QemuLaunchTimings.getInstance().getTimelines(project, latest.get().getConfigurationName()).stream()
+        .limit(TREND_RUNS)
+        .map(QemuLaunchTimeline::getBootTime)
+        .flatMap(Optional::stream)
+        .map(Duration::toMillis)
+        .map(String::valueOf)
+        .collect(Collectors.toList());
+
+    return "<html>" + StringUtil.escapeXmlEntities(latest.get().getConfigurationName()) + "<pre>"
+        + StringUtil.escapeXmlEntities(latest.get().formatBreakdown()) + "</pre>Recent boot times (ms, newest first): "
+        + String.join(", ", trend) + "</html>";
+  }
+
+  @Override
+  public final Consumer<MouseEvent> getClickConsumer() {
+    return null;
+  }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.timing;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.wm.StatusBar;
+import com.intellij.openapi.wm.StatusBarWidget;
+import com.intellij.openapi.wm.StatusBarWidgetFactory;
+
+public final class QemuLaunchTimingsWidgetFactory implements StatusBarWidgetFactory {
+
+  // Constructors
+  //--------------------------------------------------
+
+  public QemuLaunchTimingsWidgetFactory() {
+    super();
+  }
+
+  // StatusBarWidgetFactory methods
+  //--------------------------------------------------
+
+  @Override
+  public final String getId() {
+    return QemuLaunchTimingsWidget.ID;
+  }
+
+  @Override
+  public final String getDisplayName() {
+    return "QEMU Launch Timing";
+  }
+
+  @Override
+  public final boolean isAvailable(final Project project) {
+    return true;
+  }
+
+  @Override
+  public final StatusBarWidget createWidget(final Project project) {
+    return new QemuLaunchTimingsWidget(project);
+  }
+
+  @Override
+  public final void disposeWidget(final StatusBarWidget widget) {
+    Disposer.dispose(widget);
+  }
+
+  @Override
+  public final boolean canBeEnabledOn(final StatusBar statusBar) {
+    return true;
+  }
+
+}
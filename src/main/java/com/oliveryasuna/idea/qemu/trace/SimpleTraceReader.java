@@ -0,0 +1,269 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.trace;
+
+import com.oliveryasuna.commons.language.condition.Arguments;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Streams the records of a trace written by QEMU's simple trace backend (version 4 of the format, as read by scripts/simpletrace.py). The
+// file is read through one reusable buffer and records are handed to the listener in place, so decoding allocates nothing per record. The
+// format uses the host's byte order, which the header tells. A trailing partial record, left when QEMU was killed, is ignored.
+public final class SimpleTraceReader {
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final long HEADER_EVENT_ID = 0xFFFFFFFFFFFFFFFFL;
+
+  private static final long HEADER_MAGIC = 0xF2B177CB0AA429B4L;
+
+  private static final long SUPPORTED_VERSION = 4;
+
+  private static final int HEADER_BYTES = 3 * Long.BYTES;
+
+  // Event ID, timestamp, record length and PID.
+  private static final int RECORD_HEADER_BYTES = 2 * Long.BYTES + 2 * Integer.BYTES;
+
+  private static final long RECORD_TYPE_MAPPING = 0;
+
+  private static final long RECORD_TYPE_EVENT = 1;
+
+  private static final long DROPPED_EVENT_ID = 0xFFFFFFFFFFFFFFFEL;
+
+  private static final int BUFFER_SIZE = 1 << 20;
+
+  // Static methods
+  //--------------------------------------------------
+
+  // Whether the file starts with a simpletrace header of a supported version.
+  public static boolean isSimpleTrace(final Path file) {
+    Arguments.requireNotNull(file, "file == null");
+
+    try(final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+
+      return (channel.read(header, 0) == HEADER_BYTES && readHeader(header) != null);
+    } catch(final IOException e) {
+      return false;
+    }
+  }
+
+  public static void read(final Path file, final RecordListener listener) throws IOException {
+    Arguments.requireNotNull(file, "file == null");
+    Arguments.requireNotNull(listener, "listener == null");
+
+    try(final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      new SimpleTraceReader(channel, listener).read();
+    }
+  }
+
+  // The byte order of a supported header, or null.
+  private static ByteOrder readHeader(final ByteBuffer header) {
+    for(final ByteOrder order : new ByteOrder[] {ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN}) {
+      header.order(order);
+
+      if(header.getLong(0) == HEADER_EVENT_ID && header.getLong(Long.BYTES) == HEADER_MAGIC
+          && header.getLong(2 * Long.BYTES) == SUPPORTED_VERSION) {
+        return order;
+      }
+    }
+
+    return null;
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  private SimpleTraceReader(final FileChannel channel, final RecordListener listener) {
+    super();
+
+    this.channel = channel;
+    this.listener = listener;
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final FileChannel channel;
+
+  private final RecordListener listener;
+
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).limit(0);
+
+  // Methods
+  //--------------------------------------------------
+
+  private void read() throws IOException {
+    if(!fill(HEADER_BYTES)) {
+      throw new IOException("Not a simpletrace file: too short.");
+    }
+
+    final ByteOrder order = readHeader(buffer.slice().limit(HEADER_BYTES));
+
+    if(order == null) {
+      throw new IOException("Not a simpletrace file of version " + SUPPORTED_VERSION + ".");
+    }
+
+    buffer.order(order);
+    buffer.position(buffer.position() + HEADER_BYTES);
+
+    while(fill(Long.BYTES)) {
+      final long type = buffer.getLong();
+
+      if(type == RECORD_TYPE_MAPPING) {
+        if(!readMapping()) {
+          return;
+        }
+      } else if(type == RECORD_TYPE_EVENT) {
+        if(!readEvent()) {
+          return;
+        }
+      } else {
+        throw new IOException("Unknown simpletrace record type " + type + ".");
+      }
+    }
+  }
+
+  private boolean readMapping() throws IOException {
+    if(!fill(Long.BYTES + Integer.BYTES)) {
+      return false;
+    }
+
+    final long id = buffer.getLong();
+    final int nameLength = buffer.getInt();
+
+    if(nameLength < 0 || nameLength > BUFFER_SIZE || !fill(nameLength)) {
+      return false;
+    }
+
+    final byte[] name = new byte[nameLength];
+
+    buffer.get(name);
+
+    listener.eventMapped(id, new String(name, StandardCharsets.US_ASCII));
+
+    return true;
+  }
+
+  // The listener sees the arguments as the buffer's remaining bytes.
+  private boolean readEvent() throws IOException {
+    if(!fill(RECORD_HEADER_BYTES)) {
+      return false;
+    }
+
+    final long id = buffer.getLong();
+    final long timestamp = buffer.getLong();
+    final long argumentBytes = Integer.toUnsignedLong(buffer.getInt()) - RECORD_HEADER_BYTES;
+    final int pid = buffer.getInt();
+
+    if(argumentBytes < 0) {
+      throw new IOException("Malformed simpletrace record for event " + id + ".");
+    }
+
+    // Records too large to buffer can only carry long strings, which nothing here looks at.
+    if(argumentBytes > BUFFER_SIZE) {
+      return skip(argumentBytes);
+    }
+
+    if(!fill((int)argumentBytes)) {
+      return false;
+    }
+
+    final int end = buffer.position() + (int)argumentBytes;
+    final int limit = buffer.limit();
+
+    buffer.limit(end);
+
+    try {
+      if(id == DROPPED_EVENT_ID) {
+        listener.eventsDropped(buffer.remaining() >= Long.BYTES ? buffer.getLong(buffer.position()) : 0);
+      } else {
+        listener.eventRecorded(id, timestamp, pid, buffer);
+      }
+    } finally {
+      buffer.limit(limit);
+      buffer.position(end);
+    }
+
+    return true;
+  }
+
+  // Makes at least the given number of bytes remain in the buffer. False at the end of the file.
+  private boolean fill(final int bytes) throws IOException {
+    if(buffer.remaining() >= bytes) {
+      return true;
+    }
+
+    buffer.compact();
+
+    try {
+      while(buffer.position() < bytes) {
+        if(channel.read(buffer) < 0) {
+          return false;
+        }
+      }
+    } finally {
+      buffer.flip();
+    }
+
+    return true;
+  }
+
+  private boolean skip(final long bytes) throws IOException {
+    final long unbuffered = bytes - buffer.remaining();
+
+    if(unbuffered <= 0) {
+      buffer.position(buffer.position() + (int)bytes);
+
+      return true;
+    }
+
+    if(channel.position() + unbuffered > channel.size()) {
+      return false;
+    }
+
+    channel.position(channel.position() + unbuffered);
+    buffer.limit(0);
+
+    return true;
+  }
+
+  // RecordListener interface
+  //--------------------------------------------------
+
+  public interface RecordListener {
+
+    // QEMU names each event ID before recording it.
+    void eventMapped(long id, String name);
+
+    // The arguments are the buffer's remaining bytes, in the trace's byte order: 64 bits each, or a 32-bit length followed by the bytes for
+    // strings. The buffer is only valid during the call.
+    void eventRecorded(long id, long timestamp, int pid, ByteBuffer arguments);
+
+    void eventsDropped(long count);
+
+  }
+
+}
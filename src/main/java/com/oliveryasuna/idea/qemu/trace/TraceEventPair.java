@@ -0,0 +1,81 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.trace;
+
+// Trace events that start and finish the same request, and which argument identifies the request in each. Their time apart is the request's
+// latency. The key must not follow a string argument, as those have no fixed size.
+public enum TraceEventPair {
+
+  // Values
+  //--------------------------------------------------
+
+  VIRTQUEUE_ELEMENT("virtqueue element", "virtqueue_pop", 1, "virtqueue_fill", 1),
+  VIRTIO_BLK_READ("virtio-blk read", "virtio_blk_handle_read", 1, "virtio_blk_req_complete", 1),
+  VIRTIO_BLK_WRITE("virtio-blk write", "virtio_blk_handle_write", 1, "virtio_blk_req_complete", 1),
+  VIRTIO_SCSI_COMMAND("virtio-scsi command", "virtio_scsi_cmd_req", 1, "virtio_scsi_cmd_resp", 1),
+  DMA_BLOCK_IO("DMA block I/O", "dma_blk_io", 0, "dma_complete", 0);
+
+  // Constructors
+  //--------------------------------------------------
+
+  TraceEventPair(final String description, final String startEvent, final int startKey, final String endEvent, final int endKey) {
+    this.description = description;
+    this.startEvent = startEvent;
+    this.startKey = startKey;
+    this.endEvent = endEvent;
+    this.endKey = endKey;
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final String description;
+
+  private final String startEvent;
+
+  // Argument indexes.
+  private final int startKey;
+
+  private final String endEvent;
+
+  private final int endKey;
+
+  // Getters/setters
+  //--------------------------------------------------
+
+  public final String getDescription() {
+    return description;
+  }
+
+  public final String getStartEvent() {
+    return startEvent;
+  }
+
+  public final int getStartKey() {
+    return startKey;
+  }
+
+  public final String getEndEvent() {
+    return endEvent;
+  }
+
+  public final int getEndKey() {
+    return endKey;
+  }
+
+}
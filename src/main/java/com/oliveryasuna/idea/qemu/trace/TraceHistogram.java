@@ -0,0 +1,166 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.trace;
+
+// Nanosecond durations of one trace event or request kind, counted in power-of-two buckets. Percentiles are therefore approximate: they are
+// the upper bound of the bucket they fall in, capped at the maximum.
+public final class TraceHistogram {
+
+  // Static fields
+  //--------------------------------------------------
+
+  public static final int BUCKETS = 64;
+
+  // Constructors
+  //--------------------------------------------------
+
+  TraceHistogram(final String name, final Kind kind) {
+    super();
+
+    this.name = name;
+    this.kind = kind;
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final String name;
+
+  private final Kind kind;
+
+  // Occurrences for events, completed requests for latencies.
+  private long count;
+
+  private final long[] buckets = new long[BUCKETS];
+
+  private long samples;
+
+  private long sum;
+
+  private long min = Long.MAX_VALUE;
+
+  private long max;
+
+  // Methods
+  //--------------------------------------------------
+
+  final void increment() {
+    count++;
+  }
+
+  final void add(final long nanos) {
+    // The clock is monotonic, but records from different threads may be written out of order.
+    final long duration = Math.max(0, nanos);
+
+    buckets[BUCKETS - 1 - Long.numberOfLeadingZeros(Math.max(1, duration))]++;
+    samples++;
+    sum += duration;
+    min = Math.min(min, duration);
+    max = Math.max(max, duration);
+  }
+
+  public final long getPercentile(final double percentile) {
+    if(samples == 0) {
+      return 0;
+    }
+
+    final long rank = (long)Math.ceil(samples * percentile / 100);
+    long seen = 0;
+
+    for(int bucket = 0; bucket < BUCKETS; bucket++) {
+      seen += buckets[bucket];
+
+      if(seen >= Math.max(1, rank)) {
+        return (bucket >= 62 ? max : Math.min(max, (1L << (bucket + 1)) - 1));
+      }
+    }
+
+    return max;
+  }
+
+  public final double getMean() {
+    return (samples > 0 ? (double)sum / samples : 0);
+  }
+
+  public final long getBucket(final int bucket) {
+    return buckets[bucket];
+  }
+
+  // Getters/setters
+  //--------------------------------------------------
+
+  public final String getName() {
+    return name;
+  }
+
+  public final Kind getKind() {
+    return kind;
+  }
+
+  public final long getCount() {
+    return count;
+  }
+
+  public final long getSamples() {
+    return samples;
+  }
+
+  public final long getMin() {
+    return (samples > 0 ? min : 0);
+  }
+
+  public final long getMax() {
+    return max;
+  }
+
+  // Kind enum
+  //--------------------------------------------------
+
+  public enum Kind {
+
+    // Values
+    //--------------------------------------------------
+
+    // Time between consecutive occurrences of an event.
+    INTERVAL("Interval"),
+
+    // Time from the start to the end of a request.
+    LATENCY("Latency");
+
+    // Constructors
+    //--------------------------------------------------
+
+    Kind(final String description) {
+      this.description = description;
+    }
+
+    // Fields
+    //--------------------------------------------------
+
+    private final String description;
+
+    // Getters/setters
+    //--------------------------------------------------
+
+    public final String getDescription() {
+      return description;
+    }
+
+  }
+
+}
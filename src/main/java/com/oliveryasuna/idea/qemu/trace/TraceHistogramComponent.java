@@ -0,0 +1,128 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.trace;
+
+import com.intellij.ui.JBColor;
+import com.intellij.util.ui.JBUI;
+import com.intellij.util.ui.UIUtil;
+
+import javax.swing.*;
+import java.awt.*;
+
+// Bar chart of one histogram's power-of-two buckets, from the smallest to the largest non-empty one.
+final class TraceHistogramComponent extends JComponent {
+
+  // Constructors
+  //--------------------------------------------------
+
+  TraceHistogramComponent() {
+    super();
+
+    setOpaque(true);
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private TraceHistogram histogram;
+
+  // Methods
+  //--------------------------------------------------
+
+  @Override
+  protected final void paintComponent(final Graphics graphics) {
+    final Graphics2D g = (Graphics2D)graphics.create();
+
+    try {
+      UIUtil.applyRenderingHints(g);
+
+      g.setColor(UIUtil.getPanelBackground());
+      g.fillRect(0, 0, getWidth(), getHeight());
+
+      g.setFont(UIUtil.getLabelFont(UIUtil.FontSize.SMALL));
+
+      final FontMetrics fontMetrics = g.getFontMetrics();
+
+      g.setColor(UIUtil.getLabelForeground());
+
+      if(histogram == null || histogram.getSamples() == 0) {
+        g.drawString((histogram == null ? "Select an event to see its histogram." : "Too few occurrences for a histogram."), JBUI.scale(4),
+            fontMetrics.getAscent() + JBUI.scale(4));
+
+        return;
+      }
+
+      int first = 0;
+      int last = TraceHistogram.BUCKETS - 1;
+
+      while(histogram.getBucket(first) == 0) {
+        first++;
+      }
+
+      while(histogram.getBucket(last) == 0) {
+        last--;
+      }
+
+      long max = 0;
+
+      for(int bucket = first; bucket <= last; bucket++) {
+        max = Math.max(max, histogram.getBucket(bucket));
+      }
+
+      g.drawString(histogram.getName() + " - " + histogram.getKind().getDescription().toLowerCase() + ", " + histogram.getSamples()
+          + " samples", JBUI.scale(4), fontMetrics.getAscent() + JBUI.scale(2));
+
+      final Rectangle plot = new Rectangle(JBUI.scale(4), fontMetrics.getHeight() + JBUI.scale(6), getWidth() - JBUI.scale(8),
+          getHeight() - 2 * fontMetrics.getHeight() - JBUI.scale(10));
+
+      if(plot.width <= 0 || plot.height <= 0) {
+        return;
+      }
+
+      final int bars = last - first + 1;
+      final int barWidth = Math.max(1, plot.width / bars);
+
+      for(int bucket = first; bucket <= last; bucket++) {
+        final int x = plot.x + (bucket - first) * barWidth;
+        final int height = (int)Math.round((double)plot.height * histogram.getBucket(bucket) / max);
+
+        g.setColor(JBColor.BLUE);
+        g.fillRect(x + 1, plot.y + plot.height - height, barWidth - 2, height);
+
+        final String label = TraceReportViewer.formatNanos(1L << bucket);
+
+        if(fontMetrics.stringWidth(label) < barWidth) {
+          g.setColor(UIUtil.getLabelForeground());
+          g.drawString(label, x + (barWidth - fontMetrics.stringWidth(label)) / 2, plot.y + plot.height + fontMetrics.getAscent() + 2);
+        }
+      }
+    } finally {
+      g.dispose();
+    }
+  }
+
+  // Getters/setters
+  //--------------------------------------------------
+
+  final void setHistogram(final TraceHistogram histogram) {
+    this.histogram = histogram;
+
+    repaint();
+  }
+
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.trace;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.DialogWrapper;
+import com.intellij.ui.JBSplitter;
+import com.intellij.ui.components.JBLabel;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.table.TableView;
+import com.intellij.util.ui.ColumnInfo;
+import com.intellij.util.ui.JBUI;
+import com.intellij.util.ui.ListTableModel;
+import com.oliveryasuna.commons.language.condition.Arguments;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+// Per-event counts and interval histograms, and request latency histograms, from a QEMU simpletrace file. Selecting a row shows its
+// histogram.
+public final class TraceReportViewer extends DialogWrapper {
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final ColumnInfo<TraceHistogram, String> NAME_COLUMN = new ColumnInfo<>("Event") {
+    @Override
+    public String valueOf(final TraceHistogram histogram) {
+      return histogram.getName();
+    }
+
+    @Override
+    public Comparator<TraceHistogram> getComparator() {
+      return Comparator.comparing(TraceHistogram::getName);
+    }
+  };
+
+  private static final ColumnInfo<TraceHistogram, String> KIND_COLUMN = new ColumnInfo<>("Measures") {
+    @Override
+    public String valueOf(final TraceHistogram histogram) {
+      return histogram.getKind().getDescription();
+    }
+
+    @Override
+    public Comparator<TraceHistogram> getComparator() {
+      return Comparator.comparing(TraceHistogram::getKind);
+    }
+  };
+
+  private static final ColumnInfo<TraceHistogram, Long> COUNT_COLUMN = new ColumnInfo<>("Count") {
+    @Override
+    public Long valueOf(final TraceHistogram histogram) {
+      return histogram.getCount();
+    }
+
+    @Override
+    public Class<?> getColumnClass() {
+      return Long.class;
+    }
+
+    @Override
+    public Comparator<TraceHistogram> getComparator() {
+      return Comparator.comparingLong(TraceHistogram::getCount);
+    }
+  };
+
+  private static final ColumnInfo<TraceHistogram, String> MEAN_COLUMN = createDurationColumn("Mean", histogram -> (long)histogram.getMean());
+
+  private static final ColumnInfo<TraceHistogram, String> MEDIAN_COLUMN = createDurationColumn("p50", histogram -> histogram.getPercentile(50));
+
+  private static final ColumnInfo<TraceHistogram, String> P99_COLUMN = createDurationColumn("p99", histogram -> histogram.getPercentile(99));
+
+  private static final ColumnInfo<TraceHistogram, String> MAX_COLUMN = createDurationColumn("Max", TraceHistogram::getMax);
+
+  private static final int COUNT_COLUMN_INDEX = 2;
+
+  // Static methods
+  //--------------------------------------------------
+
+  static String formatNanos(final long nanos) {
+    if(nanos < 1_000) {
+      return nanos + " ns";
+    } else if(nanos < 1_000_000) {
+      return String.format("%.1f \u00B5s", nanos / 1e3);
+    } else if(nanos < 1_000_000_000) {
+      return String.format("%.1f ms", nanos / 1e6);
+    } else {
+      return String.format("%.2f s", nanos / 1e9);
+    }
+  }
+
+  private static ColumnInfo<TraceHistogram, String> createDurationColumn(final String name, final ToLongFunction<TraceHistogram> duration) {
+    return new ColumnInfo<>(name) {
+      @Override
+      public String valueOf(final TraceHistogram histogram) {
+        return (histogram.getSamples() > 0 ? formatNanos(duration.applyAsLong(histogram)) : "");
+      }
+
+      @Override
+      public Comparator<TraceHistogram> getComparator() {
+        return Comparator.comparingLong(duration);
+      }
+    };
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  public TraceReportViewer(final Project project, final String configurationName, final TraceStatistics statistics) {
+    super(project, false, IdeModalityType.MODELESS);
+
+    Arguments.requireNotNull(statistics, "statistics == null");
+
+    this.statistics = statistics;
+
+    setTitle("QEMU Trace - " + configurationName);
+    setModal(false);
+
+    init();
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private final TraceStatistics statistics;
+
+  // Methods
+  //--------------------------------------------------
+
+  private String getStatus(final List<TraceHistogram> histograms) {
+    final StringBuilder status = new StringBuilder();
+    final long events = histograms.stream()
+        .filter(histogram -> histogram.getKind() == TraceHistogram.Kind.INTERVAL)
+        .mapToLong(TraceHistogram::getCount)
+        .sum();
+
+    status.append(events).append(" events over ").append(formatNanos(statistics.getDuration())).append('.');
+
+    if(statistics.getDroppedEvents() > 0) {
+      status.append(' ').append(statistics.getDroppedEvents()).append(" events were dropped by QEMU; latencies may be missing.");
+    }
+
+    if(statistics.getUnknownEvents() > 0) {
+      status.append(' ').append(statistics.getUnknownEvents()).append(" records had no event name.");
+    }
+
+    return status.toString();
+  }
+
+  // DialogWrapper methods
+  //--------------------------------------------------
+
+  @Override
+  protected final JComponent createCenterPanel() {
+    final List<TraceHistogram> histograms = statistics.getHistograms();
+    final double seconds = Math.max(statistics.getDuration(), 1) / 1e9;
+    final ColumnInfo<TraceHistogram, String> rateColumn = new ColumnInfo<>("Per second") {
+      @Override
+      public String valueOf(final TraceHistogram histogram) {
+        return String.format("%.1f", histogram.getCount() / seconds);
+      }
+
+      @Override
+      public Comparator<TraceHistogram> getComparator() {
+        return Comparator.comparingLong(TraceHistogram::getCount);
+      }
+    };
+    final ListTableModel<TraceHistogram> model = new ListTableModel<>(new ColumnInfo[] {NAME_COLUMN, KIND_COLUMN, COUNT_COLUMN, rateColumn,
+        MEAN_COLUMN, MEDIAN_COLUMN, P99_COLUMN, MAX_COLUMN}, new ArrayList<>(histograms));
+
+    model.setSortable(true);
+
+    final TableView<TraceHistogram> table = new TableView<>(model);
+    final TraceHistogramComponent histogramComponent = new TraceHistogramComponent();
+
+    table.getRowSorter().setSortKeys(List.of(new RowSorter.SortKey(COUNT_COLUMN_INDEX, SortOrder.DESCENDING)));
+    table.getSelectionModel().addListSelectionListener(event -> histogramComponent.setHistogram(table.getSelectedObject()));
+
+    final JBSplitter splitter = new JBSplitter(true, 0.6f);
+
+    splitter.setFirstComponent(new JBScrollPane(table));
+    splitter.setSecondComponent(histogramComponent);
+
+    final JPanel panel = new JPanel(new BorderLayout());
+
+    panel.add(splitter, BorderLayout.CENTER);
+    panel.add(new JBLabel(getStatus(histograms)), BorderLayout.SOUTH);
+    panel.setPreferredSize(JBUI.size(900, 650));
+
+    return panel;
+  }
+
+  @Override
+  protected final Action[] createActions() {
+    return new Action[] {getOKAction()};
+  }
+
+}
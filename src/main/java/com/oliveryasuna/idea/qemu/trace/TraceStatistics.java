@@ -0,0 +1,392 @@
+/*
+ * Copyright 2022 Oliver Yasuna
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this software without
+ *      specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oliveryasuna.idea.qemu.trace;
+
+import com.oliveryasuna.commons.language.condition.Arguments;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+// Counts and interval histograms per trace event, and latency histograms for the requests of each TraceEventPair, built in one pass over a
+// simpletrace file. State is kept in arrays indexed by event ID and in primitive maps, so records are folded in without allocating.
+public final class TraceStatistics implements SimpleTraceReader.RecordListener {
+
+  // Static fields
+  //--------------------------------------------------
+
+  private static final PairState[] NO_PAIRS = new PairState[0];
+
+  // Static methods
+  //--------------------------------------------------
+
+  public static TraceStatistics read(final Path traceFile) throws IOException {
+    Arguments.requireNotNull(traceFile, "traceFile == null");
+
+    final TraceStatistics statistics = new TraceStatistics();
+
+    SimpleTraceReader.read(traceFile, statistics);
+
+    return statistics;
+  }
+
+  // Arguments before the index must not be strings.
+  private static boolean hasArgument(final ByteBuffer arguments, final int index) {
+    return (arguments.position() + (index + 1) * Long.BYTES <= arguments.limit());
+  }
+
+  private static long getArgument(final ByteBuffer arguments, final int index) {
+    return arguments.getLong(arguments.position() + index * Long.BYTES);
+  }
+
+  // Constructors
+  //--------------------------------------------------
+
+  private TraceStatistics() {
+    super();
+
+    for(final TraceEventPair pair : TraceEventPair.values()) {
+      pairs.put(pair, new PairState(pair));
+    }
+  }
+
+  // Fields
+  //--------------------------------------------------
+
+  private EventState[] events = new EventState[256];
+
+  private final Map<TraceEventPair, PairState> pairs = new EnumMap<>(TraceEventPair.class);
+
+  private long firstTimestamp = -1;
+
+  private long lastTimestamp = -1;
+
+  private long droppedEvents;
+
+  // Records of events that were never mapped.
+  private long unknownEvents;
+
+  // Methods
+  //--------------------------------------------------
+
+  // Events that occurred and requests that completed, most frequent first.
+  public final List<TraceHistogram> getHistograms() {
+    final List<TraceHistogram> histograms = new ArrayList<>();
+
+    for(final EventState event : events) {
+      if(event != null && event.histogram.getCount() > 0) {
+        histograms.add(event.histogram);
+      }
+    }
+
+    for(final PairState pair : pairs.values()) {
+      if(pair.histogram.getCount() > 0) {
+        histograms.add(pair.histogram);
+      }
+    }
+
+    histograms.sort(Comparator.comparingLong(TraceHistogram::getCount).reversed());
+
+    return histograms;
+  }
+
+  // Nanoseconds from the first to the last record.
+  public final long getDuration() {
+    return (firstTimestamp >= 0 ? lastTimestamp - firstTimestamp : 0);
+  }
+
+  private PairState[] getPairs(final String event, final boolean start) {
+    final List<PairState> found = new ArrayList<>();
+
+    for(final PairState pair : pairs.values()) {
+      if(event.equals(start ? pair.pair.getStartEvent() : pair.pair.getEndEvent())) {
+        found.add(pair);
+      }
+    }
+
+    return (found.isEmpty() ? NO_PAIRS : found.toArray(NO_PAIRS));
+  }
+
+  // Getters/setters
+  //--------------------------------------------------
+
+  // As reported by QEMU when its trace buffer overflowed.
+  public final long getDroppedEvents() {
+    return droppedEvents;
+  }
+
+  public final long getUnknownEvents() {
+    return unknownEvents;
+  }
+
+  // RecordListener methods
+  //--------------------------------------------------
+
+  @Override
+  public final void eventMapped(final long id, final String name) {
+    if(id < 0 || id >= Integer.MAX_VALUE) {
+      return;
+    }
+
+    if(id >= events.length) {
+      events = Arrays.copyOf(events, (int)Math.max(id + 1, events.length * 2L));
+    }
+
+    events[(int)id] = new EventState(name, getPairs(name, true), getPairs(name, false));
+  }
+
+  @Override
+  public final void eventRecorded(final long id, final long timestamp, final int pid, final ByteBuffer arguments) {
+    final EventState event = (id >= 0 && id < events.length ? events[(int)id] : null);
+
+    if(event == null) {
+      unknownEvents++;
+
+      return;
+    }
+
+    if(firstTimestamp < 0) {
+      firstTimestamp = timestamp;
+    }
+
+    lastTimestamp = Math.max(lastTimestamp, timestamp);
+
+    event.histogram.increment();
+
+    if(event.lastTimestamp >= 0) {
+      event.histogram.add(timestamp - event.lastTimestamp);
+    }
+
+    event.lastTimestamp = timestamp;
+
+    for(final PairState pair : event.starts) {
+      if(hasArgument(arguments, pair.pair.getStartKey())) {
+        pair.pending.put(getArgument(arguments, pair.pair.getStartKey()), timestamp);
+      }
+    }
+
+    for(final PairState pair : event.ends) {
+      if(hasArgument(arguments, pair.pair.getEndKey())) {
+        final long start = pair.pending.remove(getArgument(arguments, pair.pair.getEndKey()));
+
+        if(start != PendingRequests.ABSENT) {
+          pair.histogram.increment();
+          pair.histogram.add(timestamp - start);
+        }
+      }
+    }
+  }
+
+  @Override
+  public final void eventsDropped(final long count) {
+    droppedEvents += count;
+  }
+
+  // EventState class
+  //--------------------------------------------------
+
+  private static final class EventState {
+
+    // Constructors
+    //--------------------------------------------------
+
+    private EventState(final String name, final PairState[] starts, final PairState[] ends) {
+      super();
+
+      this.histogram = new TraceHistogram(name, TraceHistogram.Kind.INTERVAL);
+      this.starts = starts;
+      this.ends = ends;
+    }
+
+    // Fields
+    //--------------------------------------------------
+
+    private final TraceHistogram histogram;
+
+    // Pairs this event starts or ends requests of.
+    private final PairState[] starts;
+
+    private final PairState[] ends;
+
+    private long lastTimestamp = -1;
+
+  }
+
+  // PairState class
+  //--------------------------------------------------
+
+  private static final class PairState {
+
+    // Constructors
+    //--------------------------------------------------
+
+    private PairState(final TraceEventPair pair) {
+      super();
+
+      this.pair = pair;
+      this.histogram = new TraceHistogram(pair.getDescription(), TraceHistogram.Kind.LATENCY);
+    }
+
+    // Fields
+    //--------------------------------------------------
+
+    private final TraceEventPair pair;
+
+    private final TraceHistogram histogram;
+
+    private final PendingRequests pending = new PendingRequests();
+
+  }
+
+  // PendingRequests class
+  //--------------------------------------------------
+
+  // Start timestamps by request key: an open-addressing map of primitives.
+  private static final class PendingRequests {
+
+    // Static fields
+    //--------------------------------------------------
+
+    private static final long ABSENT = Long.MIN_VALUE;
+
+    // Requests that never complete, e.g. when their end event is not enabled, would otherwise pile up.
+    private static final int MAX_SIZE = 1 << 20;
+
+    // Static methods
+    //--------------------------------------------------
+
+    private static int slot(final long key, final int capacity) {
+      final long mixed = key * 0x9E3779B97F4A7C15L;
+
+      return (int)(mixed ^ (mixed >>> 32)) & (capacity - 1);
+    }
+
+    // Constructors
+    //--------------------------------------------------
+
+    private PendingRequests() {
+      super();
+    }
+
+    // Fields
+    //--------------------------------------------------
+
+    private long[] keys = new long[64];
+
+    private long[] values = new long[64];
+
+    private boolean[] used = new boolean[64];
+
+    private int size;
+
+    // Methods
+    //--------------------------------------------------
+
+    private void put(final long key, final long value) {
+      if(size >= MAX_SIZE) {
+        clear();
+      }
+
+      if(size * 2 >= keys.length) {
+        resize(keys.length * 2);
+      }
+
+      int slot = slot(key, keys.length);
+
+      while(used[slot] && keys[slot] != key) {
+        slot = (slot + 1) & (keys.length - 1);
+      }
+
+      if(!used[slot]) {
+        used[slot] = true;
+        keys[slot] = key;
+        size++;
+      }
+
+      values[slot] = value;
+    }
+
+    // The removed value, or ABSENT.
+    private long remove(final long key) {
+      final int mask = keys.length - 1;
+      int slot = slot(key, keys.length);
+
+      while(used[slot] && keys[slot] != key) {
+        slot = (slot + 1) & mask;
+      }
+
+      if(!used[slot]) {
+        return ABSENT;
+      }
+
+      final long value = values[slot];
+
+      // Shift later entries of the probe sequence back, so lookups never stop at the hole.
+      int hole = slot;
+      int next = (hole + 1) & mask;
+
+      while(used[next]) {
+        final int home = slot(keys[next], keys.length);
+
+        if(((next - home) & mask) >= ((next - hole) & mask)) {
+          keys[hole] = keys[next];
+          values[hole] = values[next];
+          hole = next;
+        }
+
+        next = (next + 1) & mask;
+      }
+
+      used[hole] = false;
+      size--;
+
+      return value;
+    }
+
+    private void resize(final int capacity) {
+      final long[] oldKeys = keys;
+      final long[] oldValues = values;
+      final boolean[] oldUsed = used;
+
+      keys = new long[capacity];
+      values = new long[capacity];
+      used = new boolean[capacity];
+      size = 0;
+
+      for(int i = 0; i < oldKeys.length; i++) {
+        if(oldUsed[i]) {
+          put(oldKeys[i], oldValues[i]);
+        }
+      }
+    }
+
+    private void clear() {
+      Arrays.fill(used, false);
+
+      size = 0;
+    }
+
+  }
+
+}
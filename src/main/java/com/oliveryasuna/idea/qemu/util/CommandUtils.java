@@ -8,7 +8,13 @@ import com.oliveryasuna.commons.language.marker.Utility;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
-import java.util.List;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -20,27 +26,25 @@ public final class CommandUtils {
 
   private static final Logger LOGGER = Logger.getInstance(CommandUtils.class);
 
+  // Static fields
+  //--------------------------------------------------
+
+  public static final Duration DEFAULT_DIRECTORY_TIMEOUT = Duration.ofSeconds(2);
+
+  private static final int MAX_PARALLEL_DIRECTORIES = 8;
+
+  private static final ExecutorService DIRECTORY_EXECUTOR = createDirectoryExecutor();
+
+  // Directories a scan is running in, possibly since an earlier search timed out on them.
+  private static final Set<File> BUSY_DIRECTORIES = ConcurrentHashMap.newKeySet();
+
   // Static utility methods
   //--------------------------------------------------
 
   public static List<File> findExecutables(final String commandRegex) {
     Arguments.requireNotNull(commandRegex, "commandRegex == null");
 
-    return Stream.concat(
-            FileUtils.getPath()
-                .filter(File::isDirectory),
-            Stream.of(FileUtils.getCurrentDirectory()))
-        .flatMap(directory -> {
-          try {
-            return FileUtils.findFiles(directory, 1, commandRegex)
-                .filter(file -> Files.isExecutable(file.toPath()));
-          } catch(final IOException e) {
-            LOGGER.error(e); // TODO: Error reporting.
-
-            return Stream.empty();
-          }
-        })
-        .collect(Collectors.toUnmodifiableList());
+    return findExecutables(getSearchDirectories().collect(Collectors.toList()), Pattern.compile(commandRegex), DEFAULT_DIRECTORY_TIMEOUT);
 
     /*return Arrays.stream(System.getenv("PATH").split(Pattern.quote(File.pathSeparator)))
         .map(Paths::get)
@@ -55,6 +59,186 @@ public final class CommandUtils {
         });*/
   }
 
+  public static List<File> findExecutables(final Collection<File> directories, final Pattern commandPattern, final Duration directoryTimeout) {
+    return findExecutablesByDirectory(directories, commandPattern, directoryTimeout).values().stream()
+        .flatMap(List::stream)
+        .distinct()
+        .collect(Collectors.toUnmodifiableList());
+  }
+
+  public static List<File> findExecutables(final File directory, final String commandRegex) {
+    Arguments.requireNotNull(commandRegex, "commandRegex == null");
+
+    return findExecutables(directory, Pattern.compile(commandRegex));
+  }
+
+  public static List<File> findExecutables(final File directory, final Pattern commandPattern) {
+    Arguments.requireNotNull(directory, "directory == null");
+    Arguments.requireNotNull(commandPattern, "commandPattern == null");
+
+    try {
+      return FileUtils.listFiles(directory.toPath(), commandPattern).stream()
+          .filter(Files::isExecutable)
+          .map(Path::toFile)
+          .collect(Collectors.toUnmodifiableList());
+    } catch(final IOException e) {
+      LOGGER.warn(e); // TODO: Error reporting.
+
+      return List.of();
+    }
+  }
+
+  // Scans the directories in parallel. A directory that does not finish within its timeout (e.g. a hung network mount) is left out of the result
+  // instead of stalling the whole search. Directories that resolve to the same real path are scanned once, under the first one's name.
+  // Iteration order follows the input.
+  public static Map<File, List<File>> findExecutablesByDirectory(final Collection<File> directories, final Pattern commandPattern,
+      final Duration directoryTimeout) {
+    Arguments.requireNotNull(commandPattern, "commandPattern == null");
+
+    return scanDirectories(distinctDirectories(directories, directoryTimeout), directory -> findExecutables(directory, commandPattern),
+        directoryTimeout);
+  }
+
+  // The directories that exist, normalized and in input order, leaving out those that resolve to the same real path as an earlier one.
+  // Resolving stats every path component, so it runs on the search threads, and directories that do not resolve within the timeout are
+  // left out as well. Deciding here rather than in the scans keeps the first one in PATH order, not whichever alias finishes first.
+  public static List<File> distinctDirectories(final Collection<File> directories, final Duration directoryTimeout) {
+    final Map<File, Optional<Path>> realPaths = scanDirectories(directories, directory -> {
+      try {
+        final Path realPath = directory.toPath().toRealPath();
+
+        return (Files.isDirectory(realPath) ? Optional.of(realPath) : Optional.<Path>empty());
+      } catch(final IOException e) {
+        // Gone.
+        return Optional.<Path>empty();
+      }
+    }, directoryTimeout);
+
+    final Set<Path> seenRealPaths = new HashSet<>();
+    final List<File> distinct = new ArrayList<>();
+
+    realPaths.forEach((directory, realPath) -> {
+      if(realPath.isPresent() && seenRealPaths.add(realPath.get())) {
+        distinct.add(directory);
+      }
+    });
+
+    return distinct;
+  }
+
+  // Runs the scanner on each directory in parallel on the search threads, so not even a stat call on a hung network mount reaches the
+  // caller. A directory whose scan does not finish within its timeout is left out of the result. That scan may stay stuck in a system call,
+  // which interrupting does not end, so the directory is skipped by later searches until it returns. Iteration order follows the input.
+  public static <T> Map<File, T> scanDirectories(final Collection<File> directories, final Function<File, T> scanner,
+      final Duration directoryTimeout) {
+    Arguments.requireNotNull(directories, "directories == null");
+    Arguments.requireNotNull(scanner, "scanner == null");
+    Arguments.requireNotNull(directoryTimeout, "directoryTimeout == null");
+
+    final Map<File, CompletableFuture<T>> scans = new LinkedHashMap<>();
+
+    for(final File directory : directories) {
+      scans.putIfAbsent(normalize(directory), null);
+    }
+
+    scans.replaceAll((directory, ignored) -> scanDirectory(directory, scanner, directoryTimeout));
+
+    // Queued scans only start their own timer once a thread picks them up, so bound the total wait as well.
+    final long rounds = (scans.size() + MAX_PARALLEL_DIRECTORIES - 1) / MAX_PARALLEL_DIRECTORIES;
+    final long deadline = System.nanoTime() + directoryTimeout.toNanos() * Math.max(1, rounds);
+
+    final Map<File, T> results = new LinkedHashMap<>();
+
+    for(final Map.Entry<File, CompletableFuture<T>> scan : scans.entrySet()) {
+      try {
+        results.put(scan.getKey(), scan.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+      } catch(final TimeoutException e) {
+        scan.getValue().cancel(true);
+
+        LOGGER.warn("Timed out searching " + scan.getKey() + "."); // TODO: Error reporting.
+      } catch(final ExecutionException e) {
+        if(e.getCause() instanceof TimeoutException) {
+          LOGGER.warn("Timed out searching " + scan.getKey() + "."); // TODO: Error reporting.
+        } else {
+          LOGGER.warn(e.getCause()); // TODO: Error reporting.
+        }
+      } catch(final CancellationException e) {
+        LOGGER.warn("Timed out searching " + scan.getKey() + "."); // TODO: Error reporting.
+      } catch(final InterruptedException e) {
+        Thread.currentThread().interrupt();
+
+        break;
+      }
+    }
+
+    return results;
+  }
+
+  // Not checked for existence here: that would touch every entry on the calling thread. Scans skip entries that are not directories.
+  public static Stream<File> getSearchDirectories() {
+    return Stream.concat(FileUtils.getPath(), Stream.of(FileUtils.getCurrentDirectory()));
+  }
+
+  // The form scanDirectories keys its results by.
+  public static File normalize(final File directory) {
+    return directory.getAbsoluteFile().toPath().normalize().toFile();
+  }
+
+  private static <T> CompletableFuture<T> scanDirectory(final File directory, final Function<File, T> scanner, final Duration directoryTimeout) {
+    final CompletableFuture<T> scan = new CompletableFuture<>();
+
+    if(BUSY_DIRECTORIES.contains(directory)) {
+      scan.completeExceptionally(new TimeoutException());
+
+      return scan;
+    }
+
+    try {
+      DIRECTORY_EXECUTOR.execute(() -> {
+        if(scan.isDone()) {
+          return;
+        }
+
+        // An earlier search's scan is still stuck in the directory.
+        if(!BUSY_DIRECTORIES.add(directory)) {
+          scan.completeExceptionally(new TimeoutException());
+
+          return;
+        }
+
+        scan.orTimeout(directoryTimeout.toNanos(), TimeUnit.NANOSECONDS);
+
+        try {
+          scan.complete(scanner.apply(directory));
+        } catch(final RuntimeException e) {
+          scan.completeExceptionally(e);
+        } finally {
+          BUSY_DIRECTORIES.remove(directory);
+        }
+      });
+    } catch(final RejectedExecutionException e) {
+      scan.completeExceptionally(e);
+    }
+
+    return scan;
+  }
+
+  private static ExecutorService createDirectoryExecutor() {
+    final AtomicInteger threadCount = new AtomicInteger();
+    final ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_PARALLEL_DIRECTORIES, MAX_PARALLEL_DIRECTORIES, 30, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(), runnable -> {
+      final Thread thread = new Thread(runnable, "Executable search " + threadCount.incrementAndGet());
+
+      thread.setDaemon(true);
+
+      return thread;
+    });
+
+    executor.allowCoreThreadTimeOut(true);
+
+    return executor;
+  }
+
   // Constructors
   //--------------------------------------------------
 
@@ -25,9 +25,15 @@ import java.io.File;
 import java.io.FileFilter;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
@@ -35,6 +41,11 @@ import java.util.stream.Stream;
 @Utility
 public final class FileUtils {
 
+  // Static fields
+  //--------------------------------------------------
+
+  private static final DateTimeFormatter FILE_NAME_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
   // Static utility methods
   //--------------------------------------------------
 
@@ -53,19 +64,70 @@ public final class FileUtils {
   }
 
   public static Stream<File> findFiles(final File directory, final int maxDepth, final String filenameRegex) throws IOException {
+    return findFiles(directory, maxDepth, (filenameRegex != null ? Pattern.compile(filenameRegex) : null));
+  }
+
+  public static Stream<File> findFiles(final File directory, final int maxDepth, final Pattern filenamePattern) throws IOException {
     Arguments.requireNotNull(directory, "directory == null");
 
-    return Files.find(directory.toPath(), maxDepth, (path, basicFileAttributes) -> filenameRegex == null || path.toFile().getName().matches(filenameRegex))
+    return Files.find(directory.toPath(), maxDepth, (path, basicFileAttributes) -> filenamePattern == null || matchesFileName(path, filenamePattern))
         .map(Path::toFile);
   }
 
+  public static List<Path> listFiles(final Path directory, final Pattern filenamePattern) throws IOException {
+    Arguments.requireNotNull(directory, "directory == null");
+    Arguments.requireNotNull(filenamePattern, "filenamePattern == null");
+
+    final List<Path> files = new ArrayList<>();
+
+    // The filter only sees the entry name, so no attributes are read for entries that do not match.
+    try(final DirectoryStream<Path> entries = Files.newDirectoryStream(directory, entry -> matchesFileName(entry, filenamePattern))) {
+      for(final Path entry : entries) {
+        files.add(entry);
+      }
+    }
+
+    return files;
+  }
+
+  // Names a new file in the directory after the current time, deleting older files with the extension so that at most kept remain once it
+  // is written. The names sort chronologically. Companion files, named after a file plus one of the suffixes, are deleted along with it.
+  public static Path newTimestampedFile(final Path directory, final String extension, final int kept, final String... companionSuffixes)
+      throws IOException {
+    Arguments.requireNotNull(directory, "directory == null");
+    Arguments.requireNotNull(extension, "extension == null");
+    Arguments.requireNotNull(companionSuffixes, "companionSuffixes == null");
+
+    Files.createDirectories(directory);
+
+    final List<Path> files = listFiles(directory, Pattern.compile(".*" + Pattern.quote(extension)));
+
+    files.sort(Comparator.comparing(Path::toString).reversed());
+
+    for(final Path file : files.subList(Math.min(files.size(), Math.max(0, kept - 1)), files.size())) {
+      Files.deleteIfExists(file);
+
+      for(final String companionSuffix : companionSuffixes) {
+        Files.deleteIfExists(file.resolveSibling(file.getFileName() + companionSuffix));
+      }
+    }
+
+    return directory.resolve(LocalDateTime.now().format(FILE_NAME_TIME_FORMAT) + extension);
+  }
+
   public static Stream<File> getPath(final String name) {
     Arguments.requireNotNull(name, "name == null");
 
     final String path = System.getenv(name);
+
+    if(path == null) {
+      return Stream.empty();
+    }
+
     final String[] files = path.split(Pattern.quote(File.pathSeparator));
 
     return Arrays.stream(files)
+        .filter(file -> !file.isEmpty())
         .map(File::new);
   }
 
@@ -77,6 +139,12 @@ public final class FileUtils {
     return new File(".");
   }
 
+  private static boolean matchesFileName(final Path path, final Pattern filenamePattern) {
+    final Path fileName = path.getFileName();
+
+    return (fileName != null && filenamePattern.matcher(fileName.toString()).matches());
+  }
+
   // Constructors
   //--------------------------------------------------
 
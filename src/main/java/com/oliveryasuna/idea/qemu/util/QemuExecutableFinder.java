@@ -4,7 +4,11 @@ import com.oliveryasuna.commons.language.exception.UnsupportedInstantiationExcep
 import com.oliveryasuna.commons.language.marker.Utility;
 
 import java.io.File;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 @Utility
 public final class QemuExecutableFinder {
@@ -14,11 +18,26 @@ public final class QemuExecutableFinder {
 
   private static final String QEMU_COMMAND_REGEX = "^qemu-system-.+$";
 
+  private static final Pattern QEMU_COMMAND_PATTERN = Pattern.compile(QEMU_COMMAND_REGEX);
+
   // Static utility methods
   //--------------------------------------------------
 
   public static List<File> findQemuExecutables() {
-    return CommandUtils.findExecutables(QEMU_COMMAND_REGEX);
+    return findQemuExecutables(CommandUtils.getSearchDirectories().collect(Collectors.toList()));
+  }
+
+  public static List<File> findQemuExecutables(final Collection<File> directories) {
+    return CommandUtils.findExecutables(directories, QEMU_COMMAND_PATTERN, CommandUtils.DEFAULT_DIRECTORY_TIMEOUT);
+  }
+
+  // Lists one directory on the calling thread, without a timeout.
+  public static List<File> findQemuExecutables(final File directory) {
+    return CommandUtils.findExecutables(directory, QEMU_COMMAND_PATTERN);
+  }
+
+  public static Map<File, List<File>> findQemuExecutablesByDirectory(final Collection<File> directories) {
+    return CommandUtils.findExecutablesByDirectory(directories, QEMU_COMMAND_PATTERN, CommandUtils.DEFAULT_DIRECTORY_TIMEOUT);
   }
 
   // Constructors